@@ -254,7 +254,7 @@ public class AppLoadingActivity extends AppCompatActivity {
      */
     private void saveProjectsToCache(List<Project> projects) {
         try {
-            OfflineDatabaseHelper dbHelper = new OfflineDatabaseHelper(this);
+            OfflineDatabaseHelper dbHelper = OfflineDatabaseHelper.getInstance(this);
             dbHelper.clearProjects();
             for (Project project : projects) {
                 dbHelper.insertProject(project);
@@ -270,7 +270,7 @@ public class AppLoadingActivity extends AppCompatActivity {
      */
     private void saveWorkTypesToCache(List<WorkType> workTypes) {
         try {
-            OfflineDatabaseHelper dbHelper = new OfflineDatabaseHelper(this);
+            OfflineDatabaseHelper dbHelper = OfflineDatabaseHelper.getInstance(this);
             dbHelper.clearWorkTypes();
             for (WorkType workType : workTypes) {
                 dbHelper.insertWorkType(workType);
@@ -333,7 +333,7 @@ public class AppLoadingActivity extends AppCompatActivity {
     private void markInitialAuthenticationComplete(int workTypesCount) {
         try {
             // Récupérer le nombre de projets depuis la base locale
-            OfflineDatabaseHelper dbHelper = new OfflineDatabaseHelper(this);
+            OfflineDatabaseHelper dbHelper = OfflineDatabaseHelper.getInstance(this);
             int projectsCount = dbHelper.getProjectCount();
 
             // Récupérer l'email de l'utilisateur
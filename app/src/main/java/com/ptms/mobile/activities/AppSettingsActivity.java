@@ -8,8 +8,6 @@ import android.view.View;
 import android.widget.Button;
 import android.widget.CheckBox;
 import android.widget.EditText;
-import android.widget.RadioButton;
-import android.widget.RadioGroup;
 import android.widget.SeekBar;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -35,9 +33,6 @@ public class AppSettingsActivity extends AppCompatActivity {
     private CheckBox cbDebugMode;
     private CheckBox cbEnableChat;
     private CheckBox cbEnableChatPolling;
-    private RadioGroup rgChatVersion;
-    private RadioButton rbChatV1;
-    private RadioButton rbChatV2;
     private Button btnSave;
     private Button btnReset;
     private Button btnTestConnection;
@@ -69,9 +64,6 @@ public class AppSettingsActivity extends AppCompatActivity {
             cbDebugMode = findViewById(R.id.cb_debug_mode);
             cbEnableChat = findViewById(R.id.cb_enable_chat);
             cbEnableChatPolling = findViewById(R.id.cb_enable_chat_polling);
-            rgChatVersion = findViewById(R.id.rg_chat_version);
-            rbChatV1 = findViewById(R.id.rb_chat_v1);
-            rbChatV2 = findViewById(R.id.rb_chat_v2);
             btnSave = findViewById(R.id.btn_save_settings);
             btnReset = findViewById(R.id.btn_reset_settings);
             btnTestConnection = findViewById(R.id.btn_test_connection);
@@ -124,14 +116,6 @@ public class AppSettingsActivity extends AppCompatActivity {
         if (cbEnableChat != null) cbEnableChat.setChecked(settingsManager.isChatEnabled());
         if (cbEnableChatPolling != null) cbEnableChatPolling.setChecked(settingsManager.isChatPollingEnabled());
 
-        // Charger la version du chat
-        int chatVersion = settingsManager.getChatVersion();
-        if (chatVersion == SettingsManager.CHAT_VERSION_WEBSOCKET) {
-            if (rbChatV2 != null) rbChatV2.setChecked(true);
-        } else {
-            if (rbChatV1 != null) rbChatV1.setChecked(true);
-        }
-
         Log.d("SETTINGS", "Paramètres chargés");
     }
     
@@ -259,19 +243,7 @@ public class AppSettingsActivity extends AppCompatActivity {
         settingsManager.setChatEnabled(cbEnableChat != null && cbEnableChat.isChecked());
         settingsManager.setChatPollingEnabled(cbEnableChatPolling != null && cbEnableChatPolling.isChecked());
 
-        // Sauvegarder la version du chat
-        if (rgChatVersion != null) {
-            int selectedId = rgChatVersion.getCheckedRadioButtonId();
-            if (selectedId == R.id.rb_chat_v2) {
-                settingsManager.setChatVersion(SettingsManager.CHAT_VERSION_WEBSOCKET);
-                Toast.makeText(this, "Paramètres sauvegardés - Chat V2 (WebSocket) activé", Toast.LENGTH_LONG).show();
-            } else {
-                settingsManager.setChatVersion(SettingsManager.CHAT_VERSION_POLLING);
-                Toast.makeText(this, "Paramètres sauvegardés - Chat V1 (Polling) activé", Toast.LENGTH_SHORT).show();
-            }
-        } else {
-            Toast.makeText(this, "Paramètres sauvegardés", Toast.LENGTH_SHORT).show();
-        }
+        Toast.makeText(this, "Paramètres sauvegardés", Toast.LENGTH_SHORT).show();
 
         // ✅ IMPORTANT: Reconfigurer ApiClient avec les nouveaux paramètres
         try {
@@ -712,7 +712,7 @@ public class AuthenticationActivity extends AppCompatActivity {
 
                     // Sauvegarder dans SQLite
                     com.ptms.mobile.database.OfflineDatabaseHelper dbHelper =
-                        new com.ptms.mobile.database.OfflineDatabaseHelper(this);
+                        com.ptms.mobile.database.OfflineDatabaseHelper.getInstance(this);
                     dbHelper.clearProjects(); // Vider les anciens
                     for (Project project : projects) {
                         dbHelper.insertProject(project);
@@ -730,7 +730,7 @@ public class AuthenticationActivity extends AppCompatActivity {
 
                     // Sauvegarder dans SQLite
                     com.ptms.mobile.database.OfflineDatabaseHelper dbHelper =
-                        new com.ptms.mobile.database.OfflineDatabaseHelper(this);
+                        com.ptms.mobile.database.OfflineDatabaseHelper.getInstance(this);
                     dbHelper.clearWorkTypes(); // Vider les anciens
                     for (WorkType workType : workTypes) {
                         dbHelper.insertWorkType(workType);
@@ -38,7 +38,10 @@ import com.ptms.mobile.api.ApiClient;
 import com.ptms.mobile.api.ApiService;
 import com.ptms.mobile.models.ChatMessage;
 import com.ptms.mobile.models.ChatRoom;
+import com.ptms.mobile.utils.ChatHistoryManager;
+import com.ptms.mobile.utils.ChatMessageFetcher;
 import com.ptms.mobile.utils.MediaUploadManager;
+import com.ptms.mobile.websocket.ChatTransport;
 
 import java.io.File;
 import java.io.IOException;
@@ -55,8 +58,12 @@ import retrofit2.Response;
 
 /**
  * Activité de chat pour une salle spécifique
+ *
+ * ✅ Temps réel par le transport partagé (ChatTransport): tant que le WebSocket est connecté,
+ * chaque message poussé déclenche un delta HTTP et aucun polling ne tourne; le polling
+ * adaptatif ne sert que de secours pendant les coupures du socket
  */
-public class ChatActivity extends AppCompatActivity {
+public class ChatActivity extends AppCompatActivity implements ChatTransport.Listener {
     
     public static final String EXTRA_CHAT_ROOM = "chat_room";
     public static final String EXTRA_ROOM_ID = "room_id";
@@ -86,10 +93,14 @@ public class ChatActivity extends AppCompatActivity {
     private com.ptms.mobile.utils.SettingsManager settingsManager;
     private MediaUploadManager uploadManager;
 
-    // Polling automatique
+    // Transport temps réel partagé; polling de secours (incrémental, intervalle adaptatif)
+    private ChatTransport transport;
+    // Message poussé pendant un delta déjà en cours: relancer un delta à sa réponse
+    private boolean pushedDuringFetch = false;
     private Handler pollingHandler;
     private Runnable pollingRunnable;
-    private static final long POLLING_INTERVAL = 5000; // 5 secondes
+    private ChatMessageFetcher messageFetcher;
+    private ChatHistoryManager historyManager;
     private boolean isPolling = false;
 
     // Indicateur "en train d'écrire"
@@ -160,6 +171,9 @@ public class ChatActivity extends AppCompatActivity {
             authToken = prefs.getString("auth_token", null);
             currentUserId = prefs.getInt("employee_id", -1);
             settingsManager = new com.ptms.mobile.utils.SettingsManager(this);
+            messageFetcher = new ChatMessageFetcher(apiService, roomId);
+            historyManager = new ChatHistoryManager(this, apiService, roomId);
+            transport = ChatTransport.getInstance(this);
 
             // Initialiser MediaUploadManager
             String baseUrl = prefs.getString("server_url", "https://serveralpha.protti.group");
@@ -179,7 +193,7 @@ public class ChatActivity extends AppCompatActivity {
             setupListeners();
             setupChatMode(); // ✅ Configurer le mode lecture seule si chat désactivé
             setupPolling();
-            loadMessages();
+            loadCachedMessages();
 
         } catch (Exception e) {
             android.util.Log.e("CHAT", "Erreur dans onCreate", e);
@@ -221,6 +235,7 @@ public class ChatActivity extends AppCompatActivity {
 
     /**
      * Configure le polling automatique pour rafraîchir les messages
+     * Le prochain appel est planifié à la réponse, avec le délai adaptatif du fetcher
      */
     private void setupPolling() {
         pollingHandler = new Handler(Looper.getMainLooper());
@@ -229,12 +244,21 @@ public class ChatActivity extends AppCompatActivity {
             public void run() {
                 if (isPolling) {
                     loadMessagesQuietly();
-                    pollingHandler.postDelayed(this, POLLING_INTERVAL);
                 }
             }
         };
     }
 
+    /**
+     * Planifie le prochain polling (remplace celui déjà planifié)
+     */
+    private void scheduleNextPoll() {
+        if (isPolling) {
+            pollingHandler.removeCallbacks(pollingRunnable);
+            pollingHandler.postDelayed(pollingRunnable, messageFetcher.getPollDelay());
+        }
+    }
+
     /**
      * Démarre le polling automatique (seulement si activé dans les paramètres)
      */
@@ -254,7 +278,13 @@ public class ChatActivity extends AppCompatActivity {
         if (!isPolling) {
             isPolling = true;
             android.util.Log.d("CHAT", "Démarrage du polling automatique");
-            pollingHandler.post(pollingRunnable);
+            if (messageFetcher.getLastMessageId() > 0) {
+                // Retour sur l'écran: rattraper tout de suite les messages manqués
+                pollingHandler.post(pollingRunnable);
+            } else {
+                // Chargement initial en cours (loadMessages)
+                scheduleNextPoll();
+            }
         }
     }
 
@@ -266,49 +296,108 @@ public class ChatActivity extends AppCompatActivity {
             isPolling = false;
             android.util.Log.d("CHAT", "Arrêt du polling automatique");
             pollingHandler.removeCallbacks(pollingRunnable);
+            messageFetcher.cancel();
         }
     }
 
     /**
-     * Charge les messages sans afficher de toast (pour le polling automatique)
+     * Charge les nouveaux messages sans afficher de toast (pour le polling automatique)
+     * Seuls les messages postérieurs au dernier message affiché sont demandés et ajoutés
      */
     private void loadMessagesQuietly() {
         if (apiService == null || authToken == null) {
             return;
         }
 
-        Call<ApiService.ChatMessagesResponse> call = apiService.getChatMessages(authToken, roomId, 50, 0);
-        call.enqueue(new Callback<ApiService.ChatMessagesResponse>() {
+        messageFetcher.fetchNewer(authToken, new ChatMessageFetcher.Callback() {
             @Override
-            public void onResponse(Call<ApiService.ChatMessagesResponse> call, Response<ApiService.ChatMessagesResponse> response) {
+            public void onNewMessages(List<ChatMessage> messages) {
                 try {
-                    if (response.isSuccessful() && response.body() != null) {
-                        ApiService.ChatMessagesResponse chatResponse = response.body();
-                        if (chatResponse.success && chatResponse.messages != null) {
-                            List<ChatMessage> messages = chatResponse.messages;
-                            int oldCount = messagesAdapter.getItemCount();
-                            messagesAdapter.updateMessages(messages);
+                    int added = historyManager.applyLatest(messages, messagesAdapter);
 
-                            // Scroll vers le bas seulement si de nouveaux messages
-                            if (messages.size() > oldCount) {
-                                recyclerMessages.scrollToPosition(messages.size() - 1);
-                                android.util.Log.d("CHAT", "Nouveaux messages: " + (messages.size() - oldCount));
-                            }
-                        }
+                    // Scroll vers le bas: observateur d'insertion (setupRecyclerView)
+                    if (added > 0) {
+                        android.util.Log.d("CHAT", "Nouveaux messages: " + added);
                     }
                 } catch (Exception e) {
                     android.util.Log.e("CHAT", "Erreur dans loadMessagesQuietly", e);
                 }
+                scheduleNextPoll();
+                fetchPushedMessages();
             }
 
             @Override
-            public void onFailure(Call<ApiService.ChatMessagesResponse> call, Throwable t) {
+            public void onError(String error) {
                 // Pas de toast pour les échecs de polling automatique
-                android.util.Log.w("CHAT", "Échec polling messages", t);
+                android.util.Log.w("CHAT", "Échec polling messages: " + error);
+                scheduleNextPoll();
+                fetchPushedMessages();
             }
         });
     }
-    
+
+    /**
+     * Delta pour un message poussé par le socket pendant le delta précédent
+     */
+    private void fetchPushedMessages() {
+        if (pushedDuringFetch) {
+            pushedDuringFetch = false;
+            loadMessagesQuietly();
+        }
+    }
+
+    /**
+     * Statut affiché sous le nom de la salle selon le transport actif
+     */
+    private void updateTransportStatus() {
+        tvRoomStatus.setText(transport.isRealtime()
+            ? getString(R.string.chat_online) + " · temps réel"
+            : getString(R.string.chat_online) + " · synchronisation périodique");
+    }
+
+    // ==================== ChatTransport.Listener ====================
+
+    @Override
+    public void onTransportChanged(boolean realtime) {
+        updateTransportStatus();
+        if (realtime) {
+            stopPolling();
+            // Rattraper les messages envoyés pendant la coupure
+            if (messageFetcher.getLastMessageId() > 0) {
+                loadMessagesQuietly();
+            }
+        } else {
+            startPolling();
+        }
+    }
+
+    @Override
+    public void onNewMessage(int messageRoomId, int senderId, String message, long timestamp) {
+        if (messageRoomId != roomId || messageFetcher.getLastMessageId() <= 0) {
+            // Autre salle, ou chargement initial en cours (il inclura ce message)
+            return;
+        }
+        // Le message poussé n'a pas d'ID: le delta récupère la version enregistrée par le serveur
+        if (messageFetcher.isFetching()) {
+            pushedDuringFetch = true;
+        } else {
+            loadMessagesQuietly();
+        }
+    }
+
+    @Override
+    public void onUserTyping(int typingRoomId, int userId, boolean typing) {
+        if (typingRoomId != roomId || userId == currentUserId) {
+            return;
+        }
+        if (typing) {
+            typingIndicator.setVisibility(View.VISIBLE);
+            tvTyping.setText(getString(R.string.chat_typing));
+        } else {
+            typingIndicator.setVisibility(View.GONE);
+        }
+    }
+
     private void initViews() {
         toolbar = findViewById(R.id.toolbar);
         tvRoomName = findViewById(R.id.tv_room_name);
@@ -332,21 +421,25 @@ public class ChatActivity extends AppCompatActivity {
         
         // Informations de la salle
         tvRoomName.setText(roomName != null ? roomName : "Salle de chat");
-        tvRoomStatus.setText(getString(R.string.chat_online));
+        updateTransportStatus();
     }
     
     private void setupRecyclerView() {
         messagesAdapter = new ChatMessagesAdapter(this, currentUserId);
         recyclerMessages.setLayoutManager(new LinearLayoutManager(this));
         recyclerMessages.setAdapter(messagesAdapter);
+
+        // Remontée dans l'historique: disque d'abord, trous comblés par le serveur
+        historyManager.attachOlderPaging(recyclerMessages, messagesAdapter, authToken);
         
         // Scroll automatique vers le bas pour les nouveaux messages
+        // (insertions en fin de liste, appliquées quand le diff de l'adaptateur est prêt)
         messagesAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
             @Override
             public void onItemRangeInserted(int positionStart, int itemCount) {
                 super.onItemRangeInserted(positionStart, itemCount);
-                if (positionStart == messagesAdapter.getItemCount() - 1) {
-                    recyclerMessages.scrollToPosition(positionStart);
+                if (positionStart + itemCount == messagesAdapter.getItemCount()) {
+                    recyclerMessages.scrollToPosition(messagesAdapter.getItemCount() - 1);
                 }
             }
         });
@@ -394,7 +487,8 @@ public class ChatActivity extends AppCompatActivity {
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
                 if (s.length() > 0) {
-                    // L'utilisateur est en train d'écrire
+                    // L'utilisateur est en train d'écrire: polling au rythme minimal
+                    messageFetcher.onUserActivity();
                     if (!isTyping) {
                         setTypingStatus(true);
                     }
@@ -412,6 +506,25 @@ public class ChatActivity extends AppCompatActivity {
         });
     }
     
+    /**
+     * Affiche immédiatement l'historique enregistré, puis ne récupère que les messages manquants
+     * Première ouverture de la salle (rien sur le disque): chargement complet
+     */
+    private void loadCachedMessages() {
+        historyManager.loadCached(cached -> {
+            if (isFinishing()) {
+                return;
+            }
+            if (cached.isEmpty()) {
+                loadMessages();
+                return;
+            }
+            messagesAdapter.updateMessages(cached);
+            messageFetcher.reset(cached);
+            loadMessagesQuietly();
+        });
+    }
+
     private void loadMessages() {
         if (apiService == null || authToken == null) {
             android.util.Log.w("CHAT", "API Service ou token null");
@@ -431,11 +544,8 @@ public class ChatActivity extends AppCompatActivity {
                             List<ChatMessage> messages = chatResponse.messages;
                             android.util.Log.d("CHAT", "Messages chargés: " + messages.size());
                             messagesAdapter.updateMessages(messages);
-                            
-                            // Scroll vers le bas
-                            if (!messages.isEmpty()) {
-                                recyclerMessages.scrollToPosition(messages.size() - 1);
-                            }
+                            messageFetcher.reset(messages);
+                            historyManager.saveLatest(messages, messages.size() >= ChatHistoryManager.PAGE_SIZE);
                         } else {
                             android.util.Log.e("CHAT", "Erreur API: " + chatResponse.message);
                             Toast.makeText(ChatActivity.this, "Erreur: " + chatResponse.message, Toast.LENGTH_SHORT).show();
@@ -468,6 +578,11 @@ public class ChatActivity extends AppCompatActivity {
         isTyping = typing;
         android.util.Log.d("CHAT", "Statut 'en train d'écrire': " + typing);
 
+        // Socket connecté: pas de requête HTTP
+        if (transport.sendTyping(roomId, typing)) {
+            return;
+        }
+
         ApiService.TypingRequest request = new ApiService.TypingRequest(roomId, typing);
 
         Call<ApiService.ChatTypingResponse> call = apiService.setTypingStatus(authToken, request);
@@ -536,8 +651,9 @@ public class ChatActivity extends AppCompatActivity {
                                 messagesAdapter.addMessage(chatResponse.chatMessage);
                             }
                             
-                            // Recharger les messages pour avoir la version complète
-                            loadMessages();
+                            // Salle active: récupérer tout de suite les messages arrivés entre-temps
+                            messageFetcher.onUserActivity();
+                            loadMessagesQuietly();
                         } else {
                             Toast.makeText(ChatActivity.this, "Erreur: " + chatResponse.message, Toast.LENGTH_SHORT).show();
                         }
@@ -988,16 +1104,24 @@ public class ChatActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
-        // Démarrer le polling quand l'activité est visible
-        startPolling();
-        android.util.Log.d("CHAT", "onResume - polling démarré");
+        // Temps réel si le socket partagé est connecté, sinon polling de secours
+        transport.attach(this, roomId);
+        updateTransportStatus();
+        if (!transport.isRealtime()) {
+            startPolling();
+        } else if (messageFetcher.getLastMessageId() > 0) {
+            // Retour sur l'écran: messages arrivés pendant la pause
+            loadMessagesQuietly();
+        }
+        android.util.Log.d("CHAT", "onResume - " + (transport.isRealtime() ? "temps réel" : "polling démarré"));
     }
 
     @Override
     protected void onPause() {
         super.onPause();
-        // Arrêter le polling quand l'activité n'est plus visible
+        // Arrêter le polling et les événements temps réel quand l'activité n'est plus visible
         stopPolling();
+        transport.detach(this, roomId);
         android.util.Log.d("CHAT", "onPause - polling arrêté");
     }
 
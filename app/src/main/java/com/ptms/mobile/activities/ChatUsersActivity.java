@@ -199,9 +199,9 @@ public class ChatUsersActivity extends AppCompatActivity implements ChatUsersAda
                         ApiService.ChatConversationResponse convResponse = response.body();
                         if (convResponse.success && convResponse.conversationId > 0) {
                             // Ouvrir l'activité de chat
-                            Intent intent = new Intent(ChatUsersActivity.this, ChatWebSocketActivity.class);
-                            intent.putExtra(ChatWebSocketActivity.EXTRA_ROOM_ID, convResponse.conversationId);
-                            intent.putExtra(ChatWebSocketActivity.EXTRA_ROOM_NAME, user.getName());
+                            Intent intent = new Intent(ChatUsersActivity.this, ChatActivity.class);
+                            intent.putExtra(ChatActivity.EXTRA_ROOM_ID, convResponse.conversationId);
+                            intent.putExtra(ChatActivity.EXTRA_ROOM_NAME, user.getName());
                             startActivity(intent);
                             finish(); // Fermer cette activité
                         } else {
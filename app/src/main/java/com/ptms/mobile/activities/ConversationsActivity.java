@@ -21,6 +21,7 @@ import com.ptms.mobile.adapters.ChatRoomsAdapter;
 import com.ptms.mobile.adapters.ChatRoomsGroupedAdapter;
 import com.ptms.mobile.api.ApiClient;
 import com.ptms.mobile.api.ApiService;
+import com.ptms.mobile.database.OfflineDatabaseHelper;
 import com.ptms.mobile.models.ChatRoom;
 
 import java.util.List;
@@ -47,6 +48,8 @@ public class ConversationsActivity extends AppCompatActivity implements ChatRoom
     private String authToken;
     private com.ptms.mobile.utils.SettingsManager settingsManager;
     private boolean useGroupedView;
+    private OfflineDatabaseHelper dbHelper;
+    private boolean showingCachedRooms = false;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -60,6 +63,7 @@ public class ConversationsActivity extends AppCompatActivity implements ChatRoom
             authToken = prefs.getString("auth_token", null);
             settingsManager = new com.ptms.mobile.utils.SettingsManager(this);
             useGroupedView = settingsManager.isChatGroupedView();
+            dbHelper = OfflineDatabaseHelper.getInstance(this);
 
             if (authToken == null) {
                 Toast.makeText(this, "Session expirée", Toast.LENGTH_SHORT).show();
@@ -72,6 +76,7 @@ public class ConversationsActivity extends AppCompatActivity implements ChatRoom
             setupToolbar();
             setupRecyclerView();
             setupListeners();
+            loadCachedChatRooms();
             loadChatRooms();
             
         } catch (Exception e) {
@@ -122,6 +127,32 @@ public class ConversationsActivity extends AppCompatActivity implements ChatRoom
         });
     }
     
+    /**
+     * Affiche les salles enregistrées pendant le chargement (ou hors ligne)
+     */
+    private void loadCachedChatRooms() {
+        dbHelper.executeWrite(() -> {
+            List<ChatRoom> cachedRooms = dbHelper.getChatRooms();
+            runOnUiThread(() -> {
+                // Réponse serveur déjà affichée: le cache est plus ancien
+                if (isFinishing() || cachedRooms.isEmpty() || progressLoading.getVisibility() != View.VISIBLE) {
+                    return;
+                }
+                displayChatRooms(cachedRooms);
+                showingCachedRooms = true;
+            });
+        });
+    }
+
+    private void displayChatRooms(List<ChatRoom> chatRooms) {
+        if (useGroupedView) {
+            chatRoomsGroupedAdapter.updateChatRooms(chatRooms);
+        } else {
+            chatRoomsAdapter.updateChatRooms(chatRooms);
+        }
+        showChatRooms();
+    }
+
     private void loadChatRooms() {
         if (apiService == null || authToken == null) {
             android.util.Log.w("CHAT_ROOMS", "API Service ou token null");
@@ -146,16 +177,13 @@ public class ConversationsActivity extends AppCompatActivity implements ChatRoom
                         if (chatResponse.success && chatResponse.rooms != null) {
                             List<ChatRoom> chatRooms = chatResponse.rooms;
                             android.util.Log.d("CHAT_ROOMS", "Salles de chat chargées: " + chatRooms.size());
+                            dbHelper.executeWrite(() -> dbHelper.saveChatRooms(chatRooms));
+                            showingCachedRooms = false;
                             
                             if (chatRooms.isEmpty()) {
                                 showEmptyState();
                             } else {
-                                if (useGroupedView) {
-                                    chatRoomsGroupedAdapter.updateChatRooms(chatRooms);
-                                } else {
-                                    chatRoomsAdapter.updateChatRooms(chatRooms);
-                                }
-                                showChatRooms();
+                                displayChatRooms(chatRooms);
                             }
                         } else {
                             android.util.Log.e("CHAT_ROOMS", "Erreur API: " + chatResponse.message);
@@ -178,7 +206,10 @@ public class ConversationsActivity extends AppCompatActivity implements ChatRoom
                 progressLoading.setVisibility(View.GONE);
                 android.util.Log.e("CHAT_ROOMS", "Échec chargement salles", t);
                 Toast.makeText(ConversationsActivity.this, "Erreur réseau: " + t.getMessage(), Toast.LENGTH_SHORT).show();
-                showEmptyState();
+                // Hors ligne: les salles enregistrées restent affichées
+                if (!showingCachedRooms) {
+                    showEmptyState();
+                }
             }
         });
     }
@@ -197,19 +228,8 @@ public class ConversationsActivity extends AppCompatActivity implements ChatRoom
     public void onChatRoomClick(ChatRoom chatRoom) {
         android.util.Log.d("CHAT_ROOMS", "Clic sur la salle: " + chatRoom.getName());
 
-        // Déterminer quelle version du chat utiliser
-        int chatVersion = settingsManager.getChatVersion();
-        Intent intent;
-
-        if (chatVersion == com.ptms.mobile.utils.SettingsManager.CHAT_VERSION_WEBSOCKET) {
-            // Version 2: WebSocket (Temps Réel)
-            android.util.Log.d("CHAT_ROOMS", "Ouverture Chat V2 (WebSocket)");
-            intent = new Intent(this, ChatWebSocketActivity.class);
-        } else {
-            // Version 1: Polling HTTP (Par défaut)
-            android.util.Log.d("CHAT_ROOMS", "Ouverture Chat V1 (Polling)");
-            intent = new Intent(this, ChatActivity.class);
-        }
+        // Temps réel (WebSocket partagé) ou polling de secours: choisi par ChatActivity
+        Intent intent = new Intent(this, ChatActivity.class);
 
         // Passer seulement les données essentielles pour éviter problèmes de sérialisation
         intent.putExtra("ROOM_ID", chatRoom.getId());
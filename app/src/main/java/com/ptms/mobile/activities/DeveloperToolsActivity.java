@@ -84,8 +84,8 @@ public class DeveloperToolsActivity extends AppCompatActivity {
 
         // ===== CHAT =====
         activities.add(new ActivityItem("E001", "ConversationsActivity", "Liste des conversations/salons", ConversationsActivity.class));
-        activities.add(new ActivityItem("E002", "ChatWebSocketActivity", "Interface de chat WebSocket (V2)", ChatWebSocketActivity.class));
-        activities.add(new ActivityItem("E003", "ChatActivity", "Interface de chat classique (V1)", ChatActivity.class));
+        activities.add(new ActivityItem("E002", "ChatWebSocketActivity", "Redirection vers ChatActivity (ancienne V2)", ChatWebSocketActivity.class));
+        activities.add(new ActivityItem("E003", "ChatActivity", "Interface de chat (WebSocket, polling de secours)", ChatActivity.class));
         activities.add(new ActivityItem("E004", "ChatUsersActivity", "Liste des utilisateurs pour chat", ChatUsersActivity.class));
         activities.add(new ActivityItem("E005", "ChatParticipantsActivity", "Participants d'une conversation", ChatParticipantsActivity.class));
         activities.add(new ActivityItem("E006", "NewConversationActivity", "Créer une nouvelle conversation", NewConversationActivity.class));
@@ -21,6 +21,8 @@ import com.google.android.material.chip.Chip;
 import com.google.android.material.chip.ChipGroup;
 import com.google.android.material.textfield.TextInputEditText;
 import com.ptms.mobile.R;
+import com.ptms.mobile.utils.FederatedSearch;
+import com.ptms.mobile.utils.IncrementalSearch;
 import com.ptms.mobile.utils.SearchManager;
 import com.ptms.mobile.utils.SearchManager.SearchCriteria;
 import com.ptms.mobile.utils.SearchManager.SearchResults;
@@ -34,7 +36,8 @@ import java.util.List;
  * ✅ Activité de recherche avancée
  *
  * Fonctionnalités :
- * - Recherche en temps réel
+ * - Recherche en temps réel (anti-rebond, annulation, affinage, résultats par catégorie)
+ * - Résultats locaux immédiats, fusionnés avec ceux du serveur dès leur arrivée
  * - Filtres multiples (type, date, projet, tags)
  * - Suggestions intelligentes
  * - Historique de recherche
@@ -66,6 +69,7 @@ public class GlobalSearchActivity extends AppCompatActivity {
 
     // Manager
     private SearchManager searchManager;
+    private IncrementalSearch incrementalSearch;
 
     // Adapter
     private SearchResultsAdapter resultsAdapter;
@@ -84,6 +88,8 @@ public class GlobalSearchActivity extends AppCompatActivity {
 
         // Initialiser le manager
         searchManager = new SearchManager(this);
+        // Hors ligne d'abord: résultats locaux immédiats, complétés par ceux du serveur
+        incrementalSearch = new IncrementalSearch(searchManager, new FederatedSearch(this), new SearchListener());
 
         // Initialiser les critères par défaut
         currentCriteria = new SearchCriteria();
@@ -130,28 +136,23 @@ public class GlobalSearchActivity extends AppCompatActivity {
      * Configure le champ de recherche avec suggestions
      */
     private void setupSearchInput() {
-        // Recherche en temps réel avec debounce
+        // Recherche en temps réel: anti-rebond et annulation gérés par IncrementalSearch
         editSearchQuery.addTextChangedListener(new TextWatcher() {
-            private Runnable searchRunnable;
-
             @Override
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
 
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                // Annuler la recherche précédente
-                if (searchRunnable != null) {
-                    editSearchQuery.removeCallbacks(searchRunnable);
+                currentCriteria.query = s.toString().trim();
+                if (currentCriteria.query.isEmpty()) {
+                    incrementalSearch.cancel();
+                    resultsAdapter.clear();
+                    progressBar.setVisibility(View.GONE);
+                    textResultCount.setVisibility(View.GONE);
+                    loadSearchHistory();
+                } else {
+                    incrementalSearch.onQueryChanged(currentCriteria);
                 }
-
-                // Attendre 500ms avant de lancer la recherche
-                searchRunnable = () -> {
-                    String query = s.toString().trim();
-                    currentCriteria.query = query;
-                    performSearch();
-                };
-
-                editSearchQuery.postDelayed(searchRunnable, 500);
             }
 
             @Override
@@ -235,7 +236,7 @@ public class GlobalSearchActivity extends AppCompatActivity {
     }
 
     /**
-     * Effectue la recherche
+     * Effectue la recherche (changement de filtre ou de tri: sans anti-rebond)
      */
     private void performSearch() {
         String query = currentCriteria.query;
@@ -246,62 +247,62 @@ public class GlobalSearchActivity extends AppCompatActivity {
             return;
         }
 
-        Log.d(TAG, "🔎 Lancement recherche: " + query);
-
-        // Afficher le loader
-        progressBar.setVisibility(View.VISIBLE);
-        layoutEmptyState.setVisibility(View.GONE);
-        recyclerResults.setVisibility(View.GONE);
+        incrementalSearch.searchNow(currentCriteria);
+    }
 
-        // Effectuer la recherche en arrière-plan
-        new Thread(() -> {
-            try {
-                SearchResults results = searchManager.search(currentCriteria);
+    /**
+     * Résultats de la recherche incrémentale (thread UI)
+     * Les résultats précédents restent affichés jusqu'à l'arrivée des nouveaux: pas de clignotement.
+     */
+    private class SearchListener implements IncrementalSearch.Listener {
 
-                // Mettre à jour l'UI sur le thread principal
-                runOnUiThread(() -> displayResults(results));
+        @Override
+        public void onSearchStarted(String query, List<SearchType> categories) {
+            Log.d(TAG, "🔎 Lancement recherche: " + query);
+            progressBar.setVisibility(View.VISIBLE);
+            resultsAdapter.retainCategories(categories);
+        }
 
-            } catch (Exception e) {
-                Log.e(TAG, "Erreur recherche", e);
-                runOnUiThread(() -> {
-                    progressBar.setVisibility(View.GONE);
-                    Toast.makeText(this, "Erreur lors de la recherche", Toast.LENGTH_SHORT).show();
-                });
+        @Override
+        public void onCategoryResults(SearchType category, SearchResults results) {
+            resultsAdapter.setCategoryResults(category, results);
+            if (resultsAdapter.getResultCount() > 0) {
+                layoutEmptyState.setVisibility(View.GONE);
+                recyclerResults.setVisibility(View.VISIBLE);
+                updateResultCount(resultsAdapter.getResultCount());
             }
-        }).start();
-    }
+        }
 
-    /**
-     * Affiche les résultats
-     */
-    private void displayResults(SearchResults results) {
-        progressBar.setVisibility(View.GONE);
+        @Override
+        public void onSearchFinished(String query, int totalCount) {
+            progressBar.setVisibility(View.GONE);
+
+            if (totalCount == 0) {
+                // Aucun résultat
+                textEmptyMessage.setText("Aucun résultat trouvé\n\nEssayez avec d'autres mots-clés");
+                layoutEmptyState.setVisibility(View.VISIBLE);
+                recyclerResults.setVisibility(View.GONE);
+                textResultCount.setVisibility(View.GONE);
+            } else {
+                updateResultCount(totalCount);
+                Log.d(TAG, "✅ Affichage de " + totalCount + " résultats");
+            }
+        }
 
-        if (results.totalCount == 0) {
-            // Aucun résultat
-            textEmptyMessage.setText("Aucun résultat trouvé\n\nEssayez avec d'autres mots-clés");
-            layoutEmptyState.setVisibility(View.VISIBLE);
-            recyclerResults.setVisibility(View.GONE);
-            textResultCount.setVisibility(View.GONE);
-        } else {
-            // Afficher les résultats
-            layoutEmptyState.setVisibility(View.GONE);
-            recyclerResults.setVisibility(View.VISIBLE);
-            textResultCount.setVisibility(View.VISIBLE);
-
-            // Mettre à jour le compteur
-            String countText = results.totalCount + " résultat" +
-                              (results.totalCount > 1 ? "s" : "") + " trouvé" +
-                              (results.totalCount > 1 ? "s" : "");
-            textResultCount.setText(countText);
-
-            // Mettre à jour l'adapter
-            resultsAdapter.setResults(results);
-
-            Log.d(TAG, "✅ Affichage de " + results.totalCount + " résultats");
+        @Override
+        public void onSearchError(Exception e) {
+            progressBar.setVisibility(View.GONE);
+            Toast.makeText(GlobalSearchActivity.this, "Erreur lors de la recherche", Toast.LENGTH_SHORT).show();
         }
     }
 
+    private void updateResultCount(int count) {
+        textResultCount.setVisibility(View.VISIBLE);
+        String countText = count + " résultat" + (count > 1 ? "s" : "") +
+                          " trouvé" + (count > 1 ? "s" : "");
+        textResultCount.setText(countText);
+    }
+
     /**
      * Efface tous les filtres
      */
@@ -315,6 +316,8 @@ public class GlobalSearchActivity extends AppCompatActivity {
         spinnerSortBy.setText("Pertinence", false);
         chipImportant.setChecked(false);
 
+        incrementalSearch.reset();
+        resultsAdapter.clear();
         searchManager.clearCache();
 
         Toast.makeText(this, "Filtres effacés", Toast.LENGTH_SHORT).show();
@@ -329,6 +332,7 @@ public class GlobalSearchActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        incrementalSearch.shutdown();
         Log.d(TAG, "🔴 Fermeture activité de recherche");
     }
 }
@@ -0,0 +1,129 @@
+package com.ptms.mobile.activities;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.util.Log;
+import android.view.View;
+import android.widget.ListView;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.google.gson.Gson;
+import com.ptms.mobile.R;
+import com.ptms.mobile.adapters.ReportsAdapter;
+import com.ptms.mobile.database.KeysetPagingSource;
+import com.ptms.mobile.database.OfflineDatabaseHelper;
+import com.ptms.mobile.database.OfflineStore;
+import com.ptms.mobile.models.TimeReport;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
+
+/**
+ * ✅ Historique des rapports enregistrés sur l'appareil (90 derniers jours), du plus récent au plus ancien
+ *
+ * - Liste paginée par clé (OfflineDatabaseHelper.getTimeReportsPage): seules les pages affichées sont lues
+ * - Le nombre de rapports est observé: une saisie ou une synchronisation relit les pages déjà affichées
+ *
+ * @version 1.0
+ * @date 2025-10-28
+ */
+public class LocalReportsActivity extends AppCompatActivity {
+
+    private static final String TAG = "LocalReportsActivity";
+    private static final int HISTORY_DAYS = 90; // Même période que l'écran des rapports
+
+    private ListView listView;
+    private TextView tvNoReports;
+    private ProgressBar progressBar;
+    private KeysetPagingSource<TimeReport> source;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_reports);
+
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        setSupportActionBar(toolbar);
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setTitle("Rapports locaux");
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        }
+
+        listView = findViewById(R.id.list_view_reports);
+        tvNoReports = findViewById(R.id.tv_no_reports);
+        progressBar = findViewById(R.id.progress_bar);
+
+        showReports();
+    }
+
+    /**
+     * Liste paginée de la période + observation du nombre de rapports
+     */
+    private void showReports() {
+        SimpleDateFormat isoFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        Calendar calendar = Calendar.getInstance();
+        String endDate = isoFormat.format(calendar.getTime());
+        calendar.add(Calendar.DAY_OF_YEAR, -HISTORY_DAYS);
+        String startDate = isoFormat.format(calendar.getTime());
+
+        OfflineStore store = OfflineDatabaseHelper.getInstance(this);
+        source = new KeysetPagingSource<>((after, limit) ->
+            store.getTimeReportsPage(startDate, endDate, after, limit));
+        source.addListener(new KeysetPagingSource.Listener() {
+            @Override
+            public void onReset() {
+                progressBar.setVisibility(View.VISIBLE);
+            }
+
+            @Override
+            public void onPageLoaded(int positionStart, int itemCount, boolean endReached) {
+                progressBar.setVisibility(View.GONE);
+                updateEmptyState();
+            }
+
+            @Override
+            public void onReloaded(DiffUtil.DiffResult diff) {
+                updateEmptyState();
+            }
+        });
+
+        listView.setAdapter(new ReportsAdapter(this, source));
+        listView.setOnItemClickListener((parent, view, position, id) -> openReport(source.getItems().get(position)));
+        source.refresh();
+
+        // La première valeur accompagne la page que l'on vient de charger; ensuite les rapports
+        // déjà affichés sont relus sur place (défilement conservé pendant une synchronisation)
+        boolean[] firstValue = {true};
+        store.observeTimeReportsCount(startDate, endDate).observe(this, count -> {
+            Log.d(TAG, "Rapports locaux " + startDate + " - " + endDate + ": " + count);
+            if (!firstValue[0]) {
+                source.reload();
+            }
+            firstValue[0] = false;
+        });
+    }
+
+    private void updateEmptyState() {
+        boolean empty = source.getItems().isEmpty();
+        tvNoReports.setVisibility(empty ? View.VISIBLE : View.GONE);
+        listView.setVisibility(empty ? View.GONE : View.VISIBLE);
+    }
+
+    private void openReport(TimeReport report) {
+        Intent intent = new Intent(this, TimeReportDetailActivity.class);
+        intent.putExtra(TimeReportDetailActivity.EXTRA_REPORT_JSON, new Gson().toJson(report));
+        startActivity(intent);
+    }
+
+    @Override
+    public boolean onSupportNavigateUp() {
+        finish();
+        return true;
+    }
+}
@@ -46,6 +46,7 @@ import com.ptms.mobile.storage.MediaStorageManager;
 import com.ptms.mobile.sync.BidirectionalSyncManager;
 import com.ptms.mobile.utils.PhotoManager;
 import com.ptms.mobile.utils.MediaUploadManager;
+import com.ptms.mobile.utils.NetworkUtils;
 
 import java.io.File;
 import java.io.IOException;
@@ -639,6 +640,16 @@ public class NoteEditorActivity extends AppCompatActivity {
                                 String audioPath, Integer audioDuration, String transcription,
                                 boolean isImportant, String tags, String imagePath) {
 
+        // Modification hors ligne sans nouveau média: enregistrée localement, envoyée à la prochaine synchro
+        boolean hasNewMedia = (audioPath != null && !audioPath.isEmpty())
+                || (imagePath != null && !imagePath.isEmpty())
+                || (videoFilePath != null && !videoFilePath.isEmpty());
+        if (isEditMode && !hasNewMedia && !NetworkUtils.isOnline(this)) {
+            saveEditLocally(projectId, noteType, noteTypeId, noteGroup, title, content,
+                    transcription, isImportant, tags);
+            return;
+        }
+
         // Upload média d'abord si nécessaire, puis créer la note
         if (audioPath != null && !audioPath.isEmpty()) {
             uploadAudioAndCreateNote(projectId, noteType, noteTypeId, noteGroup, title, content,
@@ -956,6 +967,13 @@ public class NoteEditorActivity extends AppCompatActivity {
 
             @Override
             public void onFailure(Call<ApiService.CreateNoteResponse> call, Throwable t) {
+                boolean hasMedia = audioPath != null || imagePath != null || videoPath != null;
+                if (isEditMode && !hasMedia) {
+                    Log.w(TAG, "Mise à jour impossible (" + t.getMessage() + "), enregistrement local");
+                    saveEditLocally(projectId, noteType, noteTypeId, noteGroup, title, content,
+                            transcription, isImportant, tags);
+                    return;
+                }
                 Toast.makeText(NoteEditorActivity.this,
                         "Erreur réseau: " + t.getMessage(), Toast.LENGTH_SHORT).show();
                 Log.e(TAG, "Save note failed", t);
@@ -965,6 +983,53 @@ public class NoteEditorActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * Enregistre la modification dans la base locale (journal d'envoi)
+     * Les éditions successives d'une même note sont fusionnées avant l'upload.
+     */
+    private void saveEditLocally(Integer projectId, String noteType, Integer noteTypeId,
+                                 String noteGroup, String title, String content,
+                                 String transcription, boolean isImportant, String tags) {
+        com.ptms.mobile.database.OfflineDatabaseHelper dbHelper =
+                com.ptms.mobile.database.OfflineDatabaseHelper.getInstance(this);
+        // editNoteId est l'ID serveur (NoteDetailActivity, envoyé comme note_id en ligne)
+        com.ptms.mobile.models.ProjectNote note = dbHelper.getProjectNoteByServerId(editNoteId);
+        if (note == null) {
+            Toast.makeText(this, "Note introuvable hors ligne", Toast.LENGTH_SHORT).show();
+            btnSave.setEnabled(true);
+            btnSave.setText("Enregistrer");
+            return;
+        }
+
+        note.setProjectId(projectId);
+        note.setNoteType(noteType);
+        note.setNoteTypeId(noteTypeId);
+        note.setNoteGroup(noteGroup);
+        note.setTitle(title);
+        note.setContent(content);
+        note.setTranscription(transcription);
+        note.setImportant(isImportant);
+        List<String> tagList = new ArrayList<>();
+        if (tags != null) {
+            for (String tag : tags.split(",")) {
+                if (!tag.trim().isEmpty()) {
+                    tagList.add(tag.trim());
+                }
+            }
+        }
+        note.setTags(tagList);
+
+        if (dbHelper.updateProjectNoteLocally(note)) {
+            Toast.makeText(this, "Modification enregistrée hors ligne", Toast.LENGTH_SHORT).show();
+            setResult(RESULT_OK);
+            finish();
+        } else {
+            Toast.makeText(this, "Erreur lors de l'enregistrement local", Toast.LENGTH_SHORT).show();
+            btnSave.setEnabled(true);
+            btnSave.setText("Enregistrer");
+        }
+    }
+
     /**
      * Créer la note sans média
      */
@@ -1090,7 +1155,7 @@ public class NoteEditorActivity extends AppCompatActivity {
         try {
             // Charger depuis la base de données locale
             com.ptms.mobile.database.OfflineDatabaseHelper dbHelper =
-                    new com.ptms.mobile.database.OfflineDatabaseHelper(this);
+                    com.ptms.mobile.database.OfflineDatabaseHelper.getInstance(this);
             com.ptms.mobile.models.ProjectNote note = dbHelper.getProjectNoteById(noteId);
 
             if (note != null) {
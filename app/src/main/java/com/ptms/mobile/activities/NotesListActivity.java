@@ -12,6 +12,8 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
+import androidx.lifecycle.LiveData;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -22,6 +24,10 @@ import com.android.volley.toolbox.JsonObjectRequest;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.ptms.mobile.R;
 import com.ptms.mobile.adapters.ProjectNotesAdapter;
+import com.ptms.mobile.database.KeysetPagingSource;
+import com.ptms.mobile.database.NoteCounts;
+import com.ptms.mobile.database.OfflineDatabaseHelper;
+import com.ptms.mobile.database.OfflineStore;
 import com.ptms.mobile.models.ProjectNote;
 import com.ptms.mobile.sync.BidirectionalSyncManager;
 import com.ptms.mobile.utils.ApiManager;
@@ -56,6 +62,8 @@ public class NotesListActivity extends AppCompatActivity {
     private boolean isAgendaView = false;
     private String initialFilter = null; // Filtre passé par Intent
     private boolean isLoading = false; // ✅ Flag pour éviter les chargements simultanés
+    private KeysetPagingSource<ProjectNote> cacheSource; // ✅ Cache local paginé (null = notes du serveur)
+    private LiveData<NoteCounts> cacheCounts; // ✅ Compteurs du cache observés (relancés à chaque écriture)
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -236,7 +244,7 @@ public class NotesListActivity extends AppCompatActivity {
     protected void onResume() {
         super.onResume();
         // ✅ Ne recharger que si la liste est vide (évite le double affichage)
-        if (allNotes.isEmpty()) {
+        if (allNotes.isEmpty() && (cacheSource == null || cacheSource.getItems().isEmpty())) {
             loadNotes();
         }
     }
@@ -266,6 +274,8 @@ public class NotesListActivity extends AppCompatActivity {
         isLoading = true;
         progressBar.setVisibility(View.VISIBLE);
         allNotes.clear();
+        cacheSource = null;
+        stopObservingCache();
 
         // Charger selon le mode de connexion
         if (com.ptms.mobile.utils.NetworkUtils.isOnline(this)) {
@@ -276,29 +286,22 @@ public class NotesListActivity extends AppCompatActivity {
             // Mode OFFLINE: Charger UNIQUEMENT depuis la base de données locale
             loadNotesFromCache();
             progressBar.setVisibility(View.GONE);
-            Toast.makeText(this, "Mode hors ligne - " + allNotes.size() + " notes en cache", Toast.LENGTH_SHORT).show();
+            Toast.makeText(this, "Mode hors ligne - notes en cache", Toast.LENGTH_SHORT).show();
         }
     }
 
     /**
      * Charge les notes depuis le cache local (mode offline)
      * ✅ CORRIGÉ: Charge TOUTES les notes locales (pas seulement pending)
+     * ✅ Pagination par clé: 50 notes à la fois, le filtre est appliqué en SQL (voir showCachePage)
      */
     private void loadNotesFromCache() {
         try {
-            int userId = sessionManager.getUserId();
-            if (userId > 0) {
-                // ✅ NOUVEAU: Utiliser getAllNotesByUserId() pour charger TOUTES les notes
-                com.ptms.mobile.database.OfflineDatabaseHelper dbHelper =
-                    new com.ptms.mobile.database.OfflineDatabaseHelper(this);
-                List<ProjectNote> cachedNotes = dbHelper.getAllNotesByUserId(userId);
-
-                if (cachedNotes != null && !cachedNotes.isEmpty()) {
-                    allNotes.addAll(cachedNotes);
-                    Log.d("AllNotesActivity", "Notes offline chargées: " + cachedNotes.size());
-                }
+            if (sessionManager.getUserId() > 0) {
+                showCachePage();
+            } else {
+                filterNotes();
             }
-            filterNotes();
         } catch (Exception e) {
             Log.e("AllNotesActivity", "Erreur chargement notes offline", e);
             Toast.makeText(this, "Erreur chargement notes offline", Toast.LENGTH_SHORT).show();
@@ -307,10 +310,86 @@ public class NotesListActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * ✅ Affiche le cache local pour le filtre courant, page par page
+     * Aucune copie de la table en mémoire: seules les pages affichées sont chargées
+     * Les compteurs sont observés: une écriture sur les notes (édition, synchronisation) les met à jour
+     * et relit les pages affichées
+     */
+    private void showCachePage() {
+        int userId = sessionManager.getUserId();
+        OfflineStore store = OfflineDatabaseHelper.getInstance(this);
+        String noteGroup = currentFilter.equals("all") || currentFilter.equals("important") ? null : currentFilter;
+        boolean importantOnly = currentFilter.equals("important");
+
+        KeysetPagingSource<ProjectNote> source = new KeysetPagingSource<>((after, limit) ->
+            store.getNotesPage(userId, noteGroup, importantOnly, after, limit));
+        cacheSource = source;
+        source.addListener(new KeysetPagingSource.Listener() {
+            @Override
+            public void onReset() {}
+
+            @Override
+            public void onPageLoaded(int positionStart, int itemCount, boolean endReached) {
+                if (positionStart == 0 && source == cacheSource) {
+                    updateEmptyState(source.getItems().isEmpty());
+                }
+            }
+
+            @Override
+            public void onReloaded(DiffUtil.DiffResult diff) {
+                if (source == cacheSource) {
+                    updateEmptyState(source.getItems().isEmpty());
+                }
+            }
+        });
+        adapter.setPagingSource(source);
+        source.refresh();
+
+        // Statistiques par COUNT(*) indexés, sans charger les notes
+        stopObservingCache();
+        cacheCounts = store.observeNoteCounts(userId, noteGroup, importantOnly);
+        boolean[] firstValue = {true};
+        cacheCounts.observe(this, counts -> {
+            tvTotalNotes.setText("Total: " + counts.total);
+            tvCategoryCount.setText("Catégorie: " + counts.category);
+            tvImportantCount.setText("⭐ Important: " + counts.important);
+            // La première valeur accompagne la page que l'on vient de charger; ensuite les notes
+            // déjà affichées sont relues sur place (défilement conservé pendant une synchronisation)
+            if (!firstValue[0] && source == cacheSource) {
+                source.reload();
+            }
+            firstValue[0] = false;
+        });
+        Log.d("AllNotesActivity", "Cache local paginé: filtre " + currentFilter);
+    }
+
+    private void stopObservingCache() {
+        if (cacheCounts != null) {
+            cacheCounts.removeObservers(this);
+            cacheCounts = null;
+        }
+    }
+
+    private void updateEmptyState(boolean empty) {
+        if (empty) {
+            tvEmptyMessage.setVisibility(View.VISIBLE);
+            recyclerView.setVisibility(View.GONE);
+        } else {
+            tvEmptyMessage.setVisibility(View.GONE);
+            recyclerView.setVisibility(View.VISIBLE);
+        }
+    }
+
     /**
      * Filtre les notes selon la catégorie sélectionnée
      */
     private void filterNotes() {
+        if (cacheSource != null) {
+            showCachePage(); // Filtre appliqué en SQL
+            return;
+        }
+
         filteredNotes.clear();
 
         for (ProjectNote note : allNotes) {
@@ -329,16 +408,9 @@ public class NotesListActivity extends AppCompatActivity {
             }
         }
 
-        adapter.notifyDataSetChanged();
+        adapter.setNotes(filteredNotes);
         updateStatistics();
-
-        if (filteredNotes.isEmpty()) {
-            tvEmptyMessage.setVisibility(View.VISIBLE);
-            recyclerView.setVisibility(View.GONE);
-        } else {
-            tvEmptyMessage.setVisibility(View.GONE);
-            recyclerView.setVisibility(View.VISIBLE);
-        }
+        updateEmptyState(filteredNotes.isEmpty());
     }
 
     /**
@@ -379,17 +451,19 @@ public class NotesListActivity extends AppCompatActivity {
                             // ✅ CORRIGÉ: Charger UNIQUEMENT les notes du serveur
                             List<ProjectNote> serverNotes = new ArrayList<>();
                             com.ptms.mobile.database.OfflineDatabaseHelper dbHelper =
-                                new com.ptms.mobile.database.OfflineDatabaseHelper(NotesListActivity.this);
+                                com.ptms.mobile.database.OfflineDatabaseHelper.getInstance(NotesListActivity.this);
 
                             for (int i = 0; i < notesArray.length(); i++) {
                                 ProjectNote note = parseNote(notesArray.getJSONObject(i));
                                 serverNotes.add(note);
-
-                                // ✅ NOUVEAU: Sauvegarder chaque note dans la base locale
-                                // pour disponibilité en mode offline (upsert évite les doublons)
-                                dbHelper.upsertNoteFromServer(note);
                             }
 
+                            // ✅ NOUVEAU: Sauvegarder les notes dans la base locale
+                            // pour disponibilité en mode offline (upsert évite les doublons)
+                            // ✅ Écriture sur le thread d'écriture dédié (ne bloque pas l'UI)
+                            List<ProjectNote> notesToCache = new ArrayList<>(serverNotes);
+                            dbHelper.executeWrite(() -> dbHelper.upsertNotesFromServer(notesToCache));
+
                             // ✅ CORRIGÉ: Ajouter uniquement les notes du serveur (pas de cache)
                             allNotes.addAll(serverNotes);
 
@@ -415,12 +489,8 @@ public class NotesListActivity extends AppCompatActivity {
                     // ✅ CORRIGÉ: En cas d'erreur réseau, charger TOUTES les notes locales
                     int userId = sessionManager.getUserId();
                     if (userId > 0) {
-                        com.ptms.mobile.database.OfflineDatabaseHelper dbHelper =
-                            new com.ptms.mobile.database.OfflineDatabaseHelper(this);
-                        List<ProjectNote> cachedNotes = dbHelper.getAllNotesByUserId(userId);
-                        allNotes.addAll(cachedNotes);
-                        filterNotes();
-                        Toast.makeText(this, "Erreur réseau - " + cachedNotes.size() + " notes en cache", Toast.LENGTH_SHORT).show();
+                        showCachePage();
+                        Toast.makeText(this, "Erreur réseau - notes en cache", Toast.LENGTH_SHORT).show();
                     } else {
                         Toast.makeText(this, "Erreur réseau et pas de cache disponible", Toast.LENGTH_SHORT).show();
                     }
@@ -521,6 +591,14 @@ public class NotesListActivity extends AppCompatActivity {
      * Affiche les détails d'une note via NoteViewerActivity
      */
     private void showNoteDetails(ProjectNote note) {
+        // Le cache paginé ne charge qu'un aperçu du contenu: relire la note complète
+        if (cacheSource != null && note.getLocalId() > 0) {
+            ProjectNote fullNote = OfflineDatabaseHelper.getInstance(this).getProjectNoteById((int) note.getLocalId());
+            if (fullNote != null) {
+                note = fullNote;
+            }
+        }
+
         Intent intent = new Intent(this, NoteDetailActivity.class);
 
         // Passer toutes les données de la note via Intent extras
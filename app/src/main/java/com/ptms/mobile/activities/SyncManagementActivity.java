@@ -222,6 +222,9 @@ public class SyncManagementActivity extends AppCompatActivity {
             return;
         }
 
+        // Synchronisation manuelle: les envois mis de côté après trop d'échecs sont retentés
+        syncManager.getOfflineDatabaseHelper().resetParkedOutboxOperations();
+
         // Obtenir le nombre total d'éléments à synchroniser
         int totalItems = syncManager.getPendingSyncCount();
 
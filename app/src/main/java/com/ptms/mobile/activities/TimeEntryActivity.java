@@ -93,7 +93,7 @@ public class TimeEntryActivity extends AppCompatActivity {
 
             // ✅ Initialisation unifiée - BidirectionalSyncManager uniquement
             prefs = getSharedPreferences("ptms_prefs", MODE_PRIVATE);
-            dbHelper = new OfflineDatabaseHelper(this);
+            dbHelper = OfflineDatabaseHelper.getInstance(this);
             syncManager = new BidirectionalSyncManager(this);
             offlineModeManager = OfflineModeManager.getInstance(this);
             initialAuthManager = new InitialAuthManager(this);
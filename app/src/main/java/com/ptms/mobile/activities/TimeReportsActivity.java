@@ -28,6 +28,7 @@ import com.ptms.mobile.R;
 import com.ptms.mobile.adapters.ReportsPagerAdapter;
 import com.ptms.mobile.api.ApiClient;
 import com.ptms.mobile.api.ApiService;
+import com.ptms.mobile.database.OfflineStore;
 import com.ptms.mobile.models.TimeReport;
 import com.ptms.mobile.sync.BidirectionalSyncManager;
 import com.ptms.mobile.sync.SyncStateManager;
@@ -37,8 +38,10 @@ import com.ptms.mobile.utils.FileLogger;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -64,6 +67,7 @@ public class TimeReportsActivity extends AppCompatActivity {
     // Data
     private List<TimeReport> allReports = new ArrayList<>();
     private List<TimeReport> filteredReports = new ArrayList<>();
+    private List<TimeReport> localReports = new ArrayList<>(); // ✅ Dernière valeur observée en base
     private SharedPreferences prefs;
     private ApiService apiService;
     private BidirectionalSyncManager syncManager;
@@ -129,6 +133,9 @@ public class TimeReportsActivity extends AppCompatActivity {
             setupListeners();
             FileLogger.d("REPORTS_ENH", "8. ✅ Listeners OK");
 
+            // Rapports locaux observés: mis à jour à chaque écriture sur time_reports
+            observeLocalReports();
+
             // Chargement des données (90 jours comme l'ancienne interface)
             FileLogger.d("REPORTS_ENH", "9. Chargement données...");
             reconcileMissingReports();
@@ -317,37 +324,72 @@ public class TimeReportsActivity extends AppCompatActivity {
     }
 
     /**
-     * Charge les rapports locaux depuis SQLite
+     * ✅ Observe les rapports locaux en attente (SQLite)
+     * Une saisie, une modification ou une synchronisation met à jour la partie locale de la liste,
+     * sans relire le serveur
+     */
+    private void observeLocalReports() {
+        OfflineStore store = syncManager.getOfflineDatabaseHelper();
+        store.observePendingTimeReports().observe(this, reports -> {
+            android.util.Log.d("REPORTS_ENH", "Rapports locaux observés: " + reports.size());
+            localReports = reports;
+            showLocalReports();
+        });
+    }
+
+    /**
+     * Affiche uniquement les rapports locaux, avant le rechargement des rapports serveur
      */
     private void loadLocalReports() {
-        try {
-            android.util.Log.d("REPORTS_ENH", "Chargement des rapports locaux...");
+        allReports.clear();
+        showLocalReports();
+    }
 
-            // ✅ Charger depuis SQLite via BidirectionalSyncManager
-            // Note: On charge tous les rapports en attente (pas encore synchronisés)
-            List<TimeReport> localReports = syncManager.getOfflineDatabaseHelper().getAllPendingTimeReports();
+    /**
+     * Remplace les rapports locaux de la liste par la dernière valeur observée
+     * Les rapports serveur déjà chargés sont conservés; un rapport local déjà présent côté serveur n'est pas doublé
+     */
+    private void showLocalReports() {
+        try {
+            List<TimeReport> serverReports = new ArrayList<>();
+            Set<String> serverReportKeys = new HashSet<>();
+            for (TimeReport report : allReports) {
+                if (report != null && !report.isLocal()) {
+                    serverReports.add(report);
+                    serverReportKeys.add(reportKey(report));
+                }
+            }
 
             allReports.clear();
+            allReports.addAll(serverReports);
             for (TimeReport report : localReports) {
                 report.setLocal(true);
                 report.setSynced(report.getServerId() > 0); // Si serverId existe, c'est synchronisé
-                allReports.add(report);
+                if (!serverReportKeys.contains(reportKey(report))) {
+                    allReports.add(report);
+                }
             }
 
-            android.util.Log.d("REPORTS_ENH", "Rapports locaux chargés: " + allReports.size());
-
-            // Initialiser filteredReports avec les rapports locaux
             filteredReports.clear();
             filteredReports.addAll(allReports);
 
-            // Rafraîchir l'affichage immédiatement avec les données locales
             refreshDisplay();
-
         } catch (Exception e) {
-            android.util.Log.e("REPORTS_ENH", "Erreur chargement rapports locaux", e);
+            android.util.Log.e("REPORTS_ENH", "Erreur affichage rapports locaux", e);
         }
     }
 
+    /**
+     * Clé de rapprochement local / serveur: date + projet + heures + description
+     */
+    private static String reportKey(TimeReport report) {
+        String key = report.getReportDate() + "_" + report.getProjectId() + "_" + report.getHours();
+        if (report.getDescription() != null) {
+            key += "_" + report.getDescription().hashCode();
+        }
+        return key;
+    }
+
     /**
      * Filtre les rapports selon le texte de recherche
      */
@@ -661,6 +703,9 @@ public class TimeReportsActivity extends AppCompatActivity {
                 FileLogger.e("REPORTS_ENH", "❌ Erreur lancement AgendaActivity", e);
             }
             return true;
+        } else if (item.getItemId() == R.id.action_local_reports) {
+            startActivity(new Intent(this, LocalReportsActivity.class));
+            return true;
         } else if (item.getItemId() == R.id.action_reconcile_reports) {
             loadReports(); // Recharger les données
             return true;
@@ -818,24 +863,14 @@ public class TimeReportsActivity extends AppCompatActivity {
 
                             // ✅ FIX: Réajouter les rapports locaux pending qui ne sont pas sur le serveur
                             // (évite de perdre les saisies non-synchronisées)
-                            java.util.Set<String> serverReportKeys = new java.util.HashSet<>();
+                            Set<String> serverReportKeys = new HashSet<>();
                             for (TimeReport sr : serverReports) {
-                                // Créer une clé unique basée sur date + projet + heures + description
-                                String key = sr.getReportDate() + "_" + sr.getProjectId() + "_" + sr.getHours();
-                                if (sr.getDescription() != null) {
-                                    key += "_" + sr.getDescription().hashCode();
-                                }
-                                serverReportKeys.add(key);
+                                serverReportKeys.add(reportKey(sr));
                             }
 
                             int addedPendingCount = 0;
                             for (TimeReport pendingReport : pendingLocalReports) {
-                                String key = pendingReport.getReportDate() + "_" + pendingReport.getProjectId() + "_" + pendingReport.getHours();
-                                if (pendingReport.getDescription() != null) {
-                                    key += "_" + pendingReport.getDescription().hashCode();
-                                }
-
-                                if (!serverReportKeys.contains(key)) {
+                                if (!serverReportKeys.contains(reportKey(pendingReport))) {
                                     // Ce rapport pending n'est pas sur le serveur, le rajouter
                                     allReports.add(pendingReport);
                                     addedPendingCount++;
@@ -285,7 +285,7 @@ public class UserProfileActivity extends AppCompatActivity {
         try {
             // Charger depuis la base de données locale
             com.ptms.mobile.database.OfflineDatabaseHelper dbHelper =
-                    new com.ptms.mobile.database.OfflineDatabaseHelper(this);
+                    com.ptms.mobile.database.OfflineDatabaseHelper.getInstance(this);
 
             int userId = prefs.getInt("user_id", -1);
             if (userId == -1) {
@@ -7,6 +7,8 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.ptms.mobile.R;
@@ -17,13 +19,37 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
 /**
  * Adapter pour afficher les notes dans l'Agenda
+ *
+ * ✅ Mises à jour différentielles (AsyncListDiffer): seules les notes modifiées sont redessinées
  */
 public class AgendaNotesAdapter extends RecyclerView.Adapter<AgendaNotesAdapter.NoteViewHolder> {
 
-    private List<ProjectNote> notes = new ArrayList<>();
+    private static final DiffUtil.ItemCallback<ProjectNote> DIFF_CALLBACK = new DiffUtil.ItemCallback<ProjectNote>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ProjectNote oldItem, @NonNull ProjectNote newItem) {
+            return stableId(oldItem) == stableId(newItem);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull ProjectNote oldItem, @NonNull ProjectNote newItem) {
+            return oldItem.isImportant() == newItem.isImportant()
+                && Objects.equals(oldItem.getNoteType(), newItem.getNoteType())
+                && Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                && Objects.equals(oldItem.getContent(), newItem.getContent())
+                && Objects.equals(oldItem.getTranscription(), newItem.getTranscription())
+                && Objects.equals(oldItem.getAudioDuration(), newItem.getAudioDuration())
+                && Objects.equals(oldItem.getCreatedAt(), newItem.getCreatedAt())
+                && Objects.equals(oldItem.getProjectName(), newItem.getProjectName())
+                && Objects.equals(oldItem.getNoteGroup(), newItem.getNoteGroup())
+                && Objects.equals(oldItem.getTags(), newItem.getTags());
+        }
+    };
+
+    private final AsyncListDiffer<ProjectNote> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
     private OnNoteClickListener listener;
 
     public interface OnNoteClickListener {
@@ -32,11 +58,18 @@ public class AgendaNotesAdapter extends RecyclerView.Adapter<AgendaNotesAdapter.
 
     public AgendaNotesAdapter(OnNoteClickListener listener) {
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     public void setNotes(List<ProjectNote> notes) {
-        this.notes = notes != null ? notes : new ArrayList<>();
-        notifyDataSetChanged();
+        differ.submitList(notes != null ? new ArrayList<>(notes) : new ArrayList<>());
+    }
+
+    /**
+     * ID serveur, ou ID local (négatif) pour une note pas encore synchronisée
+     */
+    private static long stableId(ProjectNote note) {
+        return note.getId() > 0 ? note.getId() : -note.getLocalId();
     }
 
     @NonNull
@@ -49,13 +82,18 @@ public class AgendaNotesAdapter extends RecyclerView.Adapter<AgendaNotesAdapter.
 
     @Override
     public void onBindViewHolder(@NonNull NoteViewHolder holder, int position) {
-        ProjectNote note = notes.get(position);
+        ProjectNote note = differ.getCurrentList().get(position);
         holder.bind(note, listener);
     }
 
     @Override
     public int getItemCount() {
-        return notes.size();
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableId(differ.getCurrentList().get(position));
     }
 
     static class NoteViewHolder extends RecyclerView.ViewHolder {
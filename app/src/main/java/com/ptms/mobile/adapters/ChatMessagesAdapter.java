@@ -9,6 +9,8 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.ptms.mobile.R;
@@ -16,16 +18,50 @@ import com.ptms.mobile.models.ChatMessage;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * Adaptateur pour afficher les messages de chat dans une RecyclerView
+ *
+ * ✅ Mises à jour différentielles: chaque modification soumet une nouvelle liste à un AsyncListDiffer,
+ * le diff est calculé hors du thread UI et seules les lignes ajoutées / modifiées sont liées.
+ * IDs stables = ID serveur; un message sans ID (envoi en cours, temps réel) reçoit un ID négatif
+ * à son ajout, conservé jusqu'à son remplacement par la version serveur.
  */
 public class ChatMessagesAdapter extends RecyclerView.Adapter<ChatMessagesAdapter.MessageViewHolder> {
     
-    private List<ChatMessage> messages;
+    private static final DiffUtil.ItemCallback<ChatMessage> DIFF_CALLBACK = new DiffUtil.ItemCallback<ChatMessage>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ChatMessage oldItem, @NonNull ChatMessage newItem) {
+            return oldItem.getId() > 0 ? oldItem.getId() == newItem.getId() : oldItem == newItem;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull ChatMessage oldItem, @NonNull ChatMessage newItem) {
+            return oldItem.getSenderId() == newItem.getSenderId()
+                && oldItem.isRead() == newItem.isRead()
+                && Objects.equals(oldItem.getContent(), newItem.getContent())
+                && Objects.equals(oldItem.getSenderName(), newItem.getSenderName())
+                && Objects.equals(oldItem.getTimestamp(), newItem.getTimestamp())
+                && Objects.equals(oldItem.getMessageType(), newItem.getMessageType())
+                && Objects.equals(oldItem.getAttachmentUrl(), newItem.getAttachmentUrl());
+        }
+    };
+
+    private final AsyncListDiffer<ChatMessage> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    // Dernière liste soumise (la liste affichée la rejoint quand son diff est appliqué)
+    private List<ChatMessage> messages = Collections.emptyList();
+    // IDs négatifs des messages sans ID serveur (par instance), attribués à l'ajout
+    private final Map<ChatMessage, Long> pendingIds = new IdentityHashMap<>();
+    private long nextPendingId = -1;
     private Context context;
     private int currentUserId;
     private SimpleDateFormat timeFormat;
@@ -34,9 +70,9 @@ public class ChatMessagesAdapter extends RecyclerView.Adapter<ChatMessagesAdapte
     public ChatMessagesAdapter(Context context, int currentUserId) {
         this.context = context;
         this.currentUserId = currentUserId;
-        this.messages = new ArrayList<>();
         this.timeFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
         this.dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
+        setHasStableIds(true);
     }
     
     @NonNull
@@ -48,35 +84,119 @@ public class ChatMessagesAdapter extends RecyclerView.Adapter<ChatMessagesAdapte
     
     @Override
     public void onBindViewHolder(@NonNull MessageViewHolder holder, int position) {
-        ChatMessage message = messages.get(position);
+        ChatMessage message = differ.getCurrentList().get(position);
         holder.bind(message);
     }
     
     @Override
     public int getItemCount() {
-        return messages.size();
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        ChatMessage message = differ.getCurrentList().get(position);
+        if (message.getId() > 0) {
+            return message.getId();
+        }
+        Long pendingId = pendingIds.get(message);
+        return pendingId != null ? pendingId : RecyclerView.NO_ID;
+    }
+
+    private void submit(List<ChatMessage> newMessages) {
+        // Les IDs des messages encore affichés sont gardés jusqu'à ce que le diff en cours soit appliqué
+        Set<ChatMessage> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        kept.addAll(newMessages);
+        kept.addAll(differ.getCurrentList());
+        pendingIds.keySet().retainAll(kept);
+        for (ChatMessage message : newMessages) {
+            if (message.getId() <= 0 && !pendingIds.containsKey(message)) {
+                pendingIds.put(message, nextPendingId--);
+            }
+        }
+
+        messages = Collections.unmodifiableList(newMessages);
+        differ.submitList(messages);
     }
     
     public void addMessage(ChatMessage message) {
-        messages.add(message);
-        notifyItemInserted(messages.size() - 1);
+        List<ChatMessage> updated = new ArrayList<>(messages);
+        updated.add(message);
+        submit(updated);
     }
     
     public void addMessages(List<ChatMessage> newMessages) {
-        int startPosition = messages.size();
-        messages.addAll(newMessages);
-        notifyItemRangeInserted(startPosition, newMessages.size());
+        List<ChatMessage> updated = new ArrayList<>(messages);
+        updated.addAll(newMessages);
+        submit(updated);
+    }
+    
+    /**
+     * Ajoute en fin de liste les messages pas encore affichés (ex: message envoyé déjà ajouté localement)
+     * Un message temps réel sans ID est remplacé par sa version serveur (même auteur, même contenu).
+     * @return nombre de messages ajoutés
+     */
+    public int appendNewMessages(List<ChatMessage> newMessages) {
+        List<ChatMessage> updated = new ArrayList<>(messages);
+        Set<Integer> knownIds = new HashSet<>();
+        for (ChatMessage message : updated) {
+            knownIds.add(message.getId());
+        }
+        int added = 0;
+        boolean replaced = false;
+        for (ChatMessage message : newMessages) {
+            if (!knownIds.add(message.getId())) {
+                continue;
+            }
+            int pending = indexOfPendingCopy(updated, message);
+            if (pending >= 0) {
+                updated.set(pending, message);
+                replaced = true;
+            } else {
+                updated.add(message);
+                added++;
+            }
+        }
+        if (added > 0 || replaced) {
+            submit(updated);
+        }
+        return added;
+    }
+
+    private int indexOfPendingCopy(List<ChatMessage> list, ChatMessage serverMessage) {
+        for (int i = list.size() - 1; i >= 0; i--) {
+            ChatMessage candidate = list.get(i);
+            if (candidate.getId() <= 0
+                && candidate.getSenderId() == serverMessage.getSenderId()
+                && Objects.equals(candidate.getContent(), serverMessage.getContent())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Insère en tête de liste des messages plus anciens (remontée dans l'historique)
+     */
+    public void prependMessages(List<ChatMessage> olderMessages) {
+        if (olderMessages.isEmpty()) {
+            return;
+        }
+        List<ChatMessage> updated = new ArrayList<>(olderMessages);
+        updated.addAll(messages);
+        submit(updated);
     }
     
     public void updateMessages(List<ChatMessage> newMessages) {
-        messages.clear();
-        messages.addAll(newMessages);
-        notifyDataSetChanged();
+        submit(new ArrayList<>(newMessages));
     }
     
     public void clearMessages() {
-        messages.clear();
-        notifyDataSetChanged();
+        submit(new ArrayList<>());
+    }
+    
+    public ChatMessage getFirstMessage() {
+        return messages.isEmpty() ? null : messages.get(0);
     }
     
     public ChatMessage getLastMessage() {
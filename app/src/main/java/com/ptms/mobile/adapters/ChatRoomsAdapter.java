@@ -8,22 +8,61 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.ptms.mobile.R;
+import com.ptms.mobile.models.ChatMessage;
 import com.ptms.mobile.models.ChatRoom;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
 /**
  * Adaptateur pour afficher les salles de chat dans une RecyclerView
+ *
+ * ✅ Mises à jour différentielles (AsyncListDiffer, diff hors du thread UI), IDs stables = ID de la salle
  */
 public class ChatRoomsAdapter extends RecyclerView.Adapter<ChatRoomsAdapter.ChatRoomViewHolder> {
     
+    // Partagé avec ChatRoomsGroupedAdapter
+    static final DiffUtil.ItemCallback<ChatRoom> DIFF_CALLBACK = new DiffUtil.ItemCallback<ChatRoom>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ChatRoom oldItem, @NonNull ChatRoom newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull ChatRoom oldItem, @NonNull ChatRoom newItem) {
+            return sameContents(oldItem, newItem);
+        }
+    };
+
+    /**
+     * Champs affichés d'une salle (nom, type, non lus, dernier message)
+     */
+    static boolean sameContents(ChatRoom oldItem, ChatRoom newItem) {
+        ChatMessage oldLast = oldItem.getLastMessage();
+        ChatMessage newLast = newItem.getLastMessage();
+        return oldItem.getUnreadCount() == newItem.getUnreadCount()
+            && Objects.equals(oldItem.getDisplayName(), newItem.getDisplayName())
+            && Objects.equals(oldItem.getName(), newItem.getName())
+            && Objects.equals(oldItem.getRoomType(), newItem.getRoomType())
+            && Objects.equals(oldItem.getLastActivity(), newItem.getLastActivity())
+            && (oldLast == null ? newLast == null : newLast != null
+                && oldLast.getId() == newLast.getId()
+                && Objects.equals(oldLast.getContent(), newLast.getContent())
+                && Objects.equals(oldLast.getTimestamp(), newLast.getTimestamp()));
+    }
+
+    private final AsyncListDiffer<ChatRoom> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    // Dernière liste soumise
     private List<ChatRoom> chatRooms;
     private Context context;
     private OnChatRoomClickListener listener;
@@ -35,8 +74,9 @@ public class ChatRoomsAdapter extends RecyclerView.Adapter<ChatRoomsAdapter.Chat
     
     public ChatRoomsAdapter(Context context) {
         this.context = context;
-        this.chatRooms = new ArrayList<>();
+        this.chatRooms = Collections.emptyList();
         this.timeFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
+        setHasStableIds(true);
     }
     
     public void setOnChatRoomClickListener(OnChatRoomClickListener listener) {
@@ -52,35 +92,43 @@ public class ChatRoomsAdapter extends RecyclerView.Adapter<ChatRoomsAdapter.Chat
     
     @Override
     public void onBindViewHolder(@NonNull ChatRoomViewHolder holder, int position) {
-        ChatRoom chatRoom = chatRooms.get(position);
+        ChatRoom chatRoom = differ.getCurrentList().get(position);
         holder.bind(chatRoom);
     }
     
     @Override
     public int getItemCount() {
-        return chatRooms.size();
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return differ.getCurrentList().get(position).getId();
+    }
+
+    private void submit(List<ChatRoom> newChatRooms) {
+        chatRooms = Collections.unmodifiableList(newChatRooms);
+        differ.submitList(chatRooms);
     }
     
     public void addChatRoom(ChatRoom chatRoom) {
-        chatRooms.add(chatRoom);
-        notifyItemInserted(chatRooms.size() - 1);
+        List<ChatRoom> updated = new ArrayList<>(chatRooms);
+        updated.add(chatRoom);
+        submit(updated);
     }
     
     public void addChatRooms(List<ChatRoom> newChatRooms) {
-        int startPosition = chatRooms.size();
-        chatRooms.addAll(newChatRooms);
-        notifyItemRangeInserted(startPosition, newChatRooms.size());
+        List<ChatRoom> updated = new ArrayList<>(chatRooms);
+        updated.addAll(newChatRooms);
+        submit(updated);
     }
     
     public void updateChatRooms(List<ChatRoom> newChatRooms) {
-        chatRooms.clear();
-        chatRooms.addAll(newChatRooms);
-        notifyDataSetChanged();
+        submit(new ArrayList<>(newChatRooms));
     }
     
     public void clearChatRooms() {
-        chatRooms.clear();
-        notifyDataSetChanged();
+        submit(new ArrayList<>());
     }
     
     public List<ChatRoom> getChatRooms() {
@@ -113,7 +161,7 @@ public class ChatRoomsAdapter extends RecyclerView.Adapter<ChatRoomsAdapter.Chat
                     if (listener != null) {
                         int position = getAdapterPosition();
                         if (position != RecyclerView.NO_POSITION) {
-                            listener.onChatRoomClick(chatRooms.get(position));
+                            listener.onChatRoomClick(differ.getCurrentList().get(position));
                         }
                     }
                 }
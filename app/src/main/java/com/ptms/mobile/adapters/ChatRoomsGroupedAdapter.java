@@ -8,6 +8,8 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.ptms.mobile.R;
@@ -24,13 +26,39 @@ import java.util.Map;
 
 /**
  * Adaptateur pour afficher les salles de chat regroupées par type avec sections pliables
+ *
+ * ✅ Mises à jour différentielles (AsyncListDiffer): seules les salles et en-têtes modifiés sont redessinés
  */
 public class ChatRoomsGroupedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
     private static final int VIEW_TYPE_HEADER = 0;
     private static final int VIEW_TYPE_ROOM = 1;
 
-    private List<Object> items; // Contient des Section et ChatRoom
+    private static final DiffUtil.ItemCallback<Object> DIFF_CALLBACK = new DiffUtil.ItemCallback<Object>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Object oldItem, @NonNull Object newItem) {
+            if (oldItem instanceof Section && newItem instanceof Section) {
+                return ((Section) oldItem).type.equals(((Section) newItem).type);
+            }
+            if (oldItem instanceof ChatRoom && newItem instanceof ChatRoom) {
+                return ((ChatRoom) oldItem).getId() == ((ChatRoom) newItem).getId();
+            }
+            return false;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Object oldItem, @NonNull Object newItem) {
+            if (oldItem instanceof Section) {
+                Section oldSection = (Section) oldItem;
+                Section newSection = (Section) newItem;
+                return oldSection.count == newSection.count && oldSection.collapsed == newSection.collapsed;
+            }
+            return ChatRoomsAdapter.sameContents((ChatRoom) oldItem, (ChatRoom) newItem);
+        }
+    };
+
+    private final AsyncListDiffer<Object> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    private List<ChatRoom> chatRooms; // Liste complète (sections pliées comprises)
     private Context context;
     private ChatRoomsAdapter.OnChatRoomClickListener listener;
     private SimpleDateFormat timeFormat;
@@ -38,9 +66,10 @@ public class ChatRoomsGroupedAdapter extends RecyclerView.Adapter<RecyclerView.V
 
     public ChatRoomsGroupedAdapter(Context context) {
         this.context = context;
-        this.items = new ArrayList<>();
+        this.chatRooms = new ArrayList<>();
         this.timeFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
         this.collapsedSections = new HashMap<>();
+        setHasStableIds(true);
     }
 
     public void setOnChatRoomClickListener(ChatRoomsAdapter.OnChatRoomClickListener listener) {
@@ -49,7 +78,17 @@ public class ChatRoomsGroupedAdapter extends RecyclerView.Adapter<RecyclerView.V
 
     @Override
     public int getItemViewType(int position) {
-        return (items.get(position) instanceof Section) ? VIEW_TYPE_HEADER : VIEW_TYPE_ROOM;
+        return (differ.getCurrentList().get(position) instanceof Section) ? VIEW_TYPE_HEADER : VIEW_TYPE_ROOM;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        Object item = differ.getCurrentList().get(position);
+        if (item instanceof Section) {
+            // IDs négatifs pour ne pas croiser ceux des salles
+            return -1L - (((Section) item).type.hashCode() & 0x7fffffffL);
+        }
+        return ((ChatRoom) item).getId();
     }
 
     @NonNull
@@ -66,25 +105,34 @@ public class ChatRoomsGroupedAdapter extends RecyclerView.Adapter<RecyclerView.V
 
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        Object item = differ.getCurrentList().get(position);
         if (holder instanceof SectionHeaderViewHolder) {
-            Section section = (Section) items.get(position);
+            Section section = (Section) item;
             ((SectionHeaderViewHolder) holder).bind(section);
         } else if (holder instanceof ChatRoomViewHolder) {
-            ChatRoom chatRoom = (ChatRoom) items.get(position);
+            ChatRoom chatRoom = (ChatRoom) item;
             ((ChatRoomViewHolder) holder).bind(chatRoom);
         }
     }
 
     @Override
     public int getItemCount() {
-        return items.size();
+        return differ.getCurrentList().size();
     }
 
     /**
      * Met à jour les conversations en les regroupant par type
      */
     public void updateChatRooms(List<ChatRoom> chatRooms) {
-        items.clear();
+        this.chatRooms = new ArrayList<>(chatRooms);
+        rebuildItems();
+    }
+
+    /**
+     * Reconstruit la liste affichée (sections + salles dépliées) et la soumet au différentiel
+     */
+    private void rebuildItems() {
+        List<Object> items = new ArrayList<>();
 
         // Regrouper les conversations par type
         Map<String, List<ChatRoom>> grouped = new LinkedHashMap<>();
@@ -112,18 +160,18 @@ public class ChatRoomsGroupedAdapter extends RecyclerView.Adapter<RecyclerView.V
 
             if (!rooms.isEmpty()) {
                 // Ajouter l'en-tête de section
-                Section section = new Section(type, rooms.size());
-                items.add(section);
+                Boolean isCollapsed = collapsedSections.get(type);
+                boolean collapsed = isCollapsed != null && isCollapsed;
+                items.add(new Section(type, rooms.size(), collapsed));
 
                 // Ajouter les salles si la section n'est pas pliée
-                Boolean isCollapsed = collapsedSections.get(type);
-                if (isCollapsed == null || !isCollapsed) {
+                if (!collapsed) {
                     items.addAll(rooms);
                 }
             }
         }
 
-        notifyDataSetChanged();
+        differ.submitList(items);
     }
 
     /**
@@ -136,53 +184,22 @@ public class ChatRoomsGroupedAdapter extends RecyclerView.Adapter<RecyclerView.V
         }
         collapsedSections.put(type, !isCollapsed);
 
-        // Trouver la position de la section
-        int sectionIndex = -1;
-        for (int i = 0; i < items.size(); i++) {
-            if (items.get(i) instanceof Section) {
-                Section section = (Section) items.get(i);
-                if (section.type.equals(type)) {
-                    sectionIndex = i;
-                    break;
-                }
-            }
-        }
-
-        if (sectionIndex == -1) return;
-
-        Section section = (Section) items.get(sectionIndex);
-        int count = section.count;
-
-        if (collapsedSections.get(type)) {
-            // Plier - supprimer les salles après la section
-            int removedCount = 0;
-            while (sectionIndex + 1 < items.size() && !(items.get(sectionIndex + 1) instanceof Section)) {
-                items.remove(sectionIndex + 1);
-                removedCount++;
-            }
-            notifyItemRangeRemoved(sectionIndex + 1, removedCount);
-        } else {
-            // Déplier - réinsérer les salles
-            // On doit récupérer toutes les salles de ce type depuis la liste complète
-            // Pour simplifier, on va juste appeler updateChatRooms avec la liste existante
-            // (C'est un hack, on devrait garder une copie de la liste complète)
-            notifyDataSetChanged();
-        }
-
-        // Mettre à jour l'icône de la section
-        notifyItemChanged(sectionIndex);
+        // Le différentiel anime l'insertion/suppression des salles et met à jour l'en-tête
+        rebuildItems();
     }
 
     /**
      * Classe représentant une section (en-tête de groupe)
      */
     private static class Section {
-        String type;
-        int count;
+        final String type;
+        final int count;
+        final boolean collapsed;
 
-        Section(String type, int count) {
+        Section(String type, int count, boolean collapsed) {
             this.type = type;
             this.count = count;
+            this.collapsed = collapsed;
         }
 
         String getTitle(Context context) {
@@ -240,7 +257,7 @@ public class ChatRoomsGroupedAdapter extends RecyclerView.Adapter<RecyclerView.V
                 public void onClick(View v) {
                     int position = getAdapterPosition();
                     if (position != RecyclerView.NO_POSITION) {
-                        Section section = (Section) items.get(position);
+                        Section section = (Section) differ.getCurrentList().get(position);
                         toggleSection(section.type);
                     }
                 }
@@ -253,8 +270,7 @@ public class ChatRoomsGroupedAdapter extends RecyclerView.Adapter<RecyclerView.V
             ivSectionIcon.setImageResource(section.getIcon());
 
             // Icône de pli/dépli
-            Boolean isCollapsed = collapsedSections.get(section.type);
-            if (isCollapsed != null && isCollapsed) {
+            if (section.collapsed) {
                 ivSectionExpand.setRotation(0); // Flèche vers la droite
             } else {
                 ivSectionExpand.setRotation(90); // Flèche vers le bas
@@ -290,8 +306,12 @@ public class ChatRoomsGroupedAdapter extends RecyclerView.Adapter<RecyclerView.V
                 public void onClick(View v) {
                     if (listener != null) {
                         int position = getAdapterPosition();
-                        if (position != RecyclerView.NO_POSITION && items.get(position) instanceof ChatRoom) {
-                            listener.onChatRoomClick((ChatRoom) items.get(position));
+                        if (position == RecyclerView.NO_POSITION) {
+                            return;
+                        }
+                        Object item = differ.getCurrentList().get(position);
+                        if (item instanceof ChatRoom) {
+                            listener.onChatRoomClick((ChatRoom) item);
                         }
                     }
                 }
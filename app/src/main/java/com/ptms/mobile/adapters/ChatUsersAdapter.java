@@ -8,6 +8,8 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.ptms.mobile.R;
@@ -15,14 +17,31 @@ import com.ptms.mobile.models.ChatUser;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Adaptateur pour la liste des utilisateurs de chat
+ *
+ * ✅ Mises à jour différentielles (AsyncListDiffer), IDs stables = ID utilisateur
  */
 public class ChatUsersAdapter extends RecyclerView.Adapter<ChatUsersAdapter.UserViewHolder> {
+
+    private static final DiffUtil.ItemCallback<ChatUser> DIFF_CALLBACK = new DiffUtil.ItemCallback<ChatUser>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ChatUser oldItem, @NonNull ChatUser newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull ChatUser oldItem, @NonNull ChatUser newItem) {
+            return oldItem.isOnline() == newItem.isOnline()
+                && Objects.equals(oldItem.getDisplayName(), newItem.getDisplayName())
+                && Objects.equals(oldItem.getInitials(), newItem.getInitials());
+        }
+    };
     
     private Context context;
-    private List<ChatUser> users;
+    private final AsyncListDiffer<ChatUser> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
     private List<ChatUser> selectedUsers;
     private OnUserClickListener listener;
     private boolean selectableMode = false;
@@ -33,8 +52,8 @@ public class ChatUsersAdapter extends RecyclerView.Adapter<ChatUsersAdapter.User
     
     public ChatUsersAdapter(Context context) {
         this.context = context;
-        this.users = new ArrayList<>();
         this.selectedUsers = new ArrayList<>();
+        setHasStableIds(true);
     }
 
     public void setOnUserClickListener(OnUserClickListener listener) {
@@ -42,8 +61,11 @@ public class ChatUsersAdapter extends RecyclerView.Adapter<ChatUsersAdapter.User
     }
 
     public void setSelectable(boolean selectable) {
+        if (this.selectableMode == selectable) {
+            return;
+        }
         this.selectableMode = selectable;
-        notifyDataSetChanged();
+        notifyItemRangeChanged(0, getItemCount());
     }
 
     public List<ChatUser> getSelectedUsers() {
@@ -51,11 +73,7 @@ public class ChatUsersAdapter extends RecyclerView.Adapter<ChatUsersAdapter.User
     }
 
     public void updateUsers(List<ChatUser> newUsers) {
-        this.users.clear();
-        if (newUsers != null) {
-            this.users.addAll(newUsers);
-        }
-        notifyDataSetChanged();
+        differ.submitList(newUsers != null ? new ArrayList<>(newUsers) : new ArrayList<>());
     }
     
     @NonNull
@@ -67,13 +85,18 @@ public class ChatUsersAdapter extends RecyclerView.Adapter<ChatUsersAdapter.User
     
     @Override
     public void onBindViewHolder(@NonNull UserViewHolder holder, int position) {
-        ChatUser user = users.get(position);
+        ChatUser user = differ.getCurrentList().get(position);
         holder.bind(user);
     }
     
     @Override
     public int getItemCount() {
-        return users.size();
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return differ.getCurrentList().get(position).getId();
     }
     
     class UserViewHolder extends RecyclerView.ViewHolder {
@@ -9,21 +9,44 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.ptms.mobile.R;
+import com.ptms.mobile.database.KeysetPagingSource;
 import com.ptms.mobile.models.ProjectNote;
 
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Adapter pour afficher les notes de projet
  */
 public class ProjectNotesAdapter extends RecyclerView.Adapter<ProjectNotesAdapter.NoteViewHolder> {
 
+    // Relecture du cache paginé: même note = même ID local; contenu = champs affichés
+    private static final DiffUtil.ItemCallback<ProjectNote> DIFF_CALLBACK = new DiffUtil.ItemCallback<ProjectNote>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ProjectNote oldNote, @NonNull ProjectNote newNote) {
+            return oldNote.getLocalId() == newNote.getLocalId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull ProjectNote oldNote, @NonNull ProjectNote newNote) {
+            return Objects.equals(oldNote.getUpdatedAt(), newNote.getUpdatedAt())
+                && Objects.equals(oldNote.getTitle(), newNote.getTitle())
+                && Objects.equals(oldNote.getFullContent(), newNote.getFullContent())
+                && oldNote.isImportant() == newNote.isImportant()
+                && Objects.equals(oldNote.getAudioDuration(), newNote.getAudioDuration())
+                && Objects.equals(oldNote.getSyncStatus(), newNote.getSyncStatus())
+                && Objects.equals(oldNote.getUploadProgress(), newNote.getUploadProgress());
+        }
+    };
+
     private Context context;
     private List<ProjectNote> notes;
     private OnNoteClickListener listener;
+    private KeysetPagingSource<ProjectNote> pagingSource; // null = liste fournie par l'appelant
 
     public interface OnNoteClickListener {
         void onNoteClick(ProjectNote note);
@@ -36,6 +59,41 @@ public class ProjectNotesAdapter extends RecyclerView.Adapter<ProjectNotesAdapte
         this.listener = listener;
     }
 
+    /**
+     * ✅ Affiche une source paginée (cache local): les pages sont chargées au fil du défilement
+     */
+    public void setPagingSource(KeysetPagingSource<ProjectNote> source) {
+        this.pagingSource = source;
+        this.notes = source.getItems();
+        source.setItemCallback(DIFF_CALLBACK);
+        source.addListener(new KeysetPagingSource.Listener() {
+            @Override
+            public void onReset() {
+                if (pagingSource == source) notifyDataSetChanged();
+            }
+
+            @Override
+            public void onPageLoaded(int positionStart, int itemCount, boolean endReached) {
+                if (pagingSource == source && itemCount > 0) notifyItemRangeInserted(positionStart, itemCount);
+            }
+
+            @Override
+            public void onReloaded(DiffUtil.DiffResult diff) {
+                if (pagingSource == source) diff.dispatchUpdatesTo(ProjectNotesAdapter.this);
+            }
+        });
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Affiche une liste déjà chargée (réponse serveur)
+     */
+    public void setNotes(List<ProjectNote> notes) {
+        this.pagingSource = null;
+        this.notes = notes;
+        notifyDataSetChanged();
+    }
+
     @NonNull
     @Override
     public NoteViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -46,6 +104,9 @@ public class ProjectNotesAdapter extends RecyclerView.Adapter<ProjectNotesAdapte
     @Override
     public void onBindViewHolder(@NonNull NoteViewHolder holder, int position) {
         ProjectNote note = notes.get(position);
+        if (pagingSource != null) {
+            pagingSource.onItemBound(position);
+        }
 
         // Icône du type
         holder.tvType.setText(note.getTypeIcon());
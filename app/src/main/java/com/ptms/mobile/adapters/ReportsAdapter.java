@@ -8,7 +8,11 @@ import android.widget.BaseAdapter;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
 import com.ptms.mobile.R;
+import com.ptms.mobile.database.KeysetPagingSource;
 import com.ptms.mobile.models.TimeReport;
 
 import java.text.ParseException;
@@ -16,6 +20,7 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
 /**
  * Adaptateur pour la liste des rapports de temps
@@ -26,12 +31,59 @@ public class ReportsAdapter extends BaseAdapter {
     private List<TimeReport> reports;
     private LayoutInflater inflater;
 
+    private KeysetPagingSource<TimeReport> pagingSource; // null = liste fournie par l'appelant
+
+    // Identité = ID local; contenu = champs affichés (relecture de la plage chargée)
+    private static final DiffUtil.ItemCallback<TimeReport> DIFF_CALLBACK = new DiffUtil.ItemCallback<TimeReport>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull TimeReport oldReport, @NonNull TimeReport newReport) {
+            return oldReport.getId() == newReport.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull TimeReport oldReport, @NonNull TimeReport newReport) {
+            return Objects.equals(oldReport.getDateUpdated(), newReport.getDateUpdated())
+                && Objects.equals(oldReport.getReportDate(), newReport.getReportDate())
+                && Objects.equals(oldReport.getProjectName(), newReport.getProjectName())
+                && Objects.equals(oldReport.getDescription(), newReport.getDescription())
+                && Objects.equals(oldReport.getValidationStatus(), newReport.getValidationStatus())
+                && Objects.equals(oldReport.getSyncStatus(), newReport.getSyncStatus())
+                && oldReport.getHours() == newReport.getHours();
+        }
+    };
+
     public ReportsAdapter(Context context, List<TimeReport> reports) {
         this.context = context;
         this.reports = reports;
         this.inflater = LayoutInflater.from(context);
     }
 
+    /**
+     * ✅ Rapports chargés page par page depuis la base locale (voir OfflineDatabaseHelper.getTimeReportsPage)
+     */
+    public ReportsAdapter(Context context, KeysetPagingSource<TimeReport> source) {
+        this(context, source.getItems());
+        this.pagingSource = source;
+        source.setItemCallback(DIFF_CALLBACK);
+        source.addListener(new KeysetPagingSource.Listener() {
+            @Override
+            public void onReset() {
+                notifyDataSetChanged();
+            }
+
+            @Override
+            public void onPageLoaded(int positionStart, int itemCount, boolean endReached) {
+                notifyDataSetChanged();
+            }
+
+            @Override
+            public void onReloaded(DiffUtil.DiffResult diff) {
+                // ListView n'applique pas de diff: sa position de défilement est conservée sur notifyDataSetChanged()
+                notifyDataSetChanged();
+            }
+        });
+    }
+
     @Override
     public int getCount() {
         return reports.size();
@@ -69,6 +121,9 @@ public class ReportsAdapter extends BaseAdapter {
         }
 
         TimeReport report = reports.get(position);
+        if (pagingSource != null) {
+            pagingSource.onItemBound(position);
+        }
 
         // Remplir les données avec vérification des null
         String reportDate = report.getReportDate() != null ? report.getReportDate() : "";
@@ -165,6 +220,7 @@ public class ReportsAdapter extends BaseAdapter {
         ImageView ivSyncStatus;
     }
 
+    // Avec une source paginée, le total porte sur les rapports déjà chargés de la date
     private double sumHoursForDate(String dateIso) {
         if (dateIso == null) return 0.0;
         double total = 0.0;
@@ -17,10 +17,14 @@ import com.ptms.mobile.utils.FileLogger;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Adapter pour le ViewPager2 des rapports
  * Gère 3 pages : Jour, Semaine, Mois
+ *
+ * ✅ Pages à ID stable; une liste de rapports identique ne rafraîchit rien, et le rafraîchissement
+ * d'une page conserve sa position de défilement
  */
 public class ReportsPagerAdapter extends RecyclerView.Adapter<ReportsPagerAdapter.PageViewHolder> {
 
@@ -35,7 +39,9 @@ public class ReportsPagerAdapter extends RecyclerView.Adapter<ReportsPagerAdapte
 
     public ReportsPagerAdapter(Context context, List<TimeReport> reports) {
         this.context = context;
-        this.reports = reports != null ? reports : new ArrayList<>();
+        // Copie: l'appelant modifie sa liste sur place avant d'appeler updateReports()
+        this.reports = reports != null ? new ArrayList<>(reports) : new ArrayList<>();
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -65,6 +71,21 @@ public class ReportsPagerAdapter extends RecyclerView.Adapter<ReportsPagerAdapte
         return PAGE_COUNT;
     }
 
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    /**
+     * Remplace la liste de la page sans recréer son LayoutManager (position de défilement conservée)
+     */
+    private void setPageAdapter(PageViewHolder holder, RecyclerView.Adapter<?> adapter) {
+        if (holder.recyclerView.getLayoutManager() == null) {
+            holder.recyclerView.setLayoutManager(new LinearLayoutManager(context));
+        }
+        holder.recyclerView.swapAdapter(adapter, false);
+    }
+
     /**
      * Configure la vue par JOUR
      */
@@ -75,8 +96,7 @@ public class ReportsPagerAdapter extends RecyclerView.Adapter<ReportsPagerAdapte
             FileLogger.d("PAGER_ADAPTER", "✅ Groupés en " + dayGroups.size() + " groupes jour");
 
             DayReportsAdapter dayAdapter = new DayReportsAdapter(context, dayGroups);
-            holder.recyclerView.setLayoutManager(new LinearLayoutManager(context));
-            holder.recyclerView.setAdapter(dayAdapter);
+            setPageAdapter(holder, dayAdapter);
             FileLogger.d("PAGER_ADAPTER", ">>> setupDayView() END ✅");
         } catch (Exception e) {
             FileLogger.e("PAGER_ADAPTER", "❌ CRASH dans setupDayView", e);
@@ -93,8 +113,7 @@ public class ReportsPagerAdapter extends RecyclerView.Adapter<ReportsPagerAdapte
             FileLogger.d("PAGER_ADAPTER", "✅ Groupés en " + weekGroups.size() + " groupes semaine");
 
             WeekReportsAdapter weekAdapter = new WeekReportsAdapter(context, weekGroups);
-            holder.recyclerView.setLayoutManager(new LinearLayoutManager(context));
-            holder.recyclerView.setAdapter(weekAdapter);
+            setPageAdapter(holder, weekAdapter);
             FileLogger.d("PAGER_ADAPTER", ">>> setupWeekView() END ✅");
         } catch (Exception e) {
             FileLogger.e("PAGER_ADAPTER", "❌ CRASH dans setupWeekView", e);
@@ -111,8 +130,7 @@ public class ReportsPagerAdapter extends RecyclerView.Adapter<ReportsPagerAdapte
             FileLogger.d("PAGER_ADAPTER", "✅ Groupés en " + monthGroups.size() + " groupes mois");
 
             MonthReportsAdapter monthAdapter = new MonthReportsAdapter(context, monthGroups);
-            holder.recyclerView.setLayoutManager(new LinearLayoutManager(context));
-            holder.recyclerView.setAdapter(monthAdapter);
+            setPageAdapter(holder, monthAdapter);
             FileLogger.d("PAGER_ADAPTER", ">>> setupMonthView() END ✅");
         } catch (Exception e) {
             FileLogger.e("PAGER_ADAPTER", "❌ CRASH dans setupMonthView", e);
@@ -120,22 +138,50 @@ public class ReportsPagerAdapter extends RecyclerView.Adapter<ReportsPagerAdapte
     }
 
     /**
-     * Met à jour les rapports et rafraîchit toutes les vues
+     * Met à jour les rapports et rafraîchit les pages si la liste a changé
      */
     public void updateReports(List<TimeReport> newReports) {
         try {
             FileLogger.d("PAGER_ADAPTER", ">>> updateReports() START");
             FileLogger.d("PAGER_ADAPTER", "newReports: " + (newReports != null ? newReports.size() : "NULL"));
 
-            this.reports = newReports != null ? newReports : new ArrayList<>();
-            FileLogger.d("PAGER_ADAPTER", "Appel notifyDataSetChanged()...");
-            notifyDataSetChanged();
+            List<TimeReport> updated = newReports != null ? new ArrayList<>(newReports) : new ArrayList<>();
+            if (sameReports(reports, updated)) {
+                this.reports = updated;
+                FileLogger.d("PAGER_ADAPTER", ">>> updateReports() END ✅ (inchangé)");
+                return;
+            }
+            this.reports = updated;
+            FileLogger.d("PAGER_ADAPTER", "Appel notifyItemRangeChanged()...");
+            notifyItemRangeChanged(0, PAGE_COUNT);
             FileLogger.d("PAGER_ADAPTER", ">>> updateReports() END ✅");
         } catch (Exception e) {
             FileLogger.e("PAGER_ADAPTER", "❌ CRASH dans updateReports", e);
         }
     }
 
+    /**
+     * Même rapports, dans le même ordre, avec les mêmes valeurs affichées
+     */
+    private static boolean sameReports(List<TimeReport> oldReports, List<TimeReport> newReports) {
+        if (oldReports.size() != newReports.size()) {
+            return false;
+        }
+        for (int i = 0; i < oldReports.size(); i++) {
+            TimeReport a = oldReports.get(i);
+            TimeReport b = newReports.get(i);
+            if (a.getId() != b.getId()
+                || Double.compare(a.getHours(), b.getHours()) != 0
+                || !Objects.equals(a.getReportDate(), b.getReportDate())
+                || !Objects.equals(a.getProjectName(), b.getProjectName())
+                || !Objects.equals(a.getWorkTypeName(), b.getWorkTypeName())
+                || !Objects.equals(a.getDescription(), b.getDescription())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * ViewHolder pour une page
      */
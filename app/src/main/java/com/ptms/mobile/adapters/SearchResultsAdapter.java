@@ -8,21 +8,35 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.ptms.mobile.R;
+import com.ptms.mobile.database.SearchIndex;
 import com.ptms.mobile.models.Project;
 import com.ptms.mobile.models.ProjectNote;
 import com.ptms.mobile.models.TimeReport;
 import com.ptms.mobile.utils.SearchManager.SearchResults;
+import com.ptms.mobile.utils.SearchManager.SearchType;
 import com.ptms.mobile.activities.NoteDetailActivity;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * ✅ Adapter pour afficher les résultats de recherche groupés
  *
+ * Chaque catégorie (projets, notes, rapports) est une section remplaçable séparément:
+ * les résultats d'une recherche incrémentale arrivent catégorie par catégorie et seule
+ * la section concernée est notifiée.
+ *
+ * ✅ Mises à jour différentielles (AsyncListDiffer): une ligne n'est redessinée que si son contenu
+ * affiché (titre, extrait...) change; IDs stables par type + ID de l'élément.
+ *
  * @version 1.0
  * @date 2025-10-23
  */
@@ -33,50 +47,143 @@ public class SearchResultsAdapter extends RecyclerView.Adapter<RecyclerView.View
     private static final int TYPE_NOTE = 2;
     private static final int TYPE_REPORT = 3;
 
+    private static final DiffUtil.ItemCallback<SearchResultItem> DIFF_CALLBACK = new DiffUtil.ItemCallback<SearchResultItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull SearchResultItem oldItem, @NonNull SearchResultItem newItem) {
+            return oldItem.stableId == newItem.stableId;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull SearchResultItem oldItem, @NonNull SearchResultItem newItem) {
+            return oldItem.signature.equals(newItem.signature);
+        }
+    };
+
     private final Context context;
+    private final AsyncListDiffer<SearchResultItem> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    // Dernière liste soumise
     private List<SearchResultItem> items;
 
+    // Résultats affichés par catégorie (ordre d'affichage: projets, notes, rapports)
+    private final Map<SearchType, SearchResults> sections = new EnumMap<>(SearchType.class);
+
     public SearchResultsAdapter(Context context) {
         this.context = context;
         this.items = new ArrayList<>();
+        setHasStableIds(true);
     }
 
     /**
      * Définit les résultats à afficher
      */
     public void setResults(SearchResults results) {
-        items.clear();
+        sections.clear();
+        sections.put(SearchType.PROJECTS, results);
+        sections.put(SearchType.NOTES, results);
+        sections.put(SearchType.REPORTS, results);
+        submitItems();
+    }
 
-        // Ajouter les projets
-        if (!results.projects.isEmpty()) {
-            items.add(new SearchResultItem(TYPE_HEADER, "Projets (" + results.projects.size() + ")"));
-            for (Project project : results.projects) {
-                items.add(new SearchResultItem(TYPE_PROJECT, project));
-            }
+    /**
+     * Remplace les résultats d'une seule catégorie (les autres sections ne sont pas rebindées)
+     */
+    public void setCategoryResults(SearchType category, SearchResults results) {
+        sections.put(category, results);
+        submitItems();
+    }
+
+    /**
+     * Retire les catégories qui ne font plus partie de la recherche (changement de type)
+     */
+    public void retainCategories(Collection<SearchType> categories) {
+        if (sections.keySet().retainAll(categories)) {
+            submitItems();
         }
+    }
 
-        // Ajouter les notes
-        if (!results.notes.isEmpty()) {
-            items.add(new SearchResultItem(TYPE_HEADER, "Notes (" + results.notes.size() + ")"));
-            for (ProjectNote note : results.notes) {
-                items.add(new SearchResultItem(TYPE_NOTE, note));
-            }
+    public void clear() {
+        sections.clear();
+        submitItems();
+    }
+
+    private void submitItems() {
+        items = buildItems();
+        differ.submitList(items);
+    }
+
+    /**
+     * Nombre de résultats affichés (hors en-têtes)
+     */
+    public int getResultCount() {
+        int count = 0;
+        for (SearchResultItem item : items) {
+            if (item.type != TYPE_HEADER) count++;
         }
+        return count;
+    }
 
-        // Ajouter les rapports
-        if (!results.reports.isEmpty()) {
-            items.add(new SearchResultItem(TYPE_HEADER, "Rapports (" + results.reports.size() + ")"));
-            for (TimeReport report : results.reports) {
-                items.add(new SearchResultItem(TYPE_REPORT, report));
-            }
+    private List<SearchResultItem> buildItems() {
+        List<SearchResultItem> built = new ArrayList<>();
+        for (SearchType category : new SearchType[]{SearchType.PROJECTS, SearchType.NOTES, SearchType.REPORTS}) {
+            appendSection(built, category);
         }
+        return built;
+    }
 
-        notifyDataSetChanged();
+    private void appendSection(List<SearchResultItem> target, SearchType category) {
+        SearchResults results = sections.get(category);
+        if (results == null) {
+            return;
+        }
+        switch (category) {
+            case PROJECTS:
+                if (!results.projects.isEmpty()) {
+                    target.add(header(category, "Projets (" + results.projects.size() + ")"));
+                    for (Project project : results.projects) {
+                        target.add(new SearchResultItem(TYPE_PROJECT, project, project.getId(),
+                            project.getName() + "|" + project.getDescription() + "|" + getSnippet(project)));
+                    }
+                }
+                break;
+            case NOTES:
+                if (!results.notes.isEmpty()) {
+                    target.add(header(category, "Notes (" + results.notes.size() + ")"));
+                    for (ProjectNote note : results.notes) {
+                        // Note hors ligne pas encore synchronisée: ID local
+                        long id = note.getId() > 0 ? note.getId() : -note.getLocalId();
+                        target.add(new SearchResultItem(TYPE_NOTE, note, id,
+                            note.getTitle() + "|" + note.getFullContent() + "|" + note.getProjectName() + "|"
+                                + note.getCreatedAt() + "|" + note.getNoteTypeName() + "|" + getSnippet(note)));
+                    }
+                }
+                break;
+            case REPORTS:
+                if (!results.reports.isEmpty()) {
+                    target.add(header(category, "Rapports (" + results.reports.size() + ")"));
+                    for (TimeReport report : results.reports) {
+                        target.add(new SearchResultItem(TYPE_REPORT, report, report.getId(),
+                            report.getProjectName() + "|" + report.getWorkTypeName() + "|" + report.getReportDate()
+                                + "|" + report.getHours() + "|" + report.getDescription() + "|" + getSnippet(report)));
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static SearchResultItem header(SearchType category, String title) {
+        return new SearchResultItem(TYPE_HEADER, title, category.ordinal(), title);
     }
 
     @Override
     public int getItemViewType(int position) {
-        return items.get(position).type;
+        return differ.getCurrentList().get(position).type;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return differ.getCurrentList().get(position).stableId;
     }
 
     @NonNull
@@ -108,7 +215,7 @@ public class SearchResultsAdapter extends RecyclerView.Adapter<RecyclerView.View
 
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
-        SearchResultItem item = items.get(position);
+        SearchResultItem item = differ.getCurrentList().get(position);
 
         switch (item.type) {
             case TYPE_HEADER:
@@ -131,7 +238,7 @@ public class SearchResultsAdapter extends RecyclerView.Adapter<RecyclerView.View
 
     @Override
     public int getItemCount() {
-        return items.size();
+        return differ.getCurrentList().size();
     }
 
     // ==================== VIEW HOLDERS ====================
@@ -169,7 +276,11 @@ public class SearchResultsAdapter extends RecyclerView.Adapter<RecyclerView.View
             textName.setText(project.getName());
 
             String description = project.getDescription();
-            if (description != null && !description.isEmpty()) {
+            String snippet = getSnippet(project);
+            if (snippet != null) {
+                textDescription.setText(SearchIndex.highlight(snippet));
+                textDescription.setVisibility(View.VISIBLE);
+            } else if (description != null && !description.isEmpty()) {
                 textDescription.setText(description);
                 textDescription.setVisibility(View.VISIBLE);
             } else {
@@ -205,7 +316,12 @@ public class SearchResultsAdapter extends RecyclerView.Adapter<RecyclerView.View
             textTitle.setText(note.getTitle());
 
             String content = note.getFullContent();
-            if (content != null && !content.isEmpty()) {
+            String snippet = getSnippet(note);
+            if (snippet != null) {
+                // Extrait autour des termes trouvés
+                textContent.setText(SearchIndex.highlight(snippet));
+                textContent.setVisibility(View.VISIBLE);
+            } else if (content != null && !content.isEmpty()) {
                 // Limiter à 100 caractères
                 if (content.length() > 100) {
                     content = content.substring(0, 100) + "...";
@@ -273,7 +389,11 @@ public class SearchResultsAdapter extends RecyclerView.Adapter<RecyclerView.View
             textDuration.setText(formatDuration(report.getHours()));
 
             String comment = report.getDescription();
-            if (comment != null && !comment.isEmpty()) {
+            String snippet = getSnippet(report);
+            if (snippet != null) {
+                textComment.setText(SearchIndex.highlight(snippet));
+                textComment.setVisibility(View.VISIBLE);
+            } else if (comment != null && !comment.isEmpty()) {
                 textComment.setText(comment);
                 textComment.setVisibility(View.VISIBLE);
             } else {
@@ -288,6 +408,19 @@ public class SearchResultsAdapter extends RecyclerView.Adapter<RecyclerView.View
 
     // ==================== UTILITAIRES ====================
 
+    /**
+     * Extrait plein texte de l'élément (null si recherche sans index ou extrait vide)
+     */
+    private String getSnippet(Object item) {
+        for (SearchResults results : sections.values()) {
+            String snippet = results.getSnippet(item);
+            if (snippet != null && !snippet.isEmpty()) {
+                return snippet;
+            }
+        }
+        return null;
+    }
+
     /**
      * Formate une date
      */
@@ -320,12 +453,18 @@ public class SearchResultsAdapter extends RecyclerView.Adapter<RecyclerView.View
      * Wrapper pour les items de recherche
      */
     private static class SearchResultItem {
-        int type;
-        Object data;
-
-        SearchResultItem(int type, Object data) {
+        final int type;
+        final Object data;
+        // Type dans les bits de poids fort: un projet et une note de même ID restent distincts
+        final long stableId;
+        // Contenu affiché, comparé par le différentiel
+        final String signature;
+
+        SearchResultItem(int type, Object data, long id, String signature) {
             this.type = type;
             this.data = data;
+            this.stableId = ((long) type << 40) ^ id;
+            this.signature = signature;
         }
     }
 }
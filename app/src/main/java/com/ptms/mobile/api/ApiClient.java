@@ -6,6 +6,8 @@ import com.ptms.mobile.utils.SettingsManager;
 
 import java.util.concurrent.TimeUnit;
 
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
@@ -17,6 +19,13 @@ import retrofit2.converter.gson.GsonConverterFactory;
 public class ApiClient {
 
     private static ApiClient instance;
+
+    // ✅ Dispatcher et pool de connexions partagés par tous les clients OkHttp de l'app
+    // (API, upload média): les uploads parallèles réutilisent les mêmes connexions
+    private static final int MAX_REQUESTS_PER_HOST = 4;
+    private static final Dispatcher SHARED_DISPATCHER = createSharedDispatcher();
+    private static final ConnectionPool SHARED_CONNECTION_POOL = new ConnectionPool();
+
     private Retrofit retrofit;
     private ApiService apiService;
     private SettingsManager settingsManager;
@@ -40,6 +49,8 @@ public class ApiClient {
     private void setupRetrofit() {
         // Configuration du client HTTP
         OkHttpClient.Builder httpClient = new OkHttpClient.Builder()
+                .dispatcher(SHARED_DISPATCHER)
+                .connectionPool(SHARED_CONNECTION_POOL)
                 .connectTimeout(settingsManager.getTimeout(), TimeUnit.SECONDS)
                 .readTimeout(settingsManager.getTimeout(), TimeUnit.SECONDS)
                 .writeTimeout(settingsManager.getTimeout(), TimeUnit.SECONDS);
@@ -154,6 +165,20 @@ public class ApiClient {
     public ApiService getApiService() {
         return apiService;
     }
+
+    private static Dispatcher createSharedDispatcher() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+        return dispatcher;
+    }
+
+    public static Dispatcher getSharedDispatcher() {
+        return SHARED_DISPATCHER;
+    }
+
+    public static ConnectionPool getSharedConnectionPool() {
+        return SHARED_CONNECTION_POOL;
+    }
     
     public void refreshConfiguration() {
         setupRetrofit();
@@ -15,10 +15,12 @@ import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
+import retrofit2.http.DELETE;
 import retrofit2.http.GET;
 import retrofit2.http.Header;
 import retrofit2.http.Multipart;
 import retrofit2.http.POST;
+import retrofit2.http.PUT;
 import retrofit2.http.Part;
 import retrofit2.http.Query;
 
@@ -46,6 +48,14 @@ public interface ApiService {
     // Saisie d'heures
     @POST("time-entry.php")
     Call<ApiResponse> saveTimeEntry(@Header("Authorization") String token, @Body TimeReport report);
+
+    // ✅ Saisie d'heures par lots (chaque rapport porte sa clé idempotencyKey, rejouable sans doublon)
+    @POST("time-entry-batch.php")
+    Call<BatchTimeEntryResponse> saveTimeEntriesBatch(
+        @Header("Authorization") String token,
+        @Header("Idempotency-Key") String batchKey,
+        @Body BatchTimeEntryRequest request
+    );
     
     // Rapports de l'employé
     @GET("reports.php")
@@ -56,6 +66,27 @@ public interface ApiService {
         @Query("project_id") Integer projectId
     );
     
+    // ✅ Synchronisation incrémentale (delta) - curseur updated_since opaque fourni par le serveur
+    // updated_since absent = instantané complet ; réponse 410 ou cursor_invalid = curseur à réinitialiser
+    @GET("reports.php?delta=1")
+    Call<DeltaResponse<TimeReport>> getReportsDelta(
+        @Header("Authorization") String token,
+        @Query("updated_since") String updatedSince,
+        @Query("date_from") String dateFrom
+    );
+
+    @GET("projects.php?delta=1")
+    Call<DeltaResponse<Project>> getProjectsDelta(
+        @Header("Authorization") String token,
+        @Query("updated_since") String updatedSince
+    );
+
+    @GET("work-types.php?delta=1")
+    Call<DeltaResponse<WorkType>> getWorkTypesDelta(
+        @Header("Authorization") String token,
+        @Query("updated_since") String updatedSince
+    );
+
     // Profil employé
     @GET("profile.php")
     Call<Employee> getProfile(@Header("Authorization") String token);
@@ -83,6 +114,24 @@ public interface ApiService {
         @Query("offset") Integer offset
     );
     
+    // Messages postérieurs à afterId uniquement (polling incrémental)
+    @GET("chat-messages.php")
+    Call<ChatMessagesResponse> getChatMessagesSince(
+        @Header("Authorization") String token,
+        @Query("room_id") int roomId,
+        @Query("after_id") int afterId,
+        @Query("limit") Integer limit
+    );
+    
+    // Messages antérieurs à beforeId (remontée dans l'historique)
+    @GET("chat-messages.php")
+    Call<ChatMessagesResponse> getChatMessagesBefore(
+        @Header("Authorization") String token,
+        @Query("room_id") int roomId,
+        @Query("before_id") int beforeId,
+        @Query("limit") Integer limit
+    );
+    
     @POST("chat-send.php")
     Call<ChatSendResponse> sendChatMessage(@Header("Authorization") String token, @Body SendMessageRequest request);
     
@@ -144,17 +193,55 @@ public interface ApiService {
         @Part MultipartBody.Part imageFile
     );
 
+    // Suppression d'une note (ID serveur)
+    @DELETE("project-notes.php")
+    Call<ApiResponse> deleteProjectNote(
+        @Header("Authorization") String token,
+        @Query("note_id") int noteId
+    );
+
     // Phase 2 - Offline-First: Upload multimédia simplifié
+    // note_id (optionnel, omis si null): rattache le fichier à une note déjà créée
     @Multipart
     @POST("upload-media.php")
     Call<CreateNoteResponse> uploadProjectMedia(
         @Header("Authorization") String token,
+        @Part("note_id") RequestBody noteId,
         @Part("project_id") RequestBody projectId,
         @Part("note_type") RequestBody noteType,
         @Part("title") RequestBody title,
         @Part MultipartBody.Part mediaFile
     );
 
+    // ✅ Upload média par morceaux, reprenable (gros fichiers > 10MB)
+    // init → upload_id ; status → offset acquitté ; chunk → morceau "Content-Range: bytes début-fin/total"
+    @Multipart
+    @POST("upload-media-chunked.php?action=init")
+    Call<ChunkedUploadResponse> initChunkedUpload(
+        @Header("Authorization") String token,
+        @Part("note_id") RequestBody noteId,
+        @Part("project_id") RequestBody projectId,
+        @Part("note_type") RequestBody noteType,
+        @Part("title") RequestBody title,
+        @Part("file_name") RequestBody fileName,
+        @Part("file_size") RequestBody fileSize,
+        @Part("mime_type") RequestBody mimeType
+    );
+
+    @GET("upload-media-chunked.php?action=status")
+    Call<ChunkedUploadResponse> getChunkedUploadStatus(
+        @Header("Authorization") String token,
+        @Query("upload_id") String uploadId
+    );
+
+    @PUT("upload-media-chunked.php?action=chunk")
+    Call<ChunkedUploadResponse> uploadMediaChunk(
+        @Header("Authorization") String token,
+        @Query("upload_id") String uploadId,
+        @Header("Content-Range") String contentRange,
+        @Body RequestBody chunk
+    );
+
     @GET("project-notes.php")
     Call<NotesResponse> getProjectNotes(
         @Header("Authorization") String token,
@@ -287,6 +374,50 @@ public interface ApiService {
         public int conversationId;
     }
 
+    // Réponse d'upload par morceaux
+    class ChunkedUploadResponse {
+        public boolean success;
+        public String message;
+        public String uploadId;
+        public Long offset;        // Octets acquittés par le serveur (null = non communiqué)
+        public boolean complete;   // true quand le fichier est entièrement reçu
+        public String fileUrl;
+    }
+
+    // Requête d'upload de rapports par lots
+    class BatchTimeEntryRequest {
+        public List<TimeReport> entries;
+
+        public BatchTimeEntryRequest(List<TimeReport> entries) {
+            this.entries = entries;
+        }
+    }
+
+    // Réponse d'upload par lots: un résultat par clé d'idempotence
+    class BatchTimeEntryResponse {
+        public boolean success;
+        public String message;
+        public List<BatchItemResult> results;
+    }
+
+    class BatchItemResult {
+        public String idempotencyKey;
+        public boolean success;
+        public int id;          // ID serveur du rapport (créé ou déjà existant)
+        public String error;
+    }
+
+    // Réponse de synchronisation incrémentale
+    class DeltaResponse<T> {
+        public boolean success;
+        public String message;
+        public List<T> items;              // Lignes créées ou modifiées depuis le curseur
+        public List<Integer> deleted_ids;  // Tombstones (IDs serveur supprimés)
+        public String next_cursor;         // Curseur à persister pour le prochain appel
+        public boolean has_more;           // true = page suivante à demander avec next_cursor
+        public boolean cursor_invalid;     // true = curseur expiré → rafraîchissement complet
+    }
+
     // Classe de réponse pour les projets (format avec wrapper)
     class ProjectsResponse {
         public boolean success;
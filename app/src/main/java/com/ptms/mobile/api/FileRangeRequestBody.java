@@ -0,0 +1,86 @@
+package com.ptms.mobile.api;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * ✅ Corps de requête streamé depuis une plage d'un fichier (FileChannel)
+ *
+ * Le fichier n'est jamais chargé en mémoire: la plage [offset, offset + length[ est copiée
+ * dans le sink par pas de 64 KB, via les segments recyclés d'Okio. Le fichier est rouvert
+ * à chaque écriture, ce qui permet à OkHttp de rejouer la requête (retry, redirection).
+ *
+ * Un ProgressListener optionnel reçoit le nombre d'octets écrits après chaque tampon
+ * (à throttler côté appelant, voir UploadProgressReporter).
+ */
+public class FileRangeRequestBody extends RequestBody {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Progression de l'écriture (thread d'envoi OkHttp)
+     */
+    public interface ProgressListener {
+        void onProgress(long bytesWritten, long contentLength);
+    }
+
+    private final File file;
+    private final MediaType contentType;
+    private final long offset;
+    private final long length;
+    private final ProgressListener listener;
+
+    public FileRangeRequestBody(File file, MediaType contentType, long offset, long length) {
+        this(file, contentType, offset, length, null);
+    }
+
+    /**
+     * Fichier entier avec suivi de progression
+     */
+    public FileRangeRequestBody(File file, MediaType contentType, ProgressListener listener) {
+        this(file, contentType, 0, file.length(), listener);
+    }
+
+    public FileRangeRequestBody(File file, MediaType contentType, long offset, long length, ProgressListener listener) {
+        this.file = file;
+        this.contentType = contentType;
+        this.offset = offset;
+        this.length = length;
+        this.listener = listener;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return length;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        try (FileInputStream input = new FileInputStream(file)) {
+            input.getChannel().position(offset);
+            Source source = Okio.source(input);
+            long remaining = length;
+            while (remaining > 0) {
+                long count = Math.min(BUFFER_SIZE, remaining);
+                // Segments Okio recyclés: pas d'allocation par écriture (EOFException si fichier tronqué)
+                sink.write(source, count);
+                remaining -= count;
+                if (listener != null) {
+                    listener.onProgress(length - remaining, length);
+                }
+            }
+        }
+    }
+}
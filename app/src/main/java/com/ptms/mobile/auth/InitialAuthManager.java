@@ -54,7 +54,7 @@ public class InitialAuthManager {
         }
         
         try {
-            this.dbHelper = new OfflineDatabaseHelper(context);
+            this.dbHelper = OfflineDatabaseHelper.getInstance(context);
         } catch (Exception e) {
             Log.e(TAG, "Erreur initialisation base de données", e);
             this.dbHelper = null;
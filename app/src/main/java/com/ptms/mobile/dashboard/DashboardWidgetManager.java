@@ -3,9 +3,8 @@ package com.ptms.mobile.dashboard;
 import android.content.Context;
 import android.util.Log;
 
+import com.ptms.mobile.database.HoursAggregate;
 import com.ptms.mobile.database.OfflineDatabaseHelper;
-import com.ptms.mobile.models.Project;
-import com.ptms.mobile.models.TimeReport;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -19,6 +18,9 @@ import java.util.Map;
 /**
  * Gestionnaire centralisé des widgets du dashboard
  * Fournit les données et statistiques pour les différents widgets
+ *
+ * ✅ Toutes les statistiques proviennent d'une seule requête GROUP BY (jour, projet, type de travail)
+ * avec les noms joints, au lieu de relire les rapports et les projets ligne par ligne.
  */
 public class DashboardWidgetManager {
     private static final String TAG = "DashboardWidgetManager";
@@ -35,7 +37,7 @@ public class DashboardWidgetManager {
 
     private DashboardWidgetManager(Context context) {
         this.context = context.getApplicationContext();
-        this.dbHelper = new OfflineDatabaseHelper(context);
+        this.dbHelper = OfflineDatabaseHelper.getInstance(context);
         this.dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
     }
 
@@ -60,23 +62,33 @@ public class DashboardWidgetManager {
         try {
             DashboardStats stats = new DashboardStats();
 
+            // ✅ Une seule requête GROUP BY couvrant toutes les périodes affichées
+            Period today = getToday();
+            Period week = getWeek();
+            Period month = getMonth();
+            Period trend = getLastSevenDays();
+            String rangeStart = min(min(today.start, week.start), min(month.start, trend.start));
+            String rangeEnd = max(max(today.end, week.end), max(month.end, trend.end));
+            List<HoursAggregate.Row> rows = dbHelper.getHoursByDayProjectWorkType(rangeStart, rangeEnd);
+
             // Statistiques du jour
-            stats.todayStats = getTodayStats();
+            stats.todayStats = getStatsForPeriod(rows, today);
 
             // Statistiques de la semaine
-            stats.weekStats = getWeekStats();
+            stats.weekStats = getStatsForPeriod(rows, week);
 
             // Statistiques du mois
-            stats.monthStats = getMonthStats();
+            HoursAggregate monthAggregate = HoursAggregate.of(rows, month.start, month.end);
+            stats.monthStats = toTimeStats(monthAggregate, month);
 
             // Top projets
-            stats.topProjects = getTopProjects(5);
+            stats.topProjects = getTopProjects(monthAggregate, 5);
 
             // Distribution par type de travail
-            stats.workTypeDistribution = getWorkTypeDistribution();
+            stats.workTypeDistribution = getWorkTypeDistribution(monthAggregate);
 
             // Tendance hebdomadaire
-            stats.weeklyTrend = getWeeklyTrend();
+            stats.weeklyTrend = getWeeklyTrend(HoursAggregate.of(rows, trend.start, trend.end));
 
             // Mise en cache
             cachedStats = stats;
@@ -91,19 +103,30 @@ public class DashboardWidgetManager {
     }
 
     /**
-     * Statistiques du jour actuel
+     * Période [start, end] en dates ISO
      */
-    private TimeStats getTodayStats() {
-        Calendar calendar = Calendar.getInstance();
-        String today = dateFormat.format(calendar.getTime());
+    private static class Period {
+        final String start;
+        final String end;
 
-        return getStatsForPeriod(today, today);
+        Period(String start, String end) {
+            this.start = start;
+            this.end = end;
+        }
     }
 
     /**
-     * Statistiques de la semaine courante
+     * Jour actuel
      */
-    private TimeStats getWeekStats() {
+    private Period getToday() {
+        String today = dateFormat.format(Calendar.getInstance().getTime());
+        return new Period(today, today);
+    }
+
+    /**
+     * Semaine courante
+     */
+    private Period getWeek() {
         Calendar calendar = Calendar.getInstance();
         calendar.set(Calendar.DAY_OF_WEEK, calendar.getFirstDayOfWeek());
         String weekStart = dateFormat.format(calendar.getTime());
@@ -111,13 +134,13 @@ public class DashboardWidgetManager {
         calendar.add(Calendar.DAY_OF_YEAR, 6);
         String weekEnd = dateFormat.format(calendar.getTime());
 
-        return getStatsForPeriod(weekStart, weekEnd);
+        return new Period(weekStart, weekEnd);
     }
 
     /**
-     * Statistiques du mois courant
+     * Mois courant
      */
-    private TimeStats getMonthStats() {
+    private Period getMonth() {
         Calendar calendar = Calendar.getInstance();
         calendar.set(Calendar.DAY_OF_MONTH, 1);
         String monthStart = dateFormat.format(calendar.getTime());
@@ -125,164 +148,92 @@ public class DashboardWidgetManager {
         calendar.set(Calendar.DAY_OF_MONTH, calendar.getActualMaximum(Calendar.DAY_OF_MONTH));
         String monthEnd = dateFormat.format(calendar.getTime());
 
-        return getStatsForPeriod(monthStart, monthEnd);
+        return new Period(monthStart, monthEnd);
     }
 
     /**
-     * Calcule les statistiques pour une période donnée
+     * 7 derniers jours (aujourd'hui inclus)
      */
-    private TimeStats getStatsForPeriod(String startDate, String endDate) {
-        TimeStats stats = new TimeStats();
-        stats.startDate = startDate;
-        stats.endDate = endDate;
-
-        try {
-            // Récupérer tous les rapports de la période
-            List<TimeReport> reports = dbHelper.getTimeReportsByDateRange(startDate, endDate);
-
-            if (reports.isEmpty()) {
-                return stats;
-            }
-
-            // Calculer les statistiques
-            double totalHours = 0;
-            int totalEntries = reports.size();
-            Map<String, Double> projectHours = new HashMap<>();
-
-            for (TimeReport report : reports) {
-                double hours = report.getHours();
-                totalHours += hours;
-
-                // Accumuler par projet
-                String projectName = getProjectName(report.getProjectId());
-                projectHours.put(projectName,
-                    projectHours.getOrDefault(projectName, 0.0) + hours);
-            }
+    private Period getLastSevenDays() {
+        Calendar calendar = Calendar.getInstance();
+        String end = dateFormat.format(calendar.getTime());
+        calendar.add(Calendar.DAY_OF_YEAR, -6);
+        return new Period(dateFormat.format(calendar.getTime()), end);
+    }
 
-            stats.totalHours = totalHours;
-            stats.totalEntries = totalEntries;
-            stats.averageHoursPerDay = calculateAveragePerDay(totalHours, startDate, endDate);
-            stats.projectBreakdown = projectHours;
+    /**
+     * Calcule les statistiques pour une période donnée à partir des groupes agrégés
+     */
+    private TimeStats getStatsForPeriod(List<HoursAggregate.Row> rows, Period period) {
+        return toTimeStats(HoursAggregate.of(rows, period.start, period.end), period);
+    }
 
-        } catch (Exception e) {
-            Log.e(TAG, "Error calculating period stats", e);
+    private TimeStats toTimeStats(HoursAggregate aggregate, Period period) {
+        TimeStats stats = new TimeStats();
+        stats.startDate = period.start;
+        stats.endDate = period.end;
+        stats.totalHours = aggregate.totalHours;
+        stats.totalEntries = aggregate.totalEntries;
+        stats.averageHoursPerDay = calculateAveragePerDay(aggregate.totalHours, period.start, period.end);
+
+        for (HoursAggregate.Bucket bucket : aggregate.byProject.values()) {
+            String projectName = projectLabel(bucket);
+            stats.projectBreakdown.put(projectName,
+                stats.projectBreakdown.getOrDefault(projectName, 0.0) + bucket.hours);
         }
-
         return stats;
     }
 
     /**
-     * Top projets par heures travaillées
+     * Top projets par heures travaillées (mois courant)
      */
-    private List<ProjectStats> getTopProjects(int limit) {
+    private List<ProjectStats> getTopProjects(HoursAggregate monthAggregate, int limit) {
         List<ProjectStats> topProjects = new ArrayList<>();
-
-        try {
-            // Récupérer tous les rapports du mois
-            Calendar calendar = Calendar.getInstance();
-            calendar.set(Calendar.DAY_OF_MONTH, 1);
-            String monthStart = dateFormat.format(calendar.getTime());
-
-            calendar.set(Calendar.DAY_OF_MONTH, calendar.getActualMaximum(Calendar.DAY_OF_MONTH));
-            String monthEnd = dateFormat.format(calendar.getTime());
-
-            List<TimeReport> reports = dbHelper.getTimeReportsByDateRange(monthStart, monthEnd);
-
-            // Accumuler par projet
-            Map<Integer, Double> projectHours = new HashMap<>();
-            for (TimeReport report : reports) {
-                int projectId = report.getProjectId();
-                double hours = report.getHours();
-                projectHours.put(projectId, projectHours.getOrDefault(projectId, 0.0) + hours);
-            }
-
-            // Créer les stats de projet
-            for (Map.Entry<Integer, Double> entry : projectHours.entrySet()) {
-                Project project = dbHelper.getProjectById(entry.getKey());
-                if (project != null) {
-                    ProjectStats stats = new ProjectStats();
-                    stats.projectId = entry.getKey();
-                    stats.projectName = project.getName();
-                    stats.totalHours = entry.getValue();
-                    stats.entryCount = countEntriesForProject(reports, entry.getKey());
-                    topProjects.add(stats);
-                }
-            }
-
-            // Trier par heures décroissantes
-            topProjects.sort((a, b) -> Double.compare(b.totalHours, a.totalHours));
-
-            // Limiter le nombre de résultats
-            if (topProjects.size() > limit) {
-                topProjects = topProjects.subList(0, limit);
-            }
-
-        } catch (Exception e) {
-            Log.e(TAG, "Error getting top projects", e);
+        for (HoursAggregate.Bucket bucket : monthAggregate.getTopProjects(limit)) {
+            ProjectStats stats = new ProjectStats();
+            stats.projectId = bucket.id;
+            stats.projectName = projectLabel(bucket);
+            stats.totalHours = bucket.hours;
+            stats.entryCount = bucket.entries;
+            topProjects.add(stats);
         }
-
         return topProjects;
     }
 
     /**
-     * Distribution par type de travail
+     * Distribution par type de travail (mois courant)
      */
-    private Map<String, Double> getWorkTypeDistribution() {
+    private Map<String, Double> getWorkTypeDistribution(HoursAggregate monthAggregate) {
         Map<String, Double> distribution = new HashMap<>();
-
-        try {
-            // Récupérer tous les rapports du mois
-            Calendar calendar = Calendar.getInstance();
-            calendar.set(Calendar.DAY_OF_MONTH, 1);
-            String monthStart = dateFormat.format(calendar.getTime());
-
-            calendar.set(Calendar.DAY_OF_MONTH, calendar.getActualMaximum(Calendar.DAY_OF_MONTH));
-            String monthEnd = dateFormat.format(calendar.getTime());
-
-            List<TimeReport> reports = dbHelper.getTimeReportsByDateRange(monthStart, monthEnd);
-
-            // Accumuler par type de travail
-            for (TimeReport report : reports) {
-                String workType = getWorkTypeName(report.getWorkTypeId());
-                double hours = report.getHours();
-                distribution.put(workType, distribution.getOrDefault(workType, 0.0) + hours);
-            }
-
-        } catch (Exception e) {
-            Log.e(TAG, "Error getting work type distribution", e);
+        for (HoursAggregate.Bucket bucket : monthAggregate.byWorkType.values()) {
+            String workType = bucket.label != null ? bucket.label : "Work Type " + bucket.id;
+            distribution.put(workType, distribution.getOrDefault(workType, 0.0) + bucket.hours);
         }
-
         return distribution;
     }
 
     /**
-     * Tendance hebdomadaire (7 derniers jours)
+     * Tendance hebdomadaire (7 derniers jours, jours sans saisie inclus)
      */
-    private List<DayStats> getWeeklyTrend() {
+    private List<DayStats> getWeeklyTrend(HoursAggregate trendAggregate) {
         List<DayStats> trend = new ArrayList<>();
 
-        try {
-            Calendar calendar = Calendar.getInstance();
-
-            for (int i = 6; i >= 0; i--) {
-                calendar.setTime(new Date());
-                calendar.add(Calendar.DAY_OF_YEAR, -i);
-                String date = dateFormat.format(calendar.getTime());
-
-                TimeStats dayStats = getStatsForPeriod(date, date);
-
-                DayStats day = new DayStats();
-                day.date = date;
-                day.dayOfWeek = calendar.getDisplayName(Calendar.DAY_OF_WEEK,
-                    Calendar.SHORT, Locale.getDefault());
-                day.totalHours = dayStats.totalHours;
-                day.entryCount = dayStats.totalEntries;
-
-                trend.add(day);
+        Calendar calendar = Calendar.getInstance();
+        for (int i = 6; i >= 0; i--) {
+            calendar.setTime(new Date());
+            calendar.add(Calendar.DAY_OF_YEAR, -i);
+            String date = dateFormat.format(calendar.getTime());
+
+            DayStats day = new DayStats();
+            day.date = date;
+            day.dayOfWeek = calendar.getDisplayName(Calendar.DAY_OF_WEEK,
+                Calendar.SHORT, Locale.getDefault());
+            HoursAggregate.Bucket bucket = trendAggregate.byDay.get(date);
+            if (bucket != null) {
+                day.totalHours = bucket.hours;
+                day.entryCount = bucket.entries;
             }
-
-        } catch (Exception e) {
-            Log.e(TAG, "Error getting weekly trend", e);
+            trend.add(day);
         }
 
         return trend;
@@ -307,42 +258,16 @@ public class DashboardWidgetManager {
         }
     }
 
-    /**
-     * Récupère le nom d'un projet
-     */
-    private String getProjectName(int projectId) {
-        try {
-            Project project = dbHelper.getProjectById(projectId);
-            return project != null ? project.getName() : "Unknown Project";
-        } catch (Exception e) {
-            return "Unknown Project";
-        }
+    private static String projectLabel(HoursAggregate.Bucket bucket) {
+        return bucket.label != null && !bucket.label.isEmpty() ? bucket.label : "Unknown Project";
     }
 
-    /**
-     * Récupère le nom d'un type de travail
-     */
-    private String getWorkTypeName(int workTypeId) {
-        try {
-            // Utiliser la méthode du DatabaseHelper si elle existe
-            // Sinon retourner un nom par défaut
-            return "Work Type " + workTypeId;
-        } catch (Exception e) {
-            return "Unknown Work Type";
-        }
+    private static String min(String a, String b) {
+        return a.compareTo(b) <= 0 ? a : b;
     }
 
-    /**
-     * Compte le nombre d'entrées pour un projet
-     */
-    private int countEntriesForProject(List<TimeReport> reports, int projectId) {
-        int count = 0;
-        for (TimeReport report : reports) {
-            if (report.getProjectId() == projectId) {
-                count++;
-            }
-        }
-        return count;
+    private static String max(String a, String b) {
+        return a.compareTo(b) >= 0 ? a : b;
     }
 
     /**
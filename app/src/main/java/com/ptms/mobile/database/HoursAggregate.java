@@ -0,0 +1,88 @@
+package com.ptms.mobile.database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ✅ Agrégats d'heures dérivés des groupes (jour, projet, type de travail)
+ *
+ * Les groupes sont calculés par SQL (OfflineDatabaseHelper.getHoursByDayProjectWorkType) sur la
+ * plage la plus large; chaque période affichée est ensuite un simple filtre sur ces groupes,
+ * sans nouvelle requête ni lecture des rapports individuels.
+ *
+ * @version 1.0
+ * @date 2025-10-27
+ */
+public class HoursAggregate {
+
+    /**
+     * Groupe renvoyé par la base: heures d'un projet et d'un type de travail pour un jour
+     */
+    public static class Row {
+        public String date;          // yyyy-MM-dd
+        public int projectId;        // ID serveur
+        public String projectName;
+        public int workTypeId;       // ID serveur
+        public String workTypeName;
+        public double hours;
+        public int entries;
+    }
+
+    /**
+     * Total d'une dimension (projet, type de travail ou jour)
+     */
+    public static class Bucket {
+        public int id;
+        public String label;
+        public double hours;
+        public int entries;
+    }
+
+    public double totalHours = 0;
+    public int totalEntries = 0;
+    public final Map<Integer, Bucket> byProject = new LinkedHashMap<>();
+    public final Map<Integer, Bucket> byWorkType = new LinkedHashMap<>();
+    public final Map<String, Bucket> byDay = new LinkedHashMap<>();
+
+    /**
+     * Agrège les groupes dont la date est comprise dans [startDate, endDate] (dates ISO)
+     */
+    public static HoursAggregate of(List<Row> rows, String startDate, String endDate) {
+        HoursAggregate aggregate = new HoursAggregate();
+        for (Row row : rows) {
+            if (row.date == null || row.date.compareTo(startDate) < 0 || row.date.compareTo(endDate) > 0) {
+                continue;
+            }
+            aggregate.totalHours += row.hours;
+            aggregate.totalEntries += row.entries;
+            add(aggregate.byProject, row.projectId, row.projectName, row);
+            add(aggregate.byWorkType, row.workTypeId, row.workTypeName, row);
+            add(aggregate.byDay, row.date, row.date, row);
+        }
+        return aggregate;
+    }
+
+    /**
+     * Projets triés par heures décroissantes
+     */
+    public List<Bucket> getTopProjects(int limit) {
+        List<Bucket> projects = new ArrayList<>(byProject.values());
+        Collections.sort(projects, (a, b) -> Double.compare(b.hours, a.hours));
+        return projects.size() > limit ? new ArrayList<>(projects.subList(0, limit)) : projects;
+    }
+
+    private static <K> void add(Map<K, Bucket> buckets, K key, String label, Row row) {
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new Bucket();
+            bucket.id = key instanceof Integer ? (Integer) key : 0;
+            bucket.label = label;
+            buckets.put(key, bucket);
+        }
+        bucket.hours += row.hours;
+        bucket.entries += row.entries;
+    }
+}
@@ -0,0 +1,239 @@
+package com.ptms.mobile.database;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.recyclerview.widget.DiffUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ✅ Source de données paginée par clé pour les listes (notes)
+ *
+ * - Charge PAGE_SIZE lignes à la fois, hors thread UI; la page suivante reprend après
+ *   le dernier élément chargé (voir OfflineDatabaseHelper.getNotesPage)
+ * - La page suivante est demandée par l'adapter quand il affiche les derniers éléments
+ * - Les résultats sont publiés sur le thread UI; un reset invalide les pages encore en vol
+ * - reload(): relit la plage déjà chargée et publie les différences (position de défilement conservée)
+ *
+ * Le premier affichage ne dépend plus du nombre total de lignes.
+ *
+ * @version 1.0
+ * @date 2025-10-27
+ */
+public class KeysetPagingSource<T> {
+
+    private static final String TAG = "KeysetPagingSource";
+
+    public static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_DISTANCE = 10;
+
+    // Lecteur partagé: les pages sont lues dans l'ordre des demandes
+    private static final ExecutorService READ_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    /**
+     * Lecture d'une page (thread de lecture)
+     * @param after dernier élément déjà chargé (null = première page)
+     */
+    public interface PageLoader<T> {
+        List<T> loadPage(T after, int limit);
+    }
+
+    /**
+     * Notifications (thread UI)
+     */
+    public interface Listener {
+        void onReset();
+
+        void onPageLoaded(int positionStart, int itemCount, boolean endReached);
+
+        /**
+         * Plage chargée relue par reload(): diff calculé entre l'ancienne et la nouvelle liste
+         */
+        void onReloaded(DiffUtil.DiffResult diff);
+    }
+
+    private final PageLoader<T> loader;
+    private final Executor readExecutor;
+    private final Executor callbackExecutor;
+    private final List<T> items = new ArrayList<>();
+    private final List<Listener> listeners = new ArrayList<>();
+    private DiffUtil.ItemCallback<T> itemCallback; // Identité/contenu des éléments pour reload()
+
+    private boolean loading = false;
+    private boolean endReached = false;
+    private int generation = 0;
+
+    public KeysetPagingSource(PageLoader<T> loader) {
+        this(loader, READ_EXECUTOR, new Handler(Looper.getMainLooper())::post);
+    }
+
+    KeysetPagingSource(PageLoader<T> loader, Executor readExecutor, Executor callbackExecutor) {
+        this.loader = loader;
+        this.readExecutor = readExecutor;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Comparaison des éléments utilisée par reload() (fournie par l'adapter)
+     */
+    public void setItemCallback(DiffUtil.ItemCallback<T> itemCallback) {
+        this.itemCallback = itemCallback;
+    }
+
+    /**
+     * Éléments chargés jusqu'ici (liste vivante, modifiée uniquement sur le thread UI)
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    public boolean isEndReached() {
+        return endReached;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * Vide la liste et recharge la première page (changement de filtre, données modifiées)
+     */
+    public void refresh() {
+        generation++;
+        items.clear();
+        loading = false;
+        endReached = false;
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onReset();
+        }
+        loadNextPage();
+    }
+
+    /**
+     * Relit en une requête les éléments déjà chargés (données modifiées, même filtre)
+     * La liste n'est pas vidée: seules les différences sont publiées (onReloaded), la position
+     * de défilement est conservée. Sans comparaison d'éléments, équivaut à refresh().
+     */
+    public void reload() {
+        if (itemCallback == null || items.isEmpty()) {
+            refresh();
+            return;
+        }
+        generation++; // Page suivante en vol: relue après la plage, elle serait périmée
+        loading = true;
+
+        final int requestGeneration = generation;
+        final DiffUtil.ItemCallback<T> callback = itemCallback;
+        final List<T> previous = new ArrayList<>(items);
+        final int count = Math.max(previous.size(), PAGE_SIZE);
+        readExecutor.execute(() -> {
+            List<T> reloaded;
+            try {
+                reloaded = loader.loadPage(null, count);
+            } catch (Exception e) {
+                Log.e(TAG, "❌ Erreur relecture", e);
+                reloaded = previous;
+            }
+            final List<T> fresh = reloaded;
+            DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+                @Override
+                public int getOldListSize() {
+                    return previous.size();
+                }
+
+                @Override
+                public int getNewListSize() {
+                    return fresh.size();
+                }
+
+                @Override
+                public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                    return callback.areItemsTheSame(previous.get(oldPosition), fresh.get(newPosition));
+                }
+
+                @Override
+                public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                    return callback.areContentsTheSame(previous.get(oldPosition), fresh.get(newPosition));
+                }
+            });
+            callbackExecutor.execute(() -> publishReload(requestGeneration, fresh, count, diff));
+        });
+    }
+
+    private void publishReload(int requestGeneration, List<T> fresh, int count, DiffUtil.DiffResult diff) {
+        if (requestGeneration != generation) {
+            return; // relecture remplacée par refresh() ou un autre reload()
+        }
+        loading = false;
+        endReached = fresh.size() < count;
+
+        items.clear();
+        items.addAll(fresh);
+        Log.d(TAG, "🔄 Plage relue: " + fresh.size() + " éléments");
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onReloaded(diff);
+        }
+    }
+
+    /**
+     * À appeler depuis onBindViewHolder/getView: précharge la page suivante en fin de liste
+     */
+    public void onItemBound(int position) {
+        if (position >= items.size() - PREFETCH_DISTANCE) {
+            loadNextPage();
+        }
+    }
+
+    /**
+     * Demande la page suivante (sans effet si une lecture est en cours ou la fin atteinte)
+     */
+    public void loadNextPage() {
+        if (loading || endReached) {
+            return;
+        }
+        loading = true;
+
+        final int requestGeneration = generation;
+        final T after = items.isEmpty() ? null : items.get(items.size() - 1);
+        readExecutor.execute(() -> {
+            List<T> page;
+            try {
+                page = loader.loadPage(after, PAGE_SIZE);
+            } catch (Exception e) {
+                Log.e(TAG, "❌ Erreur lecture page", e);
+                page = new ArrayList<>();
+            }
+            final List<T> loaded = page;
+            callbackExecutor.execute(() -> publish(requestGeneration, loaded));
+        });
+    }
+
+    private void publish(int requestGeneration, List<T> page) {
+        if (requestGeneration != generation) {
+            return; // page d'une requête remplacée par refresh() ou reload()
+        }
+        loading = false;
+        endReached = page.size() < PAGE_SIZE;
+
+        int positionStart = items.size();
+        items.addAll(page);
+        Log.d(TAG, "📄 Page chargée: " + page.size() + " éléments (total " + items.size() + ")");
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onPageLoaded(positionStart, page.size(), endReached);
+        }
+    }
+}
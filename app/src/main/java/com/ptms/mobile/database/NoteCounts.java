@@ -0,0 +1,23 @@
+package com.ptms.mobile.database;
+
+/**
+ * ✅ Compteurs de la liste des notes pour un filtre (voir OfflineDatabaseHelper.getNotesPage)
+ *
+ * Lus ensemble par observeNoteCounts(): une nouvelle valeur signale aussi que la table
+ * des notes a changé et que les pages affichées doivent être relues.
+ *
+ * @version 1.0
+ * @date 2025-10-28
+ */
+public class NoteCounts {
+
+    public final int total;      // Toutes les notes de l'utilisateur
+    public final int category;   // Notes du filtre courant
+    public final int important;  // Notes importantes du filtre courant
+
+    public NoteCounts(int total, int category, int important) {
+        this.total = total;
+        this.category = category;
+        this.important = important;
+    }
+}
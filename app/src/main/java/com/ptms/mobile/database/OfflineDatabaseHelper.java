@@ -2,27 +2,54 @@ package com.ptms.mobile.database;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.pm.ApplicationInfo;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
+import android.text.TextUtils;
 import android.util.Log;
 
+import androidx.lifecycle.LiveData;
+
+import com.ptms.mobile.models.ChatMessage;
+import com.ptms.mobile.models.ChatRoom;
+import com.ptms.mobile.models.OutboxOperation;
 import com.ptms.mobile.models.Project;
 import com.ptms.mobile.models.ProjectNote;
 import com.ptms.mobile.models.TimeReport;
+import com.ptms.mobile.models.UploadSession;
 import com.ptms.mobile.models.WorkType;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiPredicate;
 
 /**
  * Gestionnaire de base de données locale pour le mode hors ligne
+ *
+ * ✅ INSTANCE UNIQUE (processus): utiliser getInstance(context)
+ * - Write-Ahead Logging: les lectures (pool de connexions) ne bloquent plus derrière une transaction de sync
+ * - Lectures non synchronisées, écritures sérialisées sur l'instance
+ * - executeWrite(): écritures asynchrones sur un thread d'écriture unique
+ * - Implémente OfflineStore: requêtes observables (LiveData) relancées par table modifiée
  */
-public class OfflineDatabaseHelper extends SQLiteOpenHelper {
+public class OfflineDatabaseHelper extends SQLiteOpenHelper implements OfflineStore {
     
     private static final String TAG = "OfflineDatabaseHelper";
     private static final String DATABASE_NAME = "ptms_offline.db";
-    private static final int DATABASE_VERSION = 7; // ✅ NOUVELLE VERSION: v6→v7 pour support multimédia complet
+    private static final int DATABASE_VERSION = 15; // ✅ NOUVELLE VERSION: v14→v15 pour l'index de pagination des notes
 
     // Tables
     private static final String TABLE_PROJECTS = "projects";
@@ -30,6 +57,11 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
     private static final String TABLE_TIME_REPORTS = "time_reports";
     private static final String TABLE_PROJECT_NOTES = "project_notes";
     private static final String TABLE_NOTE_TYPES = "note_types";
+    private static final String TABLE_UPLOAD_SESSIONS = "upload_sessions"; // ✅ v10
+    private static final String TABLE_SYNC_OUTBOX = "sync_outbox"; // ✅ v11
+    private static final String TABLE_DAILY_HOURS_ROLLUP = "daily_hours_rollup"; // ✅ v12
+    private static final String TABLE_CHAT_ROOMS = "chat_rooms"; // ✅ v14
+    private static final String TABLE_CHAT_MESSAGES = "chat_messages"; // ✅ v14
     
     // Colonnes communes
     private static final String COLUMN_ID = "id";
@@ -55,11 +87,14 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
     private static final String COLUMN_WORK_TYPE_STATUS = "status"; // ✅ AJOUTÉ pour work_types
 
     // ✅ AJOUTÉ: Cache en mémoire pour performance
-    private List<Project> cachedProjects = null;
-    private List<WorkType> cachedWorkTypes = null;
-    private long lastProjectsCacheTime = 0;
-    private long lastWorkTypesCacheTime = 0;
+    private volatile List<Project> cachedProjects = null;
+    private volatile List<WorkType> cachedWorkTypes = null;
+    private volatile long lastProjectsCacheTime = 0;
+    private volatile long lastWorkTypesCacheTime = 0;
     private static final long CACHE_VALIDITY_MS = 5 * 60 * 1000; // 5 minutes
+
+    // Nombre max de paramètres par clause IN (limite SQLite: 999 variables)
+    private static final int MAX_SQL_VARIABLES = 500;
     
     // Colonnes spécifiques aux rapports de temps
     private static final String COLUMN_PROJECT_ID = "project_id";
@@ -77,6 +112,7 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
     private static final String COLUMN_SYNC_STATUS = "sync_status";
     private static final String COLUMN_SYNC_ERROR = "sync_error";
     private static final String COLUMN_ATTEMPTS = "sync_attempts";
+    private static final String COLUMN_IDEMPOTENCY_KEY = "idempotency_key"; // ✅ v9: upload batch idempotent
     
     // Requêtes de création des tables
     // ✅ CORRIGÉ: status TEXT→INTEGER, colonnes ajoutées
@@ -129,9 +165,139 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
         COLUMN_DATE_UPDATED + " DATETIME DEFAULT CURRENT_TIMESTAMP," +
         COLUMN_SYNC_STATUS + " TEXT DEFAULT 'pending'," +
         COLUMN_SYNC_ERROR + " TEXT," +
-        COLUMN_ATTEMPTS + " INTEGER DEFAULT 0" +
+        COLUMN_ATTEMPTS + " INTEGER DEFAULT 0," +
+        COLUMN_IDEMPOTENCY_KEY + " TEXT" +
+        ")";
+
+    // ✅ v10: Sessions d'upload par morceaux (une par note, offset acquitté par le serveur)
+    private static final String CREATE_TABLE_UPLOAD_SESSIONS =
+        "CREATE TABLE IF NOT EXISTS " + TABLE_UPLOAD_SESSIONS + "(" +
+        "note_id INTEGER PRIMARY KEY," +
+        "upload_id TEXT NOT NULL," +
+        "file_path TEXT NOT NULL," +
+        "file_size INTEGER NOT NULL," +
+        "file_modified INTEGER NOT NULL," +
+        "chunk_size INTEGER NOT NULL," +
+        "acked_offset INTEGER DEFAULT 0," +
+        COLUMN_CREATED_AT + " INTEGER," +
+        COLUMN_UPDATED_AT + " INTEGER" +
+        ")";
+
+    // ✅ v11: Journal d'envoi append-only (une ligne par opération locale non acquittée)
+    // Rejoué dans l'ordre des ID; depends_on = opération à acquitter avant celle-ci
+    private static final String CREATE_TABLE_SYNC_OUTBOX =
+        "CREATE TABLE IF NOT EXISTS " + TABLE_SYNC_OUTBOX + "(" +
+        COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
+        "entity_type TEXT NOT NULL," +  // time_report, project_note
+        "entity_id INTEGER NOT NULL," + // ID local de l'entité
+        "op TEXT NOT NULL," +           // create, update, delete, media
+        "depends_on INTEGER," +
+        COLUMN_SERVER_ID + " INTEGER," + // ID serveur au moment de l'opération (suppressions)
+        "attempts INTEGER DEFAULT 0," +
+        "last_error TEXT," +
+        COLUMN_CREATED_AT + " INTEGER" +
+        ")";
+
+    // Créé avec la table (et non dans CREATE_INDEXES, exécuté par la migration V8 avant que la table n'existe)
+    private static final String CREATE_INDEX_SYNC_OUTBOX_ENTITY =
+        "CREATE INDEX IF NOT EXISTS idx_sync_outbox_entity ON " + TABLE_SYNC_OUTBOX + "(entity_type, entity_id)";
+
+    // ✅ v14: Salles de chat (ID serveur); last_message_id = plus haut message reçu (curseur des deltas)
+    private static final String CREATE_TABLE_CHAT_ROOMS =
+        "CREATE TABLE IF NOT EXISTS " + TABLE_CHAT_ROOMS + "(" +
+        COLUMN_ID + " INTEGER PRIMARY KEY," +
+        COLUMN_NAME + " TEXT," +
+        "display_name TEXT," +
+        COLUMN_DESCRIPTION + " TEXT," +
+        "room_type TEXT," +
+        COLUMN_PROJECT_ID + " INTEGER DEFAULT 0," +
+        "project_name TEXT," +
+        "department_name TEXT," +
+        "unread_count INTEGER DEFAULT 0," +
+        "last_activity INTEGER," +
+        "last_message_id INTEGER DEFAULT 0," +
+        COLUMN_UPDATED_AT + " INTEGER" +
+        ")";
+
+    // ✅ v14: Messages de chat (ID serveur)
+    // gap_before = 1: des messages plus anciens que celui-ci n'ont pas été récupérés (trou ou début non chargé)
+    private static final String CREATE_TABLE_CHAT_MESSAGES =
+        "CREATE TABLE IF NOT EXISTS " + TABLE_CHAT_MESSAGES + "(" +
+        COLUMN_ID + " INTEGER PRIMARY KEY," +
+        "room_id INTEGER NOT NULL," +
+        "sender_id INTEGER," +
+        "sender_name TEXT," +
+        "content TEXT," +
+        "message_type TEXT," +
+        "timestamp INTEGER," +
+        "is_read INTEGER DEFAULT 0," +
+        "attachment_url TEXT," +
+        "attachment_name TEXT," +
+        "gap_before INTEGER DEFAULT 0" +
+        ")";
+
+    private static final String CREATE_INDEX_CHAT_MESSAGES_ROOM =
+        "CREATE INDEX IF NOT EXISTS idx_chat_messages_room ON " + TABLE_CHAT_MESSAGES + "(room_id, " + COLUMN_ID + ")";
+
+    // ✅ NOUVEAU (V12): Cumul des heures par (utilisateur, jour, projet, type de travail)
+    // Tenu à jour par les triggers ci-dessous, dans la transaction de l'écriture du rapport:
+    // les statistiques semaine/mois lisent un groupe par jour au lieu de chaque rapport.
+    private static final String CREATE_TABLE_DAILY_HOURS_ROLLUP =
+        "CREATE TABLE IF NOT EXISTS " + TABLE_DAILY_HOURS_ROLLUP + "(" +
+        "user_id INTEGER NOT NULL," +
+        "date TEXT NOT NULL," +
+        COLUMN_PROJECT_ID + " INTEGER NOT NULL," +
+        COLUMN_WORK_TYPE_ID + " INTEGER NOT NULL," +
+        COLUMN_HOURS + " REAL NOT NULL DEFAULT 0," +
+        "entries INTEGER NOT NULL DEFAULT 0," +
+        "PRIMARY KEY (user_id, date, " + COLUMN_PROJECT_ID + ", " + COLUMN_WORK_TYPE_ID + ")" +
         ")";
 
+    private static final String CREATE_INDEX_DAILY_HOURS_ROLLUP_DATE =
+        "CREATE INDEX IF NOT EXISTS idx_daily_hours_rollup_date ON " + TABLE_DAILY_HOURS_ROLLUP + "(date)";
+
+    private static final String[] CREATE_TRIGGERS_DAILY_HOURS_ROLLUP = {
+        "CREATE TRIGGER IF NOT EXISTS trg_time_reports_rollup_insert AFTER INSERT ON " + TABLE_TIME_REPORTS +
+            " BEGIN " + rollupAdd("NEW") + " END",
+        "CREATE TRIGGER IF NOT EXISTS trg_time_reports_rollup_update AFTER UPDATE OF " +
+            COLUMN_EMPLOYEE_ID + ", " + COLUMN_REPORT_DATE + ", " + COLUMN_PROJECT_ID + ", " +
+            COLUMN_WORK_TYPE_ID + ", " + COLUMN_HOURS + " ON " + TABLE_TIME_REPORTS +
+            " BEGIN " + rollupSubtract("OLD") + rollupAdd("NEW") + " END",
+        "CREATE TRIGGER IF NOT EXISTS trg_time_reports_rollup_delete AFTER DELETE ON " + TABLE_TIME_REPORTS +
+            " BEGIN " + rollupSubtract("OLD") + " END"
+    };
+
+    /**
+     * Clé du cumul pour la ligne NEW/OLD d'un trigger (valeurs NULL ramenées à 0 / '')
+     */
+    private static String rollupKey(String row) {
+        return "COALESCE(" + row + "." + COLUMN_EMPLOYEE_ID + ", 0), COALESCE(" + row + "." + COLUMN_REPORT_DATE + ", ''), " +
+            "COALESCE(" + row + "." + COLUMN_PROJECT_ID + ", 0), COALESCE(" + row + "." + COLUMN_WORK_TYPE_ID + ", 0)";
+    }
+
+    private static String rollupMatch(String row) {
+        return "user_id = COALESCE(" + row + "." + COLUMN_EMPLOYEE_ID + ", 0)" +
+            " AND date = COALESCE(" + row + "." + COLUMN_REPORT_DATE + ", '')" +
+            " AND " + COLUMN_PROJECT_ID + " = COALESCE(" + row + "." + COLUMN_PROJECT_ID + ", 0)" +
+            " AND " + COLUMN_WORK_TYPE_ID + " = COALESCE(" + row + "." + COLUMN_WORK_TYPE_ID + ", 0)";
+    }
+
+    private static String rollupAdd(String row) {
+        return "INSERT OR IGNORE INTO " + TABLE_DAILY_HOURS_ROLLUP +
+            " (user_id, date, " + COLUMN_PROJECT_ID + ", " + COLUMN_WORK_TYPE_ID + ", " + COLUMN_HOURS + ", entries)" +
+            " VALUES (" + rollupKey(row) + ", 0, 0); " +
+            "UPDATE " + TABLE_DAILY_HOURS_ROLLUP + " SET " + COLUMN_HOURS + " = " + COLUMN_HOURS +
+            " + COALESCE(" + row + "." + COLUMN_HOURS + ", 0), entries = entries + 1" +
+            " WHERE " + rollupMatch(row) + "; ";
+    }
+
+    private static String rollupSubtract(String row) {
+        return "UPDATE " + TABLE_DAILY_HOURS_ROLLUP + " SET " + COLUMN_HOURS + " = " + COLUMN_HOURS +
+            " - COALESCE(" + row + "." + COLUMN_HOURS + ", 0), entries = entries - 1" +
+            " WHERE " + rollupMatch(row) + "; " +
+            "DELETE FROM " + TABLE_DAILY_HOURS_ROLLUP + " WHERE entries <= 0 AND " + rollupMatch(row) + "; ";
+    }
+
     private static final String CREATE_TABLE_NOTE_TYPES =
         "CREATE TABLE " + TABLE_NOTE_TYPES + "(" +
         COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
@@ -186,10 +352,212 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
         COLUMN_SYNCED + " INTEGER DEFAULT 0" +
         ")";
     
+    // ✅ NOUVEAU (V8): Index secondaires pour les chemins d'accès fréquents
+    // (filtres sync_status, report_date, server_id, user_id, project_id, note_group)
+    private static final String[] CREATE_INDEXES = {
+        "CREATE INDEX IF NOT EXISTS idx_time_reports_sync_status ON " + TABLE_TIME_REPORTS +
+            "(" + COLUMN_SYNC_STATUS + ", " + COLUMN_DATE_CREATED + ")",
+        "CREATE INDEX IF NOT EXISTS idx_time_reports_report_date ON " + TABLE_TIME_REPORTS +
+            "(" + COLUMN_REPORT_DATE + ")",
+        "CREATE INDEX IF NOT EXISTS idx_time_reports_server_id ON " + TABLE_TIME_REPORTS +
+            "(" + COLUMN_SERVER_ID + ")",
+        "CREATE INDEX IF NOT EXISTS idx_time_reports_employee_date ON " + TABLE_TIME_REPORTS +
+            "(" + COLUMN_EMPLOYEE_ID + ", " + COLUMN_REPORT_DATE + ")",
+        // v15: clé complète de getNotesPage() (is_important, created_at, id): pages lues dans l'index, sans tri
+        "CREATE INDEX IF NOT EXISTS idx_project_notes_user ON " + TABLE_PROJECT_NOTES +
+            "(user_id, is_important, " + COLUMN_CREATED_AT + ", " + COLUMN_ID + ")",
+        "CREATE INDEX IF NOT EXISTS idx_project_notes_group_user ON " + TABLE_PROJECT_NOTES +
+            "(note_group, user_id, is_important, " + COLUMN_CREATED_AT + ")",
+        "CREATE INDEX IF NOT EXISTS idx_project_notes_project_user ON " + TABLE_PROJECT_NOTES +
+            "(" + COLUMN_PROJECT_ID + ", user_id, " + COLUMN_CREATED_AT + ")",
+        "CREATE INDEX IF NOT EXISTS idx_project_notes_sync_status ON " + TABLE_PROJECT_NOTES +
+            "(" + COLUMN_SYNC_STATUS + ", " + COLUMN_CREATED_AT + ")",
+        "CREATE INDEX IF NOT EXISTS idx_project_notes_server_id ON " + TABLE_PROJECT_NOTES +
+            "(" + COLUMN_SERVER_ID + ")",
+        "CREATE INDEX IF NOT EXISTS idx_projects_name ON " + TABLE_PROJECTS +
+            "(" + COLUMN_NAME + ")",
+        "CREATE INDEX IF NOT EXISTS idx_work_types_name ON " + TABLE_WORK_TYPES +
+            "(" + COLUMN_NAME + ")",
+        "CREATE INDEX IF NOT EXISTS idx_note_types_order ON " + TABLE_NOTE_TYPES +
+            "(is_system, sort_order)"
+    };
+
+    // Requêtes fréquentes (partagées entre les méthodes et l'audit EXPLAIN QUERY PLAN)
+    private static final String QUERY_PENDING_TIME_REPORTS =
+        "SELECT * FROM " + TABLE_TIME_REPORTS +
+        " WHERE " + COLUMN_SYNC_STATUS + " IN ('pending', 'failed')" +
+        " ORDER BY " + COLUMN_DATE_CREATED + " DESC";
+
+    private static final String QUERY_PENDING_TIME_REPORTS_COUNT =
+        "SELECT COUNT(*) FROM " + TABLE_TIME_REPORTS +
+        " WHERE " + COLUMN_SYNC_STATUS + " IN ('pending', 'failed')";
+
+    private static final String QUERY_TIME_REPORT_BY_SERVER_ID =
+        "SELECT * FROM " + TABLE_TIME_REPORTS +
+        " WHERE " + COLUMN_SERVER_ID + " = ?";
+
+    private static final String QUERY_TIME_REPORTS_BY_DATE_RANGE =
+        "SELECT * FROM " + TABLE_TIME_REPORTS +
+        " WHERE " + COLUMN_REPORT_DATE + " >= ? AND " + COLUMN_REPORT_DATE + " <= ?" +
+        " ORDER BY " + COLUMN_REPORT_DATE + " DESC";
+
+    // ✅ Agrégation des heures lue depuis le cumul journalier (V12): un groupe par (jour, projet, type de travail),
+    // noms joints depuis projects/work_types (ID serveur), repli sur les noms dénormalisés d'un rapport du jour
+    private static final String QUERY_HOURS_BY_DAY_PROJECT_WORK_TYPE =
+        "SELECT d.date, d." + COLUMN_PROJECT_ID + ", d." + COLUMN_WORK_TYPE_ID + "," +
+        " COALESCE(MAX(p." + COLUMN_NAME + "), (SELECT r." + COLUMN_PROJECT_NAME + " FROM " + TABLE_TIME_REPORTS + " r" +
+        " WHERE r." + COLUMN_REPORT_DATE + " = d.date AND r." + COLUMN_PROJECT_ID + " = d." + COLUMN_PROJECT_ID +
+        " AND r." + COLUMN_PROJECT_NAME + " IS NOT NULL LIMIT 1)) AS project_label," +
+        " COALESCE(MAX(w." + COLUMN_NAME + "), (SELECT r." + COLUMN_WORK_TYPE_NAME + " FROM " + TABLE_TIME_REPORTS + " r" +
+        " WHERE r." + COLUMN_REPORT_DATE + " = d.date AND r." + COLUMN_WORK_TYPE_ID + " = d." + COLUMN_WORK_TYPE_ID +
+        " AND r." + COLUMN_WORK_TYPE_NAME + " IS NOT NULL LIMIT 1)) AS work_type_label," +
+        " SUM(d." + COLUMN_HOURS + ") AS total_hours, SUM(d.entries) AS entries" +
+        " FROM " + TABLE_DAILY_HOURS_ROLLUP + " d" +
+        " LEFT JOIN " + TABLE_PROJECTS + " p ON p." + COLUMN_SERVER_ID + " = d." + COLUMN_PROJECT_ID +
+        " LEFT JOIN " + TABLE_WORK_TYPES + " w ON w." + COLUMN_SERVER_ID + " = d." + COLUMN_WORK_TYPE_ID +
+        " WHERE d.date >= ? AND d.date <= ?" +
+        " GROUP BY d.date, d." + COLUMN_PROJECT_ID + ", d." + COLUMN_WORK_TYPE_ID;
+
+    private static final String QUERY_PENDING_NOTES =
+        "SELECT * FROM " + TABLE_PROJECT_NOTES +
+        " WHERE " + COLUMN_SYNC_STATUS + " IN ('pending', 'failed')" +
+        " ORDER BY " + COLUMN_CREATED_AT + " DESC";
+
+    private static final String QUERY_PENDING_NOTES_BY_USER =
+        "SELECT * FROM " + TABLE_PROJECT_NOTES +
+        " WHERE " + COLUMN_SYNC_STATUS + " IN ('pending', 'failed')" +
+        " AND user_id = ?" +
+        " ORDER BY " + COLUMN_CREATED_AT + " DESC";
+
+    private static final String QUERY_NOTES_BY_PROJECT =
+        "SELECT * FROM " + TABLE_PROJECT_NOTES +
+        " WHERE " + COLUMN_PROJECT_ID + " = ?" +
+        " ORDER BY " + COLUMN_CREATED_AT + " DESC";
+
+    private static final String QUERY_NOTES_BY_PROJECT_AND_USER =
+        "SELECT * FROM " + TABLE_PROJECT_NOTES +
+        " WHERE " + COLUMN_PROJECT_ID + " = ?" +
+        " AND user_id = ?" +
+        " ORDER BY " + COLUMN_CREATED_AT + " DESC";
+
+    private static final String QUERY_PERSONAL_NOTES_BY_USER =
+        "SELECT * FROM " + TABLE_PROJECT_NOTES +
+        " WHERE " + COLUMN_PROJECT_ID + " IS NULL" +
+        " AND user_id = ?" +
+        " ORDER BY is_important DESC, " + COLUMN_CREATED_AT + " DESC";
+
+    private static final String QUERY_ALL_NOTES_BY_USER =
+        "SELECT * FROM " + TABLE_PROJECT_NOTES +
+        " WHERE user_id = ?" +
+        " ORDER BY is_important DESC, " + COLUMN_CREATED_AT + " DESC";
+
+    // ✅ Projection des écrans de liste: aperçu de content/transcription au lieu du texte complet
+    // (le détail relit la note par son ID local)
+    static final int NOTE_PREVIEW_LENGTH = 280;
+    private static final String COLUMN_CONTENT_PREVIEW = "content_preview";
+    private static final String COLUMN_TRANSCRIPTION_PREVIEW = "transcription_preview";
+    private static final String NOTE_LIST_COLUMNS =
+        COLUMN_ID + ", " + COLUMN_SERVER_ID + ", " + COLUMN_PROJECT_ID + ", user_id, note_type, note_group," +
+        " note_type_id, title, audio_path, local_audio_path, audio_duration, is_important, tags, author_name, " +
+        COLUMN_CREATED_AT + ", " + COLUMN_UPDATED_AT + ", " + COLUMN_SYNC_STATUS + ", " + COLUMN_SYNC_ERROR + ", " +
+        COLUMN_ATTEMPTS + ", " + COLUMN_SYNCED + ", local_file_path, server_url, file_size, mime_type," +
+        " thumbnail_path, upload_progress, priority, scheduled_date, reminder_date," +
+        " substr(content, 1, " + (NOTE_PREVIEW_LENGTH + 1) + ") AS " + COLUMN_CONTENT_PREVIEW + "," +
+        " substr(transcription, 1, " + (NOTE_PREVIEW_LENGTH + 1) + ") AS " + COLUMN_TRANSCRIPTION_PREVIEW;
+
+    private static final String QUERY_NOTES_BY_GROUP_AND_USER =
+        "SELECT * FROM " + TABLE_PROJECT_NOTES +
+        " WHERE note_group = ?" +
+        " AND user_id = ?" +
+        " ORDER BY is_important DESC, " + COLUMN_CREATED_AT + " DESC";
+
+    private static final String QUERY_NOTE_ID_BY_SERVER_ID =
+        "SELECT " + COLUMN_ID + " FROM " + TABLE_PROJECT_NOTES +
+        " WHERE " + COLUMN_SERVER_ID + " = ?";
+
+    private static final String QUERY_PENDING_MEDIA_UPLOADS =
+        "SELECT * FROM " + TABLE_PROJECT_NOTES +
+        " WHERE local_file_path IS NOT NULL" +
+        " AND local_file_path != ''" +
+        " AND " + COLUMN_SYNC_STATUS + " = 'pending'" +
+        " ORDER BY " + COLUMN_CREATED_AT + " DESC";
+
+    private static final String QUERY_CHAT_MESSAGES_BEFORE =
+        "SELECT * FROM " + TABLE_CHAT_MESSAGES +
+        " WHERE room_id = ? AND " + COLUMN_ID + " < ?" +
+        " ORDER BY " + COLUMN_ID + " DESC" +
+        " LIMIT ?";
+
+    // Opérations prêtes: sans dépendance ou dont la dépendance a été acquittée (ligne supprimée),
+    // hors opérations mises de côté après OutboxOperation.MAX_ATTEMPTS échecs
+    // La table ne contient que du travail en attente: le parcours est O(opérations en attente)
+    private static final String QUERY_OUTBOX_READY =
+        "SELECT * FROM " + TABLE_SYNC_OUTBOX + " o" +
+        " WHERE (o.depends_on IS NULL" +
+        " OR NOT EXISTS (SELECT 1 FROM " + TABLE_SYNC_OUTBOX + " d WHERE d." + COLUMN_ID + " = o.depends_on))" +
+        " AND o.attempts < " + OutboxOperation.MAX_ATTEMPTS;
+
+    private static OfflineDatabaseHelper instance;
+
+    // ✅ Thread d'écriture unique pour les écritures asynchrones (ordre FIFO garanti)
+    private static final ExecutorService WRITE_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ptms-db-writer");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    private final boolean debuggable;
+
+    /**
+     * Retourne l'instance partagée à l'échelle de l'application
+     * ✅ Toujours préférer cette méthode au constructeur (une seule connexion WAL par processus)
+     */
+    public static synchronized OfflineDatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new OfflineDatabaseHelper(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * ⚠️ Réservé aux tests: utiliser getInstance(context)
+     */
     public OfflineDatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this.debuggable = (context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+
+        // ✅ WAL: lecteurs concurrents (pool de connexions du framework) + un écrivain
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    /**
+     * Exécute une écriture de manière asynchrone sur le thread d'écriture unique
+     * Les tâches sont exécutées dans l'ordre de soumission
+     */
+    public void executeWrite(Runnable writeTask) {
+        WRITE_EXECUTOR.execute(() -> {
+            try {
+                writeTask.run();
+            } catch (Exception e) {
+                Log.e(TAG, "❌ Erreur écriture asynchrone", e);
+            }
+        });
     }
     
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        // ✅ La suppression implicite d'un INSERT OR REPLACE (projets) déclenche les triggers DELETE:
+        // l'index plein texte retire l'ancienne ligne avant qu'elle ne soit remplacée
+        db.execSQL("PRAGMA recursive_triggers = ON");
+    }
+
+    @Override
+    public synchronized void close() {
+        closeStatementPool();
+        super.close();
+    }
+
     @Override
     public void onCreate(SQLiteDatabase db) {
         Log.d(TAG, "Création de la base de données hors ligne");
@@ -198,6 +566,70 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
         db.execSQL(CREATE_TABLE_TIME_REPORTS);
         db.execSQL(CREATE_TABLE_NOTE_TYPES);
         db.execSQL(CREATE_TABLE_PROJECT_NOTES);
+        db.execSQL(CREATE_TABLE_UPLOAD_SESSIONS);
+        db.execSQL(CREATE_TABLE_SYNC_OUTBOX);
+        db.execSQL(CREATE_INDEX_SYNC_OUTBOX_ENTITY);
+        createDailyHoursRollup(db);
+        createSearchIndex(db);
+        createChatTables(db);
+        createIndexes(db);
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+
+        // ✅ DEBUG: Signaler toute requête fréquente qui retombe sur un parcours complet
+        if (debuggable) {
+            for (String violation : QueryPlanChecker.findFullTableScans(db, getHotQueries())) {
+                Log.w(TAG, "⚠️ Parcours complet de table: " + violation);
+            }
+        }
+    }
+
+    /**
+     * ✅ NOUVEAU (V8): Crée les index secondaires (idempotent)
+     */
+    private void createIndexes(SQLiteDatabase db) {
+        for (String createIndex : CREATE_INDEXES) {
+            db.execSQL(createIndex);
+        }
+    }
+
+    /**
+     * ✅ NOUVEAU (V8): Requêtes fréquentes du helper, avec des arguments représentatifs
+     */
+    List<QueryPlanChecker.HotQuery> getHotQueries() {
+        List<QueryPlanChecker.HotQuery> queries = new ArrayList<>();
+        queries.add(new QueryPlanChecker.HotQuery("getAllPendingTimeReports", QUERY_PENDING_TIME_REPORTS));
+        queries.add(new QueryPlanChecker.HotQuery("getPendingSyncCount", QUERY_PENDING_TIME_REPORTS_COUNT));
+        queries.add(new QueryPlanChecker.HotQuery("getTimeReportByServerId", QUERY_TIME_REPORT_BY_SERVER_ID, "1"));
+        queries.add(new QueryPlanChecker.HotQuery("getTimeReportsByDateRange", QUERY_TIME_REPORTS_BY_DATE_RANGE,
+            "2025-01-01", "2025-01-31"));
+        queries.add(new QueryPlanChecker.HotQuery("getHoursByDayProjectWorkType", QUERY_HOURS_BY_DAY_PROJECT_WORK_TYPE,
+            "2025-01-01", "2025-01-31"));
+        queries.add(new QueryPlanChecker.HotQuery("getAllPendingProjectNotes", QUERY_PENDING_NOTES));
+        queries.add(new QueryPlanChecker.HotQuery("getPendingProjectNotesByUserId", QUERY_PENDING_NOTES_BY_USER, "1"));
+        queries.add(new QueryPlanChecker.HotQuery("getProjectNotesByProjectId", QUERY_NOTES_BY_PROJECT, "1"));
+        queries.add(new QueryPlanChecker.HotQuery("getProjectNotesByProjectIdAndUserId", QUERY_NOTES_BY_PROJECT_AND_USER,
+            "1", "1"));
+        queries.add(new QueryPlanChecker.HotQuery("getPersonalNotesByUserId", QUERY_PERSONAL_NOTES_BY_USER, "1"));
+        queries.add(new QueryPlanChecker.HotQuery("getAllNotesByUserId", QUERY_ALL_NOTES_BY_USER, "1"));
+        queries.add(new QueryPlanChecker.HotQuery("getNotesByGroupAndUserId", QUERY_NOTES_BY_GROUP_AND_USER,
+            "project", "1"));
+        queries.add(new QueryPlanChecker.HotQuery("upsertNoteFromServer", QUERY_NOTE_ID_BY_SERVER_ID, "1"));
+        queries.add(new QueryPlanChecker.HotQuery("getPendingMediaUploads", QUERY_PENDING_MEDIA_UPLOADS));
+        queries.add(new QueryPlanChecker.HotQuery("getChatMessagesBefore", QUERY_CHAT_MESSAGES_BEFORE,
+            "1", String.valueOf(Integer.MAX_VALUE), "50"));
+        return queries;
+    }
+
+    /**
+     * ✅ NOUVEAU (V8): Audit des plans d'exécution des requêtes fréquentes
+     * @return liste des requêtes qui font un parcours complet de table (vide si tout est indexé)
+     */
+    public List<String> auditQueryPlans() {
+        return QueryPlanChecker.findFullTableScans(this.getReadableDatabase(), getHotQueries());
     }
 
     @Override
@@ -400,6 +832,69 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
             Log.d(TAG, "========================================");
         }
 
+        // ✅ MIGRATION V8: Index secondaires (2025-10-24)
+        if (oldVersion < 8) {
+            Log.d(TAG, "MIGRATION V8: Création des index secondaires");
+            createIndexes(db);
+            Log.d(TAG, "✅ " + CREATE_INDEXES.length + " index créés");
+        }
+
+        // ✅ MIGRATION V9: Clé d'idempotence par rapport (upload par lots rejouable sans doublon)
+        if (oldVersion < 9) {
+            Log.d(TAG, "MIGRATION V9: Ajout de idempotency_key aux rapports");
+            try {
+                db.execSQL("ALTER TABLE " + TABLE_TIME_REPORTS + " ADD COLUMN " + COLUMN_IDEMPOTENCY_KEY + " TEXT");
+            } catch (Exception e) {
+                Log.d(TAG, "⚠️ Colonne idempotency_key déjà existante");
+            }
+            // Clés aléatoires pour les rapports existants
+            db.execSQL("UPDATE " + TABLE_TIME_REPORTS + " SET " + COLUMN_IDEMPOTENCY_KEY +
+                " = lower(hex(randomblob(16))) WHERE " + COLUMN_IDEMPOTENCY_KEY + " IS NULL");
+            Log.d(TAG, "✅ Clés d'idempotence attribuées");
+        }
+
+        // ✅ MIGRATION V10: Sessions d'upload par morceaux (reprise des gros fichiers)
+        if (oldVersion < 10) {
+            Log.d(TAG, "MIGRATION V10: Création de la table upload_sessions");
+            db.execSQL(CREATE_TABLE_UPLOAD_SESSIONS);
+        }
+
+        // ✅ MIGRATION V11: Journal d'envoi, alimenté à partir des lignes encore en attente
+        if (oldVersion < 11) {
+            Log.d(TAG, "MIGRATION V11: Création de la table sync_outbox");
+            db.execSQL(CREATE_TABLE_SYNC_OUTBOX);
+            db.execSQL(CREATE_INDEX_SYNC_OUTBOX_ENTITY);
+            backfillOutbox(db);
+        }
+
+        // ✅ MIGRATION V12: Cumul journalier des heures, reconstruit depuis les rapports existants
+        if (oldVersion < 12) {
+            Log.d(TAG, "MIGRATION V12: Création de la table daily_hours_rollup");
+            createDailyHoursRollup(db);
+            rebuildDailyHoursRollup(db);
+        }
+
+        // ✅ MIGRATION V13: Index plein texte, construit depuis les lignes existantes
+        if (oldVersion < 13) {
+            Log.d(TAG, "MIGRATION V13: Création de l'index plein texte");
+            if (createSearchIndex(db)) {
+                rebuildSearchIndex(db);
+            }
+        }
+
+        // ✅ MIGRATION V14: Historique de chat local (vide: rempli à la prochaine ouverture des salles)
+        if (oldVersion < 14) {
+            Log.d(TAG, "MIGRATION V14: Création des tables chat_rooms et chat_messages");
+            createChatTables(db);
+        }
+
+        // ✅ MIGRATION V15: idx_project_notes_user étendu à l'ID (clé de pagination des notes)
+        if (oldVersion < 15) {
+            Log.d(TAG, "MIGRATION V15: Index de pagination des notes");
+            db.execSQL("DROP INDEX IF EXISTS idx_project_notes_user");
+            createIndexes(db);
+        }
+
         // Si besoin de tout recréer (en dernier recours - NE PAS UTILISER EN PRODUCTION)
         // db.execSQL("DROP TABLE IF EXISTS " + TABLE_PROJECT_NOTES);
         // db.execSQL("DROP TABLE IF EXISTS " + TABLE_TIME_REPORTS);
@@ -416,6 +911,7 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
     private void invalidateProjectsCache() {
         cachedProjects = null;
         lastProjectsCacheTime = 0;
+        notifyTableChanged(TABLE_PROJECTS);
     }
 
     /**
@@ -424,6 +920,7 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
     private void invalidateWorkTypesCache() {
         cachedWorkTypes = null;
         lastWorkTypesCacheTime = 0;
+        notifyTableChanged(TABLE_WORK_TYPES);
     }
 
     /**
@@ -442,6 +939,81 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
                (System.currentTimeMillis() - lastWorkTypesCacheTime) < CACHE_VALIDITY_MS;
     }
 
+    // ==================== NOTIFICATIONS DE MODIFICATION ====================
+
+    /**
+     * Notifié après chaque écriture locale sur une table (thread de l'écrivain)
+     */
+    public interface TableChangeListener {
+        void onTableChanged(String table);
+    }
+
+    private final List<TableChangeListener> tableChangeListeners = new CopyOnWriteArrayList<>();
+
+    public void addTableChangeListener(TableChangeListener listener) {
+        tableChangeListeners.add(listener);
+    }
+
+    public void removeTableChangeListener(TableChangeListener listener) {
+        tableChangeListeners.remove(listener);
+    }
+
+    private void notifyTableChanged(String table) {
+        for (TableChangeListener listener : tableChangeListeners) {
+            listener.onTableChanged(table);
+        }
+    }
+
+    // ==================== REQUÊTES OBSERVABLES ====================
+
+    // Chaque LiveData déclare les tables lues par sa requête: seules leurs écritures la relancent
+
+    public LiveData<List<Project>> observeProjects() {
+        return new TableLiveData<>(this, this::getAllProjects, TABLE_PROJECTS);
+    }
+
+    public LiveData<List<WorkType>> observeWorkTypes() {
+        return new TableLiveData<>(this, this::getAllWorkTypes, TABLE_WORK_TYPES);
+    }
+
+    /**
+     * Nombre de rapports d'une plage de dates: chaque valeur signale aussi un changement des rapports
+     * (la liste ne charge que des pages via getTimeReportsPage(), jamais toute la plage)
+     */
+    public LiveData<Integer> observeTimeReportsCount(String startDate, String endDate) {
+        return new TableLiveData<>(this, () -> countTimeReports(startDate, endDate), TABLE_TIME_REPORTS);
+    }
+
+    /**
+     * Agrégat journalier (rollup maintenu par triggers sur time_reports), noms lus dans les référentiels
+     */
+    public LiveData<List<HoursAggregate.Row>> observeHoursByDayProjectWorkType(String startDate, String endDate) {
+        return new TableLiveData<>(this, () -> getHoursByDayProjectWorkType(startDate, endDate),
+            TABLE_TIME_REPORTS, TABLE_PROJECTS, TABLE_WORK_TYPES);
+    }
+
+    /**
+     * Rapports locaux en attente de synchronisation (partie locale de l'écran des rapports)
+     */
+    public LiveData<List<TimeReport>> observePendingTimeReports() {
+        return new TableLiveData<>(this, this::getAllPendingTimeReports, TABLE_TIME_REPORTS);
+    }
+
+    /**
+     * Compteurs de la liste paginée des notes: chaque valeur signale aussi un changement des notes
+     * (la liste ne charge que des pages, jamais toute la table)
+     */
+    public LiveData<NoteCounts> observeNoteCounts(int userId, String noteGroup, boolean importantOnly) {
+        return new TableLiveData<>(this, () -> new NoteCounts(countNotes(userId, null, false),
+                                                              countNotes(userId, noteGroup, importantOnly),
+                                                              countNotes(userId, noteGroup, true)),
+            TABLE_PROJECT_NOTES);
+    }
+
+    public LiveData<List<com.ptms.mobile.models.NoteType>> observeNoteTypes() {
+        return new TableLiveData<>(this, this::getAllNoteTypes, TABLE_NOTE_TYPES);
+    }
+
     // ==================== GESTION DES PROJETS ====================
     
     public synchronized long insertProject(Project project) {
@@ -489,7 +1061,7 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
         return id;
     }
     
-    public synchronized int getProjectCount() {
+    public int getProjectCount() {
         // Si le cache est valide, retourner la taille du cache
         if (isProjectsCacheValid()) {
             return cachedProjects.size();
@@ -505,7 +1077,7 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
         return count;
     }
 
-    public synchronized List<Project> getAllProjects() {
+    public List<Project> getAllProjects() {
         // ✅ CACHE: Vérifier si le cache est encore valide
         if (isProjectsCacheValid()) {
             Log.d(TAG, "Retour du cache mémoire (projets): " + cachedProjects.size());
@@ -518,18 +1090,7 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
 
         if (cursor.moveToFirst()) {
             do {
-                Project project = new Project();
-                project.setId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_SERVER_ID)));
-                project.setName(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_NAME)));
-                project.setDescription(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DESCRIPTION)));
-
-                // ✅ CORRIGÉ V6: status est maintenant INTEGER (0 ou 1)
-                int statusInt = cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_PROJECT_STATUS));
-                project.setStatus(statusInt);
-
-                project.setDateCreated(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_CREATED_AT)));
-                project.setDateUpdated(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_UPDATED_AT)));
-                projects.add(project);
+                projects.add(extractProjectFromCursor(cursor));
             } while (cursor.moveToNext());
         }
 
@@ -543,6 +1104,21 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
         return projects;
     }
     
+    private Project extractProjectFromCursor(Cursor cursor) {
+        Project project = new Project();
+        project.setId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_SERVER_ID)));
+        project.setName(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_NAME)));
+        project.setDescription(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DESCRIPTION)));
+
+        // ✅ CORRIGÉ V6: status est maintenant INTEGER (0 ou 1)
+        int statusInt = cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_PROJECT_STATUS));
+        project.setStatus(statusInt);
+
+        project.setDateCreated(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_CREATED_AT)));
+        project.setDateUpdated(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_UPDATED_AT)));
+        return project;
+    }
+
     public synchronized void clearProjects() {
         SQLiteDatabase db = this.getWritableDatabase();
         db.delete(TABLE_PROJECTS, null, null);
@@ -563,39 +1139,61 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
 
             // Insérer tous les nouveaux projets
             for (Project project : projects) {
-                ContentValues values = new ContentValues();
-                values.put(COLUMN_SERVER_ID, project.getId());
-                values.put(COLUMN_NAME, project.getName() != null ? project.getName() : "");
-
-                if (project.getDescription() != null) {
-                    values.put(COLUMN_DESCRIPTION, project.getDescription());
-                }
-
-                // ✅ Gérer le status comme INTEGER (0 ou 1)
-                int statusValue = project.isActive() ? 1 : 0;
-                values.put(COLUMN_PROJECT_STATUS, statusValue);
-
-                // ✅ CORRECTION: Ajouter is_placeholder (requis par la migration v6)
-                values.put(COLUMN_IS_PLACEHOLDER, 0); // Par défaut: projet réel
-
-                // Colonnes optionnelles (timestamps)
-                values.put(COLUMN_CREATED_AT, System.currentTimeMillis());
-                values.put(COLUMN_UPDATED_AT, System.currentTimeMillis());
-
-                values.put(COLUMN_SYNCED, 1);
-
-                db.insertWithOnConflict(TABLE_PROJECTS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                db.insertWithOnConflict(TABLE_PROJECTS, null, buildProjectValues(project), SQLiteDatabase.CONFLICT_REPLACE);
             }
 
             db.setTransactionSuccessful();
-            invalidateProjectsCache();
             Log.d(TAG, "✅ " + projects.size() + " projets remplacés avec succès (transaction)");
 
         } catch (Exception e) {
             Log.e(TAG, "❌ Erreur lors du remplacement des projets", e);
         } finally {
             db.endTransaction();
+            invalidateProjectsCache();
+        }
+    }
+
+    /**
+     * ✅ NOUVEAU: Applique un delta serveur aux projets (upsert + tombstones) en une transaction
+     */
+    public synchronized void applyProjectsDelta(List<Project> changed, List<Integer> deletedServerIds) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Project project : changed) {
+                db.insertWithOnConflict(TABLE_PROJECTS, null, buildProjectValues(project), SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            deleteByServerIds(db, TABLE_PROJECTS, deletedServerIds);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            invalidateProjectsCache();
+        }
+        Log.d(TAG, "✅ Delta projets appliqué: " + changed.size() + " modifiés, " + deletedServerIds.size() + " supprimés");
+    }
+
+    private ContentValues buildProjectValues(Project project) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_SERVER_ID, project.getId());
+        values.put(COLUMN_NAME, project.getName() != null ? project.getName() : "");
+
+        if (project.getDescription() != null) {
+            values.put(COLUMN_DESCRIPTION, project.getDescription());
         }
+
+        // ✅ Gérer le status comme INTEGER (0 ou 1)
+        int statusValue = project.isActive() ? 1 : 0;
+        values.put(COLUMN_PROJECT_STATUS, statusValue);
+
+        // ✅ CORRECTION: Ajouter is_placeholder (requis par la migration v6)
+        values.put(COLUMN_IS_PLACEHOLDER, 0); // Par défaut: projet réel
+
+        // Colonnes optionnelles (timestamps)
+        values.put(COLUMN_CREATED_AT, System.currentTimeMillis());
+        values.put(COLUMN_UPDATED_AT, System.currentTimeMillis());
+
+        values.put(COLUMN_SYNCED, 1);
+        return values;
     }
 
     // ==================== GESTION DES TYPES DE TRAVAIL ====================
@@ -639,7 +1237,7 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
         return id;
     }
     
-    public synchronized List<WorkType> getAllWorkTypes() {
+    public List<WorkType> getAllWorkTypes() {
         // ✅ CACHE: Vérifier si le cache est encore valide
         if (isWorkTypesCacheValid()) {
             Log.d(TAG, "Retour du cache mémoire (work types): " + cachedWorkTypes.size());
@@ -692,96 +1290,109 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
 
             // Insérer tous les nouveaux types de travail
             for (WorkType workType : workTypes) {
-                ContentValues values = new ContentValues();
-                values.put(COLUMN_SERVER_ID, workType.getId());
-                values.put(COLUMN_NAME, workType.getName() != null ? workType.getName() : "");
-
-                if (workType.getDescription() != null) {
-                    values.put(COLUMN_DESCRIPTION, workType.getDescription());
-                }
-
-                // ✅ Gérer le status comme INTEGER (actif par défaut = 1)
-                values.put(COLUMN_WORK_TYPE_STATUS, 1);
-
-                values.put(COLUMN_SYNCED, 1);
-
-                db.insertWithOnConflict(TABLE_WORK_TYPES, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                db.insertWithOnConflict(TABLE_WORK_TYPES, null, buildWorkTypeValues(workType), SQLiteDatabase.CONFLICT_REPLACE);
             }
 
             db.setTransactionSuccessful();
-            invalidateWorkTypesCache();
             Log.d(TAG, "✅ " + workTypes.size() + " types de travail remplacés avec succès (transaction)");
 
         } catch (Exception e) {
             Log.e(TAG, "❌ Erreur lors du remplacement des types de travail", e);
         } finally {
             db.endTransaction();
+            invalidateWorkTypesCache();
+        }
+    }
+
+    /**
+     * ✅ NOUVEAU: Applique un delta serveur aux types de travail (upsert + tombstones) en une transaction
+     */
+    public synchronized void applyWorkTypesDelta(List<WorkType> changed, List<Integer> deletedServerIds) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (WorkType workType : changed) {
+                db.insertWithOnConflict(TABLE_WORK_TYPES, null, buildWorkTypeValues(workType), SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            deleteByServerIds(db, TABLE_WORK_TYPES, deletedServerIds);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            invalidateWorkTypesCache();
+        }
+        Log.d(TAG, "✅ Delta types de travail appliqué: " + changed.size() + " modifiés, " + deletedServerIds.size() + " supprimés");
+    }
+
+    private ContentValues buildWorkTypeValues(WorkType workType) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_SERVER_ID, workType.getId());
+        values.put(COLUMN_NAME, workType.getName() != null ? workType.getName() : "");
+
+        if (workType.getDescription() != null) {
+            values.put(COLUMN_DESCRIPTION, workType.getDescription());
         }
+
+        // ✅ Gérer le status comme INTEGER (actif par défaut = 1)
+        values.put(COLUMN_WORK_TYPE_STATUS, 1);
+
+        values.put(COLUMN_SYNCED, 1);
+        return values;
     }
 
     // ==================== GESTION DES RAPPORTS DE TEMPS ====================
     
     public synchronized long insertTimeReport(TimeReport report) {
         SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(COLUMN_PROJECT_ID, report.getProjectId());
-        values.put(COLUMN_EMPLOYEE_ID, report.getEmployeeId());
-        values.put(COLUMN_WORK_TYPE_ID, report.getWorkTypeId());
-        values.put(COLUMN_REPORT_DATE, report.getReportDate());
-        values.put(COLUMN_DATETIME_FROM, report.getDatetimeFrom());
-        values.put(COLUMN_DATETIME_TO, report.getDatetimeTo());
-        values.put(COLUMN_HOURS, report.getHours());
-        values.put(COLUMN_DESCRIPTION, report.getDescription());
-        values.put(COLUMN_VALIDATION_STATUS, report.getValidationStatus());
-        values.put(COLUMN_PROJECT_NAME, report.getProjectName());
-        values.put(COLUMN_WORK_TYPE_NAME, report.getWorkTypeName());
-        values.put(COLUMN_DATE_CREATED, report.getDateCreated());
-        values.put(COLUMN_DATE_UPDATED, report.getDateUpdated());
-        values.put(COLUMN_SYNC_STATUS, "pending");
-        values.putNull(COLUMN_SYNC_ERROR);
-        values.put(COLUMN_ATTEMPTS, 0);
-        
-        long id = db.insert(TABLE_TIME_REPORTS, null, values);
+        // ✅ Instruction du pool: liaison des valeurs sans ContentValues ni SQL reconstruit
+        SQLiteStatement insert = pooledStatement(db, SQL_INSERT_TIME_REPORT);
+
+        insert.bindLong(1, report.getProjectId());
+        insert.bindLong(2, report.getEmployeeId());
+        insert.bindLong(3, report.getWorkTypeId());
+        bindNullableString(insert, 4, report.getReportDate());
+        bindNullableString(insert, 5, report.getDatetimeFrom());
+        bindNullableString(insert, 6, report.getDatetimeTo());
+        insert.bindDouble(7, report.getHours());
+        bindNullableString(insert, 8, report.getDescription());
+        bindNullableString(insert, 9, report.getValidationStatus());
+        bindNullableString(insert, 10, report.getProjectName());
+        bindNullableString(insert, 11, report.getWorkTypeName());
+        bindNullableString(insert, 12, report.getDateCreated());
+        bindNullableString(insert, 13, report.getDateUpdated());
+        // ✅ FIX: Un rapport déjà enregistré côté serveur (sauvegarde online) n'est plus remis en attente
+        boolean alreadySynced = "synced".equals(report.getSyncStatus());
+        insert.bindString(14, alreadySynced ? "synced" : "pending");
+        // ✅ Clé stable pour toute la vie du rapport: un lot rejoué ne crée pas de doublon côté serveur
+        insert.bindString(15, report.getIdempotencyKey() != null
+            ? report.getIdempotencyKey() : UUID.randomUUID().toString());
+
+        // ✅ Ligne et opération d'envoi écrites dans la même transaction
+        long id;
+        db.beginTransaction();
+        try {
+            id = executeInsert(insert);
+            if (id > 0 && !alreadySynced) {
+                appendOutboxOperation(db, OutboxOperation.ENTITY_TIME_REPORT, id, OutboxOperation.OP_CREATE, 0);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
         
         Log.d(TAG, "Rapport de temps inséré en local: " + report.getProjectName() + " - " + report.getHours() + "h (ID: " + id + ")");
+        notifyTableChanged(TABLE_TIME_REPORTS);
         return id;
     }
     
-    public synchronized List<TimeReport> getAllPendingTimeReports() {
+    public List<TimeReport> getAllPendingTimeReports() {
         List<TimeReport> reports = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(
-            "SELECT * FROM " + TABLE_TIME_REPORTS + 
-            " WHERE " + COLUMN_SYNC_STATUS + " IN ('pending', 'failed')" +
-            " ORDER BY " + COLUMN_DATE_CREATED + " DESC", null);
-
-        if (cursor.moveToFirst()) {
-            do {
-                TimeReport report = new TimeReport();
-                report.setId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ID)));
-                report.setProjectId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_PROJECT_ID)));
-                report.setEmployeeId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_EMPLOYEE_ID)));
-                report.setWorkTypeId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_WORK_TYPE_ID)));
-                report.setReportDate(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_REPORT_DATE)));
-                report.setDatetimeFrom(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DATETIME_FROM)));
-                report.setDatetimeTo(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DATETIME_TO)));
-                report.setHours(cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_HOURS)));
-                report.setDescription(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DESCRIPTION)));
-                report.setValidationStatus(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_VALIDATION_STATUS)));
-                report.setProjectName(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PROJECT_NAME)));
-                report.setWorkTypeName(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_WORK_TYPE_NAME)));
-                report.setDateCreated(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DATE_CREATED)));
-                report.setDateUpdated(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DATE_UPDATED)));
-
-                // ✅ FIX: Lire le server_id pour détecter les rapports partiellement synchronisés
-                int serverIdIndex = cursor.getColumnIndex(COLUMN_SERVER_ID);
-                if (serverIdIndex >= 0 && !cursor.isNull(serverIdIndex)) {
-                    report.setServerId(cursor.getInt(serverIdIndex));
-                }
+        Cursor cursor = db.rawQuery(QUERY_PENDING_TIME_REPORTS, null);
 
-                reports.add(report);
-            } while (cursor.moveToNext());
+        // server_id lu pour détecter les rapports partiellement synchronisés
+        TimeReportRowMapper mapper = new TimeReportRowMapper(cursor);
+        while (cursor.moveToNext()) {
+            reports.add(mapper.map(cursor));
         }
 
         cursor.close();
@@ -802,6 +1413,7 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
         int rows = db.update(TABLE_TIME_REPORTS, values, COLUMN_ID + " = ?", new String[]{String.valueOf(localId)});
 
         Log.d(TAG, "Statut de synchronisation mis à jour pour le rapport " + localId + ": " + status);
+        notifyTableChanged(TABLE_TIME_REPORTS);
     }
 
     /**
@@ -813,22 +1425,52 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
     
     public synchronized void markTimeReportAsSynced(long localId, int serverId) {
         SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
+        SQLiteStatement update = pooledStatement(db, SQL_MARK_TIME_REPORT_SYNCED);
 
-        values.put(COLUMN_SERVER_ID, serverId);
-        values.put(COLUMN_SYNC_STATUS, "synced");
-        values.putNull(COLUMN_SYNC_ERROR);
-        values.put(COLUMN_DATE_UPDATED, System.currentTimeMillis());
+        update.bindLong(1, serverId);
+        update.bindLong(2, System.currentTimeMillis());
+        update.bindLong(3, localId);
 
-        int rows = db.update(TABLE_TIME_REPORTS, values, COLUMN_ID + " = ?", new String[]{String.valueOf(localId)});
+        int rows = update.executeUpdateDelete();
 
         Log.d(TAG, "Rapport marqué comme synchronisé: local ID " + localId + " -> server ID " + serverId);
+        notifyTableChanged(TABLE_TIME_REPORTS);
+    }
+
+    /**
+     * ✅ NOUVEAU: Marque un lot de rapports comme synchronisés en une transaction
+     * @param serverIdsByLocalId ID local → ID serveur (0 = pas d'ID renvoyé par le serveur)
+     */
+    public synchronized void markTimeReportsAsSynced(Map<Integer, Integer> serverIdsByLocalId) {
+        if (serverIdsByLocalId.isEmpty()) {
+            return;
+        }
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Map.Entry<Integer, Integer> entry : serverIdsByLocalId.entrySet()) {
+                ContentValues values = new ContentValues();
+                if (entry.getValue() > 0) {
+                    values.put(COLUMN_SERVER_ID, entry.getValue());
+                }
+                values.put(COLUMN_SYNC_STATUS, "synced");
+                values.putNull(COLUMN_SYNC_ERROR);
+                values.put(COLUMN_ATTEMPTS, 0);
+                values.put(COLUMN_DATE_UPDATED, System.currentTimeMillis());
+                db.update(TABLE_TIME_REPORTS, values, COLUMN_ID + " = ?", new String[]{String.valueOf(entry.getKey())});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        Log.d(TAG, "Lot de rapports marqué comme synchronisé: " + serverIdsByLocalId.size());
+        notifyTableChanged(TABLE_TIME_REPORTS);
     }
 
     /**
      * ✅ NOUVEAU: Récupère les TimeReports avec photos locales non-uploadées
      */
-    public synchronized List<TimeReport> getTimeReportsWithPendingMedia() {
+    public List<TimeReport> getTimeReportsWithPendingMedia() {
         List<TimeReport> reports = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
 
@@ -842,9 +1484,10 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
 
         Cursor cursor = db.rawQuery(query, null);
 
+        TimeReportRowMapper mapper = new TimeReportRowMapper(cursor);
         if (cursor.moveToFirst()) {
             do {
-                TimeReport report = extractTimeReportFromCursor(cursor);
+                TimeReport report = mapper.map(cursor);
                 reports.add(report);
             } while (cursor.moveToNext());
         }
@@ -854,11 +1497,9 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
         return reports;
     }
 
-    public synchronized int getPendingSyncCount() {
+    public int getPendingSyncCount() {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(
-            "SELECT COUNT(*) FROM " + TABLE_TIME_REPORTS +
-            " WHERE " + COLUMN_SYNC_STATUS + " IN ('pending', 'failed')", null);
+        Cursor cursor = db.rawQuery(QUERY_PENDING_TIME_REPORTS_COUNT, null);
 
         int count = 0;
         if (cursor.moveToFirst()) {
@@ -873,17 +1514,11 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
     /**
      * ✅ AJOUTÉ: Récupère un rapport de temps par son server_id
      */
-    public synchronized TimeReport getTimeReportByServerId(int serverId) {
+    public TimeReport getTimeReportByServerId(int serverId) {
         SQLiteDatabase db = this.getReadableDatabase();
         TimeReport report = null;
 
-        Cursor cursor = db.query(
-            TABLE_TIME_REPORTS,
-            null, // toutes les colonnes
-            COLUMN_SERVER_ID + " = ?",
-            new String[]{String.valueOf(serverId)},
-            null, null, null
-        );
+        Cursor cursor = db.rawQuery(QUERY_TIME_REPORT_BY_SERVER_ID, new String[]{String.valueOf(serverId)});
 
         if (cursor.moveToFirst()) {
             report = extractTimeReportFromCursor(cursor);
@@ -946,164 +1581,353 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
         values.put(COLUMN_ATTEMPTS, report.getSyncAttempts());
 
         int rows = 0;
-        // Chercher par server_id d'abord, sinon par id local
-        if (report.getServerId() != null && report.getServerId() > 0) {
-            rows = db.update(TABLE_TIME_REPORTS, values,
-                COLUMN_SERVER_ID + " = ?",
-                new String[]{String.valueOf(report.getServerId())});
-        } else if (report.getId() > 0) {
-            rows = db.update(TABLE_TIME_REPORTS, values,
-                COLUMN_ID + " = ?",
-                new String[]{String.valueOf(report.getId())});
-        }
+        db.beginTransaction();
+        try {
+            long localId = report.getId();
+            // Chercher par server_id d'abord, sinon par id local
+            if (report.getServerId() != null && report.getServerId() > 0) {
+                rows = db.update(TABLE_TIME_REPORTS, values,
+                    COLUMN_SERVER_ID + " = ?",
+                    new String[]{String.valueOf(report.getServerId())});
+                TimeReport local = findTimeReportsByServerIds(db,
+                    Collections.singletonList(report.getServerId())).get(report.getServerId());
+                localId = local != null ? local.getId() : 0;
+            } else if (report.getId() > 0) {
+                rows = db.update(TABLE_TIME_REPORTS, values,
+                    COLUMN_ID + " = ?",
+                    new String[]{String.valueOf(report.getId())});
+            }
+
+            // Modification locale à envoyer: opération "update" dans la même transaction
+            if (rows > 0 && localId > 0 && "pending".equals(report.getSyncStatus())) {
+                appendOutboxOperation(db, OutboxOperation.ENTITY_TIME_REPORT, localId, OutboxOperation.OP_UPDATE,
+                    findLastOutboxOperation(db, OutboxOperation.ENTITY_TIME_REPORT, localId));
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
 
         Log.d(TAG, "Rapport mis à jour: " + rows + " ligne(s)");
+        notifyTableChanged(TABLE_TIME_REPORTS);
         return rows;
     }
 
+    /**
+     * ✅ NOUVEAU: Upsert en lot d'une page de rapports serveur (une seule transaction)
+     *
+     * - Résout les server_id existants en une requête (IN par paquets)
+     * - INSERT / UPDATE par des SQLiteStatement du pool (pooledStatement), sans ContentValues
+     * - Un seul commit (un seul fsync) pour toute la page
+     *
+     * @param serverReports rapports téléchargés (ignorés si server_id absent)
+     * @param serverWins règle de conflit (serveur, local) → true si le serveur écrase le local
+     * @return nombre de conflits résolus en faveur du serveur
+     */
+    public synchronized int upsertTimeReportsFromServer(List<TimeReport> serverReports,
+                                                        BiPredicate<TimeReport, TimeReport> serverWins) {
+        List<Integer> serverIds = new ArrayList<>();
+        for (TimeReport report : serverReports) {
+            if (report.getServerId() != null && report.getServerId() > 0) {
+                serverIds.add(report.getServerId());
+            }
+        }
+        if (serverIds.isEmpty()) {
+            return 0;
+        }
+
+        SQLiteDatabase db = this.getWritableDatabase();
+        Map<Integer, TimeReport> localByServerId = findTimeReportsByServerIds(db, serverIds);
+
+        int conflictsResolved = 0;
+        int inserted = 0;
+        // Instructions du pool: ni SQLiteStatement ni texte SQL recréés à chaque page de synchronisation
+        SQLiteStatement insertStatement = pooledStatement(db, SQL_UPSERT_INSERT_TIME_REPORT);
+        SQLiteStatement updateStatement = pooledStatement(db, SQL_UPSERT_UPDATE_TIME_REPORT);
+        SQLiteStatement markPendingStatement = pooledStatement(db, SQL_MARK_TIME_REPORT_PENDING);
+
+        db.beginTransaction();
+        try {
+            for (TimeReport serverReport : serverReports) {
+                Integer serverId = serverReport.getServerId();
+                if (serverId == null || serverId <= 0) {
+                    continue;
+                }
+
+                TimeReport localReport = localByServerId.get(serverId);
+                if (localReport == null) {
+                    // Nouveau rapport du serveur → INSERT
+                    insertStatement.clearBindings();
+                    insertStatement.bindLong(1, serverId);
+                    bindPositiveInt(insertStatement, 2, serverReport.getProjectId());
+                    bindPositiveInt(insertStatement, 3, serverReport.getEmployeeId());
+                    bindPositiveInt(insertStatement, 4, serverReport.getWorkTypeId());
+                    bindNullableString(insertStatement, 5, serverReport.getReportDate());
+                    bindNullableString(insertStatement, 6, serverReport.getDatetimeFrom());
+                    bindNullableString(insertStatement, 7, serverReport.getDatetimeTo());
+                    insertStatement.bindDouble(8, serverReport.getHours());
+                    bindNullableString(insertStatement, 9, serverReport.getDescription());
+                    bindNullableString(insertStatement, 10, serverReport.getValidationStatus());
+                    bindNullableString(insertStatement, 11, serverReport.getProjectName());
+                    bindNullableString(insertStatement, 12, serverReport.getWorkTypeName());
+                    bindNullableString(insertStatement, 13, serverReport.getDateCreated());
+                    bindNullableString(insertStatement, 14, serverReport.getDateUpdated());
+                    long localId = insertStatement.executeInsert();
+
+                    // Doublon dans la même page: le rapport suivant met à jour cette ligne
+                    TimeReport insertedReport = new TimeReport();
+                    insertedReport.setId((int) localId);
+                    insertedReport.setServerId(serverId);
+                    insertedReport.setDateUpdated(serverReport.getDateUpdated());
+                    localByServerId.put(serverId, insertedReport);
+                    inserted++;
+
+                } else if (serverWins.test(serverReport, localReport)) {
+                    // Serveur plus récent → UPDATE
+                    updateStatement.clearBindings();
+                    bindPositiveInt(updateStatement, 1, serverReport.getProjectId());
+                    bindPositiveInt(updateStatement, 2, serverReport.getEmployeeId());
+                    bindPositiveInt(updateStatement, 3, serverReport.getWorkTypeId());
+                    bindNullableString(updateStatement, 4, serverReport.getReportDate());
+                    bindNullableString(updateStatement, 5, serverReport.getDatetimeFrom());
+                    bindNullableString(updateStatement, 6, serverReport.getDatetimeTo());
+                    updateStatement.bindDouble(7, serverReport.getHours());
+                    bindNullableString(updateStatement, 8, serverReport.getDescription());
+                    bindNullableString(updateStatement, 9, serverReport.getValidationStatus());
+                    bindNullableString(updateStatement, 10, serverReport.getProjectName());
+                    bindNullableString(updateStatement, 11, serverReport.getWorkTypeName());
+                    bindNullableString(updateStatement, 12, serverReport.getDateUpdated());
+                    updateStatement.bindLong(13, localReport.getId());
+                    updateStatement.executeUpdateDelete();
+                    conflictsResolved++;
+
+                } else {
+                    // Local plus récent → marquer pour upload (une seule opération en file par rapport)
+                    markPendingStatement.clearBindings();
+                    markPendingStatement.bindLong(1, localReport.getId());
+                    markPendingStatement.executeUpdateDelete();
+                    if (findLastOutboxOperation(db, OutboxOperation.ENTITY_TIME_REPORT, localReport.getId()) == 0) {
+                        appendOutboxOperation(db, OutboxOperation.ENTITY_TIME_REPORT, localReport.getId(),
+                            OutboxOperation.OP_UPDATE, 0);
+                    }
+                }
+            }
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        Log.d(TAG, "✅ Upsert lot rapports: " + serverIds.size() + " reçus, " + inserted +
+            " insérés, " + conflictsResolved + " conflits (serveur gagne)");
+        notifyTableChanged(TABLE_TIME_REPORTS);
+        return conflictsResolved;
+    }
+
+    /**
+     * ✅ NOUVEAU: Supprime les rapports locaux correspondant à des tombstones serveur
+     * @return nombre de lignes supprimées
+     */
+    public synchronized int deleteTimeReportsByServerIds(List<Integer> deletedServerIds) {
+        if (deletedServerIds.isEmpty()) {
+            return 0;
+        }
+        SQLiteDatabase db = this.getWritableDatabase();
+        int deleted;
+        db.beginTransaction();
+        try {
+            deleted = deleteByServerIds(db, TABLE_TIME_REPORTS, deletedServerIds);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        Log.d(TAG, "Rapports supprimés (tombstones serveur): " + deleted);
+        notifyTableChanged(TABLE_TIME_REPORTS);
+        return deleted;
+    }
+
+    /**
+     * Charge (id, server_id, date_updated) des rapports locaux pour une liste de server_id
+     */
+    private Map<Integer, TimeReport> findTimeReportsByServerIds(SQLiteDatabase db, List<Integer> serverIds) {
+        Map<Integer, TimeReport> result = new HashMap<>();
+        for (int start = 0; start < serverIds.size(); start += MAX_SQL_VARIABLES) {
+            List<Integer> chunk = serverIds.subList(start, Math.min(start + MAX_SQL_VARIABLES, serverIds.size()));
+            Cursor cursor = db.rawQuery(
+                "SELECT " + COLUMN_ID + ", " + COLUMN_SERVER_ID + ", " + COLUMN_DATE_UPDATED +
+                " FROM " + TABLE_TIME_REPORTS +
+                " WHERE " + COLUMN_SERVER_ID + " IN (" + placeholders(chunk.size()) + ")",
+                toArgs(chunk));
+            try {
+                while (cursor.moveToNext()) {
+                    TimeReport report = new TimeReport();
+                    report.setId(cursor.getInt(0));
+                    report.setServerId(cursor.getInt(1));
+                    report.setDateUpdated(cursor.getString(2));
+                    result.put(report.getServerId(), report);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return result;
+    }
+
     /**
      * ✅ AJOUTÉ: Extrait un TimeReport depuis un Cursor
+     * (pour les listes, créer un TimeReportRowMapper une fois par curseur)
      */
     private TimeReport extractTimeReportFromCursor(Cursor cursor) {
-        TimeReport report = new TimeReport();
-
-        int idIndex = cursor.getColumnIndex(COLUMN_ID);
-        int serverIdIndex = cursor.getColumnIndex(COLUMN_SERVER_ID);
-        int projectIdIndex = cursor.getColumnIndex(COLUMN_PROJECT_ID);
-        int employeeIdIndex = cursor.getColumnIndex(COLUMN_EMPLOYEE_ID);
-        int workTypeIdIndex = cursor.getColumnIndex(COLUMN_WORK_TYPE_ID);
-        int reportDateIndex = cursor.getColumnIndex(COLUMN_REPORT_DATE);
-        int datetimeFromIndex = cursor.getColumnIndex(COLUMN_DATETIME_FROM);
-        int datetimeToIndex = cursor.getColumnIndex(COLUMN_DATETIME_TO);
-        int hoursIndex = cursor.getColumnIndex(COLUMN_HOURS);
-        int descriptionIndex = cursor.getColumnIndex(COLUMN_DESCRIPTION);
-        int validationStatusIndex = cursor.getColumnIndex(COLUMN_VALIDATION_STATUS);
-        int projectNameIndex = cursor.getColumnIndex(COLUMN_PROJECT_NAME);
-        int workTypeNameIndex = cursor.getColumnIndex(COLUMN_WORK_TYPE_NAME);
-        int dateCreatedIndex = cursor.getColumnIndex(COLUMN_DATE_CREATED);
-        int dateUpdatedIndex = cursor.getColumnIndex(COLUMN_DATE_UPDATED);
-        int syncStatusIndex = cursor.getColumnIndex(COLUMN_SYNC_STATUS);
-        int syncErrorIndex = cursor.getColumnIndex(COLUMN_SYNC_ERROR);
-        int attemptsIndex = cursor.getColumnIndex(COLUMN_ATTEMPTS);
-
-        if (idIndex >= 0) report.setId(cursor.getInt(idIndex));
-        if (serverIdIndex >= 0 && !cursor.isNull(serverIdIndex)) {
-            report.setServerId(cursor.getInt(serverIdIndex));
-        }
-        if (projectIdIndex >= 0 && !cursor.isNull(projectIdIndex)) {
-            report.setProjectId(cursor.getInt(projectIdIndex));
-        }
-        if (employeeIdIndex >= 0 && !cursor.isNull(employeeIdIndex)) {
-            report.setEmployeeId(cursor.getInt(employeeIdIndex));
-        }
-        if (workTypeIdIndex >= 0 && !cursor.isNull(workTypeIdIndex)) {
-            report.setWorkTypeId(cursor.getInt(workTypeIdIndex));
-        }
-        if (reportDateIndex >= 0) report.setReportDate(cursor.getString(reportDateIndex));
-        if (datetimeFromIndex >= 0) report.setDatetimeFrom(cursor.getString(datetimeFromIndex));
-        if (datetimeToIndex >= 0) report.setDatetimeTo(cursor.getString(datetimeToIndex));
-        if (hoursIndex >= 0) report.setHours(cursor.getDouble(hoursIndex));
-        if (descriptionIndex >= 0) report.setDescription(cursor.getString(descriptionIndex));
-        if (validationStatusIndex >= 0) report.setValidationStatus(cursor.getString(validationStatusIndex));
-        if (projectNameIndex >= 0) report.setProjectName(cursor.getString(projectNameIndex));
-        if (workTypeNameIndex >= 0) report.setWorkTypeName(cursor.getString(workTypeNameIndex));
-        if (dateCreatedIndex >= 0) report.setDateCreated(cursor.getString(dateCreatedIndex));
-        if (dateUpdatedIndex >= 0) report.setDateUpdated(cursor.getString(dateUpdatedIndex));
-        if (syncStatusIndex >= 0) report.setSyncStatus(cursor.getString(syncStatusIndex));
-        if (syncErrorIndex >= 0) report.setSyncError(cursor.getString(syncErrorIndex));
-        if (attemptsIndex >= 0) report.setSyncAttempts(cursor.getInt(attemptsIndex));
+        return new TimeReportRowMapper(cursor).map(cursor);
+    }
 
-        return report;
+    /**
+     * ✅ Mapper de lignes time_reports: index de colonnes résolus une fois par curseur
+     * Accepte toute projection (colonne absente = champ laissé à sa valeur par défaut)
+     */
+    public static final class TimeReportRowMapper {
+        private final int id, serverId, projectId, employeeId, workTypeId;
+        private final int reportDate, datetimeFrom, datetimeTo, hours, description, validationStatus;
+        private final int projectName, workTypeName, dateCreated, dateUpdated;
+        private final int syncStatus, syncError, attempts, idempotencyKey;
+
+        public TimeReportRowMapper(Cursor cursor) {
+            id = cursor.getColumnIndex(COLUMN_ID);
+            serverId = cursor.getColumnIndex(COLUMN_SERVER_ID);
+            projectId = cursor.getColumnIndex(COLUMN_PROJECT_ID);
+            employeeId = cursor.getColumnIndex(COLUMN_EMPLOYEE_ID);
+            workTypeId = cursor.getColumnIndex(COLUMN_WORK_TYPE_ID);
+            reportDate = cursor.getColumnIndex(COLUMN_REPORT_DATE);
+            datetimeFrom = cursor.getColumnIndex(COLUMN_DATETIME_FROM);
+            datetimeTo = cursor.getColumnIndex(COLUMN_DATETIME_TO);
+            hours = cursor.getColumnIndex(COLUMN_HOURS);
+            description = cursor.getColumnIndex(COLUMN_DESCRIPTION);
+            validationStatus = cursor.getColumnIndex(COLUMN_VALIDATION_STATUS);
+            projectName = cursor.getColumnIndex(COLUMN_PROJECT_NAME);
+            workTypeName = cursor.getColumnIndex(COLUMN_WORK_TYPE_NAME);
+            dateCreated = cursor.getColumnIndex(COLUMN_DATE_CREATED);
+            dateUpdated = cursor.getColumnIndex(COLUMN_DATE_UPDATED);
+            syncStatus = cursor.getColumnIndex(COLUMN_SYNC_STATUS);
+            syncError = cursor.getColumnIndex(COLUMN_SYNC_ERROR);
+            attempts = cursor.getColumnIndex(COLUMN_ATTEMPTS);
+            idempotencyKey = cursor.getColumnIndex(COLUMN_IDEMPOTENCY_KEY);
+        }
+
+        public TimeReport map(Cursor cursor) {
+            TimeReport report = new TimeReport();
+            if (id >= 0) report.setId(cursor.getInt(id));
+            if (serverId >= 0 && !cursor.isNull(serverId)) report.setServerId(cursor.getInt(serverId));
+            if (projectId >= 0 && !cursor.isNull(projectId)) report.setProjectId(cursor.getInt(projectId));
+            if (employeeId >= 0 && !cursor.isNull(employeeId)) report.setEmployeeId(cursor.getInt(employeeId));
+            if (workTypeId >= 0 && !cursor.isNull(workTypeId)) report.setWorkTypeId(cursor.getInt(workTypeId));
+            if (reportDate >= 0) report.setReportDate(cursor.getString(reportDate));
+            if (datetimeFrom >= 0) report.setDatetimeFrom(cursor.getString(datetimeFrom));
+            if (datetimeTo >= 0) report.setDatetimeTo(cursor.getString(datetimeTo));
+            if (hours >= 0) report.setHours(cursor.getDouble(hours));
+            if (description >= 0) report.setDescription(cursor.getString(description));
+            if (validationStatus >= 0) report.setValidationStatus(cursor.getString(validationStatus));
+            if (projectName >= 0) report.setProjectName(cursor.getString(projectName));
+            if (workTypeName >= 0) report.setWorkTypeName(cursor.getString(workTypeName));
+            if (dateCreated >= 0) report.setDateCreated(cursor.getString(dateCreated));
+            if (dateUpdated >= 0) report.setDateUpdated(cursor.getString(dateUpdated));
+            if (syncStatus >= 0) report.setSyncStatus(cursor.getString(syncStatus));
+            if (syncError >= 0) report.setSyncError(cursor.getString(syncError));
+            if (attempts >= 0) report.setSyncAttempts(cursor.getInt(attempts));
+            if (idempotencyKey >= 0) report.setIdempotencyKey(cursor.getString(idempotencyKey));
+            return report;
+        }
     }
 
     // ==================== GESTION DES NOTES DE PROJETS ====================
 
     public synchronized long insertProjectNote(ProjectNote note) {
         SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
+        // ✅ Instruction précompilée (pool), colonnes dans l'ordre de SQL_INSERT_PROJECT_NOTE
+        SQLiteStatement insert = pooledStatement(db, SQL_INSERT_PROJECT_NOTE);
 
         // ✅ project_id peut être NULL (notes personnelles)
         if (note.getProjectId() != null && note.getProjectId() > 0) {
-            values.put(COLUMN_PROJECT_ID, note.getProjectId());
+            insert.bindLong(1, note.getProjectId());
         } else {
-            values.putNull(COLUMN_PROJECT_ID);
+            insert.bindNull(1);
         }
 
-        values.put("user_id", note.getUserId());
-        values.put("note_type", note.getNoteType());
-        values.put("note_group", note.getNoteGroup());
+        insert.bindLong(2, note.getUserId());
+        bindNullableString(insert, 3, note.getNoteType());
+        bindNullableString(insert, 4, note.getNoteGroup());
 
         // ✅ Support pour note_type_id (catégories personnalisées)
         if (note.getNoteTypeId() != null && note.getNoteTypeId() > 0) {
-            values.put("note_type_id", note.getNoteTypeId());
+            insert.bindLong(5, note.getNoteTypeId());
         } else {
-            values.putNull("note_type_id");
+            insert.bindNull(5);
         }
 
-        values.put("title", note.getTitle());
-        values.put("content", note.getContent());
-        values.put("audio_path", note.getAudioPath());
-        values.put("local_audio_path", note.getLocalAudioPath());
-        values.put("audio_duration", note.getAudioDuration());
-        values.put("transcription", note.getTranscription());
-        values.put("is_important", note.isImportant() ? 1 : 0);
-
-        // Convertir les tags en JSON string
-        if (note.getTags() != null && !note.getTags().isEmpty()) {
-            StringBuilder tagsJson = new StringBuilder("[");
-            for (int i = 0; i < note.getTags().size(); i++) {
-                tagsJson.append("\"").append(note.getTags().get(i)).append("\"");
-                if (i < note.getTags().size() - 1) tagsJson.append(",");
-            }
-            tagsJson.append("]");
-            values.put("tags", tagsJson.toString());
+        bindNullableString(insert, 6, note.getTitle());
+        bindNullableString(insert, 7, note.getContent());
+        bindNullableString(insert, 8, note.getAudioPath());
+        bindNullableString(insert, 9, note.getLocalAudioPath());
+        if (note.getAudioDuration() != null) {
+            insert.bindLong(10, note.getAudioDuration());
         } else {
-            values.putNull("tags");
+            insert.bindNull(10);
         }
+        bindNullableString(insert, 11, note.getTranscription());
+        insert.bindLong(12, note.isImportant() ? 1 : 0);
 
-        values.put("author_name", note.getAuthorName());
+        // Convertir les tags en JSON string
+        bindNullableString(insert, 13, tagsToJson(note.getTags()));
 
-        // ✅ AJOUT: Champs additionnels pour gestion complète des notes
-        if (note.getPriority() != null) {
-            values.put("priority", note.getPriority());
-        } else {
-            values.put("priority", "medium"); // Valeur par défaut
-        }
+        bindNullableString(insert, 14, note.getAuthorName());
 
-        if (note.getScheduledDate() != null) {
-            values.put("scheduled_date", note.getScheduledDate());
+        // ✅ AJOUT: Champs additionnels pour gestion complète des notes
+        insert.bindString(15, note.getPriority() != null ? note.getPriority() : "medium"); // Valeur par défaut
+        bindNullableString(insert, 16, note.getScheduledDate());
+        bindNullableString(insert, 17, note.getReminderDate());
+
+        // ✅ FIX: Métadonnées du fichier local (v7), nécessaires à l'upload du média
+        boolean hasMedia = note.getLocalFilePath() != null && !note.getLocalFilePath().isEmpty();
+        bindNullableString(insert, 18, note.getLocalFilePath());
+        bindNullableString(insert, 19, note.getThumbnailPath());
+        bindNullableString(insert, 20, note.getMimeType());
+        if (note.getFileSize() != null) {
+            insert.bindLong(21, note.getFileSize());
         } else {
-            values.putNull("scheduled_date");
+            insert.bindNull(21);
         }
 
-        if (note.getReminderDate() != null) {
-            values.put("reminder_date", note.getReminderDate());
-        } else {
-            values.putNull("reminder_date");
+        // ✅ Création de la note puis upload du média (qui attend l'ID serveur de la note)
+        long id;
+        db.beginTransaction();
+        try {
+            id = executeInsert(insert);
+            if (id > 0) {
+                long createOp = appendOutboxOperation(db, OutboxOperation.ENTITY_PROJECT_NOTE, id,
+                    OutboxOperation.OP_CREATE, 0);
+                if (hasMedia) {
+                    appendOutboxOperation(db, OutboxOperation.ENTITY_PROJECT_NOTE, id,
+                        OutboxOperation.OP_MEDIA, createOp);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
         }
 
-        values.put(COLUMN_SYNC_STATUS, "pending");
-        values.putNull(COLUMN_SYNC_ERROR);
-        values.put(COLUMN_ATTEMPTS, 0);
-        values.put(COLUMN_SYNCED, 0);
-
-        long id = db.insert(TABLE_PROJECT_NOTES, null, values);
-
         Log.d(TAG, "Note de projet insérée en local: " + note.getTitle() + " (ID: " + id + ")");
+        notifyTableChanged(TABLE_PROJECT_NOTES);
         return id;
     }
 
-    public synchronized List<ProjectNote> getAllPendingProjectNotes() {
+    public List<ProjectNote> getAllPendingProjectNotes() {
         List<ProjectNote> notes = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(
-            "SELECT * FROM " + TABLE_PROJECT_NOTES +
-            " WHERE " + COLUMN_SYNC_STATUS + " IN ('pending', 'failed')" +
-            " ORDER BY " + COLUMN_CREATED_AT + " DESC", null);
+        Cursor cursor = db.rawQuery(QUERY_PENDING_NOTES, null);
 
+        NoteRowMapper mapper = new NoteRowMapper(cursor);
         if (cursor.moveToFirst()) {
             do {
-                ProjectNote note = extractProjectNoteFromCursor(cursor);
+                ProjectNote note = mapper.map(cursor);
                 notes.add(note);
             } while (cursor.moveToNext());
         }
@@ -1118,19 +1942,15 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
      * Récupère les notes en attente de synchronisation pour un utilisateur spécifique
      * IMPORTANT: Filtre par user_id pour la sécurité
      */
-    public synchronized List<ProjectNote> getPendingProjectNotesByUserId(int userId) {
+    public List<ProjectNote> getPendingProjectNotesByUserId(int userId) {
         List<ProjectNote> notes = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(
-            "SELECT * FROM " + TABLE_PROJECT_NOTES +
-            " WHERE " + COLUMN_SYNC_STATUS + " IN ('pending', 'failed')" +
-            " AND user_id = ?" +
-            " ORDER BY " + COLUMN_CREATED_AT + " DESC",
-            new String[]{String.valueOf(userId)});
+        Cursor cursor = db.rawQuery(QUERY_PENDING_NOTES_BY_USER, new String[]{String.valueOf(userId)});
 
+        NoteRowMapper mapper = new NoteRowMapper(cursor);
         if (cursor.moveToFirst()) {
             do {
-                ProjectNote note = extractProjectNoteFromCursor(cursor);
+                ProjectNote note = mapper.map(cursor);
                 notes.add(note);
             } while (cursor.moveToNext());
         }
@@ -1141,18 +1961,15 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
         return notes;
     }
 
-    public synchronized List<ProjectNote> getProjectNotesByProjectId(int projectId) {
+    public List<ProjectNote> getProjectNotesByProjectId(int projectId) {
         List<ProjectNote> notes = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(
-            "SELECT * FROM " + TABLE_PROJECT_NOTES +
-            " WHERE " + COLUMN_PROJECT_ID + " = ?" +
-            " ORDER BY " + COLUMN_CREATED_AT + " DESC",
-            new String[]{String.valueOf(projectId)});
+        Cursor cursor = db.rawQuery(QUERY_NOTES_BY_PROJECT, new String[]{String.valueOf(projectId)});
 
+        NoteRowMapper mapper = new NoteRowMapper(cursor);
         if (cursor.moveToFirst()) {
             do {
-                ProjectNote note = extractProjectNoteFromCursor(cursor);
+                ProjectNote note = mapper.map(cursor);
                 notes.add(note);
             } while (cursor.moveToNext());
         }
@@ -1167,19 +1984,16 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
      * Récupère les notes d'un projet pour un utilisateur spécifique
      * IMPORTANT: Filtre par user_id pour la sécurité
      */
-    public synchronized List<ProjectNote> getProjectNotesByProjectIdAndUserId(int projectId, int userId) {
+    public List<ProjectNote> getProjectNotesByProjectIdAndUserId(int projectId, int userId) {
         List<ProjectNote> notes = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(
-            "SELECT * FROM " + TABLE_PROJECT_NOTES +
-            " WHERE " + COLUMN_PROJECT_ID + " = ?" +
-            " AND user_id = ?" +
-            " ORDER BY " + COLUMN_CREATED_AT + " DESC",
+        Cursor cursor = db.rawQuery(QUERY_NOTES_BY_PROJECT_AND_USER,
             new String[]{String.valueOf(projectId), String.valueOf(userId)});
 
+        NoteRowMapper mapper = new NoteRowMapper(cursor);
         if (cursor.moveToFirst()) {
             do {
-                ProjectNote note = extractProjectNoteFromCursor(cursor);
+                ProjectNote note = mapper.map(cursor);
                 notes.add(note);
             } while (cursor.moveToNext());
         }
@@ -1194,19 +2008,15 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
      * ✅ NOUVEAU: Récupère les notes PERSONNELLES (sans projet) pour un utilisateur
      * IMPORTANT: Filtre par user_id pour la sécurité
      */
-    public synchronized List<ProjectNote> getPersonalNotesByUserId(int userId) {
+    public List<ProjectNote> getPersonalNotesByUserId(int userId) {
         List<ProjectNote> notes = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(
-            "SELECT * FROM " + TABLE_PROJECT_NOTES +
-            " WHERE " + COLUMN_PROJECT_ID + " IS NULL" +
-            " AND user_id = ?" +
-            " ORDER BY is_important DESC, " + COLUMN_CREATED_AT + " DESC",
-            new String[]{String.valueOf(userId)});
+        Cursor cursor = db.rawQuery(QUERY_PERSONAL_NOTES_BY_USER, new String[]{String.valueOf(userId)});
 
+        NoteRowMapper mapper = new NoteRowMapper(cursor);
         if (cursor.moveToFirst()) {
             do {
-                ProjectNote note = extractProjectNoteFromCursor(cursor);
+                ProjectNote note = mapper.map(cursor);
                 notes.add(note);
             } while (cursor.moveToNext());
         }
@@ -1221,18 +2031,15 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
      * ✅ NOUVEAU: Récupère toutes les notes (projet + personnelles) pour un utilisateur
      * IMPORTANT: Filtre par user_id pour la sécurité
      */
-    public synchronized List<ProjectNote> getAllNotesByUserId(int userId) {
+    public List<ProjectNote> getAllNotesByUserId(int userId) {
         List<ProjectNote> notes = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(
-            "SELECT * FROM " + TABLE_PROJECT_NOTES +
-            " WHERE user_id = ?" +
-            " ORDER BY is_important DESC, " + COLUMN_CREATED_AT + " DESC",
-            new String[]{String.valueOf(userId)});
+        Cursor cursor = db.rawQuery(QUERY_ALL_NOTES_BY_USER, new String[]{String.valueOf(userId)});
 
+        NoteRowMapper mapper = new NoteRowMapper(cursor);
         if (cursor.moveToFirst()) {
             do {
-                ProjectNote note = extractProjectNoteFromCursor(cursor);
+                ProjectNote note = mapper.map(cursor);
                 notes.add(note);
             } while (cursor.moveToNext());
         }
@@ -1247,19 +2054,15 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
      * ✅ NOUVEAU: Récupère les notes par groupe pour un utilisateur
      * @param noteGroup project, personal, meeting, todo, idea, issue, other
      */
-    public synchronized List<ProjectNote> getNotesByGroupAndUserId(String noteGroup, int userId) {
+    public List<ProjectNote> getNotesByGroupAndUserId(String noteGroup, int userId) {
         List<ProjectNote> notes = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(
-            "SELECT * FROM " + TABLE_PROJECT_NOTES +
-            " WHERE note_group = ?" +
-            " AND user_id = ?" +
-            " ORDER BY is_important DESC, " + COLUMN_CREATED_AT + " DESC",
-            new String[]{noteGroup, String.valueOf(userId)});
+        Cursor cursor = db.rawQuery(QUERY_NOTES_BY_GROUP_AND_USER, new String[]{noteGroup, String.valueOf(userId)});
 
+        NoteRowMapper mapper = new NoteRowMapper(cursor);
         if (cursor.moveToFirst()) {
             do {
-                ProjectNote note = extractProjectNoteFromCursor(cursor);
+                ProjectNote note = mapper.map(cursor);
                 notes.add(note);
             } while (cursor.moveToNext());
         }
@@ -1270,98 +2073,212 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
         return notes;
     }
 
-    private ProjectNote extractProjectNoteFromCursor(Cursor cursor) {
-        ProjectNote note = new ProjectNote();
-        note.setLocalId(cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_ID)));
+    // ==================== PAGINATION PAR CLÉ (V11) ====================
 
-        int serverIdIndex = cursor.getColumnIndexOrThrow(COLUMN_SERVER_ID);
-        if (!cursor.isNull(serverIdIndex)) {
-            note.setId(cursor.getInt(serverIdIndex));
+    /**
+     * ✅ Page de notes d'un utilisateur, pagination par clé sur (is_important, created_at, id)
+     *
+     * Même ordre que getAllNotesByUserId(), départagé par l'ID: la page suivante reprend
+     * strictement après la dernière ligne reçue, sans OFFSET (coût indépendant de la position)
+     * et sans doublon ni trou si des notes sont ajoutées entre deux pages.
+     *
+     * Projection liste (NOTE_LIST_COLUMNS): content/transcription réduits à un aperçu.
+     *
+     * @param noteGroup     groupe (project, personal, ...) ou null pour toutes les notes
+     * @param importantOnly uniquement les notes importantes
+     * @param after         dernière note de la page précédente (null = première page)
+     */
+    public List<ProjectNote> getNotesPage(int userId, String noteGroup, boolean importantOnly,
+                                          ProjectNote after, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT " + NOTE_LIST_COLUMNS + " FROM " + TABLE_PROJECT_NOTES +
+            " WHERE user_id = ?");
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(userId));
+        appendNoteFilter(sql, args, noteGroup, importantOnly);
+
+        if (after != null) {
+            // (is_important, created_at, id) < clé, en ordre décroissant (pas de row values avant SQLite 3.15)
+            String important = after.isImportant() ? "1" : "0";
+            String createdAt = after.getCreatedAt() != null ? after.getCreatedAt() : "";
+            String localId = String.valueOf(after.getLocalId());
+            sql.append(" AND (is_important < ?" +
+                " OR (is_important = ? AND (" + COLUMN_CREATED_AT + " < ?" +
+                " OR (" + COLUMN_CREATED_AT + " = ? AND " + COLUMN_ID + " < ?))))");
+            args.add(important);
+            args.add(important);
+            args.add(createdAt);
+            args.add(createdAt);
+            args.add(localId);
         }
 
-        // ✅ project_id peut être NULL
-        int projectIdIndex = cursor.getColumnIndexOrThrow(COLUMN_PROJECT_ID);
-        if (!cursor.isNull(projectIdIndex)) {
-            note.setProjectId(cursor.getInt(projectIdIndex));
-        } else {
-            note.setProjectId(null); // Note personnelle
+        sql.append(" ORDER BY is_important DESC, " + COLUMN_CREATED_AT + " DESC, " + COLUMN_ID + " DESC LIMIT ?");
+        args.add(String.valueOf(limit));
+
+        List<ProjectNote> notes = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(sql.toString(), args.toArray(new String[0]));
+        try {
+            NoteRowMapper mapper = new NoteRowMapper(cursor);
+            while (cursor.moveToNext()) {
+                notes.add(mapper.map(cursor));
+            }
+        } finally {
+            cursor.close();
         }
+        return notes;
+    }
 
-        note.setUserId(cursor.getInt(cursor.getColumnIndexOrThrow("user_id")));
-        note.setNoteType(cursor.getString(cursor.getColumnIndexOrThrow("note_type")));
-        note.setNoteGroup(cursor.getString(cursor.getColumnIndexOrThrow("note_group")));
+    /**
+     * Nombre de notes correspondant au même filtre que getNotesPage() (statistiques de la liste)
+     */
+    public int countNotes(int userId, String noteGroup, boolean importantOnly) {
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM " + TABLE_PROJECT_NOTES + " WHERE user_id = ?");
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(userId));
+        appendNoteFilter(sql, args, noteGroup, importantOnly);
 
-        // ✅ note_type_id peut être NULL
-        int noteTypeIdIndex = cursor.getColumnIndexOrThrow("note_type_id");
-        if (!cursor.isNull(noteTypeIdIndex)) {
-            note.setNoteTypeId(cursor.getInt(noteTypeIdIndex));
-        } else {
-            note.setNoteTypeId(null);
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(sql.toString(), args.toArray(new String[0]));
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
         }
+    }
 
-        note.setTitle(cursor.getString(cursor.getColumnIndexOrThrow("title")));
-        note.setContent(cursor.getString(cursor.getColumnIndexOrThrow("content")));
-        note.setAudioPath(cursor.getString(cursor.getColumnIndexOrThrow("audio_path")));
-        note.setLocalAudioPath(cursor.getString(cursor.getColumnIndexOrThrow("local_audio_path")));
-
-        int durationIndex = cursor.getColumnIndexOrThrow("audio_duration");
-        if (!cursor.isNull(durationIndex)) {
-            note.setAudioDuration(cursor.getInt(durationIndex));
+    private static void appendNoteFilter(StringBuilder sql, List<String> args,
+                                         String noteGroup, boolean importantOnly) {
+        if (noteGroup != null) {
+            sql.append(" AND note_group = ?");
+            args.add(noteGroup);
         }
+        if (importantOnly) {
+            sql.append(" AND is_important = 1");
+        }
+    }
 
-        note.setTranscription(cursor.getString(cursor.getColumnIndexOrThrow("transcription")));
-        note.setImportant(cursor.getInt(cursor.getColumnIndexOrThrow("is_important")) == 1);
+    /**
+     * Extrait une seule note (pour les listes, créer un NoteRowMapper une fois par curseur)
+     */
+    private ProjectNote extractProjectNoteFromCursor(Cursor cursor) {
+        return new NoteRowMapper(cursor).map(cursor);
+    }
 
-        // Parser les tags depuis JSON string
-        String tagsJson = cursor.getString(cursor.getColumnIndexOrThrow("tags"));
-        if (tagsJson != null && !tagsJson.isEmpty()) {
-            List<String> tags = new ArrayList<>();
-            tagsJson = tagsJson.replaceAll("[\\[\\]\"]", "");
-            if (!tagsJson.isEmpty()) {
-                String[] tagArray = tagsJson.split(",");
-                for (String tag : tagArray) {
-                    tags.add(tag.trim());
-                }
-            }
-            note.setTags(tags);
+    /**
+     * ✅ Mapper de lignes project_notes: index de colonnes résolus une fois par curseur
+     *
+     * Accepte toute projection (colonne absente = champ laissé à sa valeur par défaut),
+     * dont NOTE_LIST_COLUMNS. Les tags JSON sont décodés au premier getTags().
+     */
+    public static final class NoteRowMapper {
+        private final int id, serverId, projectId, userId, noteType, noteGroup, noteTypeId;
+        private final int title, content, audioPath, localAudioPath, audioDuration, transcription;
+        private final int contentPreview, transcriptionPreview;
+        private final int important, tags, authorName, createdAt, updatedAt;
+        private final int syncStatus, syncError, attempts, synced;
+        private final int localFilePath, serverUrl, fileSize, mimeType, thumbnailPath, uploadProgress;
+        private final int priority, scheduledDate, reminderDate;
+
+        public NoteRowMapper(Cursor cursor) {
+            id = cursor.getColumnIndex(COLUMN_ID);
+            serverId = cursor.getColumnIndex(COLUMN_SERVER_ID);
+            projectId = cursor.getColumnIndex(COLUMN_PROJECT_ID);
+            userId = cursor.getColumnIndex("user_id");
+            noteType = cursor.getColumnIndex("note_type");
+            noteGroup = cursor.getColumnIndex("note_group");
+            noteTypeId = cursor.getColumnIndex("note_type_id");
+            title = cursor.getColumnIndex("title");
+            content = cursor.getColumnIndex("content");
+            audioPath = cursor.getColumnIndex("audio_path");
+            localAudioPath = cursor.getColumnIndex("local_audio_path");
+            audioDuration = cursor.getColumnIndex("audio_duration");
+            transcription = cursor.getColumnIndex("transcription");
+            contentPreview = cursor.getColumnIndex(COLUMN_CONTENT_PREVIEW);
+            transcriptionPreview = cursor.getColumnIndex(COLUMN_TRANSCRIPTION_PREVIEW);
+            important = cursor.getColumnIndex("is_important");
+            tags = cursor.getColumnIndex("tags");
+            authorName = cursor.getColumnIndex("author_name");
+            createdAt = cursor.getColumnIndex(COLUMN_CREATED_AT);
+            updatedAt = cursor.getColumnIndex(COLUMN_UPDATED_AT);
+            syncStatus = cursor.getColumnIndex(COLUMN_SYNC_STATUS);
+            syncError = cursor.getColumnIndex(COLUMN_SYNC_ERROR);
+            attempts = cursor.getColumnIndex(COLUMN_ATTEMPTS);
+            synced = cursor.getColumnIndex(COLUMN_SYNCED);
+            localFilePath = cursor.getColumnIndex("local_file_path");
+            serverUrl = cursor.getColumnIndex("server_url");
+            fileSize = cursor.getColumnIndex("file_size");
+            mimeType = cursor.getColumnIndex("mime_type");
+            thumbnailPath = cursor.getColumnIndex("thumbnail_path");
+            uploadProgress = cursor.getColumnIndex("upload_progress");
+            priority = cursor.getColumnIndex("priority");
+            scheduledDate = cursor.getColumnIndex("scheduled_date");
+            reminderDate = cursor.getColumnIndex("reminder_date");
         }
 
-        note.setAuthorName(cursor.getString(cursor.getColumnIndexOrThrow("author_name")));
-        note.setCreatedAt(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_CREATED_AT)));
-        note.setUpdatedAt(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_UPDATED_AT)));
-        note.setSyncStatus(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_SYNC_STATUS)));
-        note.setSyncError(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_SYNC_ERROR)));
-        note.setSyncAttempts(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ATTEMPTS)));
-        note.setSynced(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_SYNCED)) == 1);
+        public ProjectNote map(Cursor cursor) {
+            ProjectNote note = new ProjectNote();
+            if (id >= 0) note.setLocalId(cursor.getLong(id));
 
-        // ✅ Nouveaux champs multimédia (Phase 2 - Offline-First)
-        note.setLocalFilePath(cursor.getString(cursor.getColumnIndexOrThrow("local_file_path")));
-        note.setServerUrl(cursor.getString(cursor.getColumnIndexOrThrow("server_url")));
+            // server_id sert d'ID public de la note (ID serveur)
+            Integer server = getInteger(cursor, serverId);
+            if (server != null) {
+                note.setId(server);
+                note.setServerId(server);
+            }
 
-        int fileSizeIndex = cursor.getColumnIndexOrThrow("file_size");
-        if (!cursor.isNull(fileSizeIndex)) {
-            note.setFileSize(cursor.getLong(fileSizeIndex));
+            // ✅ project_id / note_type_id peuvent être NULL (note personnelle, catégorie système)
+            note.setProjectId(getInteger(cursor, projectId));
+            note.setNoteTypeId(getInteger(cursor, noteTypeId));
+
+            if (userId >= 0) note.setUserId(cursor.getInt(userId));
+            if (noteType >= 0) note.setNoteType(cursor.getString(noteType));
+            if (noteGroup >= 0) note.setNoteGroup(cursor.getString(noteGroup));
+            if (title >= 0) note.setTitle(cursor.getString(title));
+            if (content >= 0) note.setContent(cursor.getString(content));
+            if (contentPreview >= 0) note.setContent(readPreview(cursor, contentPreview));
+            if (audioPath >= 0) note.setAudioPath(cursor.getString(audioPath));
+            if (localAudioPath >= 0) note.setLocalAudioPath(cursor.getString(localAudioPath));
+            Integer duration = getInteger(cursor, audioDuration);
+            if (duration != null) note.setAudioDuration(duration);
+            if (transcription >= 0) note.setTranscription(cursor.getString(transcription));
+            if (transcriptionPreview >= 0) note.setTranscription(readPreview(cursor, transcriptionPreview));
+            if (important >= 0) note.setImportant(cursor.getInt(important) == 1);
+            if (tags >= 0) note.setTagsJson(cursor.getString(tags));
+            if (authorName >= 0) note.setAuthorName(cursor.getString(authorName));
+            if (createdAt >= 0) note.setCreatedAt(cursor.getString(createdAt));
+            if (updatedAt >= 0) note.setUpdatedAt(cursor.getString(updatedAt));
+            if (syncStatus >= 0) note.setSyncStatus(cursor.getString(syncStatus));
+            if (syncError >= 0) note.setSyncError(cursor.getString(syncError));
+            if (attempts >= 0) note.setSyncAttempts(cursor.getInt(attempts));
+            if (synced >= 0) note.setSynced(cursor.getInt(synced) == 1);
+
+            // ✅ Champs multimédia (Phase 2 - Offline-First)
+            if (localFilePath >= 0) note.setLocalFilePath(cursor.getString(localFilePath));
+            if (serverUrl >= 0) note.setServerUrl(cursor.getString(serverUrl));
+            if (fileSize >= 0 && !cursor.isNull(fileSize)) note.setFileSize(cursor.getLong(fileSize));
+            if (mimeType >= 0) note.setMimeType(cursor.getString(mimeType));
+            if (thumbnailPath >= 0) note.setThumbnailPath(cursor.getString(thumbnailPath));
+            Integer progress = getInteger(cursor, uploadProgress);
+            if (progress != null) note.setUploadProgress(progress);
+
+            if (priority >= 0) note.setPriority(cursor.getString(priority));
+            if (scheduledDate >= 0) note.setScheduledDate(cursor.getString(scheduledDate));
+            if (reminderDate >= 0) note.setReminderDate(cursor.getString(reminderDate));
+            return note;
         }
 
-        note.setMimeType(cursor.getString(cursor.getColumnIndexOrThrow("mime_type")));
-        note.setThumbnailPath(cursor.getString(cursor.getColumnIndexOrThrow("thumbnail_path")));
-
-        int uploadProgressIndex = cursor.getColumnIndexOrThrow("upload_progress");
-        if (!cursor.isNull(uploadProgressIndex)) {
-            note.setUploadProgress(cursor.getInt(uploadProgressIndex));
+        private static Integer getInteger(Cursor cursor, int index) {
+            return index >= 0 && !cursor.isNull(index) ? cursor.getInt(index) : null;
         }
 
-        // ✅ AJOUT: Champs additionnels pour gestion complète des notes (priority, scheduled_date, reminder_date, server_id)
-        note.setPriority(cursor.getString(cursor.getColumnIndexOrThrow("priority")));
-        note.setScheduledDate(cursor.getString(cursor.getColumnIndexOrThrow("scheduled_date")));
-        note.setReminderDate(cursor.getString(cursor.getColumnIndexOrThrow("reminder_date")));
-
-        int serverIdCol = cursor.getColumnIndexOrThrow(COLUMN_SERVER_ID);
-        if (!cursor.isNull(serverIdCol)) {
-            note.setServerId(cursor.getInt(serverIdCol));
+        // Projection liste: substr(..., 1, LENGTH + 1) → un caractère en trop = texte tronqué
+        private static String readPreview(Cursor cursor, int index) {
+            String value = cursor.getString(index);
+            if (value != null && value.length() > NOTE_PREVIEW_LENGTH) {
+                return value.substring(0, NOTE_PREVIEW_LENGTH) + "…";
+            }
+            return value;
         }
-
-        return note;
     }
 
     /**
@@ -1381,7 +2298,7 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
     /**
      * Récupère une ProjectNote par son ID local
      */
-    public synchronized ProjectNote getProjectNoteById(int localId) {
+    public ProjectNote getProjectNoteById(int localId) {
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = db.query(TABLE_PROJECT_NOTES, null,
                 COLUMN_ID + " = ?",
@@ -1397,18 +2314,136 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
         return note;
     }
 
+    /**
+     * Récupère une note par son ID serveur (écrans alimentés par l'API: note_id = server_id)
+     * @return null si la note n'est pas dans le cache local
+     */
+    public ProjectNote getProjectNoteByServerId(int serverId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(TABLE_PROJECT_NOTES, null,
+                COLUMN_SERVER_ID + " = ?",
+                new String[]{String.valueOf(serverId)},
+                null, null, null, "1");
+
+        ProjectNote note = null;
+        try {
+            if (cursor.moveToFirst()) {
+                note = extractProjectNoteFromCursor(cursor);
+            }
+        } finally {
+            cursor.close();
+        }
+        return note;
+    }
+
+    /**
+     * ✅ Notes par IDs locaux, dans l'ordre des IDs fournis (IDs absents ignorés)
+     * Réhydrate les résultats de recherche mis en cache sous forme d'IDs.
+     */
+    public List<ProjectNote> getProjectNotesByLocalIds(List<Integer> localIds) {
+        Map<Long, ProjectNote> byId = new HashMap<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        for (int start = 0; start < localIds.size(); start += MAX_SQL_VARIABLES) {
+            List<Integer> chunk = localIds.subList(start, Math.min(start + MAX_SQL_VARIABLES, localIds.size()));
+            Cursor cursor = db.rawQuery("SELECT * FROM " + TABLE_PROJECT_NOTES +
+                " WHERE " + COLUMN_ID + " IN (" + placeholders(chunk.size()) + ")", toArgs(chunk));
+            try {
+                NoteRowMapper mapper = new NoteRowMapper(cursor);
+                while (cursor.moveToNext()) {
+                    ProjectNote note = mapper.map(cursor);
+                    byId.put(note.getLocalId(), note);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        List<ProjectNote> notes = new ArrayList<>();
+        for (Integer localId : localIds) {
+            ProjectNote note = byId.get((long) localId);
+            if (note != null) {
+                notes.add(note);
+            }
+        }
+        return notes;
+    }
+
     public synchronized void updateProjectNoteSyncStatus(long localId, String status, String error, int attempts) {
         SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
+        SQLiteStatement update = pooledStatement(db, SQL_UPDATE_NOTE_SYNC_STATUS);
 
-        values.put(COLUMN_SYNC_STATUS, status);
-        values.put(COLUMN_SYNC_ERROR, error);
-        values.put(COLUMN_ATTEMPTS, attempts);
-        values.put(COLUMN_UPDATED_AT, System.currentTimeMillis());
+        bindNullableString(update, 1, status);
+        bindNullableString(update, 2, error);
+        update.bindLong(3, attempts);
+        update.bindLong(4, System.currentTimeMillis());
+        update.bindLong(5, localId);
 
-        int rows = db.update(TABLE_PROJECT_NOTES, values, COLUMN_ID + " = ?", new String[]{String.valueOf(localId)});
+        int rows = update.executeUpdateDelete();
 
         Log.d(TAG, "Statut de synchronisation mis à jour pour la note " + localId + ": " + status);
+        notifyTableChanged(TABLE_PROJECT_NOTES);
+    }
+
+    /**
+     * Enregistre une modification locale d'une note (édition hors ligne)
+     * La ligne repasse en attente et une opération "update" est ajoutée au journal, en une transaction.
+     * Plusieurs éditions successives sont fusionnées avant envoi (OutboxCoalescer).
+     */
+    public synchronized boolean updateProjectNoteLocally(ProjectNote note) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+
+        if (note.getProjectId() != null && note.getProjectId() > 0) {
+            values.put(COLUMN_PROJECT_ID, note.getProjectId());
+        } else {
+            values.putNull(COLUMN_PROJECT_ID);
+        }
+        values.put("note_type", note.getNoteType());
+        values.put("note_group", note.getNoteGroup());
+        if (note.getNoteTypeId() != null && note.getNoteTypeId() > 0) {
+            values.put("note_type_id", note.getNoteTypeId());
+        } else {
+            values.putNull("note_type_id");
+        }
+        values.put("title", note.getTitle());
+        values.put("content", note.getContent());
+        values.put("transcription", note.getTranscription());
+        values.put("is_important", note.isImportant() ? 1 : 0);
+        values.put("tags", tagsToJson(note.getTags()));
+        values.put(COLUMN_SYNC_STATUS, "pending");
+        values.putNull(COLUMN_SYNC_ERROR);
+        values.put(COLUMN_SYNCED, 0);
+        values.put(COLUMN_UPDATED_AT, getCurrentTimestamp());
+
+        db.beginTransaction();
+        try {
+            int rows = db.update(TABLE_PROJECT_NOTES, values, COLUMN_ID + " = ?",
+                new String[]{String.valueOf(note.getLocalId())});
+            if (rows > 0) {
+                appendOutboxOperation(db, OutboxOperation.ENTITY_PROJECT_NOTE, note.getLocalId(),
+                    OutboxOperation.OP_UPDATE,
+                    findLastOutboxOperation(db, OutboxOperation.ENTITY_PROJECT_NOTE, note.getLocalId()));
+            }
+            db.setTransactionSuccessful();
+            Log.d(TAG, "Note modifiée localement: #" + note.getLocalId() + " (" + rows + " rows)");
+            return rows > 0;
+        } finally {
+            db.endTransaction();
+            notifyTableChanged(TABLE_PROJECT_NOTES);
+        }
+    }
+
+    private static String tagsToJson(List<String> tags) {
+        if (tags == null || tags.isEmpty()) {
+            return null;
+        }
+        StringBuilder tagsJson = new StringBuilder("[");
+        for (int i = 0; i < tags.size(); i++) {
+            tagsJson.append("\"").append(tags.get(i)).append("\"");
+            if (i < tags.size() - 1) tagsJson.append(",");
+        }
+        tagsJson.append("]");
+        return tagsJson.toString();
     }
 
     public synchronized void markProjectNoteAsSynced(long localId, int serverId) {
@@ -1424,9 +2459,10 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
         int rows = db.update(TABLE_PROJECT_NOTES, values, COLUMN_ID + " = ?", new String[]{String.valueOf(localId)});
 
         Log.d(TAG, "Note marquée comme synchronisée: local ID " + localId + " -> server ID " + serverId);
+        notifyTableChanged(TABLE_PROJECT_NOTES);
     }
 
-    public synchronized int getPendingNotesSyncCount() {
+    public int getPendingNotesSyncCount() {
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = db.rawQuery(
             "SELECT COUNT(*) FROM " + TABLE_PROJECT_NOTES +
@@ -1446,7 +2482,7 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
      * Compte les notes en attente de synchronisation pour un utilisateur spécifique
      * IMPORTANT: Filtre par user_id pour la sécurité
      */
-    public synchronized int getPendingNotesSyncCountByUserId(int userId) {
+    public int getPendingNotesSyncCountByUserId(int userId) {
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = db.rawQuery(
             "SELECT COUNT(*) FROM " + TABLE_PROJECT_NOTES +
@@ -1472,10 +2508,7 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = this.getWritableDatabase();
 
         // Vérifier si une note avec ce server_id existe déjà
-        Cursor cursor = db.rawQuery(
-            "SELECT " + COLUMN_ID + " FROM " + TABLE_PROJECT_NOTES +
-            " WHERE " + COLUMN_SERVER_ID + " = ?",
-            new String[]{String.valueOf(note.getId())});
+        Cursor cursor = db.rawQuery(QUERY_NOTE_ID_BY_SERVER_ID, new String[]{String.valueOf(note.getId())});
 
         long localId = -1;
         if (cursor.moveToFirst()) {
@@ -1544,13 +2577,126 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
             Log.d(TAG, "Note insérée depuis serveur: " + note.getTitle() + " (server_id: " + note.getId() + ", local_id: " + localId + ")");
         }
 
+        notifyTableChanged(TABLE_PROJECT_NOTES);
         return localId;
     }
 
+    /**
+     * ✅ NOUVEAU: Upsert en lot de notes serveur (une seule transaction)
+     * Même sémantique que upsertNoteFromServer(), mais:
+     * - server_id existants résolus en une requête (IN par paquets)
+     * - SQLiteStatement compilés réutilisés pour chaque note
+     * - un seul commit pour toute la page
+     * @return nombre de notes insérées ou mises à jour
+     */
+    public synchronized int upsertNotesFromServer(List<ProjectNote> serverNotes) {
+        List<Integer> serverIds = new ArrayList<>();
+        for (ProjectNote note : serverNotes) {
+            if (note.getId() > 0) {
+                serverIds.add(note.getId());
+            }
+        }
+        if (serverIds.isEmpty()) {
+            return 0;
+        }
+
+        SQLiteDatabase db = this.getWritableDatabase();
+        Map<Integer, Long> localIdByServerId = new HashMap<>();
+        for (int start = 0; start < serverIds.size(); start += MAX_SQL_VARIABLES) {
+            List<Integer> chunk = serverIds.subList(start, Math.min(start + MAX_SQL_VARIABLES, serverIds.size()));
+            Cursor cursor = db.rawQuery(
+                "SELECT " + COLUMN_ID + ", " + COLUMN_SERVER_ID + " FROM " + TABLE_PROJECT_NOTES +
+                " WHERE " + COLUMN_SERVER_ID + " IN (" + placeholders(chunk.size()) + ")",
+                toArgs(chunk));
+            try {
+                while (cursor.moveToNext()) {
+                    localIdByServerId.put(cursor.getInt(1), cursor.getLong(0));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        String noteColumns = COLUMN_PROJECT_ID + ", user_id, note_type, note_group, note_type_id, title, content, " +
+            "audio_path, transcription, is_important, author_name";
+        SQLiteStatement insertStatement = db.compileStatement(
+            "INSERT INTO " + TABLE_PROJECT_NOTES + " (" + noteColumns + ", " + COLUMN_SERVER_ID + ", " +
+            COLUMN_SYNC_STATUS + ", " + COLUMN_SYNCED + ", " + COLUMN_SYNC_ERROR + ", " + COLUMN_ATTEMPTS +
+            ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 'synced', 1, NULL, 0)");
+        SQLiteStatement updateStatement = db.compileStatement(
+            "UPDATE " + TABLE_PROJECT_NOTES + " SET " +
+            COLUMN_PROJECT_ID + " = ?, user_id = ?, note_type = ?, note_group = ?, note_type_id = ?, " +
+            "title = ?, content = ?, audio_path = ?, transcription = ?, is_important = ?, author_name = ?, " +
+            COLUMN_SYNC_STATUS + " = 'synced', " + COLUMN_SYNCED + " = 1, " + COLUMN_SYNC_ERROR + " = NULL" +
+            " WHERE " + COLUMN_ID + " = ?");
+
+        int written = 0;
+        db.beginTransaction();
+        try {
+            for (ProjectNote note : serverNotes) {
+                if (note.getId() <= 0) {
+                    continue;
+                }
+                Long localId = localIdByServerId.get(note.getId());
+                SQLiteStatement statement = localId != null ? updateStatement : insertStatement;
+                statement.clearBindings();
+                bindNoteColumns(statement, note);
+                try {
+                    if (localId != null) {
+                        statement.bindLong(12, localId);
+                        statement.executeUpdateDelete();
+                    } else {
+                        statement.bindLong(12, note.getId());
+                        localIdByServerId.put(note.getId(), statement.executeInsert());
+                    }
+                    written++;
+                } catch (android.database.SQLException e) {
+                    // Ligne invalide (ex: note_type manquant): on l'ignore sans annuler la page
+                    Log.e(TAG, "❌ Note serveur ignorée (server_id: " + note.getId() + "): " + e.getMessage());
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insertStatement.close();
+            updateStatement.close();
+        }
+
+        Log.d(TAG, "✅ Upsert lot notes: " + written + "/" + serverIds.size() + " notes écrites");
+        notifyTableChanged(TABLE_PROJECT_NOTES);
+        return written;
+    }
+
+    /**
+     * Lie les 11 colonnes communes d'une note serveur (ordre de noteColumns)
+     */
+    private void bindNoteColumns(SQLiteStatement statement, ProjectNote note) {
+        if (note.getProjectId() != null && note.getProjectId() > 0) {
+            statement.bindLong(1, note.getProjectId());
+        } else {
+            statement.bindNull(1);
+        }
+        statement.bindLong(2, note.getUserId());
+        bindNullableString(statement, 3, note.getNoteType());
+        bindNullableString(statement, 4, note.getNoteGroup());
+        if (note.getNoteTypeId() != null && note.getNoteTypeId() > 0) {
+            statement.bindLong(5, note.getNoteTypeId());
+        } else {
+            statement.bindNull(5);
+        }
+        bindNullableString(statement, 6, note.getTitle());
+        bindNullableString(statement, 7, note.getContent());
+        bindNullableString(statement, 8, note.getAudioPath());
+        bindNullableString(statement, 9, note.getTranscription());
+        statement.bindLong(10, note.isImportant() ? 1 : 0);
+        bindNullableString(statement, 11, note.getAuthorName());
+    }
+
     public synchronized void clearProjectNotes() {
         SQLiteDatabase db = this.getWritableDatabase();
         db.delete(TABLE_PROJECT_NOTES, null, null);
         Log.d(TAG, "Cache des notes de projets vidé");
+        notifyTableChanged(TABLE_PROJECT_NOTES);
     }
 
     // ==================== GESTION DES TYPES DE NOTES ====================
@@ -1575,10 +2721,11 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
         values.put(COLUMN_SYNCED, 1);
 
         long id = db.insert(TABLE_NOTE_TYPES, null, values);
+        notifyTableChanged(TABLE_NOTE_TYPES);
         return id;
     }
 
-    public synchronized List<com.ptms.mobile.models.NoteType> getAllNoteTypes() {
+    public List<com.ptms.mobile.models.NoteType> getAllNoteTypes() {
         List<com.ptms.mobile.models.NoteType> types = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = db.rawQuery(
@@ -1608,133 +2755,1363 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
     public synchronized void clearNoteTypes() {
         SQLiteDatabase db = this.getWritableDatabase();
         db.delete(TABLE_NOTE_TYPES, null, null);
+        notifyTableChanged(TABLE_NOTE_TYPES);
     }
 
-    // ==================== MÉTHODES UTILITAIRES ====================
-    
-    public synchronized void clearAllData() {
+    // ==================== INSTRUCTIONS PRÉCOMPILÉES ====================
+
+    private static final String SQL_INSERT_TIME_REPORT =
+        "INSERT INTO " + TABLE_TIME_REPORTS + " (" +
+        COLUMN_PROJECT_ID + ", " + COLUMN_EMPLOYEE_ID + ", " + COLUMN_WORK_TYPE_ID + ", " +
+        COLUMN_REPORT_DATE + ", " + COLUMN_DATETIME_FROM + ", " + COLUMN_DATETIME_TO + ", " +
+        COLUMN_HOURS + ", " + COLUMN_DESCRIPTION + ", " + COLUMN_VALIDATION_STATUS + ", " +
+        COLUMN_PROJECT_NAME + ", " + COLUMN_WORK_TYPE_NAME + ", " + COLUMN_DATE_CREATED + ", " +
+        COLUMN_DATE_UPDATED + ", " + COLUMN_SYNC_STATUS + ", " + COLUMN_IDEMPOTENCY_KEY + ", " +
+        COLUMN_SYNC_ERROR + ", " + COLUMN_ATTEMPTS +
+        ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, NULL, 0)";
+
+    private static final String SQL_MARK_TIME_REPORT_SYNCED =
+        "UPDATE " + TABLE_TIME_REPORTS + " SET " + COLUMN_SERVER_ID + " = ?, " +
+        COLUMN_SYNC_STATUS + " = 'synced', " + COLUMN_SYNC_ERROR + " = NULL, " + COLUMN_DATE_UPDATED + " = ?" +
+        " WHERE " + COLUMN_ID + " = ?";
+
+    private static final String SQL_UPSERT_INSERT_TIME_REPORT =
+        "INSERT INTO " + TABLE_TIME_REPORTS + " (" +
+        COLUMN_SERVER_ID + ", " + COLUMN_PROJECT_ID + ", " + COLUMN_EMPLOYEE_ID + ", " +
+        COLUMN_WORK_TYPE_ID + ", " + COLUMN_REPORT_DATE + ", " + COLUMN_DATETIME_FROM + ", " +
+        COLUMN_DATETIME_TO + ", " + COLUMN_HOURS + ", " + COLUMN_DESCRIPTION + ", " +
+        COLUMN_VALIDATION_STATUS + ", " + COLUMN_PROJECT_NAME + ", " + COLUMN_WORK_TYPE_NAME + ", " +
+        COLUMN_DATE_CREATED + ", " + COLUMN_DATE_UPDATED + ", " +
+        COLUMN_SYNC_STATUS + ", " + COLUMN_SYNC_ERROR + ", " + COLUMN_ATTEMPTS + ", " + COLUMN_IDEMPOTENCY_KEY +
+        ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 'synced', NULL, 0, lower(hex(randomblob(16))))";
+
+    // Même sémantique que updateTimeReport(): seules les valeurs fournies remplacent l'existant
+    private static final String SQL_UPSERT_UPDATE_TIME_REPORT =
+        "UPDATE " + TABLE_TIME_REPORTS + " SET " +
+        COLUMN_PROJECT_ID + " = COALESCE(?, " + COLUMN_PROJECT_ID + "), " +
+        COLUMN_EMPLOYEE_ID + " = COALESCE(?, " + COLUMN_EMPLOYEE_ID + "), " +
+        COLUMN_WORK_TYPE_ID + " = COALESCE(?, " + COLUMN_WORK_TYPE_ID + "), " +
+        COLUMN_REPORT_DATE + " = COALESCE(?, " + COLUMN_REPORT_DATE + "), " +
+        COLUMN_DATETIME_FROM + " = COALESCE(?, " + COLUMN_DATETIME_FROM + "), " +
+        COLUMN_DATETIME_TO + " = COALESCE(?, " + COLUMN_DATETIME_TO + "), " +
+        COLUMN_HOURS + " = ?, " +
+        COLUMN_DESCRIPTION + " = COALESCE(?, " + COLUMN_DESCRIPTION + "), " +
+        COLUMN_VALIDATION_STATUS + " = COALESCE(?, " + COLUMN_VALIDATION_STATUS + "), " +
+        COLUMN_PROJECT_NAME + " = COALESCE(?, " + COLUMN_PROJECT_NAME + "), " +
+        COLUMN_WORK_TYPE_NAME + " = COALESCE(?, " + COLUMN_WORK_TYPE_NAME + "), " +
+        COLUMN_DATE_UPDATED + " = COALESCE(?, " + COLUMN_DATE_UPDATED + "), " +
+        COLUMN_SYNC_STATUS + " = 'synced', " +
+        COLUMN_ATTEMPTS + " = 0" +
+        " WHERE " + COLUMN_ID + " = ?";
+
+    private static final String SQL_MARK_TIME_REPORT_PENDING =
+        "UPDATE " + TABLE_TIME_REPORTS + " SET " + COLUMN_SYNC_STATUS + " = 'pending'" +
+        " WHERE " + COLUMN_ID + " = ?";
+
+    private static final String SQL_INSERT_PROJECT_NOTE =
+        "INSERT INTO " + TABLE_PROJECT_NOTES + " (" +
+        COLUMN_PROJECT_ID + ", user_id, note_type, note_group, note_type_id, " +
+        "title, content, audio_path, local_audio_path, audio_duration, transcription, is_important, " +
+        "tags, author_name, priority, scheduled_date, reminder_date, " +
+        "local_file_path, thumbnail_path, mime_type, file_size, " +
+        COLUMN_SYNC_STATUS + ", " + COLUMN_SYNC_ERROR + ", " + COLUMN_ATTEMPTS + ", " + COLUMN_SYNCED +
+        ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 'pending', NULL, 0, 0)";
+
+    private static final String SQL_UPDATE_NOTE_SYNC_STATUS =
+        "UPDATE " + TABLE_PROJECT_NOTES + " SET " + COLUMN_SYNC_STATUS + " = ?, " + COLUMN_SYNC_ERROR + " = ?, " +
+        COLUMN_ATTEMPTS + " = ?, " + COLUMN_UPDATED_AT + " = ?" +
+        " WHERE " + COLUMN_ID + " = ?";
+
+    private static final String SQL_UPDATE_UPLOAD_PROGRESS =
+        "UPDATE " + TABLE_PROJECT_NOTES + " SET upload_progress = ?, " + COLUMN_UPDATED_AT + " = ?" +
+        " WHERE " + COLUMN_ID + " = ? AND " + COLUMN_SYNC_STATUS + " <> 'synced'";
+
+    private static final String SQL_INSERT_OUTBOX_OPERATION =
+        "INSERT INTO " + TABLE_SYNC_OUTBOX + " (entity_type, entity_id, op, depends_on, " +
+        COLUMN_SERVER_ID + ", attempts, " + COLUMN_CREATED_AT + ") VALUES (?, ?, ?, ?, ?, 0, ?)";
+
+    // Instructions de la connexion courante, par texte SQL (accès sous le verrou du helper)
+    private final Map<String, SQLiteStatement> statementPool = new HashMap<>();
+    private SQLiteDatabase statementPoolDb;
+
+    /**
+     * ✅ Instruction réutilisée: les écritures fréquentes (saisie de rapports, progression d'upload,
+     * statuts de sync) ne reconstruisent ni ContentValues, ni texte SQL, ni SQLiteStatement.
+     * La préparation SQLite n'est pas le gain: le framework garde déjà en cache, par connexion,
+     * les requêtes préparées. Les liaisons précédentes sont effacées. Appelant: méthode synchronized du helper.
+     */
+    private SQLiteStatement pooledStatement(SQLiteDatabase db, String sql) {
+        if (db != statementPoolDb) {
+            // Base rouverte (close() puis getWritableDatabase()): les anciennes instructions sont invalides
+            closeStatementPool();
+            statementPoolDb = db;
+        }
+        SQLiteStatement statement = statementPool.get(sql);
+        if (statement == null) {
+            statement = db.compileStatement(sql);
+            statementPool.put(sql, statement);
+        }
+        statement.clearBindings();
+        return statement;
+    }
+
+    /**
+     * Comme SQLiteDatabase.insert(): -1 (journalisé) au lieu d'une exception si une contrainte échoue
+     */
+    private static long executeInsert(SQLiteStatement statement) {
+        try {
+            return statement.executeInsert();
+        } catch (android.database.SQLException e) {
+            Log.e(TAG, "❌ Erreur d'insertion: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    private void closeStatementPool() {
+        for (SQLiteStatement statement : statementPool.values()) {
+            statement.close();
+        }
+        statementPool.clear();
+        statementPoolDb = null;
+    }
+
+    // ==================== MÉTHODES UTILITAIRES ====================
+
+    private static void bindNullableString(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    /**
+     * Lie un identifiant, ou NULL s'il n'est pas renseigné (<= 0)
+     */
+    private static void bindPositiveInt(SQLiteStatement statement, int index, int value) {
+        if (value > 0) {
+            statement.bindLong(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    /**
+     * Supprime les lignes d'une table par server_id (IN par paquets)
+     */
+    private int deleteByServerIds(SQLiteDatabase db, String table, List<Integer> serverIds) {
+        int deleted = 0;
+        for (int start = 0; start < serverIds.size(); start += MAX_SQL_VARIABLES) {
+            List<Integer> chunk = serverIds.subList(start, Math.min(start + MAX_SQL_VARIABLES, serverIds.size()));
+            deleted += db.delete(table,
+                COLUMN_SERVER_ID + " IN (" + placeholders(chunk.size()) + ")",
+                toArgs(chunk));
+        }
+        return deleted;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) builder.append(", ");
+            builder.append("?");
+        }
+        return builder.toString();
+    }
+
+    private static String[] toArgs(List<Integer> values) {
+        String[] args = new String[values.size()];
+        for (int i = 0; i < values.size(); i++) {
+            args[i] = String.valueOf(values.get(i));
+        }
+        return args;
+    }
+    
+    public synchronized void clearAllData() {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.delete(TABLE_PROJECT_NOTES, null, null);
+        db.delete(TABLE_UPLOAD_SESSIONS, null, null);
+        db.delete(TABLE_SYNC_OUTBOX, null, null);
+        db.delete(TABLE_NOTE_TYPES, null, null);
+        db.delete(TABLE_TIME_REPORTS, null, null);
+        db.delete(TABLE_DAILY_HOURS_ROLLUP, null, null);
+        db.delete(TABLE_WORK_TYPES, null, null);
+        db.delete(TABLE_PROJECTS, null, null);
+        db.delete(TABLE_CHAT_MESSAGES, null, null);
+        db.delete(TABLE_CHAT_ROOMS, null, null);
+
+        Log.d(TAG, "Toutes les données locales supprimées");
+        notifyTableChanged(TABLE_PROJECT_NOTES);
+        notifyTableChanged(TABLE_TIME_REPORTS);
+        notifyTableChanged(TABLE_NOTE_TYPES);
+        // Caches mémoire vidés avec les tables (et notification)
+        invalidateProjectsCache();
+        invalidateWorkTypesCache();
+    }
+
+    public long getDatabaseSize() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        long size = 0;
+
+        // Taille de chaque table
+        String[] tables = {TABLE_PROJECTS, TABLE_WORK_TYPES, TABLE_TIME_REPORTS, TABLE_PROJECT_NOTES, TABLE_NOTE_TYPES};
+        for (String table : tables) {
+            Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + table, null);
+            if (cursor.moveToFirst()) {
+                size += cursor.getInt(0);
+            }
+            cursor.close();
+        }
+
+        return size;
+    }
+
+    // ==================== MÉTHODES POUR STATISTIQUES UTILISATEUR ====================
+
+    /**
+     * ✅ NOUVEAU: Compte le nombre de rapports de temps pour un utilisateur
+     * Lu depuis le cumul journalier (V12): coût proportionnel au nombre de jours, pas de rapports.
+     */
+    public int getTimeReportsCount(int userId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(
+            "SELECT SUM(entries) FROM " + TABLE_DAILY_HOURS_ROLLUP +
+            " WHERE user_id = ?",
+            new String[]{String.valueOf(userId)});
+
+        int count = 0;
+        if (cursor.moveToFirst()) {
+            count = cursor.getInt(0);
+        }
+
+        cursor.close();
+
+        Log.d(TAG, "Nombre de rapports pour l'utilisateur " + userId + ": " + count);
+        return count;
+    }
+
+    /**
+     * ✅ NOUVEAU: Calcule le total d'heures pour un utilisateur (cumul journalier, V12)
+     */
+    public double getTotalHours(int userId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(
+            "SELECT SUM(" + COLUMN_HOURS + ") FROM " + TABLE_DAILY_HOURS_ROLLUP +
+            " WHERE user_id = ?",
+            new String[]{String.valueOf(userId)});
+
+        double totalHours = 0.0;
+        if (cursor.moveToFirst()) {
+            totalHours = cursor.getDouble(0);
+        }
+
+        cursor.close();
+
+        Log.d(TAG, "Total d'heures pour l'utilisateur " + userId + ": " + totalHours);
+        return totalHours;
+    }
+
+    // ==================== MÉTHODES POUR GESTION FICHIERS MULTIMÉDIA (V7) ====================
+
+    /**
+     * ✅ NOUVEAU (V7): Récupère les notes avec fichiers en attente d'upload
+     */
+    public List<ProjectNote> getPendingMediaUploads() {
+        List<ProjectNote> pendingMedia = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+
+        // Récupérer toutes les notes avec local_file_path ET sync_status = "pending"
+        Cursor cursor = db.rawQuery(QUERY_PENDING_MEDIA_UPLOADS, null);
+
+        NoteRowMapper mapper = new NoteRowMapper(cursor);
+        while (cursor.moveToNext()) {
+            try {
+                ProjectNote note = mapper.map(cursor);
+                pendingMedia.add(note);
+            } catch (Exception e) {
+                Log.e(TAG, "Erreur conversion note: " + e.getMessage());
+            }
+        }
+
+        cursor.close();
+        Log.d(TAG, "Notes avec fichiers en attente d'upload: " + pendingMedia.size());
+        return pendingMedia;
+    }
+
+    /**
+     * ✅ NOUVEAU (V7): Met à jour le progress d'upload d'un fichier
+     * Sans effet sur une note déjà synchronisée (progression asynchrone arrivée après le commit)
+     */
+    public synchronized void updateUploadProgress(long noteId, int progress) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        SQLiteStatement update = pooledStatement(db, SQL_UPDATE_UPLOAD_PROGRESS);
+
+        update.bindLong(1, progress);
+        update.bindLong(2, getCurrentTimestamp());
+        update.bindLong(3, noteId);
+
+        int rows = update.executeUpdateDelete();
+
+        Log.d(TAG, "Progress mis à jour pour note #" + noteId + ": " + progress + "%");
+    }
+
+    // ==================== SESSIONS D'UPLOAD PAR MORCEAUX (V10) ====================
+
+    /**
+     * Récupère la session d'upload en cours d'une note (null si aucune)
+     */
+    public UploadSession getUploadSession(long noteId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(TABLE_UPLOAD_SESSIONS, null, "note_id = ?",
+            new String[]{String.valueOf(noteId)}, null, null, null);
+
+        UploadSession session = null;
+        if (cursor.moveToFirst()) {
+            session = new UploadSession();
+            session.setNoteId(cursor.getLong(cursor.getColumnIndexOrThrow("note_id")));
+            session.setUploadId(cursor.getString(cursor.getColumnIndexOrThrow("upload_id")));
+            session.setFilePath(cursor.getString(cursor.getColumnIndexOrThrow("file_path")));
+            session.setFileSize(cursor.getLong(cursor.getColumnIndexOrThrow("file_size")));
+            session.setFileModified(cursor.getLong(cursor.getColumnIndexOrThrow("file_modified")));
+            session.setChunkSize(cursor.getInt(cursor.getColumnIndexOrThrow("chunk_size")));
+            session.setAckedOffset(cursor.getLong(cursor.getColumnIndexOrThrow("acked_offset")));
+        }
+        cursor.close();
+        return session;
+    }
+
+    /**
+     * Crée ou remplace la session d'upload d'une note
+     */
+    public synchronized void saveUploadSession(UploadSession session) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put("note_id", session.getNoteId());
+        values.put("upload_id", session.getUploadId());
+        values.put("file_path", session.getFilePath());
+        values.put("file_size", session.getFileSize());
+        values.put("file_modified", session.getFileModified());
+        values.put("chunk_size", session.getChunkSize());
+        values.put("acked_offset", session.getAckedOffset());
+        values.put(COLUMN_CREATED_AT, getCurrentTimestamp());
+        values.put(COLUMN_UPDATED_AT, getCurrentTimestamp());
+        db.insertWithOnConflict(TABLE_UPLOAD_SESSIONS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+
+        Log.d(TAG, "Session d'upload enregistrée pour note #" + session.getNoteId() + ": " + session.getUploadId());
+    }
+
+    /**
+     * Enregistre l'offset acquitté et la progression correspondante de la note en une transaction
+     */
+    public synchronized void updateUploadSessionOffset(UploadSession session) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues sessionValues = new ContentValues();
+            sessionValues.put("acked_offset", session.getAckedOffset());
+            sessionValues.put(COLUMN_UPDATED_AT, getCurrentTimestamp());
+            db.update(TABLE_UPLOAD_SESSIONS, sessionValues, "note_id = ?",
+                new String[]{String.valueOf(session.getNoteId())});
+
+            ContentValues noteValues = new ContentValues();
+            noteValues.put("upload_progress", session.getProgressPercent());
+            db.update(TABLE_PROJECT_NOTES, noteValues, COLUMN_ID + " = ?",
+                new String[]{String.valueOf(session.getNoteId())});
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public synchronized void deleteUploadSession(long noteId) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.delete(TABLE_UPLOAD_SESSIONS, "note_id = ?", new String[]{String.valueOf(noteId)});
+    }
+
+    // ==================== CUMUL JOURNALIER DES HEURES (V12) ====================
+
+    /**
+     * Crée la table de cumul, son index par date et les triggers de maintenance (idempotent)
+     */
+    private void createDailyHoursRollup(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE_DAILY_HOURS_ROLLUP);
+        db.execSQL(CREATE_INDEX_DAILY_HOURS_ROLLUP_DATE);
+        for (String createTrigger : CREATE_TRIGGERS_DAILY_HOURS_ROLLUP) {
+            db.execSQL(createTrigger);
+        }
+    }
+
+    /**
+     * Recalcule entièrement le cumul depuis time_reports (dans la transaction de l'appelant)
+     */
+    private void rebuildDailyHoursRollup(SQLiteDatabase db) {
+        db.delete(TABLE_DAILY_HOURS_ROLLUP, null, null);
+        db.execSQL("INSERT INTO " + TABLE_DAILY_HOURS_ROLLUP +
+            " (user_id, date, " + COLUMN_PROJECT_ID + ", " + COLUMN_WORK_TYPE_ID + ", " + COLUMN_HOURS + ", entries)" +
+            " SELECT COALESCE(" + COLUMN_EMPLOYEE_ID + ", 0), COALESCE(" + COLUMN_REPORT_DATE + ", '')," +
+            " COALESCE(" + COLUMN_PROJECT_ID + ", 0), COALESCE(" + COLUMN_WORK_TYPE_ID + ", 0)," +
+            " SUM(COALESCE(" + COLUMN_HOURS + ", 0)), COUNT(*)" +
+            " FROM " + TABLE_TIME_REPORTS +
+            " GROUP BY 1, 2, 3, 4");
+    }
+
+    /**
+     * ✅ Reconstruit le cumul journalier depuis les rapports (récupération après incohérence)
+     * Les écritures courantes n'en ont pas besoin: les triggers maintiennent le cumul.
+     * @return nombre de groupes (utilisateur, jour, projet, type de travail) recalculés
+     */
+    public synchronized int rebuildDailyHoursRollup() {
+        SQLiteDatabase db = this.getWritableDatabase();
+        int count = 0;
+        db.beginTransaction();
+        try {
+            rebuildDailyHoursRollup(db);
+            Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + TABLE_DAILY_HOURS_ROLLUP, null);
+            try {
+                count = cursor.moveToFirst() ? cursor.getInt(0) : 0;
+            } finally {
+                cursor.close();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        Log.d(TAG, "✅ Cumul journalier reconstruit: " + count + " groupes");
+        return count;
+    }
+
+    // ==================== INDEX PLEIN TEXTE (V13) ====================
+
+    private volatile Boolean searchIndexAvailable = null;
+
+    /**
+     * Crée les tables FTS et leurs triggers (idempotent)
+     * Un SQLite sans FTS4 ne bloque pas la création de la base: la recherche repasse alors en Java.
+     * @return true si l'index est disponible
+     */
+    private boolean createSearchIndex(SQLiteDatabase db) {
+        try {
+            for (SearchIndex.Source source : SearchIndex.ALL) {
+                db.execSQL(source.createTable());
+                for (String createTrigger : source.createTriggers()) {
+                    db.execSQL(createTrigger);
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Index plein texte indisponible (FTS4)", e);
+            return false;
+        }
+    }
+
+    private void rebuildSearchIndex(SQLiteDatabase db) {
+        for (SearchIndex.Source source : SearchIndex.ALL) {
+            db.execSQL(source.rebuild());
+        }
+        Log.d(TAG, "✅ Index plein texte reconstruit");
+    }
+
+    /**
+     * Reconstruit l'index plein texte depuis les tables sources (récupération)
+     */
+    public synchronized void rebuildSearchIndex() {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            if (createSearchIndex(db)) {
+                rebuildSearchIndex(db);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        searchIndexAvailable = null;
+    }
+
+    /**
+     * L'index plein texte existe-t-il dans cette base ?
+     */
+    public boolean isSearchIndexAvailable() {
+        if (searchIndexAvailable == null) {
+            Cursor cursor = this.getReadableDatabase().rawQuery(
+                "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = ?",
+                new String[]{SearchIndex.NOTES.ftsTable});
+            try {
+                searchIndexAvailable = cursor.moveToFirst() && cursor.getInt(0) > 0;
+            } finally {
+                cursor.close();
+            }
+        }
+        return searchIndexAvailable;
+    }
+
+    /**
+     * ✅ Recherche plein texte dans les notes d'un utilisateur, classées par pertinence
+     * @param matchQuery requête MATCH (voir SearchIndex.toMatchQuery)
+     */
+    public List<SearchIndex.Hit<ProjectNote>> searchNotes(int userId, String matchQuery, Integer projectId,
+                                                          boolean importantOnly, int limit) {
+        return searchNotes(userId, matchQuery, projectId, importantOnly, limit, null);
+    }
+
+    /**
+     * @param signal annulation de la requête en cours (saisie remplacée), peut être null
+     */
+    public List<SearchIndex.Hit<ProjectNote>> searchNotes(int userId, String matchQuery, Integer projectId,
+                                                          boolean importantOnly, int limit, CancellationSignal signal) {
+        StringBuilder filter = new StringBuilder(" AND c.user_id = ?");
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(userId));
+        if (projectId != null) {
+            filter.append(" AND c." + COLUMN_PROJECT_ID + " = ?");
+            args.add(String.valueOf(projectId));
+        }
+        if (importantOnly) {
+            filter.append(" AND c.is_important = 1");
+        }
+
+        SQLiteDatabase db = this.getReadableDatabase();
+        List<SearchIndex.RankedId> ranked = rankMatches(db, SearchIndex.NOTES, matchQuery, filter.toString(), args,
+            limit, signal);
+        List<SearchIndex.Hit<ProjectNote>> hits = new ArrayList<>();
+        Cursor cursor = loadMatches(db, SearchIndex.NOTES, matchQuery, ranked, signal);
+        if (cursor == null) {
+            return hits;
+        }
+        try {
+            NoteRowMapper mapper = new NoteRowMapper(cursor);
+            Map<Long, SearchIndex.Hit<ProjectNote>> byId = new HashMap<>();
+            int snippetIndex = cursor.getColumnIndexOrThrow("search_snippet");
+            while (cursor.moveToNext()) {
+                ProjectNote note = mapper.map(cursor);
+                byId.put(note.getLocalId(), new SearchIndex.Hit<>(note, 0, cursor.getString(snippetIndex)));
+            }
+            collectInRankOrder(ranked, byId, hits);
+        } finally {
+            cursor.close();
+        }
+        return hits;
+    }
+
+    /**
+     * ✅ Recherche plein texte dans tous les rapports locaux (synchronisés ou non)
+     */
+    public List<SearchIndex.Hit<TimeReport>> searchTimeReports(String matchQuery, Integer projectId, int limit) {
+        return searchTimeReports(matchQuery, projectId, limit, null);
+    }
+
+    public List<SearchIndex.Hit<TimeReport>> searchTimeReports(String matchQuery, Integer projectId, int limit,
+                                                               CancellationSignal signal) {
+        StringBuilder filter = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        if (projectId != null) {
+            filter.append(" AND c." + COLUMN_PROJECT_ID + " = ?");
+            args.add(String.valueOf(projectId));
+        }
+
+        SQLiteDatabase db = this.getReadableDatabase();
+        List<SearchIndex.RankedId> ranked = rankMatches(db, SearchIndex.REPORTS, matchQuery, filter.toString(), args,
+            limit, signal);
+        List<SearchIndex.Hit<TimeReport>> hits = new ArrayList<>();
+        Cursor cursor = loadMatches(db, SearchIndex.REPORTS, matchQuery, ranked, signal);
+        if (cursor == null) {
+            return hits;
+        }
+        try {
+            TimeReportRowMapper mapper = new TimeReportRowMapper(cursor);
+            Map<Long, SearchIndex.Hit<TimeReport>> byId = new HashMap<>();
+            int snippetIndex = cursor.getColumnIndexOrThrow("search_snippet");
+            while (cursor.moveToNext()) {
+                TimeReport report = mapper.map(cursor);
+                byId.put((long) report.getId(), new SearchIndex.Hit<>(report, 0, cursor.getString(snippetIndex)));
+            }
+            collectInRankOrder(ranked, byId, hits);
+        } finally {
+            cursor.close();
+        }
+        return hits;
+    }
+
+    /**
+     * ✅ Recherche plein texte dans les projets en cache
+     * @param projectId ID serveur du projet (null = tous)
+     */
+    public List<SearchIndex.Hit<Project>> searchProjects(String matchQuery, Integer projectId, int limit) {
+        return searchProjects(matchQuery, projectId, limit, null);
+    }
+
+    public List<SearchIndex.Hit<Project>> searchProjects(String matchQuery, Integer projectId, int limit,
+                                                         CancellationSignal signal) {
+        StringBuilder filter = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        if (projectId != null) {
+            filter.append(" AND c." + COLUMN_SERVER_ID + " = ?");
+            args.add(String.valueOf(projectId));
+        }
+
+        SQLiteDatabase db = this.getReadableDatabase();
+        List<SearchIndex.RankedId> ranked = rankMatches(db, SearchIndex.PROJECTS, matchQuery, filter.toString(), args,
+            limit, signal);
+        List<SearchIndex.Hit<Project>> hits = new ArrayList<>();
+        Cursor cursor = loadMatches(db, SearchIndex.PROJECTS, matchQuery, ranked, signal);
+        if (cursor == null) {
+            return hits;
+        }
+        try {
+            Map<Long, SearchIndex.Hit<Project>> byId = new HashMap<>();
+            int idIndex = cursor.getColumnIndexOrThrow(COLUMN_ID);
+            int snippetIndex = cursor.getColumnIndexOrThrow("search_snippet");
+            while (cursor.moveToNext()) {
+                byId.put(cursor.getLong(idIndex),
+                    new SearchIndex.Hit<>(extractProjectFromCursor(cursor), 0, cursor.getString(snippetIndex)));
+            }
+            collectInRankOrder(ranked, byId, hits);
+        } finally {
+            cursor.close();
+        }
+        return hits;
+    }
+
+    /**
+     * Étape 1: docid + matchinfo des lignes trouvées (sans charger les lignes), classement, top N
+     */
+    private List<SearchIndex.RankedId> rankMatches(SQLiteDatabase db, SearchIndex.Source source, String matchQuery,
+                                                   String filterSql, List<String> filterArgs, int limit,
+                                                   CancellationSignal signal) {
+        List<SearchIndex.RankedId> ranked = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        args.add(matchQuery);
+        args.addAll(filterArgs);
+
+        Cursor cursor = db.rawQuery(
+            "SELECT " + source.ftsTable + ".docid, matchinfo(" + source.ftsTable + ", 'pcx')" +
+            " FROM " + source.ftsTable +
+            " JOIN " + source.contentTable + " c ON c." + COLUMN_ID + " = " + source.ftsTable + ".docid" +
+            " WHERE " + source.ftsTable + " MATCH ?" + filterSql,
+            args.toArray(new String[0]), signal);
+        try {
+            while (cursor.moveToNext()) {
+                ranked.add(new SearchIndex.RankedId(cursor.getLong(0), SearchIndex.rank(cursor.getBlob(1), source.weights)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return SearchIndex.top(ranked, limit);
+    }
+
+    /**
+     * Étape 2: lignes complètes + extrait, uniquement pour les meilleurs résultats
+     * @return null si aucun résultat
+     */
+    private Cursor loadMatches(SQLiteDatabase db, SearchIndex.Source source, String matchQuery,
+                               List<SearchIndex.RankedId> ranked, CancellationSignal signal) {
+        if (ranked.isEmpty()) {
+            return null;
+        }
+        StringBuilder ids = new StringBuilder();
+        for (SearchIndex.RankedId rankedId : ranked) {
+            if (ids.length() > 0) ids.append(',');
+            ids.append(rankedId.docId);
+        }
+        return db.rawQuery(
+            "SELECT c.*, snippet(" + source.ftsTable + ", ?, ?, '…', -1, 12) AS search_snippet" +
+            " FROM " + source.ftsTable +
+            " JOIN " + source.contentTable + " c ON c." + COLUMN_ID + " = " + source.ftsTable + ".docid" +
+            " WHERE " + source.ftsTable + " MATCH ? AND " + source.ftsTable + ".docid IN (" + ids + ")",
+            new String[]{String.valueOf(SearchIndex.MATCH_START), String.valueOf(SearchIndex.MATCH_END), matchQuery},
+            signal);
+    }
+
+    private static <T> void collectInRankOrder(List<SearchIndex.RankedId> ranked, Map<Long, SearchIndex.Hit<T>> byId,
+                                               List<SearchIndex.Hit<T>> hits) {
+        for (SearchIndex.RankedId rankedId : ranked) {
+            SearchIndex.Hit<T> hit = byId.get(rankedId.docId);
+            if (hit != null) {
+                hits.add(new SearchIndex.Hit<>(hit.item, rankedId.score, hit.snippet));
+            }
+        }
+    }
+
+    // ==================== HISTORIQUE DE CHAT (V14) ====================
+
+    private void createChatTables(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE_CHAT_ROOMS);
+        db.execSQL(CREATE_TABLE_CHAT_MESSAGES);
+        db.execSQL(CREATE_INDEX_CHAT_MESSAGES_ROOM);
+    }
+
+    /**
+     * Remplace la liste des salles par celle du serveur
+     * Le curseur des deltas (last_message_id) et les messages des salles conservées sont gardés
+     */
+    public synchronized void saveChatRooms(List<ChatRoom> rooms) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            List<String> keptIds = new ArrayList<>();
+            for (ChatRoom room : rooms) {
+                ContentValues values = new ContentValues();
+                values.put(COLUMN_NAME, room.getName());
+                values.put("display_name", room.getDisplayNameField());
+                values.put(COLUMN_DESCRIPTION, room.getDescription());
+                values.put("room_type", room.getRoomType() != null ? room.getRoomType() : room.getType());
+                values.put(COLUMN_PROJECT_ID, room.getProjectId());
+                values.put("project_name", room.getProjectName());
+                values.put("department_name", room.getDepartmentName());
+                values.put("unread_count", room.getUnreadCount());
+                if (room.getLastActivity() != null) {
+                    values.put("last_activity", room.getLastActivity().getTime());
+                }
+                values.put(COLUMN_UPDATED_AT, getCurrentTimestamp());
+
+                String[] args = {String.valueOf(room.getId())};
+                if (db.update(TABLE_CHAT_ROOMS, values, COLUMN_ID + " = ?", args) == 0) {
+                    values.put(COLUMN_ID, room.getId());
+                    db.insert(TABLE_CHAT_ROOMS, null, values);
+                }
+                keptIds.add(String.valueOf(room.getId()));
+            }
+
+            // Salles disparues côté serveur: supprimées avec leurs messages
+            String notKept = " NOT IN (" + TextUtils.join(",", keptIds) + ")";
+            db.delete(TABLE_CHAT_MESSAGES, keptIds.isEmpty() ? null : "room_id" + notKept, null);
+            db.delete(TABLE_CHAT_ROOMS, keptIds.isEmpty() ? null : COLUMN_ID + notKept, null);
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        Log.d(TAG, "✅ Salles de chat enregistrées: " + rooms.size());
+    }
+
+    /**
+     * Salles enregistrées, la plus récemment active en premier
+     */
+    public List<ChatRoom> getChatRooms() {
+        List<ChatRoom> rooms = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(TABLE_CHAT_ROOMS, null, COLUMN_NAME + " IS NOT NULL", null, null, null,
+            "last_activity DESC");
+        try {
+            ChatRoomRowMapper mapper = new ChatRoomRowMapper(cursor);
+            while (cursor.moveToNext()) {
+                rooms.add(mapper.map(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+        return rooms;
+    }
+
+    /**
+     * Plus haut ID de message reçu pour la salle (0 si aucun): curseur du prochain delta
+     */
+    public int getChatHighWaterMark(int roomId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT last_message_id FROM " + TABLE_CHAT_ROOMS + " WHERE " + COLUMN_ID + " = ?",
+            new String[]{String.valueOf(roomId)});
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Enregistre une page de messages renvoyée par le serveur, contiguë côté serveur
+     *
+     * - beforeId = 0: page la plus récente (fenêtre initiale ou delta), le curseur de la salle avance
+     * - beforeId > 0: page précédant ce message (remontée dans l'historique), son trou est comblé
+     *
+     * Sous le plus ancien message de la page, un trou est noté (gap_before) si la page est pleine
+     * et ne rejoint pas des messages déjà enregistrés: le serveur en a peut-être d'autres.
+     *
+     * @param pageFull true si le serveur a renvoyé autant de messages que demandé
+     */
+    public synchronized void saveChatMessagesPage(int roomId, List<ChatMessage> page, boolean pageFull, int beforeId) {
+        List<ChatMessage> sorted = new ArrayList<>();
+        for (ChatMessage message : page) {
+            if (message != null && message.getId() > 0) {
+                sorted.add(message);
+            }
+        }
+        Collections.sort(sorted, (a, b) -> Integer.compare(a.getId(), b.getId()));
+
+        SQLiteDatabase db = this.getWritableDatabase();
+        String room = String.valueOf(roomId);
+        db.beginTransaction();
+        try {
+            db.execSQL("INSERT OR IGNORE INTO " + TABLE_CHAT_ROOMS + "(" + COLUMN_ID + ") VALUES (?)", new Object[]{roomId});
+
+            if (beforeId > 0) {
+                db.execSQL("UPDATE " + TABLE_CHAT_MESSAGES + " SET gap_before = 0 WHERE room_id = ? AND " + COLUMN_ID + " = ?",
+                    new Object[]{roomId, beforeId});
+            }
+
+            if (!sorted.isEmpty()) {
+                int oldest = sorted.get(0).getId();
+                int newest = sorted.get(sorted.size() - 1).getId();
+
+                // Plus ancien message de la page déjà enregistré: la page rejoint l'historique local,
+                // le trou éventuel sous ce message passe sous le plus ancien de la page
+                Set<Integer> pageIds = new HashSet<>();
+                for (ChatMessage message : sorted) {
+                    pageIds.add(message.getId());
+                }
+                boolean reachedStored = false;
+                boolean inheritedGap = false;
+                Cursor cursor = db.rawQuery("SELECT " + COLUMN_ID + ", gap_before FROM " + TABLE_CHAT_MESSAGES +
+                    " WHERE room_id = ? AND " + COLUMN_ID + " BETWEEN ? AND ? ORDER BY " + COLUMN_ID,
+                    new String[]{room, String.valueOf(oldest), String.valueOf(newest)});
+                try {
+                    while (cursor.moveToNext()) {
+                        if (pageIds.contains(cursor.getInt(0))) {
+                            reachedStored = true;
+                            inheritedGap = cursor.getInt(1) == 1;
+                            break;
+                        }
+                    }
+                } finally {
+                    cursor.close();
+                }
+                boolean gapBelow = pageFull && (!reachedStored || inheritedGap);
+
+                for (ChatMessage message : sorted) {
+                    db.insertWithOnConflict(TABLE_CHAT_MESSAGES, null, chatMessageValues(roomId, message),
+                        SQLiteDatabase.CONFLICT_IGNORE);
+                }
+                db.execSQL("UPDATE " + TABLE_CHAT_MESSAGES + " SET gap_before = 0 WHERE room_id = ? AND " +
+                    COLUMN_ID + " > ? AND " + COLUMN_ID + " <= ?", new Object[]{roomId, oldest, newest});
+                db.execSQL("UPDATE " + TABLE_CHAT_MESSAGES + " SET gap_before = ? WHERE " + COLUMN_ID + " = ?",
+                    new Object[]{gapBelow ? 1 : 0, oldest});
+
+                if (beforeId == 0) {
+                    db.execSQL("UPDATE " + TABLE_CHAT_ROOMS + " SET last_message_id = MAX(last_message_id, ?) WHERE " +
+                        COLUMN_ID + " = ?", new Object[]{newest, roomId});
+                }
+            }
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        Log.d(TAG, "✅ " + sorted.size() + " message(s) de chat enregistré(s) pour la salle " + roomId);
+    }
+
+    /**
+     * Messages contigus précédant beforeId (0 = les plus récents), du plus ancien au plus récent
+     * La lecture s'arrête au premier message marqué gap_before (inclus): au-delà, l'historique local a un trou.
+     */
+    public List<ChatMessage> getChatMessagesBefore(int roomId, int beforeId, int limit) {
+        List<ChatMessage> messages = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(QUERY_CHAT_MESSAGES_BEFORE, new String[]{
+            String.valueOf(roomId),
+            String.valueOf(beforeId > 0 ? beforeId : Integer.MAX_VALUE),
+            String.valueOf(limit)
+        });
+        try {
+            ChatMessageRowMapper mapper = new ChatMessageRowMapper(cursor);
+            int gapIndex = cursor.getColumnIndexOrThrow("gap_before");
+            while (cursor.moveToNext()) {
+                messages.add(0, mapper.map(cursor));
+                if (cursor.getInt(gapIndex) == 1) {
+                    break;
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return messages;
+    }
+
+    /**
+     * @return true si des messages antérieurs à messageId restent à récupérer du serveur
+     */
+    public boolean hasChatGapBefore(int roomId, int messageId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT gap_before FROM " + TABLE_CHAT_MESSAGES +
+            " WHERE room_id = ? AND " + COLUMN_ID + " = ?",
+            new String[]{String.valueOf(roomId), String.valueOf(messageId)});
+        try {
+            return cursor.moveToFirst() && cursor.getInt(0) == 1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private ContentValues chatMessageValues(int roomId, ChatMessage message) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_ID, message.getId());
+        values.put("room_id", roomId);
+        values.put("sender_id", message.getSenderId());
+        values.put("sender_name", message.getSenderName());
+        values.put("content", message.getContent());
+        values.put("message_type", message.getMessageType());
+        if (message.getTimestamp() != null) {
+            values.put("timestamp", message.getTimestamp().getTime());
+        }
+        values.put("is_read", message.isRead() ? 1 : 0);
+        values.put("attachment_url", message.getAttachmentUrl());
+        values.put("attachment_name", message.getAttachmentName());
+        return values;
+    }
+
+    /**
+     * Mapper de lignes chat_rooms: index de colonnes résolus une fois par curseur
+     */
+    private static final class ChatRoomRowMapper {
+        private final int id, name, displayName, description, roomType;
+        private final int projectId, projectName, departmentName, unreadCount, lastActivity;
+
+        ChatRoomRowMapper(Cursor cursor) {
+            id = cursor.getColumnIndexOrThrow(COLUMN_ID);
+            name = cursor.getColumnIndexOrThrow(COLUMN_NAME);
+            displayName = cursor.getColumnIndexOrThrow("display_name");
+            description = cursor.getColumnIndexOrThrow(COLUMN_DESCRIPTION);
+            roomType = cursor.getColumnIndexOrThrow("room_type");
+            projectId = cursor.getColumnIndexOrThrow(COLUMN_PROJECT_ID);
+            projectName = cursor.getColumnIndexOrThrow("project_name");
+            departmentName = cursor.getColumnIndexOrThrow("department_name");
+            unreadCount = cursor.getColumnIndexOrThrow("unread_count");
+            lastActivity = cursor.getColumnIndexOrThrow("last_activity");
+        }
+
+        ChatRoom map(Cursor cursor) {
+            ChatRoom room = new ChatRoom();
+            room.setId(cursor.getInt(id));
+            room.setName(cursor.getString(name));
+            room.setDisplayName(cursor.getString(displayName));
+            room.setDescription(cursor.getString(description));
+            room.setRoomType(cursor.getString(roomType));
+            room.setType(room.getRoomType());
+            room.setProjectId(cursor.getInt(projectId));
+            room.setProjectName(cursor.getString(projectName));
+            room.setDepartmentName(cursor.getString(departmentName));
+            room.setUnreadCount(cursor.getInt(unreadCount));
+            if (!cursor.isNull(lastActivity)) {
+                room.setLastActivity(new java.util.Date(cursor.getLong(lastActivity)));
+            }
+            room.setActive(true);
+            return room;
+        }
+    }
+
+    /**
+     * Mapper de lignes chat_messages: index de colonnes résolus une fois par curseur
+     */
+    private static final class ChatMessageRowMapper {
+        private final int id, roomId, senderId, senderName, content, messageType;
+        private final int timestamp, isRead, attachmentUrl, attachmentName;
+
+        ChatMessageRowMapper(Cursor cursor) {
+            id = cursor.getColumnIndexOrThrow(COLUMN_ID);
+            roomId = cursor.getColumnIndexOrThrow("room_id");
+            senderId = cursor.getColumnIndexOrThrow("sender_id");
+            senderName = cursor.getColumnIndexOrThrow("sender_name");
+            content = cursor.getColumnIndexOrThrow("content");
+            messageType = cursor.getColumnIndexOrThrow("message_type");
+            timestamp = cursor.getColumnIndexOrThrow("timestamp");
+            isRead = cursor.getColumnIndexOrThrow("is_read");
+            attachmentUrl = cursor.getColumnIndexOrThrow("attachment_url");
+            attachmentName = cursor.getColumnIndexOrThrow("attachment_name");
+        }
+
+        ChatMessage map(Cursor cursor) {
+            ChatMessage message = new ChatMessage();
+            message.setId(cursor.getInt(id));
+            message.setChatRoomId(cursor.getInt(roomId));
+            message.setSenderId(cursor.getInt(senderId));
+            message.setSenderName(cursor.getString(senderName));
+            message.setContent(cursor.getString(content));
+            message.setMessageType(cursor.getString(messageType));
+            if (!cursor.isNull(timestamp)) {
+                message.setTimestamp(new java.util.Date(cursor.getLong(timestamp)));
+            }
+            message.setRead(cursor.getInt(isRead) == 1);
+            message.setAttachmentUrl(cursor.getString(attachmentUrl));
+            message.setAttachmentName(cursor.getString(attachmentName));
+            return message;
+        }
+    }
+
+    // ==================== JOURNAL D'ENVOI (V11) ====================
+
+    /**
+     * Alimente le journal à partir des lignes encore en attente (migration V11)
+     * Rapports/notes dans l'ordre de création, puis médias des notes après leur création
+     */
+    private void backfillOutbox(SQLiteDatabase db) {
+        long now = getCurrentTimestamp();
+        db.execSQL("INSERT INTO " + TABLE_SYNC_OUTBOX + "(entity_type, entity_id, op, " + COLUMN_CREATED_AT + ")" +
+            " SELECT '" + OutboxOperation.ENTITY_TIME_REPORT + "', " + COLUMN_ID + "," +
+            " CASE WHEN " + COLUMN_SERVER_ID + " > 0 THEN '" + OutboxOperation.OP_UPDATE + "'" +
+            " ELSE '" + OutboxOperation.OP_CREATE + "' END, " + now +
+            " FROM " + TABLE_TIME_REPORTS +
+            " WHERE " + COLUMN_SYNC_STATUS + " IN ('pending', 'failed')" +
+            " ORDER BY " + COLUMN_ID);
+        db.execSQL("INSERT INTO " + TABLE_SYNC_OUTBOX + "(entity_type, entity_id, op, " + COLUMN_CREATED_AT + ")" +
+            " SELECT '" + OutboxOperation.ENTITY_PROJECT_NOTE + "', " + COLUMN_ID + ", '" + OutboxOperation.OP_CREATE + "', " + now +
+            " FROM " + TABLE_PROJECT_NOTES +
+            " WHERE " + COLUMN_SYNC_STATUS + " IN ('pending', 'failed')" +
+            " ORDER BY " + COLUMN_ID);
+        db.execSQL("INSERT INTO " + TABLE_SYNC_OUTBOX + "(entity_type, entity_id, op, depends_on, " + COLUMN_CREATED_AT + ")" +
+            " SELECT o.entity_type, o.entity_id, '" + OutboxOperation.OP_MEDIA + "', o." + COLUMN_ID + ", " + now +
+            " FROM " + TABLE_SYNC_OUTBOX + " o JOIN " + TABLE_PROJECT_NOTES + " n ON n." + COLUMN_ID + " = o.entity_id" +
+            " WHERE o.entity_type = '" + OutboxOperation.ENTITY_PROJECT_NOTE + "'" +
+            " AND o.op = '" + OutboxOperation.OP_CREATE + "'" +
+            " AND n.local_file_path IS NOT NULL AND n.local_file_path != ''" +
+            " ORDER BY o." + COLUMN_ID);
+
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + TABLE_SYNC_OUTBOX, null);
+        int count = cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        cursor.close();
+        Log.d(TAG, "✅ " + count + " opérations en attente reprises dans sync_outbox");
+    }
+
+    private long appendOutboxOperation(SQLiteDatabase db, String entityType, long entityId,
+                                       String operation, long dependsOn) {
+        return appendOutboxOperation(db, entityType, entityId, operation, dependsOn, 0);
+    }
+
+    /**
+     * Ajoute une opération au journal (dans la transaction de l'appelant)
+     * @param dependsOn ID de l'opération à acquitter avant celle-ci (0 = aucune)
+     * @return ID de l'opération
+     */
+    private long appendOutboxOperation(SQLiteDatabase db, String entityType, long entityId,
+                                       String operation, long dependsOn, int serverId) {
+        SQLiteStatement insert = pooledStatement(db, SQL_INSERT_OUTBOX_OPERATION);
+        insert.bindString(1, entityType);
+        insert.bindLong(2, entityId);
+        insert.bindString(3, operation);
+        if (dependsOn > 0) {
+            insert.bindLong(4, dependsOn);
+        } else {
+            insert.bindNull(4);
+        }
+        bindPositiveInt(insert, 5, serverId);
+        insert.bindLong(6, getCurrentTimestamp());
+        return executeInsert(insert);
+    }
+
+    /**
+     * Dernière opération create/update/delete en attente d'une entité (0 si aucune)
+     * Les médias sont exclus: une modification n'attend pas la fin d'un upload de fichier
+     */
+    private long findLastOutboxOperation(SQLiteDatabase db, String entityType, long entityId) {
+        Cursor cursor = db.rawQuery(
+            "SELECT MAX(" + COLUMN_ID + ") FROM " + TABLE_SYNC_OUTBOX +
+            " WHERE entity_type = ? AND entity_id = ? AND op != '" + OutboxOperation.OP_MEDIA + "'",
+            new String[]{entityType, String.valueOf(entityId)});
+        try {
+            return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Suppression locale: propagée seulement si l'entité existe côté serveur ou a des envois en attente
+     */
+    private void appendDeleteOperation(SQLiteDatabase db, String entityType, long entityId, int serverId) {
+        long previous = findLastOutboxOperation(db, entityType, entityId);
+        if (serverId <= 0 && previous == 0) {
+            return;
+        }
+        appendOutboxOperation(db, entityType, entityId, OutboxOperation.OP_DELETE, previous, serverId);
+    }
+
+    private int findServerId(SQLiteDatabase db, String table, long localId) {
+        Cursor cursor = db.rawQuery(
+            "SELECT " + COLUMN_SERVER_ID + " FROM " + table + " WHERE " + COLUMN_ID + " = ?",
+            new String[]{String.valueOf(localId)});
+        try {
+            return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Enregistre une modification locale d'une entité existante
+     * L'opération attend la précédente opération de la même entité (ordre par entité garanti)
+     * @return ID de l'opération
+     */
+    public synchronized long enqueueOutboxOperation(String entityType, long entityId, String operation) {
         SQLiteDatabase db = this.getWritableDatabase();
-        db.delete(TABLE_PROJECT_NOTES, null, null);
-        db.delete(TABLE_NOTE_TYPES, null, null);
-        db.delete(TABLE_TIME_REPORTS, null, null);
-        db.delete(TABLE_WORK_TYPES, null, null);
-        db.delete(TABLE_PROJECTS, null, null);
+        long id = appendOutboxOperation(db, entityType, entityId, operation,
+            findLastOutboxOperation(db, entityType, entityId));
+        Log.d(TAG, "Opération ajoutée au journal: #" + id + " " + OutboxOperation.key(entityType, operation) + " (entité " + entityId + ")");
+        return id;
+    }
 
-        Log.d(TAG, "Toutes les données locales supprimées");
+    /**
+     * Opérations prêtes à être envoyées, dans l'ordre du journal
+     * Une opération dont la dépendance est encore en attente n'est pas retournée
+     */
+    public List<OutboxOperation> getReadyOutboxOperations(int limit) {
+        return getReadyOutboxOperations(null, limit);
     }
 
-    public synchronized long getDatabaseSize() {
+    /**
+     * Opérations prêtes limitées aux clés "entité:opération" données (null = toutes)
+     * Les opérations sans handler dans le contexte de l'appelant n'occupent pas la page
+     */
+    public List<OutboxOperation> getReadyOutboxOperations(Collection<String> keys, int limit) {
         SQLiteDatabase db = this.getReadableDatabase();
-        long size = 0;
+        StringBuilder sql = new StringBuilder(QUERY_OUTBOX_READY);
+        List<String> args = new ArrayList<>();
+        if (keys != null) {
+            sql.append(" AND (o.entity_type || ':' || o.op) IN (").append(placeholders(keys.size())).append(")");
+            args.addAll(keys);
+        }
+        sql.append(" ORDER BY o.").append(COLUMN_ID).append(" LIMIT ?");
+        args.add(String.valueOf(limit));
+        return readOutboxOperations(db.rawQuery(sql.toString(), args.toArray(new String[0])));
+    }
 
-        // Taille de chaque table
-        String[] tables = {TABLE_PROJECTS, TABLE_WORK_TYPES, TABLE_TIME_REPORTS, TABLE_PROJECT_NOTES, TABLE_NOTE_TYPES};
-        for (String table : tables) {
-            Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + table, null);
-            if (cursor.moveToFirst()) {
-                size += cursor.getInt(0);
+    /**
+     * Toutes les opérations en attente, dans l'ordre du journal (coalescence avant envoi)
+     */
+    public List<OutboxOperation> getAllOutboxOperations() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        return readOutboxOperations(db.rawQuery(
+            "SELECT * FROM " + TABLE_SYNC_OUTBOX + " ORDER BY " + COLUMN_ID, null));
+    }
+
+    private List<OutboxOperation> readOutboxOperations(Cursor cursor) {
+        List<OutboxOperation> operations = new ArrayList<>();
+        try {
+            int idIndex = cursor.getColumnIndexOrThrow(COLUMN_ID);
+            int entityTypeIndex = cursor.getColumnIndexOrThrow("entity_type");
+            int entityIdIndex = cursor.getColumnIndexOrThrow("entity_id");
+            int opIndex = cursor.getColumnIndexOrThrow("op");
+            int dependsOnIndex = cursor.getColumnIndexOrThrow("depends_on");
+            int serverIdIndex = cursor.getColumnIndexOrThrow(COLUMN_SERVER_ID);
+            int attemptsIndex = cursor.getColumnIndexOrThrow("attempts");
+            int lastErrorIndex = cursor.getColumnIndexOrThrow("last_error");
+            int createdAtIndex = cursor.getColumnIndexOrThrow(COLUMN_CREATED_AT);
+            while (cursor.moveToNext()) {
+                OutboxOperation operation = new OutboxOperation();
+                operation.setId(cursor.getLong(idIndex));
+                operation.setEntityType(cursor.getString(entityTypeIndex));
+                operation.setEntityId(cursor.getLong(entityIdIndex));
+                operation.setOperation(cursor.getString(opIndex));
+                if (!cursor.isNull(dependsOnIndex)) operation.setDependsOn(cursor.getLong(dependsOnIndex));
+                if (!cursor.isNull(serverIdIndex)) operation.setServerId(cursor.getInt(serverIdIndex));
+                operation.setAttempts(cursor.getInt(attemptsIndex));
+                operation.setLastError(cursor.getString(lastErrorIndex));
+                operation.setCreatedAt(cursor.getLong(createdAtIndex));
+                operations.add(operation);
             }
+        } finally {
             cursor.close();
         }
+        return operations;
+    }
 
-        return size;
+    /**
+     * Applique une coalescence du journal en une transaction
+     * @param removed opérations supprimées sans envoi
+     * @param rewired ID d'opération → nouvelle dépendance (0 = aucune)
+     */
+    public synchronized void applyOutboxCoalescing(Collection<Long> removed, Map<Long, Long> rewired) {
+        if (removed.isEmpty() && rewired.isEmpty()) {
+            return;
+        }
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Long operationId : removed) {
+                db.delete(TABLE_SYNC_OUTBOX, COLUMN_ID + " = ?", new String[]{String.valueOf(operationId)});
+            }
+            for (Map.Entry<Long, Long> entry : rewired.entrySet()) {
+                ContentValues values = new ContentValues();
+                if (entry.getValue() > 0) {
+                    values.put("depends_on", entry.getValue());
+                } else {
+                    values.putNull("depends_on");
+                }
+                db.update(TABLE_SYNC_OUTBOX, values, COLUMN_ID + " = ?", new String[]{String.valueOf(entry.getKey())});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        Log.d(TAG, "Journal coalescé: " + removed.size() + " opérations retirées");
     }
 
-    // ==================== MÉTHODES POUR STATISTIQUES UTILISATEUR ====================
+    /**
+     * Nombre d'opérations en attente dans le journal
+     */
+    public int getOutboxSize() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + TABLE_SYNC_OUTBOX, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
 
     /**
-     * ✅ NOUVEAU: Compte le nombre de rapports de temps pour un utilisateur
+     * Indique si une entité a encore des opérations en attente
      */
-    public synchronized int getTimeReportsCount(int userId) {
+    public boolean hasOutboxOperations(String entityType, long entityId) {
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = db.rawQuery(
-            "SELECT COUNT(*) FROM " + TABLE_TIME_REPORTS +
-            " WHERE " + COLUMN_EMPLOYEE_ID + " = ?",
-            new String[]{String.valueOf(userId)});
-
-        int count = 0;
-        if (cursor.moveToFirst()) {
-            count = cursor.getInt(0);
+            "SELECT 1 FROM " + TABLE_SYNC_OUTBOX + " WHERE entity_type = ? AND entity_id = ? LIMIT 1",
+            new String[]{entityType, String.valueOf(entityId)});
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
         }
-
-        cursor.close();
-
-        Log.d(TAG, "Nombre de rapports pour l'utilisateur " + userId + ": " + count);
-        return count;
     }
 
     /**
-     * ✅ NOUVEAU: Calcule le total d'heures pour un utilisateur
+     * Indique si une opération donnée est en attente pour une entité
      */
-    public synchronized double getTotalHours(int userId) {
+    public boolean hasOutboxOperation(String entityType, long entityId, String operation) {
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = db.rawQuery(
-            "SELECT SUM(" + COLUMN_HOURS + ") FROM " + TABLE_TIME_REPORTS +
-            " WHERE " + COLUMN_EMPLOYEE_ID + " = ?",
-            new String[]{String.valueOf(userId)});
+            "SELECT 1 FROM " + TABLE_SYNC_OUTBOX + " WHERE entity_type = ? AND entity_id = ? AND op = ? LIMIT 1",
+            new String[]{entityType, String.valueOf(entityId), operation});
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
 
-        double totalHours = 0.0;
-        if (cursor.moveToFirst()) {
-            totalHours = cursor.getDouble(0);
+    /**
+     * Nombre d'opérations en attente d'un type donné (ex: médias)
+     */
+    public int countOutboxOperations(String entityType, String operation) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(
+            "SELECT COUNT(*) FROM " + TABLE_SYNC_OUTBOX + " WHERE entity_type = ? AND op = ?",
+            new String[]{entityType, operation});
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
         }
+    }
 
-        cursor.close();
+    /**
+     * Acquitte une opération (supprimée du journal, ses dépendantes deviennent prêtes)
+     */
+    public synchronized void completeOutboxOperation(long operationId) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.delete(TABLE_SYNC_OUTBOX, COLUMN_ID + " = ?", new String[]{String.valueOf(operationId)});
+    }
 
-        Log.d(TAG, "Total d'heures pour l'utilisateur " + userId + ": " + totalHours);
-        return totalHours;
+    /**
+     * Acquitte un lot d'opérations en une transaction
+     */
+    public synchronized void completeOutboxOperations(Collection<Long> operationIds) {
+        if (operationIds.isEmpty()) {
+            return;
+        }
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (Long operationId : operationIds) {
+                db.delete(TABLE_SYNC_OUTBOX, COLUMN_ID + " = ?", new String[]{String.valueOf(operationId)});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
     }
 
-    // ==================== MÉTHODES POUR GESTION FICHIERS MULTIMÉDIA (V7) ====================
+    /**
+     * Échec d'envoi: l'opération reste en file avec son erreur
+     * Après OutboxOperation.MAX_ATTEMPTS échecs elle est mise de côté (plus retournée comme prête)
+     */
+    public synchronized void failOutboxOperation(long operationId, String error) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.execSQL("UPDATE " + TABLE_SYNC_OUTBOX + " SET attempts = attempts + 1, last_error = ?" +
+            " WHERE " + COLUMN_ID + " = ?", new Object[]{error, operationId});
+    }
 
     /**
-     * ✅ NOUVEAU (V7): Récupère les notes avec fichiers en attente d'upload
+     * Nombre d'opérations mises de côté après trop d'échecs
      */
-    public synchronized List<ProjectNote> getPendingMediaUploads() {
-        List<ProjectNote> pendingMedia = new ArrayList<>();
+    public int countParkedOutboxOperations() {
         SQLiteDatabase db = this.getReadableDatabase();
-
-        // Récupérer toutes les notes avec local_file_path ET sync_status = "pending"
         Cursor cursor = db.rawQuery(
-            "SELECT * FROM " + TABLE_PROJECT_NOTES +
-            " WHERE local_file_path IS NOT NULL" +
-            " AND local_file_path != ''" +
-            " AND " + COLUMN_SYNC_STATUS + " = 'pending'" +
-            " ORDER BY " + COLUMN_CREATED_AT + " DESC",
-            null
-        );
+            "SELECT COUNT(*) FROM " + TABLE_SYNC_OUTBOX + " WHERE attempts >= " + OutboxOperation.MAX_ATTEMPTS, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
 
-        while (cursor.moveToNext()) {
+    /**
+     * Remet en file les opérations mises de côté (synchronisation relancée par l'utilisateur)
+     */
+    public synchronized void resetParkedOutboxOperations() {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.execSQL("UPDATE " + TABLE_SYNC_OUTBOX + " SET attempts = 0" +
+            " WHERE attempts >= " + OutboxOperation.MAX_ATTEMPTS);
+    }
+
+    /**
+     * ID serveur obtenu après la suppression locale de l'entité (création en vol):
+     * reporté sur la suppression en attente pour qu'elle soit propagée
+     */
+    public synchronized void setOutboxDeleteServerId(String entityType, long entityId, int serverId) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_SERVER_ID, serverId);
+        db.update(TABLE_SYNC_OUTBOX, values,
+            "entity_type = ? AND entity_id = ? AND op = '" + OutboxOperation.OP_DELETE + "'",
+            new String[]{entityType, String.valueOf(entityId)});
+    }
+
+    /**
+     * Charge des rapports par ID local (IN par paquets)
+     */
+    public Map<Long, TimeReport> getTimeReportsByIds(List<Long> localIds) {
+        Map<Long, TimeReport> reports = new HashMap<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        for (int start = 0; start < localIds.size(); start += MAX_SQL_VARIABLES) {
+            List<Long> chunk = localIds.subList(start, Math.min(start + MAX_SQL_VARIABLES, localIds.size()));
+            String[] args = new String[chunk.size()];
+            for (int i = 0; i < chunk.size(); i++) {
+                args[i] = String.valueOf(chunk.get(i));
+            }
+            Cursor cursor = db.rawQuery(
+                "SELECT * FROM " + TABLE_TIME_REPORTS +
+                " WHERE " + COLUMN_ID + " IN (" + placeholders(chunk.size()) + ")", args);
             try {
-                ProjectNote note = cursorToProjectNote(cursor);
-                pendingMedia.add(note);
-            } catch (Exception e) {
-                Log.e(TAG, "Erreur conversion note: " + e.getMessage());
+                TimeReportRowMapper mapper = new TimeReportRowMapper(cursor);
+                while (cursor.moveToNext()) {
+                    TimeReport report = mapper.map(cursor);
+                    reports.put((long) report.getId(), report);
+                }
+            } finally {
+                cursor.close();
             }
         }
-
-        cursor.close();
-        Log.d(TAG, "Notes avec fichiers en attente d'upload: " + pendingMedia.size());
-        return pendingMedia;
+        return reports;
     }
 
     /**
-     * ✅ NOUVEAU (V7): Met à jour le progress d'upload d'un fichier
+     * Enregistre l'ID serveur d'une note sans changer son statut (média encore à envoyer)
      */
-    public synchronized void updateUploadProgress(long noteId, int progress) {
+    public synchronized void setProjectNoteServerId(long localId, int serverId) {
         SQLiteDatabase db = this.getWritableDatabase();
-
         ContentValues values = new ContentValues();
-        values.put("upload_progress", progress);
+        values.put(COLUMN_SERVER_ID, serverId);
         values.put(COLUMN_UPDATED_AT, getCurrentTimestamp());
-
-        int rows = db.update(
-            TABLE_PROJECT_NOTES,
-            values,
-            COLUMN_ID + " = ?",
-            new String[]{String.valueOf(noteId)}
-        );
-
-        Log.d(TAG, "Progress mis à jour pour note #" + noteId + ": " + progress + "%");
+        db.update(TABLE_PROJECT_NOTES, values, COLUMN_ID + " = ?", new String[]{String.valueOf(localId)});
+        notifyTableChanged(TABLE_PROJECT_NOTES);
     }
 
     /**
@@ -1760,12 +4137,13 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
         );
 
         Log.d(TAG, "Note #" + noteId + " marquée comme synchronisée avec URL: " + serverUrl);
+        notifyTableChanged(TABLE_PROJECT_NOTES);
     }
 
     /**
      * ✅ NOUVEAU (V7): Compte le nombre de fichiers en attente d'upload
      */
-    public synchronized int getPendingMediaUploadsCount() {
+    public int getPendingMediaUploadsCount() {
         SQLiteDatabase db = this.getReadableDatabase();
 
         Cursor cursor = db.rawQuery(
@@ -1788,7 +4166,7 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
     /**
      * ✅ NOUVEAU (V7): Récupère les notes avec fichiers synchronisés (pour nettoyage cache)
      */
-    public synchronized List<ProjectNote> getSyncedMediaOlderThan(long timestampMs) {
+    public List<ProjectNote> getSyncedMediaOlderThan(long timestampMs) {
         List<ProjectNote> oldMedia = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
 
@@ -1807,9 +4185,10 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
             new String[]{dateLimit}
         );
 
+        NoteRowMapper mapper = new NoteRowMapper(cursor);
         while (cursor.moveToNext()) {
             try {
-                ProjectNote note = cursorToProjectNote(cursor);
+                ProjectNote note = mapper.map(cursor);
                 oldMedia.add(note);
             } catch (Exception e) {
                 Log.e(TAG, "Erreur conversion note: " + e.getMessage());
@@ -1846,7 +4225,7 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
      * Marque une note comme synchronisée
      * @param noteId ID local de la note
      */
-    public void markNoteAsSynced(int noteId) {
+    public synchronized void markNoteAsSynced(int noteId) {
         SQLiteDatabase db = this.getWritableDatabase();
 
         ContentValues values = new ContentValues();
@@ -1863,6 +4242,7 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
         );
 
         Log.d(TAG, "Note #" + noteId + " marquée comme synchronisée (" + rows + " rows updated)");
+        notifyTableChanged(TABLE_PROJECT_NOTES);
     }
 
     /**
@@ -1870,7 +4250,7 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
      * @param localId ID local de la note
      * @param serverId ID retourné par le serveur
      */
-    public void updateNoteServerId(int localId, int serverId) {
+    public synchronized void updateNoteServerId(int localId, int serverId) {
         SQLiteDatabase db = this.getWritableDatabase();
 
         ContentValues values = new ContentValues();
@@ -1887,51 +4267,22 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
         );
 
         Log.d(TAG, "Note #" + localId + " server_id mis à jour: " + serverId + " (" + rows + " rows)");
+        notifyTableChanged(TABLE_PROJECT_NOTES);
     }
 
     /**
      * ✅ NOUVEAU: Récupère les rapports de temps dans une plage de dates
      * Pour les statistiques du dashboard
      */
-    public synchronized List<TimeReport> getTimeReportsByDateRange(String startDate, String endDate) {
+    public List<TimeReport> getTimeReportsByDateRange(String startDate, String endDate) {
         List<TimeReport> reports = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
 
-        Cursor cursor = db.query(
-            TABLE_TIME_REPORTS,
-            null, // toutes les colonnes
-            COLUMN_REPORT_DATE + " >= ? AND " + COLUMN_REPORT_DATE + " <= ?",
-            new String[]{startDate, endDate},
-            null, null,
-            COLUMN_REPORT_DATE + " DESC"
-        );
-
-        if (cursor.moveToFirst()) {
-            do {
-                TimeReport report = new TimeReport();
-                report.setId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_ID)));
-                report.setProjectId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_PROJECT_ID)));
-                report.setEmployeeId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_EMPLOYEE_ID)));
-                report.setWorkTypeId(cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_WORK_TYPE_ID)));
-                report.setReportDate(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_REPORT_DATE)));
-                report.setDatetimeFrom(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DATETIME_FROM)));
-                report.setDatetimeTo(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DATETIME_TO)));
-                report.setHours(cursor.getDouble(cursor.getColumnIndexOrThrow(COLUMN_HOURS)));
-                report.setDescription(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DESCRIPTION)));
-                report.setValidationStatus(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_VALIDATION_STATUS)));
-                report.setProjectName(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_PROJECT_NAME)));
-                report.setWorkTypeName(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_WORK_TYPE_NAME)));
-                report.setDateCreated(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DATE_CREATED)));
-                report.setDateUpdated(cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_DATE_UPDATED)));
-
-                // ✅ FIX: Lire le server_id
-                int serverIdIndex = cursor.getColumnIndex(COLUMN_SERVER_ID);
-                if (serverIdIndex >= 0 && !cursor.isNull(serverIdIndex)) {
-                    report.setServerId(cursor.getInt(serverIdIndex));
-                }
+        Cursor cursor = db.rawQuery(QUERY_TIME_REPORTS_BY_DATE_RANGE, new String[]{startDate, endDate});
 
-                reports.add(report);
-            } while (cursor.moveToNext());
+        TimeReportRowMapper mapper = new TimeReportRowMapper(cursor);
+        while (cursor.moveToNext()) {
+            reports.add(mapper.map(cursor));
         }
 
         cursor.close();
@@ -1940,11 +4291,125 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
         return reports;
     }
 
+    /**
+     * ✅ Page de rapports d'une plage de dates, pagination par clé sur (report_date, id)
+     * Même ordre que getTimeReportsByDateRange(), départagé par l'ID local. L'ID étant le rowid,
+     * idx_time_reports_report_date fournit déjà cet ordre: la page est lue dans l'index, sans tri.
+     *
+     * @param after dernier rapport de la page précédente (null = première page)
+     */
+    public List<TimeReport> getTimeReportsPage(String startDate, String endDate, TimeReport after, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM " + TABLE_TIME_REPORTS +
+            " WHERE " + COLUMN_REPORT_DATE + " >= ? AND " + COLUMN_REPORT_DATE + " <= ?");
+        List<String> args = new ArrayList<>();
+        args.add(startDate);
+        args.add(endDate);
+
+        if (after != null) {
+            String reportDate = after.getReportDate() != null ? after.getReportDate() : "";
+            sql.append(" AND (" + COLUMN_REPORT_DATE + " < ?" +
+                " OR (" + COLUMN_REPORT_DATE + " = ? AND " + COLUMN_ID + " < ?))");
+            args.add(reportDate);
+            args.add(reportDate);
+            args.add(String.valueOf(after.getId()));
+        }
+
+        sql.append(" ORDER BY " + COLUMN_REPORT_DATE + " DESC, " + COLUMN_ID + " DESC LIMIT ?");
+        args.add(String.valueOf(limit));
+
+        List<TimeReport> reports = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(sql.toString(), args.toArray(new String[0]));
+        try {
+            TimeReportRowMapper mapper = new TimeReportRowMapper(cursor);
+            while (cursor.moveToNext()) {
+                reports.add(mapper.map(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+        return reports;
+    }
+
+    /**
+     * Nombre de rapports d'une plage de dates (COUNT(*) sur idx_time_reports_report_date)
+     */
+    public int countTimeReports(String startDate, String endDate) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + TABLE_TIME_REPORTS +
+            " WHERE " + COLUMN_REPORT_DATE + " >= ? AND " + COLUMN_REPORT_DATE + " <= ?",
+            new String[]{startDate, endDate});
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * ✅ Rapports par IDs locaux, dans l'ordre des IDs fournis (IDs absents ignorés)
+     */
+    public List<TimeReport> getTimeReportsByLocalIds(List<Integer> localIds) {
+        Map<Integer, TimeReport> byId = new HashMap<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        for (int start = 0; start < localIds.size(); start += MAX_SQL_VARIABLES) {
+            List<Integer> chunk = localIds.subList(start, Math.min(start + MAX_SQL_VARIABLES, localIds.size()));
+            Cursor cursor = db.rawQuery("SELECT * FROM " + TABLE_TIME_REPORTS +
+                " WHERE " + COLUMN_ID + " IN (" + placeholders(chunk.size()) + ")", toArgs(chunk));
+            try {
+                TimeReportRowMapper mapper = new TimeReportRowMapper(cursor);
+                while (cursor.moveToNext()) {
+                    TimeReport report = mapper.map(cursor);
+                    byId.put(report.getId(), report);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        List<TimeReport> reports = new ArrayList<>();
+        for (Integer localId : localIds) {
+            TimeReport report = byId.get(localId);
+            if (report != null) {
+                reports.add(report);
+            }
+        }
+        return reports;
+    }
+
+    /**
+     * ✅ Heures agrégées par (jour, projet, type de travail) sur une plage de dates, en une requête
+     * Lues depuis daily_hours_rollup (V12): le coût dépend du nombre de jours, pas du nombre de rapports.
+     * Les totaux, répartitions et tendances sont ensuite dérivés sans relire la base (HoursAggregate).
+     */
+    public List<HoursAggregate.Row> getHoursByDayProjectWorkType(String startDate, String endDate) {
+        List<HoursAggregate.Row> rows = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery(QUERY_HOURS_BY_DAY_PROJECT_WORK_TYPE, new String[]{startDate, endDate});
+        try {
+            while (cursor.moveToNext()) {
+                HoursAggregate.Row row = new HoursAggregate.Row();
+                row.date = cursor.getString(0);
+                row.projectId = cursor.isNull(1) ? 0 : cursor.getInt(1);
+                row.workTypeId = cursor.isNull(2) ? 0 : cursor.getInt(2);
+                row.projectName = cursor.getString(3);
+                row.workTypeName = cursor.getString(4);
+                row.hours = cursor.getDouble(5);
+                row.entries = cursor.getInt(6);
+                rows.add(row);
+            }
+        } finally {
+            cursor.close();
+        }
+        Log.d(TAG, "Heures agrégées " + startDate + " - " + endDate + ": " + rows.size() + " groupes");
+        return rows;
+    }
+
     /**
      * ✅ NOUVEAU: Récupère un projet par son ID
      * Pour les statistiques du dashboard
      */
-    public synchronized Project getProjectById(int projectId) {
+    public Project getProjectById(int projectId) {
         SQLiteDatabase db = this.getReadableDatabase();
         Project project = null;
 
@@ -1976,17 +4441,28 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
      */
     public synchronized boolean deleteTimeReport(int reportId) {
         SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
         try {
             int rowsAffected = db.delete(
                 TABLE_TIME_REPORTS,
                 COLUMN_ID + " = ?",
                 new String[]{String.valueOf(reportId)}
             );
+            if (rowsAffected > 0) {
+                // Pas d'endpoint de suppression des rapports: les envois en attente sont abandonnés,
+                // rien n'est ajouté au journal
+                db.delete(TABLE_SYNC_OUTBOX, "entity_type = ? AND entity_id = ?",
+                    new String[]{OutboxOperation.ENTITY_TIME_REPORT, String.valueOf(reportId)});
+            }
+            db.setTransactionSuccessful();
             Log.d(TAG, "Rapport de temps supprimé: ID=" + reportId + ", lignes=" + rowsAffected);
             return rowsAffected > 0;
         } catch (Exception e) {
             Log.e(TAG, "Erreur suppression rapport de temps ID=" + reportId, e);
             return false;
+        } finally {
+            db.endTransaction();
+            notifyTableChanged(TABLE_TIME_REPORTS);
         }
     }
 
@@ -1997,17 +4473,27 @@ public class OfflineDatabaseHelper extends SQLiteOpenHelper {
      */
     public synchronized boolean deleteProjectNote(int noteId) {
         SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
         try {
+            int serverId = findServerId(db, TABLE_PROJECT_NOTES, noteId);
             int rowsAffected = db.delete(
                 TABLE_PROJECT_NOTES,
                 COLUMN_ID + " = ?",
                 new String[]{String.valueOf(noteId)}
             );
+            db.delete(TABLE_UPLOAD_SESSIONS, "note_id = ?", new String[]{String.valueOf(noteId)});
+            if (rowsAffected > 0) {
+                appendDeleteOperation(db, OutboxOperation.ENTITY_PROJECT_NOTE, noteId, serverId);
+            }
+            db.setTransactionSuccessful();
             Log.d(TAG, "Note de projet supprimée: ID=" + noteId + ", lignes=" + rowsAffected);
             return rowsAffected > 0;
         } catch (Exception e) {
             Log.e(TAG, "Erreur suppression note de projet ID=" + noteId, e);
             return false;
+        } finally {
+            db.endTransaction();
+            notifyTableChanged(TABLE_PROJECT_NOTES);
         }
     }
 }
@@ -0,0 +1,115 @@
+package com.ptms.mobile.database;
+
+import androidx.lifecycle.LiveData;
+
+import com.ptms.mobile.models.NoteType;
+import com.ptms.mobile.models.Project;
+import com.ptms.mobile.models.ProjectNote;
+import com.ptms.mobile.models.TimeReport;
+import com.ptms.mobile.models.WorkType;
+
+import java.util.List;
+
+/**
+ * ✅ Stockage local vu par les écrans et les gestionnaires
+ *
+ * Contrat des données hors ligne (projets, types de travail, rapports, notes, types de notes),
+ * indépendant du moteur: OfflineDatabaseHelper en est l'implémentation SQLite.
+ * Les méthodes observeXxx() renvoient un LiveData relancé uniquement quand une table
+ * dont la requête dépend est modifiée (voir TableLiveData).
+ *
+ * @version 1.0
+ * @date 2025-10-28
+ */
+public interface OfflineStore {
+
+    // ==================== PROJETS ====================
+
+    long insertProject(Project project);
+
+    void replaceAllProjects(List<Project> projects);
+
+    void applyProjectsDelta(List<Project> changed, List<Integer> deletedServerIds);
+
+    void clearProjects();
+
+    List<Project> getAllProjects();
+
+    Project getProjectById(int projectId);
+
+    int getProjectCount();
+
+    LiveData<List<Project>> observeProjects();
+
+    // ==================== TYPES DE TRAVAIL ====================
+
+    long insertWorkType(WorkType workType);
+
+    void replaceAllWorkTypes(List<WorkType> workTypes);
+
+    void applyWorkTypesDelta(List<WorkType> changed, List<Integer> deletedServerIds);
+
+    void clearWorkTypes();
+
+    List<WorkType> getAllWorkTypes();
+
+    LiveData<List<WorkType>> observeWorkTypes();
+
+    // ==================== RAPPORTS DE TEMPS ====================
+
+    long insertTimeReport(TimeReport report);
+
+    int updateTimeReport(TimeReport report);
+
+    boolean deleteTimeReport(int reportId);
+
+    TimeReport getTimeReportByServerId(int serverId);
+
+    List<TimeReport> getTimeReportsByDateRange(String startDate, String endDate);
+
+    List<TimeReport> getTimeReportsPage(String startDate, String endDate, TimeReport after, int limit);
+
+    int countTimeReports(String startDate, String endDate);
+
+    List<TimeReport> getAllPendingTimeReports();
+
+    int getPendingSyncCount();
+
+    List<HoursAggregate.Row> getHoursByDayProjectWorkType(String startDate, String endDate);
+
+    LiveData<Integer> observeTimeReportsCount(String startDate, String endDate);
+
+    LiveData<List<TimeReport>> observePendingTimeReports();
+
+    LiveData<List<HoursAggregate.Row>> observeHoursByDayProjectWorkType(String startDate, String endDate);
+
+    // ==================== NOTES ====================
+
+    long insertProjectNote(ProjectNote note);
+
+    boolean updateProjectNoteLocally(ProjectNote note);
+
+    boolean deleteProjectNote(int noteId);
+
+    ProjectNote getProjectNoteById(int localId);
+
+    List<ProjectNote> getAllNotesByUserId(int userId);
+
+    List<ProjectNote> getNotesPage(int userId, String noteGroup, boolean importantOnly, ProjectNote after, int limit);
+
+    int countNotes(int userId, String noteGroup, boolean importantOnly);
+
+    List<ProjectNote> getAllPendingProjectNotes();
+
+    LiveData<NoteCounts> observeNoteCounts(int userId, String noteGroup, boolean importantOnly);
+
+    // ==================== TYPES DE NOTES ====================
+
+    long insertNoteType(NoteType noteType);
+
+    void clearNoteTypes();
+
+    List<NoteType> getAllNoteTypes();
+
+    LiveData<List<NoteType>> observeNoteTypes();
+}
@@ -0,0 +1,98 @@
+package com.ptms.mobile.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * ✅ Vérificateur de plans d'exécution SQLite (EXPLAIN QUERY PLAN)
+ *
+ * Détecte les requêtes qui retombent sur un parcours complet de table
+ * ("SCAN TABLE x" sur les anciennes versions de SQLite, "SCAN x" sur les récentes).
+ * Utilisé en build debug par OfflineDatabaseHelper et par les tests Robolectric.
+ *
+ * @version 1.0
+ * @date 2025-10-24
+ */
+public final class QueryPlanChecker {
+
+    private static final String TAG = "QueryPlanChecker";
+
+    private QueryPlanChecker() {
+    }
+
+    /**
+     * Requête à auditer (SQL + arguments de test)
+     */
+    public static class HotQuery {
+        public final String name;
+        public final String sql;
+        public final String[] args;
+
+        public HotQuery(String name, String sql, String... args) {
+            this.name = name;
+            this.sql = sql;
+            this.args = args;
+        }
+    }
+
+    /**
+     * Retourne les lignes du plan d'exécution (colonne "detail")
+     */
+    public static List<String> explain(SQLiteDatabase db, String sql, String[] args) {
+        List<String> details = new ArrayList<>();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+        try {
+            int detailIndex = cursor.getColumnIndex("detail");
+            if (detailIndex < 0) {
+                detailIndex = cursor.getColumnCount() - 1;
+            }
+            while (cursor.moveToNext()) {
+                details.add(cursor.getString(detailIndex));
+            }
+        } finally {
+            cursor.close();
+        }
+        return details;
+    }
+
+    /**
+     * Indique si une ligne de plan correspond à un parcours complet de table
+     * ("SCAN" sans index ; "SEARCH" et "SCAN ... USING INDEX" sont acceptés)
+     */
+    public static boolean isFullTableScan(String detail) {
+        if (detail == null) {
+            return false;
+        }
+        String upper = detail.toUpperCase(Locale.US).trim();
+        return upper.startsWith("SCAN ")
+            && !upper.contains(" USING ")
+            && !upper.startsWith("SCAN CONSTANT ROW")
+            && !upper.startsWith("SCAN SUBQUERY");
+    }
+
+    /**
+     * Audite une liste de requêtes et retourne une description de chaque parcours complet
+     * @return liste vide si toutes les requêtes utilisent un index
+     */
+    public static List<String> findFullTableScans(SQLiteDatabase db, List<HotQuery> queries) {
+        List<String> violations = new ArrayList<>();
+        for (HotQuery query : queries) {
+            try {
+                for (String detail : explain(db, query.sql, query.args)) {
+                    if (isFullTableScan(detail)) {
+                        violations.add(query.name + " → " + detail);
+                    }
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Erreur EXPLAIN QUERY PLAN pour " + query.name, e);
+                violations.add(query.name + " → erreur: " + e.getMessage());
+            }
+        }
+        return violations;
+    }
+}
@@ -0,0 +1,275 @@
+package com.ptms.mobile.database;
+
+import android.graphics.Typeface;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.StyleSpan;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ✅ Index plein texte (FTS4) des notes, rapports et projets
+ *
+ * - Une table FTS par table source, en contenu externe (content=...): le texte n'est pas dupliqué,
+ *   l'index utilise l'ID local de la ligne comme docid
+ * - Tokenizer unicode61 avec suppression des accents: "ete" trouve "été", "Reunion" trouve "réunion"
+ * - Maintenu par triggers (voir createTriggers) dans la transaction de l'écriture source
+ * - Classement: fréquence des termes pondérée par colonne (matchinfo 'pcx'), calculé côté Java
+ *
+ * FTS5 n'est pas disponible dans le SQLite du framework Android: FTS4 est le module embarqué
+ * sur toutes les versions supportées (minSdk 24).
+ *
+ * @version 1.0
+ * @date 2025-10-28
+ */
+public final class SearchIndex {
+
+    // Délimiteurs des termes trouvés dans les extraits (convertis en gras par highlight())
+    public static final char MATCH_START = '\u0002';
+    public static final char MATCH_END = '\u0003';
+
+    static final String TOKENIZER = "tokenize=unicode61 \"remove_diacritics=1\"";
+
+    /**
+     * Définition de l'index d'une table source
+     */
+    static final class Source {
+        final String ftsTable;
+        final String contentTable;
+        final String[] columns;
+        final double[] weights;
+
+        Source(String ftsTable, String contentTable, String[] columns, double[] weights) {
+            this.ftsTable = ftsTable;
+            this.contentTable = contentTable;
+            this.columns = columns;
+            this.weights = weights;
+        }
+
+        String createTable() {
+            return "CREATE VIRTUAL TABLE IF NOT EXISTS " + ftsTable + " USING fts4(" +
+                "content=\"" + contentTable + "\", " + join("", ", ") + ", " + TOKENIZER + ")";
+        }
+
+        /**
+         * Triggers du modèle "contenu externe": suppression AVANT la modification de la ligne source
+         * (FTS4 relit l'ancien texte dans la table source), réindexation APRÈS.
+         * Les mises à jour ne portant pas sur les colonnes indexées (statut de sync, progression) sont ignorées.
+         */
+        String[] createTriggers() {
+            String updateOf = join("", ", ");
+            String deleteOld = "DELETE FROM " + ftsTable + " WHERE docid = OLD.rowid;";
+            String insertNew = "INSERT INTO " + ftsTable + "(docid, " + updateOf + ")" +
+                " VALUES (NEW.rowid, " + join("NEW.", ", ") + ");";
+            return new String[]{
+                "CREATE TRIGGER IF NOT EXISTS " + ftsTable + "_ai AFTER INSERT ON " + contentTable +
+                    " BEGIN " + insertNew + " END",
+                "CREATE TRIGGER IF NOT EXISTS " + ftsTable + "_bu BEFORE UPDATE OF " + updateOf + " ON " + contentTable +
+                    " BEGIN " + deleteOld + " END",
+                "CREATE TRIGGER IF NOT EXISTS " + ftsTable + "_au AFTER UPDATE OF " + updateOf + " ON " + contentTable +
+                    " BEGIN " + insertNew + " END",
+                "CREATE TRIGGER IF NOT EXISTS " + ftsTable + "_bd BEFORE DELETE ON " + contentTable +
+                    " BEGIN " + deleteOld + " END"
+            };
+        }
+
+        String rebuild() {
+            return "INSERT INTO " + ftsTable + "(" + ftsTable + ") VALUES('rebuild')";
+        }
+
+        private String join(String prefix, String separator) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) sb.append(separator);
+                sb.append(prefix).append(columns[i]);
+            }
+            return sb.toString();
+        }
+    }
+
+    // Le titre pèse plus que le corps du texte
+    static final Source NOTES = new Source("project_notes_fts", "project_notes",
+        new String[]{"title", "content", "transcription", "tags"}, new double[]{4.0, 1.0, 1.0, 2.0});
+
+    static final Source REPORTS = new Source("time_reports_fts", "time_reports",
+        new String[]{"project_name", "work_type_name", "description"}, new double[]{2.0, 1.5, 1.0});
+
+    static final Source PROJECTS = new Source("projects_fts", "projects",
+        new String[]{"name", "description"}, new double[]{4.0, 1.0});
+
+    static final Source[] ALL = {NOTES, REPORTS, PROJECTS};
+
+    public static final String NOTES_TABLE = NOTES.contentTable;
+    public static final String REPORTS_TABLE = REPORTS.contentTable;
+    public static final String PROJECTS_TABLE = PROJECTS.contentTable;
+
+    /**
+     * Résultat de recherche: l'élément, son score et un extrait avec les termes trouvés
+     */
+    public static class Hit<T> {
+        public final T item;
+        public final double score;
+        public final String snippet;
+
+        public Hit(T item, double score, String snippet) {
+            this.item = item;
+            this.score = score;
+            this.snippet = snippet;
+        }
+    }
+
+    /**
+     * docid + score, avant chargement des lignes
+     */
+    static class RankedId implements Comparable<RankedId> {
+        final long docId;
+        final double score;
+
+        RankedId(long docId, double score) {
+            this.docId = docId;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(RankedId other) {
+            int byScore = Double.compare(other.score, score);
+            return byScore != 0 ? byScore : Long.compare(other.docId, docId); // puis les plus récents
+        }
+    }
+
+    private SearchIndex() {
+    }
+
+    /**
+     * Convertit la saisie utilisateur en requête MATCH: chaque mot devient un préfixe ("chan" → chan*),
+     * tous les mots sont requis. La ponctuation et les opérateurs FTS sont neutralisés.
+     * @return null si la saisie ne contient aucun mot
+     */
+    public static String toMatchQuery(String input) {
+        StringBuilder match = new StringBuilder();
+        for (String token : tokenize(input)) {
+            if (match.length() > 0) match.append(' ');
+            match.append(token).append('*');
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+
+    /**
+     * Équivalent en mémoire d'un MATCH préfixé: chaque mot de la saisie doit commencer
+     * un mot de l'un des textes (mêmes règles de découpage et de suppression des accents)
+     * Sert à affiner des résultats déjà chargés quand la saisie s'allonge.
+     */
+    public static boolean matches(String input, String... texts) {
+        List<String> queryTokens = tokenize(input);
+        if (queryTokens.isEmpty()) {
+            return true;
+        }
+        List<String> textTokens = new ArrayList<>();
+        for (String text : texts) {
+            textTokens.addAll(tokenize(text));
+        }
+        for (String queryToken : queryTokens) {
+            boolean found = false;
+            for (String textToken : textTokens) {
+                if (textToken.startsWith(queryToken)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Découpe en mots (lettres/chiffres), en minuscules et sans accents, comme unicode61
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String folded = Normalizer.normalize(text.toLowerCase(), Normalizer.Form.NFD);
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= folded.length(); i++) {
+            char c = i < folded.length() ? folded.charAt(i) : ' ';
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c);
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Score d'une ligne à partir de matchinfo(fts, 'pcx')
+     * Pour chaque terme et colonne: poids × (occurrences dans la ligne / occurrences dans l'index)
+     */
+    static double rank(byte[] matchinfo, double[] weights) {
+        if (matchinfo == null || matchinfo.length < 8) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(matchinfo).order(ByteOrder.nativeOrder());
+        int phraseCount = buffer.getInt(0);
+        int columnCount = buffer.getInt(4);
+        double score = 0;
+        for (int phrase = 0; phrase < phraseCount; phrase++) {
+            for (int column = 0; column < columnCount; column++) {
+                int offset = 4 * (2 + 3 * (column + phrase * columnCount));
+                int hitsInRow = buffer.getInt(offset);
+                int hitsInAllRows = buffer.getInt(offset + 4);
+                if (hitsInRow > 0 && hitsInAllRows > 0) {
+                    double weight = column < weights.length ? weights[column] : 1.0;
+                    score += weight * hitsInRow / hitsInAllRows;
+                }
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Garde les meilleurs résultats (score décroissant)
+     */
+    static List<RankedId> top(List<RankedId> ranked, int limit) {
+        Collections.sort(ranked);
+        return ranked.size() > limit ? new ArrayList<>(ranked.subList(0, limit)) : ranked;
+    }
+
+    /**
+     * Extrait avec les termes trouvés en gras
+     */
+    public static CharSequence highlight(String snippet) {
+        SpannableStringBuilder builder = new SpannableStringBuilder();
+        if (snippet == null) {
+            return builder;
+        }
+        int matchStart = -1;
+        for (int i = 0; i < snippet.length(); i++) {
+            char c = snippet.charAt(i);
+            if (c == MATCH_START) {
+                matchStart = builder.length();
+            } else if (c == MATCH_END) {
+                if (matchStart >= 0 && matchStart < builder.length()) {
+                    builder.setSpan(new StyleSpan(Typeface.BOLD), matchStart, builder.length(),
+                        Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+                }
+                matchStart = -1;
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder;
+    }
+}
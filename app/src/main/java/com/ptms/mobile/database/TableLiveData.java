@@ -0,0 +1,105 @@
+package com.ptms.mobile.database;
+
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ✅ Requête locale observable, relancée quand une des tables dont elle dépend est modifiée
+ *
+ * - Abonnée aux notifications d'écriture (TableChangeListener) seulement tant qu'elle est observée
+ * - Une écriture sur une autre table ne relance pas la requête
+ * - Écritures rapprochées fusionnées: au plus une requête en cours et une en attente
+ * - Redevenue active après une pause (écran en arrière-plan): la requête est relancée une fois
+ *
+ * Les requêtes s'exécutent sur un thread de lecture dédié; la valeur est publiée sur le thread UI.
+ *
+ * @version 1.0
+ * @date 2025-10-28
+ */
+public class TableLiveData<T> extends LiveData<T> implements OfflineDatabaseHelper.TableChangeListener {
+
+    private static final String TAG = "TableLiveData";
+
+    // Lectures des LiveData, séparées du thread d'écriture
+    private static final ExecutorService READ_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ptms-db-observer");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    private final OfflineDatabaseHelper dbHelper;
+    private final Set<String> tables;
+    private final Callable<T> query;
+
+    private final AtomicBoolean invalid = new AtomicBoolean(true);
+    private final AtomicInteger queryCount = new AtomicInteger();
+
+    TableLiveData(OfflineDatabaseHelper dbHelper, Callable<T> query, String... tables) {
+        this.dbHelper = dbHelper;
+        this.query = query;
+        this.tables = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(tables)));
+    }
+
+    @Override
+    protected void onActive() {
+        dbHelper.addTableChangeListener(this);
+        if (invalid.get()) {
+            refresh();
+        }
+    }
+
+    @Override
+    protected void onInactive() {
+        // Plus notifiée: la prochaine activation relit les tables
+        dbHelper.removeTableChangeListener(this);
+        invalid.set(true);
+    }
+
+    @Override
+    public void onTableChanged(String table) {
+        if (tables.contains(table)) {
+            invalid.set(true);
+            refresh();
+        }
+    }
+
+    private void refresh() {
+        READ_EXECUTOR.execute(() -> {
+            // Tâches en file déjà couvertes par une requête plus récente: rien à faire
+            if (!invalid.compareAndSet(true, false)) {
+                return;
+            }
+            try {
+                queryCount.incrementAndGet();
+                postValue(query.call());
+            } catch (Exception e) {
+                Log.e(TAG, "❌ Erreur requête observée " + tables, e);
+            }
+        });
+    }
+
+    /**
+     * Tables dont dépend la requête
+     */
+    public Set<String> getTables() {
+        return tables;
+    }
+
+    /**
+     * Nombre d'exécutions de la requête (diagnostic, tests)
+     */
+    public int getQueryCount() {
+        return queryCount.get();
+    }
+}
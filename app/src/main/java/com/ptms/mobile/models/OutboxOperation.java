@@ -0,0 +1,79 @@
+package com.ptms.mobile.models;
+
+/**
+ * Modèle représentant une opération en attente dans le journal d'envoi (table sync_outbox)
+ *
+ * Les opérations sont rejouées dans l'ordre de leur ID. Une opération qui dépend
+ * d'une autre (depends_on) n'est envoyée qu'une fois celle-ci acquittée, par exemple
+ * l'upload d'un média après la création de sa note côté serveur.
+ */
+public class OutboxOperation {
+
+    // Types d'entité
+    public static final String ENTITY_TIME_REPORT = "time_report";
+    public static final String ENTITY_PROJECT_NOTE = "project_note";
+
+    // Opérations
+    public static final String OP_CREATE = "create";
+    public static final String OP_UPDATE = "update";
+    public static final String OP_DELETE = "delete";
+    public static final String OP_MEDIA = "media";
+
+    // Échecs au-delà desquels l'opération est mise de côté (ne bloque plus le journal)
+    public static final int MAX_ATTEMPTS = 5;
+
+    private long id;
+    private String entityType;
+    private long entityId;         // ID local de l'entité (time_reports.id / project_notes.id)
+    private String operation;
+    private long dependsOn;        // ID de l'opération préalable (0 = aucune)
+    private int serverId;          // ID serveur connu à l'enregistrement (suppressions)
+    private int attempts;
+    private String lastError;
+    private long createdAt;
+
+    public OutboxOperation() {}
+
+    public long getId() { return id; }
+    public void setId(long id) { this.id = id; }
+
+    public String getEntityType() { return entityType; }
+    public void setEntityType(String entityType) { this.entityType = entityType; }
+
+    public long getEntityId() { return entityId; }
+    public void setEntityId(long entityId) { this.entityId = entityId; }
+
+    public String getOperation() { return operation; }
+    public void setOperation(String operation) { this.operation = operation; }
+
+    public long getDependsOn() { return dependsOn; }
+    public void setDependsOn(long dependsOn) { this.dependsOn = dependsOn; }
+
+    public int getServerId() { return serverId; }
+    public void setServerId(int serverId) { this.serverId = serverId; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public long getCreatedAt() { return createdAt; }
+    public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
+
+    /**
+     * Clé de routage vers le handler du dispatcher ("time_report:create", "project_note:media", ...)
+     */
+    public String getKey() {
+        return key(entityType, operation);
+    }
+
+    public static String key(String entityType, String operation) {
+        return entityType + ":" + operation;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + id + " " + getKey() + " (entité " + entityId + ")";
+    }
+}
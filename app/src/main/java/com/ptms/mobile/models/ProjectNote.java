@@ -1,5 +1,7 @@
 package com.ptms.mobile.models;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -26,6 +28,7 @@ public class ProjectNote implements Serializable {
     private String transcription;
     private boolean isImportant;
     private List<String> tags;
+    private transient String tagsJson; // Tags lus en base, décodés au premier getTags()
     private String authorName;
     private String createdAt;
     private String updatedAt;
@@ -78,7 +81,13 @@ public class ProjectNote implements Serializable {
     public Integer getAudioDuration() { return audioDuration; }
     public String getTranscription() { return transcription; }
     public boolean isImportant() { return isImportant; }
-    public List<String> getTags() { return tags; }
+    public List<String> getTags() {
+        if (tagsJson != null) {
+            tags = decodeTags(tagsJson);
+            tagsJson = null;
+        }
+        return tags;
+    }
     public String getAuthorName() { return authorName; }
     public String getCreatedAt() { return createdAt; }
     public String getUpdatedAt() { return updatedAt; }
@@ -107,7 +116,15 @@ public class ProjectNote implements Serializable {
     public void setAudioDuration(Integer audioDuration) { this.audioDuration = audioDuration; }
     public void setTranscription(String transcription) { this.transcription = transcription; }
     public void setImportant(boolean important) { isImportant = important; }
-    public void setTags(List<String> tags) { this.tags = tags; }
+    public void setTags(List<String> tags) { this.tags = tags; this.tagsJson = null; }
+
+    /**
+     * Tags au format stocké en base (["a","b"]), décodés seulement si l'écran les lit
+     */
+    public void setTagsJson(String tagsJson) {
+        this.tagsJson = tagsJson;
+        this.tags = tagsJson == null ? new ArrayList<>() : null;
+    }
     public void setAuthorName(String authorName) { this.authorName = authorName; }
     public void setCreatedAt(String createdAt) { this.createdAt = createdAt; }
     public void setUpdatedAt(String updatedAt) { this.updatedAt = updatedAt; }
@@ -240,6 +257,37 @@ public class ProjectNote implements Serializable {
     }
 
 
+    /**
+     * Décode ["a","b"] sans expression régulière (appelé au plus une fois par note)
+     */
+    static List<String> decodeTags(String json) {
+        List<String> result = new ArrayList<>();
+        StringBuilder tag = new StringBuilder();
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c == ',') {
+                addTag(result, tag);
+            } else if (c != '[' && c != ']' && c != '"') {
+                tag.append(c);
+            }
+        }
+        addTag(result, tag);
+        return result;
+    }
+
+    private static void addTag(List<String> result, StringBuilder tag) {
+        String value = tag.toString().trim();
+        if (!value.isEmpty()) {
+            result.add(value);
+        }
+        tag.setLength(0);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getTags(); // tagsJson est transient: décoder avant sérialisation
+        out.defaultWriteObject();
+    }
+
     /**
      * Retourne le contenu complet de la note (sans limitation de longueur)
      */
@@ -29,6 +29,7 @@ public class TimeReport {
     private String syncError;          // Message d'erreur si échec
     private int syncAttempts;          // Nombre de tentatives de synchronisation
     private String lastUpdated;        // Date de dernière modification (timestamp)
+    private String idempotencyKey;     // Clé stable du rapport local (dédoublonnage des uploads rejoués)
 
     // ✅ TIMEZONE SUPPORT - International operations
     private String timezone;           // User's timezone when report was created (e.g., "Europe/Paris")
@@ -111,6 +112,9 @@ public class TimeReport {
     public String getLastUpdated() { return lastUpdated; }
     public void setLastUpdated(String lastUpdated) { this.lastUpdated = lastUpdated; }
 
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+
     public String getTimezone() { return timezone; }
     public void setTimezone(String timezone) { this.timezone = timezone; }
 
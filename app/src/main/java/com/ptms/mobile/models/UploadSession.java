@@ -0,0 +1,69 @@
+package com.ptms.mobile.models;
+
+import java.io.File;
+
+/**
+ * Modèle représentant une session d'upload par morceaux (reprise après interruption)
+ *
+ * L'offset acquitté est l'octet jusqu'auquel le serveur a confirmé la réception:
+ * la reprise repart de là, même après la mort du processus.
+ */
+public class UploadSession {
+
+    private long noteId;           // ID local de la note (project_notes.id)
+    private String uploadId;       // ID de session fourni par le serveur
+    private String filePath;
+    private long fileSize;
+    private long fileModified;     // lastModified() du fichier au démarrage de la session
+    private int chunkSize;
+    private long ackedOffset;      // Octets acquittés par le serveur
+
+    public UploadSession() {}
+
+    public UploadSession(long noteId, String uploadId, File file, int chunkSize) {
+        this.noteId = noteId;
+        this.uploadId = uploadId;
+        this.filePath = file.getAbsolutePath();
+        this.fileSize = file.length();
+        this.fileModified = file.lastModified();
+        this.chunkSize = chunkSize;
+        this.ackedOffset = 0;
+    }
+
+    public long getNoteId() { return noteId; }
+    public void setNoteId(long noteId) { this.noteId = noteId; }
+
+    public String getUploadId() { return uploadId; }
+    public void setUploadId(String uploadId) { this.uploadId = uploadId; }
+
+    public String getFilePath() { return filePath; }
+    public void setFilePath(String filePath) { this.filePath = filePath; }
+
+    public long getFileSize() { return fileSize; }
+    public void setFileSize(long fileSize) { this.fileSize = fileSize; }
+
+    public long getFileModified() { return fileModified; }
+    public void setFileModified(long fileModified) { this.fileModified = fileModified; }
+
+    public int getChunkSize() { return chunkSize; }
+    public void setChunkSize(int chunkSize) { this.chunkSize = chunkSize; }
+
+    public long getAckedOffset() { return ackedOffset; }
+    public void setAckedOffset(long ackedOffset) { this.ackedOffset = ackedOffset; }
+
+    /**
+     * La session ne peut reprendre que si le fichier local n'a pas changé
+     */
+    public boolean matches(File file) {
+        return file.getAbsolutePath().equals(filePath)
+            && file.length() == fileSize
+            && file.lastModified() == fileModified;
+    }
+
+    public int getProgressPercent() {
+        if (fileSize <= 0) {
+            return 0;
+        }
+        return (int) Math.min(100, ackedOffset * 100 / fileSize);
+    }
+}
@@ -60,7 +60,7 @@ public class AutoSyncService extends Service {
         Log.d(TAG, "✅ Service de synchronisation automatique bidirectionnelle créé");
 
         bidirectionalSyncManager = new BidirectionalSyncManager(this); // ✅ NOUVEAU
-        dbHelper = new OfflineDatabaseHelper(this);
+        dbHelper = OfflineDatabaseHelper.getInstance(this);
         apiService = ApiClient.getInstance(this).getApiService();
         prefs = getSharedPreferences("ptms_prefs", MODE_PRIVATE);
         createNotificationChannel();
@@ -104,11 +104,11 @@ public class AutoSyncService extends Service {
             while (isRunning) {
                 try {
                     // ✅ NOUVEAU: Utiliser BidirectionalSyncManager pour sync complète
-                    int pendingCount = dbHelper.getPendingSyncCount();
+                    int pendingCount = dbHelper.getOutboxSize();
                     boolean isOnline = NetworkUtils.isOnline(AutoSyncService.this);
 
                     if (isOnline) {
-                        Log.d(TAG, "🔄 Synchronisation bidirectionnelle automatique: " + pendingCount + " éléments locaux en attente");
+                        Log.d(TAG, "🔄 Synchronisation bidirectionnelle automatique: " + pendingCount + " opérations locales en attente");
 
                         updateNotification("Synchronisation en cours...");
 
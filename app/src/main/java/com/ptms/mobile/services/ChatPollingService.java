@@ -14,6 +14,8 @@ import com.ptms.mobile.api.ApiClient;
 import com.ptms.mobile.api.ApiService;
 import com.ptms.mobile.models.ChatMessage;
 import com.ptms.mobile.models.ChatRoom;
+import com.ptms.mobile.utils.ChatMessageFetcher;
+import com.ptms.mobile.websocket.ChatTransport;
 
 import java.util.List;
 
@@ -24,13 +26,16 @@ import retrofit2.Response;
 /**
  * Service de polling pour le chat PTMS
  * Gère la récupération périodique des messages et salles de chat
+ *
+ * ✅ Secours du transport temps réel: les boucles de polling sont suspendues tant que le
+ * WebSocket partagé (ChatTransport) est connecté; les messages poussés sont diffusés directement
  */
-public class ChatPollingService extends Service {
+public class ChatPollingService extends Service implements ChatTransport.Listener {
 
     private static final String TAG = "ChatPollingService";
 
     // Intervalles de polling (en millisecondes)
-    private static final long POLL_INTERVAL_MESSAGES = 5000;      // 5 secondes
+    // Messages: intervalle adaptatif de ChatMessageFetcher (5 s si salle active, jusqu'à 60 s si inactive)
     private static final long POLL_INTERVAL_ROOMS = 30000;         // 30 secondes
     private static final long POLL_INTERVAL_PRESENCE = 60000;      // 60 secondes
 
@@ -48,7 +53,8 @@ public class ChatPollingService extends Service {
     private SharedPreferences prefs;
     private String authToken;
     private int currentRoomId = -1;
-    private String lastMessageTimestamp;
+    private ChatMessageFetcher messageFetcher;
+    private ChatTransport transport;
 
     private Runnable pollMessagesRunnable;
     private Runnable pollRoomsRunnable;
@@ -62,6 +68,7 @@ public class ChatPollingService extends Service {
         Log.d(TAG, "Service créé");
 
         handler = new Handler(Looper.getMainLooper());
+        transport = ChatTransport.getInstance(this);
         apiService = ApiClient.getInstance(this).getApiService();
         prefs = getSharedPreferences("ptms_prefs", MODE_PRIVATE);
         authToken = prefs.getString("auth_token", null);
@@ -73,6 +80,7 @@ public class ChatPollingService extends Service {
         }
 
         setupRunnables();
+        transport.attach(this, currentRoomId);
     }
 
     private void setupRunnables() {
@@ -80,10 +88,15 @@ public class ChatPollingService extends Service {
         pollMessagesRunnable = new Runnable() {
             @Override
             public void run() {
-                if (isPolling && currentRoomId > 0) {
+                if (!isPolling || transport.isRealtime()) {
+                    return; // Repris par onTransportChanged si le socket tombe
+                }
+                if (messageFetcher != null) {
+                    // Prochain appel planifié à la réponse
                     pollMessages();
+                } else {
+                    handler.postDelayed(this, ChatMessageFetcher.MIN_INTERVAL_MS);
                 }
-                handler.postDelayed(this, POLL_INTERVAL_MESSAGES);
             }
         };
 
@@ -91,9 +104,10 @@ public class ChatPollingService extends Service {
         pollRoomsRunnable = new Runnable() {
             @Override
             public void run() {
-                if (isPolling) {
-                    pollRooms();
+                if (!isPolling || transport.isRealtime()) {
+                    return;
                 }
+                pollRooms();
                 handler.postDelayed(this, POLL_INTERVAL_ROOMS);
             }
         };
@@ -102,9 +116,11 @@ public class ChatPollingService extends Service {
         pollPresenceRunnable = new Runnable() {
             @Override
             public void run() {
-                if (isPolling) {
-                    sendPresencePing();
+                // Socket connecté: présence assurée par son heartbeat
+                if (!isPolling || transport.isRealtime()) {
+                    return;
                 }
+                sendPresencePing();
                 handler.postDelayed(this, POLL_INTERVAL_PRESENCE);
             }
         };
@@ -115,8 +131,7 @@ public class ChatPollingService extends Service {
         Log.d(TAG, "Service démarré");
 
         if (intent != null && intent.hasExtra(EXTRA_ROOM_ID)) {
-            currentRoomId = intent.getIntExtra(EXTRA_ROOM_ID, -1);
-            Log.d(TAG, "Room ID défini: " + currentRoomId);
+            setCurrentRoom(intent.getIntExtra(EXTRA_ROOM_ID, -1));
         }
 
         startPolling();
@@ -148,59 +163,94 @@ public class ChatPollingService extends Service {
     private void stopPolling() {
         Log.d(TAG, "Arrêt du polling");
         isPolling = false;
+        suspendPolling();
+    }
 
-        // Arrêter tous les callbacks
+    /**
+     * Retire les appels planifiés (arrêt du service ou passage au temps réel)
+     */
+    private void suspendPolling() {
         handler.removeCallbacks(pollMessagesRunnable);
         handler.removeCallbacks(pollRoomsRunnable);
         handler.removeCallbacks(pollPresenceRunnable);
+        if (messageFetcher != null) {
+            messageFetcher.cancel();
+        }
+    }
+
+    // ==================== ChatTransport.Listener ====================
+
+    @Override
+    public void onTransportChanged(boolean realtime) {
+        if (!isPolling) {
+            return;
+        }
+        if (realtime) {
+            Log.d(TAG, "✅ Temps réel: polling suspendu");
+            suspendPolling();
+        } else {
+            Log.d(TAG, "❌ Temps réel coupé: reprise du polling");
+            // Un tour déjà planifié (coupures rapprochées) est remplacé: jamais deux boucles en parallèle
+            handler.removeCallbacks(pollMessagesRunnable);
+            handler.post(pollMessagesRunnable);
+            handler.removeCallbacks(pollRoomsRunnable);
+            handler.post(pollRoomsRunnable);
+            handler.removeCallbacks(pollPresenceRunnable);
+            handler.post(pollPresenceRunnable);
+        }
+    }
+
+    @Override
+    public void onNewMessage(int roomId, int senderId, String message, long timestamp) {
+        broadcastNewMessages(roomId, 1);
+    }
+
+    @Override
+    public void onUserTyping(int roomId, int userId, boolean isTyping) {
+        // Affiché par l'écran de la salle
     }
 
     /**
-     * Polling des messages
+     * Polling des messages: seuls les messages postérieurs au dernier vu sont demandés
      */
     private void pollMessages() {
-        if (apiService == null || authToken == null || currentRoomId <= 0) {
+        if (apiService == null || authToken == null || messageFetcher == null) {
             return;
         }
 
-        Log.d(TAG, "Polling messages pour room: " + currentRoomId);
+        final ChatMessageFetcher fetcher = messageFetcher;
+        final int roomId = currentRoomId;
+        // Premier appel: fixe le curseur, les messages existants ne sont pas "nouveaux"
+        final boolean hasCursor = fetcher.getLastMessageId() > 0;
+        Log.d(TAG, "Polling messages pour room: " + roomId + " (après #" + fetcher.getLastMessageId() + ")");
 
-        Call<ApiService.ChatMessagesResponse> call = apiService.getChatMessages(
-            authToken,
-            currentRoomId,
-            50,  // limit
-            0    // offset
-        );
-
-        call.enqueue(new Callback<ApiService.ChatMessagesResponse>() {
+        fetcher.fetchNewer(authToken, new ChatMessageFetcher.Callback() {
             @Override
-            public void onResponse(Call<ApiService.ChatMessagesResponse> call, Response<ApiService.ChatMessagesResponse> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    ApiService.ChatMessagesResponse chatResponse = response.body();
-
-                    if (chatResponse.success && chatResponse.messages != null && !chatResponse.messages.isEmpty()) {
-                        List<ChatMessage> messages = chatResponse.messages;
-                        Log.d(TAG, "Nouveaux messages: " + messages.size());
-
-                        // Mettre à jour le timestamp
-                        ChatMessage lastMessage = messages.get(messages.size() - 1);
-                        if (lastMessage.getTimestamp() != null) {
-                            lastMessageTimestamp = lastMessage.getTimestamp().toString();
-                        }
-
-                        // Envoyer broadcast pour notifier l'activité
-                        broadcastNewMessages(currentRoomId, messages.size());
-                    }
+            public void onNewMessages(List<ChatMessage> messages) {
+                if (hasCursor && !messages.isEmpty()) {
+                    Log.d(TAG, "Nouveaux messages: " + messages.size());
+                    // Envoyer broadcast pour notifier l'activité
+                    broadcastNewMessages(roomId, messages.size());
                 }
+                scheduleNextMessagesPoll(fetcher);
             }
 
             @Override
-            public void onFailure(Call<ApiService.ChatMessagesResponse> call, Throwable t) {
-                Log.e(TAG, "Erreur polling messages", t);
+            public void onError(String error) {
+                Log.e(TAG, "Erreur polling messages: " + error);
+                scheduleNextMessagesPoll(fetcher);
             }
         });
     }
 
+    private void scheduleNextMessagesPoll(ChatMessageFetcher fetcher) {
+        // Salle changée entre-temps: setCurrentRoom a déjà relancé le polling
+        if (isPolling && fetcher == messageFetcher) {
+            handler.removeCallbacks(pollMessagesRunnable);
+            handler.postDelayed(pollMessagesRunnable, fetcher.getPollDelay());
+        }
+    }
+
     /**
      * Polling des salles de chat
      */
@@ -269,8 +319,19 @@ public class ChatPollingService extends Service {
      */
     public void setCurrentRoom(int roomId) {
         Log.d(TAG, "Changement de salle: " + currentRoomId + " -> " + roomId);
+        if (messageFetcher != null) {
+            messageFetcher.cancel();
+        }
+        if (transport != null) {
+            transport.detach(this, currentRoomId);
+            transport.attach(this, roomId);
+        }
         this.currentRoomId = roomId;
-        this.lastMessageTimestamp = null;
+        this.messageFetcher = roomId > 0 ? new ChatMessageFetcher(apiService, roomId) : null;
+        if (isPolling) {
+            handler.removeCallbacks(pollMessagesRunnable);
+            handler.post(pollMessagesRunnable);
+        }
     }
 
     @Override
@@ -278,6 +339,9 @@ public class ChatPollingService extends Service {
         super.onDestroy();
         Log.d(TAG, "Service détruit");
         stopPolling();
+        if (transport != null) {
+            transport.detach(this, currentRoomId);
+        }
     }
 
     @Nullable
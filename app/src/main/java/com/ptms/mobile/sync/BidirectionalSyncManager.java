@@ -4,24 +4,30 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.util.Log;
 
+import com.google.gson.JsonParseException;
 import com.ptms.mobile.api.ApiClient;
 import com.ptms.mobile.api.ApiService;
 import com.ptms.mobile.database.OfflineDatabaseHelper;
+import com.ptms.mobile.models.OutboxOperation;
 import com.ptms.mobile.models.Project;
 import com.ptms.mobile.models.ProjectNote;
 import com.ptms.mobile.models.TimeReport;
 import com.ptms.mobile.models.WorkType;
 import com.ptms.mobile.storage.MediaStorageManager;
 import com.ptms.mobile.utils.NetworkUtils;
+import com.ptms.mobile.utils.SettingsManager;
 import com.ptms.mobile.workers.MediaUploadWorker;
 
 import java.io.File;
+import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -53,17 +59,34 @@ public class BidirectionalSyncManager {
     private static final String KEY_SYNC_IN_PROGRESS = "sync_in_progress";
     private static final int MAX_RETRY_ATTEMPTS = 3;
 
+    // ✅ Synchronisation incrémentale: un curseur updated_since par entité
+    private static final String KEY_DELTA_CURSOR_PREFIX = "delta_cursor_";
+    private static final String ENTITY_PROJECTS = "projects";
+    private static final String ENTITY_WORK_TYPES = "work_types";
+    private static final String ENTITY_TIME_REPORTS = "time_reports";
+    private static final int HTTP_GONE = 410;
+    private static final int MAX_DELTA_PAGES = 1000; // Garde-fou contre un serveur qui renverrait has_more sans fin
+
     private Context context;
     private OfflineDatabaseHelper dbHelper;
     private ApiClient apiClient;
     private ApiService apiService;
     private SharedPreferences prefs;
     private SharedPreferences authPrefs;
+    private int reportBatchSize = TimeReportBatchUploader.DEFAULT_BATCH_SIZE;
+    private int uploadConcurrency;
 
     // ✅ FIX: Use Locale.US for ISO dates (prevents locale-specific crashes)
     // Format de date pour comparaison
     private SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
 
+    /**
+     * Nombre de rapports envoyés par requête lors de l'upload par lots
+     */
+    public void setReportBatchSize(int reportBatchSize) {
+        this.reportBatchSize = Math.max(1, reportBatchSize);
+    }
+
     /**
      * Getter pour accéder à OfflineDatabaseHelper depuis l'extérieur
      */
@@ -89,12 +112,21 @@ public class BidirectionalSyncManager {
         public int downloadedCount = 0;
         public int conflictsResolved = 0;
         public int failedCount = 0;
+        public int operationsCoalesced = 0; // modifications locales fusionnées avant envoi
+        public int operationsDropped = 0;   // opérations annulées (créée puis supprimée localement)
         public List<String> errors = new ArrayList<>();
 
+        /**
+         * Opérations qui n'ont pas eu besoin de quitter l'appareil
+         */
+        public int getOperationsSaved() {
+            return operationsCoalesced + operationsDropped;
+        }
+
         public String getSummary() {
             return String.format(Locale.getDefault(),
-                "📤 Uploaded: %d | 📥 Downloaded: %d | ⚔️ Conflicts: %d | ❌ Failed: %d",
-                uploadedCount, downloadedCount, conflictsResolved, failedCount);
+                "📤 Uploaded: %d | 📥 Downloaded: %d | ⚔️ Conflicts: %d | ♻️ Saved: %d | ❌ Failed: %d",
+                uploadedCount, downloadedCount, conflictsResolved, getOperationsSaved(), failedCount);
         }
     }
 
@@ -109,11 +141,12 @@ public class BidirectionalSyncManager {
 
     public BidirectionalSyncManager(Context context) {
         this.context = context;
-        this.dbHelper = new OfflineDatabaseHelper(context);
+        this.dbHelper = OfflineDatabaseHelper.getInstance(context);
         this.apiClient = ApiClient.getInstance(context);
         this.apiService = apiClient.getApiService();
         this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         this.authPrefs = context.getSharedPreferences("ptms_prefs", Context.MODE_PRIVATE);
+        this.uploadConcurrency = new SettingsManager(context).getUploadConcurrency();
     }
 
     // ==================== SYNCHRONISATION COMPLÈTE ====================
@@ -247,6 +280,10 @@ public class BidirectionalSyncManager {
                 callback.onSyncProgress("Téléchargement des projets...", 0, 0);
             }
 
+            if (downloadProjectsDelta(token, result)) {
+                return;
+            }
+
             Call<ApiService.ProjectsResponse> call = apiService.getProjects(token);
             Response<ApiService.ProjectsResponse> response = call.execute(); // Synchrone
 
@@ -279,6 +316,10 @@ public class BidirectionalSyncManager {
                 callback.onSyncProgress("Téléchargement des types de travail...", 0, 0);
             }
 
+            if (downloadWorkTypesDelta(token, result)) {
+                return;
+            }
+
             Call<List<WorkType>> call = apiService.getWorkTypes(token);
             Response<List<WorkType>> response = call.execute(); // Synchrone
 
@@ -318,6 +359,10 @@ public class BidirectionalSyncManager {
             Date dateFrom = new Date(System.currentTimeMillis() - (30L * 24 * 60 * 60 * 1000));
             Date dateTo = new Date();
 
+            if (downloadTimeReportsDelta(token, apiDateFormat.format(dateFrom), result)) {
+                return;
+            }
+
             Call<List<TimeReport>> call = apiService.getReports(
                 token,
                 apiDateFormat.format(dateFrom),
@@ -347,43 +392,223 @@ public class BidirectionalSyncManager {
         }
     }
 
+    // ==================== DOWNLOAD INCRÉMENTAL (DELTA) ====================
+
     /**
-     * Résout les conflits entre rapports serveur et locaux
-     * RÈGLE: Serveur gagne toujours (MASTER)
+     * Fabrique d'appel delta pour un curseur donné (null = instantané complet)
      */
-    private int resolveTimeReportConflicts(List<TimeReport> serverReports) {
-        int conflictsResolved = 0;
-
-        // Pour chaque rapport du serveur
-        for (TimeReport serverReport : serverReports) {
-            if (serverReport.getServerId() != null && serverReport.getServerId() > 0) {
-                // Vérifier si existe localement
-                TimeReport localReport = dbHelper.getTimeReportByServerId(serverReport.getServerId());
-
-                if (localReport != null) {
-                    // Conflit détecté - comparer timestamps
-                    if (isServerNewer(serverReport, localReport)) {
-                        // Serveur plus récent → Remplacer local
-                        serverReport.setSyncStatus("synced");
-                        serverReport.setSyncAttempts(0);
-                        dbHelper.updateTimeReport(serverReport);
-                        conflictsResolved++;
-                        Log.d(TAG, "⚔️ Conflit résolu (serveur gagne): Report #" + serverReport.getServerId());
-                    } else {
-                        // Local plus récent → Marquer explicitement pour upload
-                        localReport.setSyncStatus("pending");
-                        dbHelper.updateTimeReport(localReport);
-                        Log.d(TAG, "📤 Local plus récent: Report #" + serverReport.getServerId() + " marqué pending pour upload");
-                    }
-                } else {
-                    // Nouveau rapport du serveur → Ajouter localement
-                    serverReport.setSyncStatus("synced");
-                    dbHelper.insertTimeReport(serverReport);
+    private interface DeltaCallFactory<T> {
+        Call<ApiService.DeltaResponse<T>> create(String updatedSince);
+    }
+
+    /**
+     * Delta validé: toutes les pages du serveur (has_more) réunies
+     */
+    private static class DeltaPage<T> {
+        final List<T> items;
+        final List<Integer> deletedIds;
+        String nextCursor;
+        final boolean fullSnapshot; // true = pas de curseur envoyé → remplacer au lieu de fusionner
+
+        DeltaPage(ApiService.DeltaResponse<T> body, boolean fullSnapshot) {
+            this.items = new ArrayList<>(body.items);
+            this.deletedIds = body.deleted_ids != null ? new ArrayList<>(body.deleted_ids) : new ArrayList<>();
+            this.nextCursor = body.next_cursor;
+            this.fullSnapshot = fullSnapshot;
+        }
+
+        void append(ApiService.DeltaResponse<T> body) {
+            items.addAll(body.items);
+            if (body.deleted_ids != null) {
+                deletedIds.addAll(body.deleted_ids);
+            }
+            nextCursor = body.next_cursor;
+        }
+    }
+
+    /**
+     * Exécute l'appel delta d'une entité
+     * - Curseur invalide (HTTP 410 ou cursor_invalid): curseur effacé et instantané complet redemandé
+     * - Cache local vide: instantané complet (le curseur ne correspond plus aux données locales)
+     * - has_more: pages suivantes demandées avec next_cursor jusqu'à la dernière; le curseur n'est
+     *   enregistré par l'appelant qu'une fois toutes les pages appliquées
+     * @return null si le serveur ne supporte pas le mode delta (404, erreur, ou endpoint historique
+     *         répondant par un tableau JSON brut) → repli sur le téléchargement complet
+     */
+    private <T> DeltaPage<T> fetchDelta(String entity, boolean localEmpty, DeltaCallFactory<T> factory) throws IOException {
+        String cursor = localEmpty ? null : getDeltaCursor(entity);
+        Response<ApiService.DeltaResponse<T>> response = executeDelta(entity, factory, cursor);
+        if (response == null) {
+            return null;
+        }
+
+        if (cursor != null && isCursorInvalid(response)) {
+            Log.w(TAG, "⚠️ Curseur delta invalide pour " + entity + " - rafraîchissement complet");
+            closeErrorBody(response);
+            clearDeltaCursor(entity);
+            cursor = null;
+            response = executeDelta(entity, factory, null);
+            if (response == null) {
+                return null;
+            }
+        }
+
+        ApiService.DeltaResponse<T> body = response.body();
+        if (!response.isSuccessful() || body == null || !body.success || body.items == null || body.cursor_invalid) {
+            closeErrorBody(response);
+            Log.w(TAG, "Mode delta indisponible pour " + entity + " (" + response.code() + ") - repli complet");
+            return null;
+        }
+
+        DeltaPage<T> page = new DeltaPage<>(body, cursor == null);
+        int pages = 1;
+        while (body.has_more) {
+            String nextCursor = body.next_cursor;
+            if (nextCursor == null || nextCursor.isEmpty() || nextCursor.equals(cursor)) {
+                throw new IOException("Delta " + entity + ": has_more sans nouveau curseur");
+            }
+            if (pages >= MAX_DELTA_PAGES) {
+                throw new IOException("Delta " + entity + ": plus de " + MAX_DELTA_PAGES + " pages");
+            }
+            cursor = nextCursor;
+            response = executeDelta(entity, factory, cursor);
+            body = response != null ? response.body() : null;
+            if (body == null || !response.isSuccessful() || !body.success || body.items == null || body.cursor_invalid) {
+                // Curseur non enregistré: le prochain delta reprendra depuis le précédent
+                if (response != null) {
+                    closeErrorBody(response);
                 }
+                throw new IOException("Delta " + entity + ": échec de la page " + (pages + 1));
             }
+            page.append(body);
+            pages++;
+        }
+        if (pages > 1) {
+            Log.d(TAG, "Delta " + entity + ": " + pages + " pages, " + page.items.size() + " éléments");
+        }
+        return page;
+    }
+
+    /**
+     * @return null si la réponse n'est pas au format delta (work-types.php / reports.php historiques
+     *         renvoient un tableau JSON brut que le convertisseur Gson refuse)
+     */
+    private <T> Response<ApiService.DeltaResponse<T>> executeDelta(String entity, DeltaCallFactory<T> factory,
+                                                                 String cursor) throws IOException {
+        try {
+            return factory.create(cursor).execute();
+        } catch (JsonParseException e) {
+            Log.w(TAG, "Réponse non delta pour " + entity + " - repli complet");
+            return null;
         }
+    }
 
-        return conflictsResolved;
+    private static void closeErrorBody(Response<?> response) {
+        if (response.errorBody() != null) {
+            response.errorBody().close();
+        }
+    }
+
+    private boolean isCursorInvalid(Response<? extends ApiService.DeltaResponse<?>> response) {
+        if (response.code() == HTTP_GONE) {
+            return true;
+        }
+        return response.isSuccessful() && response.body() != null && response.body().cursor_invalid;
+    }
+
+    private boolean downloadProjectsDelta(String token, SyncResult result) throws IOException {
+        DeltaPage<Project> page = fetchDelta(ENTITY_PROJECTS, dbHelper.getProjectCount() == 0,
+            cursor -> apiService.getProjectsDelta(token, cursor));
+        if (page == null) {
+            return false;
+        }
+
+        if (page.fullSnapshot) {
+            dbHelper.replaceAllProjects(page.items);
+        } else {
+            dbHelper.applyProjectsDelta(page.items, page.deletedIds);
+        }
+        saveDeltaCursor(ENTITY_PROJECTS, page.nextCursor);
+
+        result.downloadedCount += page.items.size();
+        Log.d(TAG, "✅ Projets (delta" + (page.fullSnapshot ? ", complet" : "") + "): "
+            + page.items.size() + " modifiés, " + page.deletedIds.size() + " supprimés");
+        return true;
+    }
+
+    private boolean downloadWorkTypesDelta(String token, SyncResult result) throws IOException {
+        DeltaPage<WorkType> page = fetchDelta(ENTITY_WORK_TYPES, dbHelper.getAllWorkTypes().isEmpty(),
+            cursor -> apiService.getWorkTypesDelta(token, cursor));
+        if (page == null) {
+            return false;
+        }
+
+        if (page.fullSnapshot) {
+            dbHelper.replaceAllWorkTypes(page.items);
+        } else {
+            dbHelper.applyWorkTypesDelta(page.items, page.deletedIds);
+        }
+        saveDeltaCursor(ENTITY_WORK_TYPES, page.nextCursor);
+
+        result.downloadedCount += page.items.size();
+        Log.d(TAG, "✅ Types de travail (delta" + (page.fullSnapshot ? ", complet" : "") + "): "
+            + page.items.size() + " modifiés, " + page.deletedIds.size() + " supprimés");
+        return true;
+    }
+
+    /**
+     * Rapports: l'instantané complet reste borné à la fenêtre de 30 jours (date_from),
+     * les deltas suivants couvrent toute modification ou suppression depuis le curseur
+     */
+    private boolean downloadTimeReportsDelta(String token, String dateFrom, SyncResult result) throws IOException {
+        DeltaPage<TimeReport> page = fetchDelta(ENTITY_TIME_REPORTS, dbHelper.getTimeReportsCount(getUserId()) == 0,
+            cursor -> apiService.getReportsDelta(token, cursor, cursor == null ? dateFrom : null));
+        if (page == null) {
+            return false;
+        }
+
+        int conflictsResolved = resolveTimeReportConflicts(page.items);
+        int deleted = dbHelper.deleteTimeReportsByServerIds(page.deletedIds);
+        saveDeltaCursor(ENTITY_TIME_REPORTS, page.nextCursor);
+
+        result.conflictsResolved += conflictsResolved;
+        result.downloadedCount += page.items.size();
+        Log.d(TAG, "✅ Rapports (delta" + (page.fullSnapshot ? ", complet" : "") + "): "
+            + page.items.size() + " modifiés, " + deleted + " supprimés (conflits résolus: " + conflictsResolved + ")");
+        return true;
+    }
+
+    /**
+     * Curseurs propres à chaque utilisateur: un changement de compte ne réutilise pas
+     * le curseur du compte précédent
+     */
+    private String deltaCursorKey(String entity) {
+        return KEY_DELTA_CURSOR_PREFIX + getUserId() + "_" + entity;
+    }
+
+    private String getDeltaCursor(String entity) {
+        return prefs.getString(deltaCursorKey(entity), null);
+    }
+
+    private void saveDeltaCursor(String entity, String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            clearDeltaCursor(entity);
+        } else {
+            prefs.edit().putString(deltaCursorKey(entity), cursor).apply();
+        }
+    }
+
+    private void clearDeltaCursor(String entity) {
+        prefs.edit().remove(deltaCursorKey(entity)).apply();
+    }
+
+    /**
+     * Résout les conflits entre rapports serveur et locaux
+     * RÈGLE: Serveur gagne toujours (MASTER)
+     * ✅ Upsert en lot: une requête de résolution + une transaction pour toute la page
+     */
+    private int resolveTimeReportConflicts(List<TimeReport> serverReports) {
+        return dbHelper.upsertTimeReportsFromServer(serverReports, this::isServerNewer);
     }
 
     /**
@@ -412,171 +637,296 @@ public class BidirectionalSyncManager {
 
     /**
      * Upload les modifications locales vers le serveur
+     *
+     * ✅ Journal d'envoi (sync_outbox): les opérations sont rejouées dans l'ordre d'enregistrement,
+     * sans parcours des tables time_reports / project_notes. Les médias sont laissés à MediaUploadWorker.
+     * Le journal est d'abord coalescé (OutboxCoalescer): une modification par entité au plus.
      */
     private void uploadToServer(String token, SyncResult result, SyncCallback callback) {
-        Log.d(TAG, "📤 Début upload vers serveur");
-
-        // Upload Time Reports pending
-        uploadPendingTimeReports(token, result, callback);
-
-        // Upload Project Notes pending
-        uploadPendingProjectNotes(token, result, callback);
+        Log.d(TAG, "📤 Début upload vers serveur (" + dbHelper.getOutboxSize() + " opérations en attente)");
+
+        // Fusion des modifications redondantes avant tout envoi
+        OutboxCoalescer.Plan plan = new OutboxCoalescer(dbHelper).coalesce();
+        result.operationsCoalesced += plan.coalescedCount;
+        result.operationsDropped += plan.droppedCount;
+
+        OutboxDispatcher.Handler reportHandler = (operations, ack) ->
+            uploadTimeReportOperations(token, operations, ack, result, callback);
+        OutboxDispatcher.Handler noteHandler = (operations, ack) ->
+            uploadNoteOperations(operations, ack, result, callback);
+
+        OutboxDispatcher.Outcome outcome = new OutboxDispatcher(dbHelper)
+            .register(OutboxOperation.ENTITY_TIME_REPORT, OutboxOperation.OP_CREATE, reportHandler)
+            .register(OutboxOperation.ENTITY_TIME_REPORT, OutboxOperation.OP_UPDATE, reportHandler)
+            .register(OutboxOperation.ENTITY_TIME_REPORT, OutboxOperation.OP_DELETE, this::retireTimeReportDeletes)
+            .register(OutboxOperation.ENTITY_PROJECT_NOTE, OutboxOperation.OP_CREATE, noteHandler)
+            .register(OutboxOperation.ENTITY_PROJECT_NOTE, OutboxOperation.OP_UPDATE, noteHandler)
+            .register(OutboxOperation.ENTITY_PROJECT_NOTE, OutboxOperation.OP_DELETE, (operations, ack) ->
+                deleteNoteOperations(token, operations, ack, result))
+            .drain();
+
+        // Médias débloqués par la création de leur note: upload en arrière-plan
+        if (dbHelper.countOutboxOperations(OutboxOperation.ENTITY_PROJECT_NOTE, OutboxOperation.OP_MEDIA) > 0) {
+            MediaUploadWorker.enqueueUploadAll(context);
+        }
+        Log.d(TAG, "✅ Journal d'envoi: " + outcome.completedCount + " opérations acquittées, "
+            + dbHelper.getOutboxSize() + " restantes");
     }
 
     /**
-     * Upload rapports de temps en attente
+     * Suppressions de rapports déjà présentes dans le journal (deleteTimeReport n'en ajoute plus):
+     * l'API n'a pas d'endpoint de suppression, elles sont retirées au lieu d'y rester indéfiniment
      */
-    private void uploadPendingTimeReports(String token, SyncResult result, SyncCallback callback) {
-        try {
-            List<TimeReport> pendingReports = dbHelper.getAllPendingTimeReports();
+    private void retireTimeReportDeletes(List<OutboxOperation> operations, OutboxDispatcher.Acknowledger ack) {
+        for (OutboxOperation operation : operations) {
+            ack.done(operation);
+        }
+        Log.d(TAG, "🗑️ " + operations.size() + " suppression(s) de rapport retirée(s) du journal (pas d'endpoint serveur)");
+    }
 
-            if (pendingReports.isEmpty()) {
-                Log.d(TAG, "✅ Aucun rapport en attente");
-                return;
+    /**
+     * Handler des rapports créés/modifiés: upload par lots
+     */
+    private void uploadTimeReportOperations(String token, List<OutboxOperation> operations,
+                                            OutboxDispatcher.Acknowledger ack,
+                                            SyncResult result, SyncCallback callback) {
+        List<Long> reportIds = new ArrayList<>();
+        for (OutboxOperation operation : operations) {
+            reportIds.add(operation.getEntityId());
+        }
+        Map<Long, TimeReport> reportsById = dbHelper.getTimeReportsByIds(reportIds);
+
+        List<TimeReport> reports = new ArrayList<>();
+        Map<Integer, OutboxOperation> operationsByReport = new HashMap<>();
+        for (OutboxOperation operation : operations) {
+            TimeReport report = reportsById.get(operation.getEntityId());
+            if (report == null) {
+                ack.done(operation); // Rapport supprimé localement depuis: plus rien à envoyer
+                continue;
             }
+            reports.add(report);
+            operationsByReport.put(report.getId(), operation);
+        }
+        if (reports.isEmpty()) {
+            return;
+        }
 
-            Log.d(TAG, "📤 Upload de " + pendingReports.size() + " rapports...");
-
-            int uploaded = 0;
-            for (int i = 0; i < pendingReports.size(); i++) {
-                TimeReport report = pendingReports.get(i);
+        Log.d(TAG, "📤 Upload de " + reports.size() + " rapports (lots de " + reportBatchSize + ")...");
 
+        // ✅ Upload par lots: un appel HTTP pour reportBatchSize rapports
+        TimeReportBatchUploader.Outcome outcome = new TimeReportBatchUploader(apiService, dbHelper, reportBatchSize)
+            .upload(token, reports, (processed, total) -> {
                 if (callback != null) {
-                    callback.onSyncProgress("Upload rapport " + (i + 1) + "/" + pendingReports.size(), i + 1, pendingReports.size());
+                    callback.onSyncProgress("Upload rapports " + processed + "/" + total, processed, total);
                 }
+            });
+        int uploaded = outcome.uploadedCount;
+        result.failedCount += outcome.failedCount;
+        result.errors.addAll(outcome.errors);
+        for (Integer reportId : outcome.synced.keySet()) {
+            ack.done(operationsByReport.get(reportId));
+        }
+        for (Map.Entry<Integer, String> failure : outcome.failed.entrySet()) {
+            ack.failed(operationsByReport.get(failure.getKey()), failure.getValue());
+        }
 
-                try {
-                    Call<ApiService.ApiResponse> call = apiService.saveTimeEntry(token, report);
-                    Response<ApiService.ApiResponse> response = call.execute(); // Synchrone
-
-                    if (response.isSuccessful() && response.body() != null && response.body().success) {
-                        // ✅ FIX: Extraire le server_id de la réponse pour éviter les doublons
-                        int serverId = 0;
-                        try {
-                            Object data = response.body().data;
-                            if (data instanceof java.util.Map) {
-                                @SuppressWarnings("unchecked")
-                                java.util.Map<String, Object> dataMap = (java.util.Map<String, Object>) data;
-                                Object idObj = dataMap.get("id");
-                                if (idObj instanceof Number) {
-                                    serverId = ((Number) idObj).intValue();
-                                }
-                            }
-                        } catch (Exception ex) {
-                            Log.w(TAG, "Impossible d'extraire server_id de la réponse", ex);
-                        }
+        // Repli: serveur sans endpoint batch → upload unitaire
+        List<TimeReport> remaining = outcome.unsupported;
+        for (int i = 0; i < remaining.size(); i++) {
+            if (callback != null) {
+                callback.onSyncProgress("Upload rapport " + (i + 1) + "/" + remaining.size(), i + 1, remaining.size());
+            }
+            OutboxOperation operation = operationsByReport.get(remaining.get(i).getId());
+            if (uploadTimeReportIndividually(token, remaining.get(i), result)) {
+                ack.done(operation);
+                uploaded++;
+            } else {
+                ack.failed(operation, "Échec upload unitaire");
+            }
+        }
 
-                        // Marquer comme synchronisé avec le server_id
-                        report.setSyncStatus("synced");
-                        report.setSyncAttempts(0);
+        result.uploadedCount += uploaded;
+        Log.d(TAG, "✅ Rapports uploadés: " + uploaded + "/" + reports.size());
+    }
 
-                        if (serverId > 0) {
-                            // ✅ FIX: Utiliser markTimeReportAsSynced pour sauvegarder le server_id
-                            dbHelper.markTimeReportAsSynced(report.getId(), serverId);
-                            Log.d(TAG, "✅ Rapport uploadé: local #" + report.getId() + " → server #" + serverId);
-                        } else {
-                            // Fallback si pas de server_id dans la réponse
-                            dbHelper.updateTimeReportSyncStatus(report.getId(), "synced", null, 0);
-                            Log.d(TAG, "✅ Rapport uploadé: #" + report.getId() + " (sans server_id)");
-                        }
+    /**
+     * Upload unitaire d'un rapport (serveurs sans time-entry-batch.php)
+     * @return true si le rapport est synchronisé
+     */
+    private boolean uploadTimeReportIndividually(String token, TimeReport report, SyncResult result) {
+        try {
+            Call<ApiService.ApiResponse> call = apiService.saveTimeEntry(token, report);
+            Response<ApiService.ApiResponse> response = call.execute(); // Synchrone
 
-                        uploaded++;
-                    } else {
-                        // Échec - incrémenter tentatives
-                        int attempts = report.getSyncAttempts() + 1;
-                        String error = "Erreur HTTP: " + response.code();
-                        dbHelper.updateTimeReportSyncStatus(report.getId(), "pending", error, attempts);
-
-                        result.failedCount++;
-                        result.errors.add("Échec upload rapport #" + report.getId() + ": " + error);
-                        Log.e(TAG, "❌ Échec upload rapport: " + error);
+            if (response.isSuccessful() && response.body() != null && response.body().success) {
+                // ✅ FIX: Extraire le server_id de la réponse pour éviter les doublons
+                int serverId = 0;
+                try {
+                    Object data = response.body().data;
+                    if (data instanceof java.util.Map) {
+                        @SuppressWarnings("unchecked")
+                        java.util.Map<String, Object> dataMap = (java.util.Map<String, Object>) data;
+                        Object idObj = dataMap.get("id");
+                        if (idObj instanceof Number) {
+                            serverId = ((Number) idObj).intValue();
+                        }
                     }
-                } catch (Exception e) {
-                    // Exception - incrémenter tentatives
-                    int attempts = report.getSyncAttempts() + 1;
-                    String error = e.getMessage();
-                    dbHelper.updateTimeReportSyncStatus(report.getId(), "pending", error, attempts);
+                } catch (Exception ex) {
+                    Log.w(TAG, "Impossible d'extraire server_id de la réponse", ex);
+                }
 
-                    result.failedCount++;
-                    result.errors.add("Exception upload rapport #" + report.getId() + ": " + error);
-                    Log.e(TAG, "❌ Exception upload rapport", e);
+                // Marquer comme synchronisé avec le server_id
+                report.setSyncStatus("synced");
+                report.setSyncAttempts(0);
+
+                if (serverId > 0) {
+                    // ✅ FIX: Utiliser markTimeReportAsSynced pour sauvegarder le server_id
+                    dbHelper.markTimeReportAsSynced(report.getId(), serverId);
+                    Log.d(TAG, "✅ Rapport uploadé: local #" + report.getId() + " → server #" + serverId);
+                } else {
+                    // Fallback si pas de server_id dans la réponse
+                    dbHelper.updateTimeReportSyncStatus(report.getId(), "synced", null, 0);
+                    Log.d(TAG, "✅ Rapport uploadé: #" + report.getId() + " (sans server_id)");
                 }
-            }
 
-            result.uploadedCount += uploaded;
-            Log.d(TAG, "✅ Rapports uploadés: " + uploaded + "/" + pendingReports.size());
+                return true;
+            } else {
+                // Échec - incrémenter tentatives
+                int attempts = report.getSyncAttempts() + 1;
+                String error = "Erreur HTTP: " + response.code();
+                dbHelper.updateTimeReportSyncStatus(report.getId(), "pending", error, attempts);
 
+                result.failedCount++;
+                result.errors.add("Échec upload rapport #" + report.getId() + ": " + error);
+                Log.e(TAG, "❌ Échec upload rapport: " + error);
+            }
         } catch (Exception e) {
-            result.errors.add("Exception uploadPendingTimeReports: " + e.getMessage());
-            Log.e(TAG, "❌ Erreur uploadPendingTimeReports", e);
+            // Exception - incrémenter tentatives
+            int attempts = report.getSyncAttempts() + 1;
+            String error = e.getMessage();
+            dbHelper.updateTimeReportSyncStatus(report.getId(), "pending", error, attempts);
+
+            result.failedCount++;
+            result.errors.add("Exception upload rapport #" + report.getId() + ": " + error);
+            Log.e(TAG, "❌ Exception upload rapport", e);
         }
+        return false;
     }
 
     /**
-     * Upload notes de projet en attente
+     * Handler des notes créées/modifiées: uploads parallèles bornés, commit ordonné
      */
-    private void uploadPendingProjectNotes(String token, SyncResult result, SyncCallback callback) {
-        try {
-            List<ProjectNote> pendingNotes = dbHelper.getAllPendingProjectNotes();
-
-            if (pendingNotes.isEmpty()) {
-                Log.d(TAG, "✅ Aucune note en attente");
-                return;
+    private void uploadNoteOperations(List<OutboxOperation> operations, OutboxDispatcher.Acknowledger ack,
+                                      SyncResult result, SyncCallback callback) {
+        Map<Long, ProjectNote> notes = new HashMap<>();
+        List<OutboxOperation> pending = new ArrayList<>();
+        for (OutboxOperation operation : operations) {
+            ProjectNote note = dbHelper.getProjectNoteById((int) operation.getEntityId());
+            if (note == null) {
+                ack.done(operation); // Note supprimée localement depuis: plus rien à envoyer
+                continue;
             }
+            notes.put(operation.getEntityId(), note);
+            pending.add(operation);
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
 
-            Log.d(TAG, "📤 Upload de " + pendingNotes.size() + " notes...");
-
-            int uploaded = 0;
-            for (int i = 0; i < pendingNotes.size(); i++) {
-                ProjectNote note = pendingNotes.get(i);
-
+        Log.d(TAG, "📤 Upload de " + pending.size() + " notes (" + uploadConcurrency + " en parallèle)...");
+
+        // ✅ Uploads parallèles bornés, résultats appliqués dans l'ordre sur ce thread
+        final int[] uploaded = {0};
+        final int[] committed = {0};
+        new ParallelUploadPipeline<OutboxOperation, ApiService.CreateNoteResponse>("notes", uploadConcurrency).run(
+            pending,
+            operation -> uploadNoteToServer(notes.get(operation.getEntityId()),
+                OutboxOperation.OP_UPDATE.equals(operation.getOperation())),
+            (operation, response, error) -> {
+                ProjectNote note = notes.get(operation.getEntityId());
+                committed[0]++;
                 if (callback != null) {
-                    callback.onSyncProgress("Upload note " + (i + 1) + "/" + pendingNotes.size(), i + 1, pendingNotes.size());
+                    callback.onSyncProgress("Upload note " + committed[0] + "/" + pending.size(), committed[0], pending.size());
                 }
 
-                try {
-                    // ✅ IMPLÉMENTÉ: Upload de notes vers le serveur
-                    boolean uploadSuccess = uploadNoteToServer(note);
-
-                    if (uploadSuccess) {
-                        // Note déjà marquée comme synchronisée dans uploadNoteToServer()
-                        uploaded++;
-                        Log.d(TAG, "✅ Note #" + note.getId() + " uploadée avec succès");
-                    } else {
-                        result.failedCount++;
-                        result.errors.add("Échec upload note #" + note.getId());
-                        Log.w(TAG, "⚠️ Échec upload note #" + note.getId());
+                if (error != null) {
+                    result.failedCount++;
+                    result.errors.add("Exception upload note #" + note.getLocalId() + ": " + error.getMessage());
+                    ack.failed(operation, error.getMessage());
+                    Log.e(TAG, "❌ Exception upload note", error);
+                } else if (response != null) {
+                    if (response.noteId > 0 && note.getId() <= 0) {
+                        // ID serveur nécessaire au média (note_id) et à une suppression ultérieure
+                        dbHelper.setProjectNoteServerId(note.getLocalId(), response.noteId);
+                        dbHelper.setOutboxDeleteServerId(OutboxOperation.ENTITY_PROJECT_NOTE, note.getLocalId(), response.noteId);
                     }
-
-                } catch (Exception e) {
+                    ack.done(operation);
+                    // Synchronisée quand plus rien n'est en attente (média compris)
+                    if (!dbHelper.hasOutboxOperations(OutboxOperation.ENTITY_PROJECT_NOTE, note.getLocalId())) {
+                        dbHelper.markNoteAsSynced((int) note.getLocalId());
+                    }
+                    uploaded[0]++;
+                    Log.d(TAG, "✅ Note #" + note.getLocalId() + " uploadée avec succès");
+                } else {
                     result.failedCount++;
-                    result.errors.add("Exception upload note #" + note.getId() + ": " + e.getMessage());
-                    Log.e(TAG, "❌ Exception upload note", e);
+                    result.errors.add("Échec upload note #" + note.getLocalId());
+                    ack.failed(operation, "Refusée par le serveur");
+                    Log.w(TAG, "⚠️ Échec upload note #" + note.getLocalId());
                 }
-            }
+            });
 
-            result.uploadedCount += uploaded;
-            Log.d(TAG, "✅ Notes uploadées: " + uploaded + "/" + pendingNotes.size());
+        result.uploadedCount += uploaded[0];
+        Log.d(TAG, "✅ Notes uploadées: " + uploaded[0] + "/" + pending.size());
+    }
 
-        } catch (Exception e) {
-            result.errors.add("Exception uploadPendingProjectNotes: " + e.getMessage());
-            Log.e(TAG, "❌ Erreur uploadPendingProjectNotes", e);
+    /**
+     * Handler des notes supprimées localement: suppression côté serveur (DELETE project-notes.php)
+     */
+    private void deleteNoteOperations(String token, List<OutboxOperation> operations,
+                                      OutboxDispatcher.Acknowledger ack, SyncResult result) {
+        for (OutboxOperation operation : operations) {
+            if (operation.getServerId() <= 0) {
+                ack.done(operation); // Jamais créée côté serveur
+                continue;
+            }
+            try {
+                Response<ApiService.ApiResponse> response = apiService
+                    .deleteProjectNote("Bearer " + token, operation.getServerId())
+                    .execute();
+                // 404: déjà supprimée côté serveur
+                if (response.isSuccessful() || response.code() == 404) {
+                    ack.done(operation);
+                    Log.d(TAG, "🗑️ Note serveur #" + operation.getServerId() + " supprimée");
+                } else {
+                    result.failedCount++;
+                    result.errors.add("Échec suppression note serveur #" + operation.getServerId() + ": HTTP " + response.code());
+                    ack.failed(operation, "HTTP " + response.code());
+                }
+            } catch (IOException e) {
+                result.failedCount++;
+                result.errors.add("Exception suppression note serveur #" + operation.getServerId() + ": " + e.getMessage());
+                ack.failed(operation, e.getMessage());
+                return; // Réseau coupé: les suivantes restent en file
+            }
         }
     }
 
     // ==================== UPLOAD NOTE ====================
 
     /**
-     * Upload une note vers le serveur
+     * Upload une note vers le serveur (thread du pipeline, sans écriture en base)
+     * Le fichier local éventuel est envoyé par l'opération "media" qui suit la création
      * @param note La note à uploader
-     * @return true si succès, false sinon
+     * @param update true pour mettre à jour la note serveur existante
+     * @return réponse du serveur si succès, null si refusée
+     * @throws IOException erreur réseau ou HTTP transitoire (réessayée par le pipeline)
      */
-    private boolean uploadNoteToServer(ProjectNote note) {
+    private ApiService.CreateNoteResponse uploadNoteToServer(ProjectNote note, boolean update) throws IOException {
         try {
             String token = getAuthToken();
             if (token == null || token.isEmpty()) {
                 Log.e(TAG, "❌ Token manquant pour upload note");
-                return false;
+                return null;
             }
 
             Log.d(TAG, "📤 Upload note #" + note.getId() + ": " + note.getTitle());
@@ -632,26 +982,26 @@ public class BidirectionalSyncManager {
                 tagsJson
             );
 
-            // Audio file (nullable)
-            okhttp3.MultipartBody.Part audioFilePart = null;
-            if (note.getLocalFilePath() != null) {
-                File audioFile = new File(note.getLocalFilePath());
-                if (audioFile.exists()) {
-                    okhttp3.RequestBody audioFileBody = okhttp3.RequestBody.create(
-                        okhttp3.MediaType.parse(note.getMimeType() != null ? note.getMimeType() : "audio/*"),
-                        audioFile
-                    );
-                    audioFilePart = okhttp3.MultipartBody.Part.createFormData(
-                        "audio_file",
-                        audioFile.getName(),
-                        audioFileBody
-                    );
-                }
-            }
-
             // Appel API synchrone (dans un thread de sync)
-            Call<com.ptms.mobile.api.ApiService.CreateNoteResponse> call =
-                apiService.createProjectNote(
+            Call<com.ptms.mobile.api.ApiService.CreateNoteResponse> call;
+            if (update && note.getId() > 0) {
+                call = apiService.updateProjectNote(
+                    "Bearer " + token,
+                    okhttp3.RequestBody.create(okhttp3.MediaType.parse("text/plain"), String.valueOf(note.getId())),
+                    projectIdBody,
+                    noteTypeBody,
+                    noteTypeIdBody,
+                    noteGroupBody,
+                    titleBody,
+                    contentBody,
+                    transcriptionBody,
+                    isImportantBody,
+                    tagsBody,
+                    null,
+                    null
+                );
+            } else {
+                call = apiService.createProjectNote(
                     "Bearer " + token,
                     projectIdBody,
                     noteTypeBody,
@@ -662,9 +1012,10 @@ public class BidirectionalSyncManager {
                     transcriptionBody,
                     isImportantBody,
                     tagsBody,
-                    audioFilePart,
-                    null  // imageFilePart - pas encore géré dans le sync
+                    null,  // fichier: opération "media" du journal
+                    null
                 );
+            }
 
             Response<com.ptms.mobile.api.ApiService.CreateNoteResponse> response = call.execute();
 
@@ -672,34 +1023,29 @@ public class BidirectionalSyncManager {
                 com.ptms.mobile.api.ApiService.CreateNoteResponse noteResponse = response.body();
 
                 if (noteResponse.success) {
-                    Log.d(TAG, "✅ Note uploadée - Server response: " + noteResponse.message);
-
-                    // Marquer la note comme synchronisée
-                    dbHelper.markNoteAsSynced(note.getId());
-
-                    // Mettre à jour le server_id si retourné
-                    // Note: Adapter selon la structure réelle de CreateNoteResponse
-                    if (noteResponse.message != null && noteResponse.message.contains("id")) {
-                        // Tenter d'extraire l'ID (à adapter selon la réponse réelle)
-                        Log.d(TAG, "Server response message: " + noteResponse.message);
-                    }
-
-                    return true;
+                    Log.d(TAG, "✅ Note uploadée - Server response: " + noteResponse.message
+                        + " (server ID: " + noteResponse.noteId + ")");
+                    return noteResponse;
                 } else {
                     Log.e(TAG, "❌ Serveur a refusé la note: " + noteResponse.message);
-                    return false;
+                    return null;
                 }
             } else {
                 Log.e(TAG, "❌ Réponse serveur invalide: " + response.code());
+                if (ParallelUploadPipeline.isRetryableHttpCode(response.code())) {
+                    throw ParallelUploadPipeline.RetryableHttpException.from(response);
+                }
                 if (response.errorBody() != null) {
                     Log.e(TAG, "Error body: " + response.errorBody().string());
                 }
-                return false;
+                return null;
             }
 
+        } catch (IOException e) {
+            throw e;
         } catch (Exception e) {
             Log.e(TAG, "❌ Exception lors upload note", e);
-            return false;
+            return null;
         }
     }
 
@@ -709,6 +1055,10 @@ public class BidirectionalSyncManager {
         return authPrefs.getString("auth_token", "");
     }
 
+    private int getUserId() {
+        return authPrefs.getInt("user_id", -1);
+    }
+
     private boolean isSyncInProgress() {
         return prefs.getBoolean(KEY_SYNC_IN_PROGRESS, false);
     }
@@ -1110,6 +1460,9 @@ public class BidirectionalSyncManager {
                     if (NetworkUtils.isOnline(context)) {
                         Log.d(TAG, "📤 Lancement upload en arrière-plan...");
 
+                        // Création de la note (journal d'envoi), puis média une fois l'ID serveur connu
+                        syncUpload(null);
+
                         // Enqueue upload avec contraintes appropriées
                         if (storage.isVideoFile(localFile)) {
                             // Vidéo: WiFi uniquement
@@ -1154,7 +1507,7 @@ public class BidirectionalSyncManager {
             return;
         }
 
-        int pendingCount = dbHelper.getPendingMediaUploadsCount();
+        int pendingCount = getPendingMediaCount();
         if (pendingCount == 0) {
             Log.d(TAG, "✅ Aucun fichier multimédia en attente");
             return;
@@ -1168,7 +1521,7 @@ public class BidirectionalSyncManager {
      * ✅ NOUVEAU (V7): Récupère le nombre de fichiers en attente d'upload
      */
     public int getPendingMediaCount() {
-        return dbHelper.getPendingMediaUploadsCount();
+        return dbHelper.countOutboxOperations(OutboxOperation.ENTITY_PROJECT_NOTE, OutboxOperation.OP_MEDIA);
     }
 }
 
@@ -0,0 +1,148 @@
+package com.ptms.mobile.sync;
+
+import android.util.Log;
+
+import com.ptms.mobile.database.OfflineDatabaseHelper;
+import com.ptms.mobile.models.OutboxOperation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ✅ Coalescence du journal d'envoi avant drainage
+ *
+ * Les handlers envoient l'état courant de la ligne, pas un diff: plusieurs opérations
+ * en attente sur une même entité peuvent donc être fusionnées sans perte.
+ *
+ * Règles, par entité:
+ * - Suppression d'une entité inconnue du serveur → toutes ses opérations sont retirées
+ *   (paire création/suppression: rien ne quitte l'appareil)
+ * - Suppression d'une entité connue du serveur → seule la suppression est conservée
+ * - Création en attente → les modifications suivantes sont absorbées par la création
+ * - Modifications successives → seule la première est conservée (elle enverra le dernier état)
+ *
+ * Les dépendances pointant vers une opération retirée sont reportées sur son propre prédécesseur.
+ *
+ * @version 1.0
+ * @date 2025-10-26
+ */
+public class OutboxCoalescer {
+
+    private static final String TAG = "OutboxCoalescer";
+
+    /**
+     * Plan de coalescence (calcul pur, sans accès à la base)
+     */
+    public static class Plan {
+        public final Set<Long> removed = new LinkedHashSet<>();
+        public final Map<Long, Long> rewired = new LinkedHashMap<>(); // ID → nouvelle dépendance (0 = aucune)
+        public int coalescedCount = 0; // modifications fusionnées
+        public int droppedCount = 0;   // opérations annulées par une suppression locale
+
+        public int getSavedCount() {
+            return coalescedCount + droppedCount;
+        }
+    }
+
+    private final OfflineDatabaseHelper dbHelper;
+
+    public OutboxCoalescer(OfflineDatabaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    /**
+     * Coalesce le journal en base (à appeler avant OutboxDispatcher.drain(), même thread)
+     */
+    public Plan coalesce() {
+        Plan plan = plan(dbHelper.getAllOutboxOperations());
+        dbHelper.applyOutboxCoalescing(plan.removed, plan.rewired);
+        if (plan.getSavedCount() > 0) {
+            Log.d(TAG, "♻️ " + plan.coalescedCount + " modifications fusionnées, "
+                + plan.droppedCount + " opérations annulées");
+        }
+        return plan;
+    }
+
+    /**
+     * Calcule le plan pour des opérations lues dans l'ordre du journal
+     */
+    public static Plan plan(List<OutboxOperation> operations) {
+        Plan plan = new Plan();
+
+        Map<String, List<OutboxOperation>> byEntity = new LinkedHashMap<>();
+        Map<Long, OutboxOperation> byId = new HashMap<>();
+        for (OutboxOperation operation : operations) {
+            byId.put(operation.getId(), operation);
+            String entityKey = operation.getEntityType() + "#" + operation.getEntityId();
+            List<OutboxOperation> entityOperations = byEntity.get(entityKey);
+            if (entityOperations == null) {
+                entityOperations = new ArrayList<>();
+                byEntity.put(entityKey, entityOperations);
+            }
+            entityOperations.add(operation);
+        }
+
+        for (List<OutboxOperation> entityOperations : byEntity.values()) {
+            planEntity(entityOperations, plan);
+        }
+
+        // Dépendances vers une opération retirée → son prédécesseur conservé le plus proche
+        for (OutboxOperation operation : operations) {
+            if (plan.removed.contains(operation.getId()) || !plan.removed.contains(operation.getDependsOn())) {
+                continue;
+            }
+            long dependsOn = operation.getDependsOn();
+            while (dependsOn > 0 && plan.removed.contains(dependsOn)) {
+                OutboxOperation previous = byId.get(dependsOn);
+                dependsOn = previous != null ? previous.getDependsOn() : 0;
+            }
+            plan.rewired.put(operation.getId(), dependsOn);
+        }
+        return plan;
+    }
+
+    private static void planEntity(List<OutboxOperation> operations, Plan plan) {
+        if (operations.size() < 2) {
+            return;
+        }
+
+        OutboxOperation delete = null;
+        boolean hasCreate = false;
+        for (OutboxOperation operation : operations) {
+            if (OutboxOperation.OP_DELETE.equals(operation.getOperation())) {
+                delete = operation;
+            } else if (OutboxOperation.OP_CREATE.equals(operation.getOperation())) {
+                hasCreate = true;
+            }
+        }
+
+        if (delete != null) {
+            boolean knownByServer = delete.getServerId() > 0;
+            for (OutboxOperation operation : operations) {
+                if (operation != delete || !knownByServer) {
+                    plan.removed.add(operation.getId());
+                    plan.droppedCount++;
+                }
+            }
+            return;
+        }
+
+        boolean keptUpdate = false;
+        for (OutboxOperation operation : operations) {
+            if (!OutboxOperation.OP_UPDATE.equals(operation.getOperation())) {
+                continue;
+            }
+            if (hasCreate || keptUpdate) {
+                plan.removed.add(operation.getId());
+                plan.coalescedCount++;
+            } else {
+                keptUpdate = true;
+            }
+        }
+    }
+}
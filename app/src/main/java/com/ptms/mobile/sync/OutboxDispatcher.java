@@ -0,0 +1,150 @@
+package com.ptms.mobile.sync;
+
+import android.util.Log;
+
+import com.ptms.mobile.database.OfflineDatabaseHelper;
+import com.ptms.mobile.models.OutboxOperation;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ✅ Dispatcher unique du journal d'envoi (table sync_outbox)
+ *
+ * - Lit les opérations prêtes dans l'ordre du journal (dépendances acquittées)
+ * - Les regroupe par clé "entité:opération" et les confie au handler enregistré
+ *   (un appel par groupe: permet l'envoi par lots ou en parallèle)
+ * - Une opération acquittée est supprimée: ses dépendantes deviennent prêtes au tour suivant
+ * - Une opération sans handler dans ce contexte reste en file (ex: médias, drainés par MediaUploadWorker)
+ *   sans être lue: seules les clés enregistrées occupent la page
+ * - Une opération en échec OutboxOperation.MAX_ATTEMPTS fois est mise de côté et ne bloque plus la page
+ *
+ * Coût: O(opérations en attente), sans parcours des tables métier.
+ *
+ * @version 1.0
+ * @date 2025-10-26
+ */
+public class OutboxDispatcher {
+
+    private static final String TAG = "OutboxDispatcher";
+
+    private static final int PAGE_SIZE = 500;
+    private static final int MAX_ROUNDS = 10;
+
+    /**
+     * Envoi d'un groupe d'opérations de même clé (thread appelant)
+     * Chaque opération doit être acquittée ou mise en échec via Acknowledger,
+     * sinon elle reste en file sans changement
+     */
+    public interface Handler {
+        void handle(List<OutboxOperation> operations, Acknowledger ack);
+    }
+
+    /**
+     * Retour d'un handler pour chaque opération
+     */
+    public interface Acknowledger {
+        void done(OutboxOperation operation);
+
+        void failed(OutboxOperation operation, String error);
+    }
+
+    /**
+     * Bilan d'un drainage
+     */
+    public static class Outcome {
+        public int completedCount = 0;
+        public int failedCount = 0;
+        public int parkedCount = 0;  // mises de côté après OutboxOperation.MAX_ATTEMPTS échecs
+        public List<String> errors = new ArrayList<>();
+    }
+
+    private final OfflineDatabaseHelper dbHelper;
+    private final Map<String, Handler> handlers = new LinkedHashMap<>();
+
+    public OutboxDispatcher(OfflineDatabaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    /**
+     * Enregistre le handler d'une opération (ex: ENTITY_TIME_REPORT + OP_CREATE)
+     */
+    public OutboxDispatcher register(String entityType, String operation, Handler handler) {
+        handlers.put(OutboxOperation.key(entityType, operation), handler);
+        return this;
+    }
+
+    /**
+     * Draine le journal jusqu'à ce qu'aucune opération prise en charge ne soit plus prête
+     * (appel bloquant, hors thread UI)
+     */
+    public Outcome drain() {
+        Outcome outcome = new Outcome();
+        Set<Long> attempted = new HashSet<>();
+
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            Map<String, List<OutboxOperation>> groups = new LinkedHashMap<>();
+            for (OutboxOperation operation : dbHelper.getReadyOutboxOperations(handlers.keySet(), PAGE_SIZE)) {
+                if (attempted.contains(operation.getId())) {
+                    continue; // déjà tentée pendant ce drainage (échec): au prochain
+                }
+                List<OutboxOperation> group = groups.get(operation.getKey());
+                if (group == null) {
+                    group = new ArrayList<>();
+                    groups.put(operation.getKey(), group);
+                }
+                group.add(operation);
+            }
+            if (groups.isEmpty()) {
+                break;
+            }
+
+            int completedBefore = outcome.completedCount;
+            for (Map.Entry<String, List<OutboxOperation>> entry : groups.entrySet()) {
+                List<OutboxOperation> group = entry.getValue();
+                for (OutboxOperation operation : group) {
+                    attempted.add(operation.getId());
+                }
+                Log.d(TAG, "📤 " + entry.getKey() + ": " + group.size() + " opération(s)");
+                try {
+                    handlers.get(entry.getKey()).handle(group, new Acknowledger() {
+                        @Override
+                        public void done(OutboxOperation operation) {
+                            dbHelper.completeOutboxOperation(operation.getId());
+                            outcome.completedCount++;
+                        }
+
+                        @Override
+                        public void failed(OutboxOperation operation, String error) {
+                            dbHelper.failOutboxOperation(operation.getId(), error);
+                            outcome.failedCount++;
+                            outcome.errors.add("Échec " + operation + ": " + error);
+                            if (operation.getAttempts() + 1 >= OutboxOperation.MAX_ATTEMPTS) {
+                                outcome.parkedCount++;
+                                Log.w(TAG, "⛔ " + operation + " mise de côté après "
+                                    + OutboxOperation.MAX_ATTEMPTS + " échecs: " + error);
+                            }
+                        }
+                    });
+                } catch (Exception e) {
+                    // Handler en erreur: les opérations non acquittées restent en file
+                    outcome.errors.add("Exception " + entry.getKey() + ": " + e.getMessage());
+                    Log.e(TAG, "❌ Exception handler " + entry.getKey(), e);
+                }
+            }
+
+            // Rien d'acquitté: aucune dépendance n'a pu se débloquer
+            if (outcome.completedCount == completedBefore) {
+                break;
+            }
+        }
+
+        Log.d(TAG, "✅ Journal drainé: " + outcome.completedCount + " acquittées, " +
+            outcome.failedCount + " échecs, " + outcome.parkedCount + " mises de côté");
+        return outcome;
+    }
+}
@@ -0,0 +1,159 @@
+package com.ptms.mobile.sync;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+
+/**
+ * ✅ Étape d'upload parallèle bornée du moteur de synchronisation
+ *
+ * - 2 à 4 uploads simultanés (pool fixe, threads en priorité arrière-plan: l'UI n'est pas affamée)
+ * - Retry par élément avec backoff exponentiel à jitter complet sur les erreurs transitoires
+ *   (IOException, HTTP 408/429/5xx via RetryableHttpException)
+ * - Commit ordonné: les résultats sont appliqués à la base dans l'ordre d'entrée,
+ *   sur le thread appelant, une fois chaque upload terminé
+ *
+ * Les requêtes passent par le client OkHttp partagé (ApiClient.getSharedDispatcher()).
+ *
+ * @version 1.0
+ * @date 2025-10-25
+ */
+public class ParallelUploadPipeline<T, R> {
+
+    private static final String TAG = "ParallelUpload";
+
+    public static final int MIN_CONCURRENCY = 2;
+    public static final int MAX_CONCURRENCY = 4;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BASE_BACKOFF_MS = 500;
+    private static final long MAX_BACKOFF_MS = 8000;
+
+    /**
+     * Upload d'un élément (exécuté sur un thread du pool)
+     */
+    public interface Uploader<T, R> {
+        R upload(T item) throws Exception;
+    }
+
+    /**
+     * Application du résultat en base (thread appelant, ordre d'entrée)
+     * @param error null si l'upload a abouti (le résultat peut alors être un refus serveur)
+     */
+    public interface Committer<T, R> {
+        void commit(T item, R result, Exception error);
+    }
+
+    /**
+     * Erreur HTTP transitoire à réessayer (408, 429, 5xx)
+     */
+    public static class RetryableHttpException extends IOException {
+        public final int code;
+
+        public RetryableHttpException(int code) {
+            super("HTTP " + code);
+            this.code = code;
+        }
+
+        /**
+         * Ferme le corps d'erreur avant de relancer: la connexion retourne au pool partagé
+         */
+        public static RetryableHttpException from(Response<?> response) {
+            ResponseBody errorBody = response.errorBody();
+            if (errorBody != null) {
+                errorBody.close();
+            }
+            return new RetryableHttpException(response.code());
+        }
+    }
+
+    private final String name;
+    private final int concurrency;
+
+    public ParallelUploadPipeline(String name, int concurrency) {
+        this.name = name;
+        this.concurrency = Math.max(MIN_CONCURRENCY, Math.min(MAX_CONCURRENCY, concurrency));
+    }
+
+    public static boolean isRetryableHttpCode(int code) {
+        return code == 408 || code == 429 || code >= 500;
+    }
+
+    /**
+     * Lance les uploads et applique les résultats dans l'ordre (appel bloquant, hors thread UI)
+     */
+    public void run(List<T> items, Uploader<T, R> uploader, Committer<T, R> committer) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, items.size()), runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "ptms-upload-" + name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Log.d(TAG, "📤 " + name + ": " + items.size() + " éléments, " + concurrency + " en parallèle");
+
+        try {
+            List<Future<R>> futures = new ArrayList<>(items.size());
+            for (T item : items) {
+                futures.add(executor.submit(() -> uploadWithRetry(item, uploader)));
+            }
+
+            for (int i = 0; i < items.size(); i++) {
+                T item = items.get(i);
+                try {
+                    committer.commit(item, futures.get(i).get(), null);
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    committer.commit(item, null, cause instanceof Exception ? (Exception) cause : e);
+                } catch (InterruptedException e) {
+                    Log.w(TAG, name + ": interrompu - uploads restants annulés");
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private R uploadWithRetry(T item, Uploader<T, R> uploader) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return uploader.upload(item);
+            } catch (IOException e) {
+                if (attempt >= MAX_ATTEMPTS || Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                long delay = backoffDelayMs(attempt);
+                Log.w(TAG, name + ": tentative " + attempt + " échouée (" + e.getMessage() + ") - retry dans " + delay + "ms");
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * Backoff exponentiel à jitter complet: aléatoire dans [0, min(max, base * 2^(n-1))]
+     */
+    static long backoffDelayMs(int attempt) {
+        long cap = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempt - 1, 16));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+}
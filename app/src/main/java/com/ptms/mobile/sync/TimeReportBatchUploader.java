@@ -0,0 +1,173 @@
+package com.ptms.mobile.sync;
+
+import android.util.Log;
+
+import com.ptms.mobile.api.ApiService;
+import com.ptms.mobile.database.OfflineDatabaseHelper;
+import com.ptms.mobile.models.TimeReport;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import retrofit2.Response;
+
+/**
+ * ✅ Upload des rapports en attente par lots (time-entry-batch.php)
+ *
+ * - Un appel HTTP par lot (50 rapports par défaut) au lieu d'un appel par rapport
+ * - Chaque rapport porte sa clé d'idempotence stable (colonne idempotency_key):
+ *   un lot rejoué après une réponse perdue ne crée pas de doublon côté serveur
+ * - Les résultats par élément sont appliqués au cache local en une transaction par lot
+ * - Si le serveur ne connaît pas l'endpoint batch, les rapports restants sont rendus
+ *   à l'appelant pour l'upload unitaire classique
+ *
+ * @version 1.0
+ * @date 2025-10-24
+ */
+public class TimeReportBatchUploader {
+
+    private static final String TAG = "TimeReportBatchUploader";
+
+    public static final int DEFAULT_BATCH_SIZE = 50;
+
+    private final ApiService apiService;
+    private final OfflineDatabaseHelper dbHelper;
+    private final int batchSize;
+
+    /**
+     * Progression après chaque lot
+     */
+    public interface ProgressListener {
+        void onBatchCompleted(int processed, int total);
+    }
+
+    /**
+     * Bilan de l'upload
+     */
+    public static class Outcome {
+        public int uploadedCount = 0;
+        public int failedCount = 0;
+        public List<String> errors = new ArrayList<>();
+        // ID local → ID serveur (0 si non renvoyé) des rapports synchronisés
+        public Map<Integer, Integer> synced = new LinkedHashMap<>();
+        // ID local → erreur des rapports en échec
+        public Map<Integer, String> failed = new LinkedHashMap<>();
+        // Rapports non envoyés car l'endpoint batch n'est pas supporté → upload unitaire
+        public List<TimeReport> unsupported = new ArrayList<>();
+    }
+
+    public TimeReportBatchUploader(ApiService apiService, OfflineDatabaseHelper dbHelper, int batchSize) {
+        this.apiService = apiService;
+        this.dbHelper = dbHelper;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Envoie les rapports par lots (appel synchrone, à exécuter hors thread UI)
+     */
+    public Outcome upload(String token, List<TimeReport> reports, ProgressListener listener) {
+        Outcome outcome = new Outcome();
+
+        for (int start = 0; start < reports.size(); start += batchSize) {
+            List<TimeReport> batch = reports.subList(start, Math.min(start + batchSize, reports.size()));
+
+            try {
+                Response<ApiService.BatchTimeEntryResponse> response = apiService
+                    .saveTimeEntriesBatch(token, batchKey(batch), new ApiService.BatchTimeEntryRequest(batch))
+                    .execute(); // Synchrone
+
+                if (isBatchUnsupported(response.code())) {
+                    Log.w(TAG, "Endpoint batch non supporté (" + response.code() + ") - repli unitaire");
+                    outcome.unsupported.addAll(reports.subList(start, reports.size()));
+                    return outcome;
+                }
+
+                if (response.isSuccessful() && response.body() != null && response.body().results != null) {
+                    applyResults(batch, response.body().results, outcome);
+                } else {
+                    failBatch(batch, "Erreur HTTP: " + response.code(), outcome);
+                }
+            } catch (IOException e) {
+                // Réseau coupé: inutile d'envoyer les lots suivants, ils restent en attente
+                failBatch(batch, e.getMessage(), outcome);
+                Log.e(TAG, "❌ Exception upload lot - arrêt", e);
+                return outcome;
+            }
+
+            if (listener != null) {
+                listener.onBatchCompleted(Math.min(start + batchSize, reports.size()), reports.size());
+            }
+        }
+
+        Log.d(TAG, "✅ Upload par lots: " + outcome.uploadedCount + " envoyés, " + outcome.failedCount + " échecs");
+        return outcome;
+    }
+
+    /**
+     * Associe chaque résultat serveur à son rapport local via la clé d'idempotence
+     */
+    private void applyResults(List<TimeReport> batch, List<ApiService.BatchItemResult> results, Outcome outcome) {
+        Map<String, ApiService.BatchItemResult> resultsByKey = new HashMap<>();
+        for (ApiService.BatchItemResult result : results) {
+            if (result != null && result.idempotencyKey != null) {
+                resultsByKey.put(result.idempotencyKey, result);
+            }
+        }
+
+        Map<Integer, Integer> synced = new LinkedHashMap<>();
+        for (TimeReport report : batch) {
+            ApiService.BatchItemResult result = resultsByKey.get(report.getIdempotencyKey());
+            if (result != null && result.success) {
+                synced.put(report.getId(), result.id);
+            } else {
+                String error = result == null ? "Absent de la réponse du lot"
+                    : (result.error != null ? result.error : "Refusé par le serveur");
+                failReport(report, error, outcome);
+            }
+        }
+
+        dbHelper.markTimeReportsAsSynced(synced);
+        outcome.synced.putAll(synced);
+        outcome.uploadedCount += synced.size();
+    }
+
+    private void failBatch(List<TimeReport> batch, String error, Outcome outcome) {
+        for (TimeReport report : batch) {
+            failReport(report, error, outcome);
+        }
+    }
+
+    private void failReport(TimeReport report, String error, Outcome outcome) {
+        dbHelper.updateTimeReportSyncStatus(report.getId(), "pending", error, report.getSyncAttempts() + 1);
+        outcome.failedCount++;
+        outcome.failed.put(report.getId(), error);
+        outcome.errors.add("Échec upload rapport #" + report.getId() + ": " + error);
+    }
+
+    private static boolean isBatchUnsupported(int code) {
+        return code == 404 || code == 405 || code == 501;
+    }
+
+    /**
+     * Clé du lot dérivée des clés des rapports (triées): un même lot rejoué porte la même clé
+     */
+    static String batchKey(List<TimeReport> batch) {
+        List<String> keys = new ArrayList<>();
+        for (TimeReport report : batch) {
+            keys.add(report.getIdempotencyKey());
+        }
+        Collections.sort(keys); // indépendant de l'ordre de lecture
+        StringBuilder builder = new StringBuilder();
+        for (String key : keys) {
+            builder.append(key).append(';');
+        }
+        return UUID.nameUUIDFromBytes(builder.toString().getBytes(StandardCharsets.UTF_8)).toString();
+    }
+}
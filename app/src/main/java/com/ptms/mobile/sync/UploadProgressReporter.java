@@ -0,0 +1,83 @@
+package com.ptms.mobile.sync;
+
+import android.os.SystemClock;
+
+import com.ptms.mobile.api.FileRangeRequestBody;
+import com.ptms.mobile.database.OfflineDatabaseHelper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * ✅ Progression d'upload réelle, throttlée et coalescée vers project_notes.upload_progress
+ *
+ * - Throttle: publication seulement si le pourcentage change ET (5% de plus OU 250 ms écoulées)
+ *   → au plus ~100 publications par fichier, quelle que soit sa taille
+ * - Coalescence: au plus une écriture en attente par note sur le thread d'écriture de la base;
+ *   si l'upload avance pendant que l'écriture attend, seule la dernière valeur est écrite
+ */
+public class UploadProgressReporter implements FileRangeRequestBody.ProgressListener {
+
+    private static final long MIN_INTERVAL_MS = 250;
+    private static final int MIN_STEP_PERCENT = 5;
+    private static final int NO_PENDING_WRITE = -1;
+
+    private final Executor writer;
+    private final IntConsumer progressWriter;
+    private final AtomicInteger pendingPercent = new AtomicInteger(NO_PENDING_WRITE);
+
+    private int lastPercent = -1;
+    private long lastPublishAt = 0;
+
+    public UploadProgressReporter(OfflineDatabaseHelper dbHelper, long noteId) {
+        this(dbHelper::executeWrite, percent -> dbHelper.updateUploadProgress(noteId, percent));
+    }
+
+    /**
+     * @param writer file d'écriture (thread d'écriture unique de la base en production)
+     * @param progressWriter écriture du pourcentage, exécutée sur writer
+     */
+    public UploadProgressReporter(Executor writer, IntConsumer progressWriter) {
+        this.writer = writer;
+        this.progressWriter = progressWriter;
+    }
+
+    /**
+     * Remet la progression à 0 au début d'un upload
+     */
+    public void start() {
+        lastPercent = 0;
+        lastPublishAt = SystemClock.elapsedRealtime();
+        publish(0);
+    }
+
+    @Override
+    public void onProgress(long bytesWritten, long contentLength) {
+        if (contentLength <= 0) {
+            return;
+        }
+        int percent = (int) Math.min(100, bytesWritten * 100 / contentLength);
+        if (percent == lastPercent) {
+            return;
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        boolean bigStep = Math.abs(percent - lastPercent) >= MIN_STEP_PERCENT;
+        if (!bigStep && percent < 100 && now - lastPublishAt < MIN_INTERVAL_MS) {
+            return;
+        }
+
+        lastPercent = percent;
+        lastPublishAt = now;
+        publish(percent);
+    }
+
+    private void publish(int percent) {
+        // Une seule écriture en file par note: les valeurs intermédiaires sont écrasées
+        if (pendingPercent.getAndSet(percent) == NO_PENDING_WRITE) {
+            writer.execute(() ->
+                progressWriter.accept(pendingPercent.getAndSet(NO_PENDING_WRITE)));
+        }
+    }
+}
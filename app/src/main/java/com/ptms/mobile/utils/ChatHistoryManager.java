@@ -0,0 +1,234 @@
+package com.ptms.mobile.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.ptms.mobile.adapters.ChatMessagesAdapter;
+import com.ptms.mobile.api.ApiService;
+import com.ptms.mobile.database.OfflineDatabaseHelper;
+import com.ptms.mobile.models.ChatMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * ✅ Historique local d'une salle de chat (tables chat_rooms / chat_messages)
+ *
+ * - Ouverture: affichage immédiat des derniers messages enregistrés, puis delta serveur
+ *   à partir du curseur de la salle (ChatMessageFetcher)
+ * - Pages reçues du serveur enregistrées avec détection des trous (gap_before)
+ * - Remontée dans l'historique: disque d'abord; un trou est comblé par le serveur (before_id)
+ *   avant de continuer
+ *
+ * Les accès disque passent par la file d'écriture du helper (ordre FIFO: une lecture voit les pages
+ * enregistrées avant elle); les callbacks sont appelés sur le thread UI.
+ *
+ * @version 1.0
+ * @date 2025-10-28
+ */
+public class ChatHistoryManager {
+
+    private static final String TAG = "ChatHistoryManager";
+
+    public static final int PAGE_SIZE = ChatMessageFetcher.PAGE_SIZE;
+
+    // Distance (en messages) du haut de la liste qui déclenche le chargement de la page précédente
+    private static final int PREFETCH_DISTANCE = 5;
+
+    public interface MessagesCallback {
+        void onMessages(List<ChatMessage> messages);
+    }
+
+    public interface OlderCallback {
+        /**
+         * @param messages messages plus anciens, du plus ancien au plus récent
+         * @param hasMore  false si le début de l'historique est atteint
+         */
+        void onOlderMessages(List<ChatMessage> messages, boolean hasMore);
+    }
+
+    private final OfflineDatabaseHelper dbHelper;
+    private final ApiService apiService;
+    private final int roomId;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private boolean loadingOlder = false;
+    private boolean reachedStart = false;
+
+    public ChatHistoryManager(Context context, ApiService apiService, int roomId) {
+        this.dbHelper = OfflineDatabaseHelper.getInstance(context);
+        this.apiService = apiService;
+        this.roomId = roomId;
+    }
+
+    /**
+     * Derniers messages enregistrés (partie contiguë), vide si la salle n'a jamais été ouverte
+     */
+    public void loadCached(MessagesCallback callback) {
+        dbHelper.executeWrite(() -> {
+            List<ChatMessage> cached = dbHelper.getChatMessagesBefore(roomId, 0, PAGE_SIZE);
+            Log.d(TAG, "✅ " + cached.size() + " message(s) en cache pour la salle " + roomId);
+            mainHandler.post(() -> callback.onMessages(cached));
+        });
+    }
+
+    /**
+     * Enregistre la page la plus récente reçue du serveur (fenêtre initiale ou delta)
+     */
+    public void saveLatest(List<ChatMessage> messages, boolean pageFull) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        List<ChatMessage> page = new ArrayList<>(messages);
+        dbHelper.executeWrite(() -> dbHelper.saveChatMessagesPage(roomId, page, pageFull, 0));
+    }
+
+    /**
+     * Enregistre les messages reçus du serveur (fenêtre ou delta) et les ajoute à l'écran
+     * Page pleine: des messages intermédiaires peuvent manquer, l'écran repart de cette page
+     * (le trou sera comblé en remontant dans l'historique)
+     * @return nombre de messages ajoutés
+     */
+    public int applyLatest(List<ChatMessage> messages, ChatMessagesAdapter adapter) {
+        boolean pageFull = messages.size() >= PAGE_SIZE;
+        saveLatest(messages, pageFull);
+        if (pageFull) {
+            adapter.updateMessages(messages);
+            reachedStart = false;
+            return messages.size();
+        }
+        return adapter.appendNewMessages(messages);
+    }
+
+    /**
+     * Messages précédant beforeId: lus sur le disque, complétés par le serveur si l'historique
+     * local a un trou à cet endroit. Ignoré si un chargement est en cours ou le début atteint.
+     */
+    public void loadOlder(String token, int beforeId, OlderCallback callback) {
+        if (loadingOlder || reachedStart || beforeId <= 0) {
+            return;
+        }
+        loadingOlder = true;
+
+        dbHelper.executeWrite(() -> {
+            // Trou juste sous beforeId: les messages du disque sont plus anciens que ceux qui manquent
+            if (dbHelper.hasChatGapBefore(roomId, beforeId)) {
+                Log.d(TAG, "Trou dans l'historique avant #" + beforeId + ": récupération serveur");
+                mainHandler.post(() -> fetchBefore(token, beforeId, new ArrayList<>(), callback));
+                return;
+            }
+
+            List<ChatMessage> local = dbHelper.getChatMessagesBefore(roomId, beforeId, PAGE_SIZE);
+            int boundaryId = local.isEmpty() ? beforeId : local.get(0).getId();
+
+            if (local.size() < PAGE_SIZE && dbHelper.hasChatGapBefore(roomId, boundaryId)) {
+                Log.d(TAG, "Trou dans l'historique avant #" + boundaryId + ": récupération serveur");
+                mainHandler.post(() -> fetchBefore(token, boundaryId, local, callback));
+            } else {
+                deliverOlder(local, hasMoreBefore(local), callback);
+            }
+        });
+    }
+
+    /**
+     * Remplit le trou sous boundaryId depuis le serveur, puis relit le disque
+     */
+    private void fetchBefore(String token, int boundaryId, List<ChatMessage> local, OlderCallback callback) {
+        apiService.getChatMessagesBefore(token, roomId, boundaryId, PAGE_SIZE)
+            .enqueue(new retrofit2.Callback<ApiService.ChatMessagesResponse>() {
+                @Override
+                public void onResponse(@NonNull Call<ApiService.ChatMessagesResponse> call,
+                                       @NonNull Response<ApiService.ChatMessagesResponse> response) {
+                    ApiService.ChatMessagesResponse body = response.body();
+                    if (!response.isSuccessful() || body == null || !body.success) {
+                        Log.w(TAG, "❌ Historique serveur indisponible: HTTP " + response.code());
+                        deliverOlderNow(local, true, callback);
+                        return;
+                    }
+
+                    List<ChatMessage> received = body.messages != null ? body.messages : new ArrayList<>();
+                    List<ChatMessage> older = new ArrayList<>();
+                    for (ChatMessage message : received) {
+                        if (message != null && message.getId() > 0 && message.getId() < boundaryId) {
+                            older.add(message);
+                        }
+                    }
+                    if (older.isEmpty() && !received.isEmpty()) {
+                        // Serveur sans before_id (fenêtre la plus récente renvoyée): trou conservé
+                        Log.w(TAG, "⚠️ before_id non pris en charge par le serveur");
+                        deliverOlderNow(local, false, callback);
+                        return;
+                    }
+
+                    boolean pageFull = older.size() >= PAGE_SIZE;
+                    dbHelper.executeWrite(() -> {
+                        dbHelper.saveChatMessagesPage(roomId, older, pageFull, boundaryId);
+                        List<ChatMessage> combined = dbHelper.getChatMessagesBefore(roomId, boundaryId,
+                            PAGE_SIZE - local.size());
+                        combined.addAll(local);
+                        deliverOlder(combined, hasMoreBefore(combined), callback);
+                    });
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<ApiService.ChatMessagesResponse> call, @NonNull Throwable t) {
+                    // Hors ligne: seuls les messages du disque, nouvel essai au prochain défilement
+                    Log.w(TAG, "❌ Historique serveur indisponible: " + t.getMessage());
+                    deliverOlderNow(local, true, callback);
+                }
+            });
+    }
+
+    /**
+     * Thread d'écriture: reste-t-il des messages avant le plus ancien de la page (disque ou serveur) ?
+     */
+    private boolean hasMoreBefore(List<ChatMessage> page) {
+        if (page.isEmpty()) {
+            return false;
+        }
+        int oldestId = page.get(0).getId();
+        return dbHelper.hasChatGapBefore(roomId, oldestId)
+            || !dbHelper.getChatMessagesBefore(roomId, oldestId, 1).isEmpty();
+    }
+
+    private void deliverOlder(List<ChatMessage> messages, boolean hasMore, OlderCallback callback) {
+        mainHandler.post(() -> deliverOlderNow(messages, hasMore, callback));
+    }
+
+    private void deliverOlderNow(List<ChatMessage> messages, boolean hasMore, OlderCallback callback) {
+        loadingOlder = false;
+        if (!hasMore) {
+            reachedStart = true;
+        }
+        callback.onOlderMessages(messages, hasMore);
+    }
+
+    /**
+     * Charge la page précédente quand l'utilisateur remonte près du haut de la liste
+     */
+    public void attachOlderPaging(RecyclerView recyclerView, ChatMessagesAdapter adapter, String token) {
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView view, int dx, int dy) {
+                if (dy >= 0 || !(view.getLayoutManager() instanceof LinearLayoutManager)) {
+                    return;
+                }
+                int firstVisible = ((LinearLayoutManager) view.getLayoutManager()).findFirstVisibleItemPosition();
+                ChatMessage first = adapter.getFirstMessage();
+                if (firstVisible > PREFETCH_DISTANCE || first == null) {
+                    return;
+                }
+                loadOlder(token, first.getId(), (messages, hasMore) -> adapter.prependMessages(messages));
+            }
+        });
+    }
+}
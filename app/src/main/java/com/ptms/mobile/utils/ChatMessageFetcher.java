@@ -0,0 +1,207 @@
+package com.ptms.mobile.utils;
+
+import android.util.Log;
+
+import com.ptms.mobile.api.ApiService;
+import com.ptms.mobile.models.ChatMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * ✅ Récupération incrémentale des messages d'une salle de chat
+ *
+ * - Curseur = ID du dernier message vu: chaque appel ne demande que les messages plus récents (after_id)
+ * - Serveur ignorant after_id (fenêtre complète renvoyée): filtrage côté client, l'écran ne reçoit
+ *   toujours que les nouveaux messages
+ * - Polling adaptatif: intervalle minimal tant que la salle est active, doublé à chaque appel
+ *   sans nouveau message jusqu'à MAX_INTERVAL_MS; retour au minimal dès qu'il se passe quelque chose
+ *
+ * Les callbacks Retrofit arrivent sur le thread UI.
+ *
+ * @version 1.0
+ * @date 2025-10-28
+ */
+public class ChatMessageFetcher {
+
+    private static final String TAG = "ChatMessageFetcher";
+
+    public static final int PAGE_SIZE = 50;
+    public static final long MIN_INTERVAL_MS = 5000;
+    public static final long MAX_INTERVAL_MS = 60000;
+
+    public interface Callback {
+        /**
+         * Messages postérieurs au curseur, du plus ancien au plus récent (liste vide si aucun)
+         */
+        void onNewMessages(List<ChatMessage> messages);
+
+        void onError(String error);
+    }
+
+    private final ApiService apiService;
+    private final int roomId;
+    private final PollingBackoff backoff = new PollingBackoff(MIN_INTERVAL_MS, MAX_INTERVAL_MS);
+
+    private int lastMessageId = 0;
+    private Call<ApiService.ChatMessagesResponse> inFlight;
+
+    public ChatMessageFetcher(ApiService apiService, int roomId) {
+        this.apiService = apiService;
+        this.roomId = roomId;
+    }
+
+    /**
+     * Place le curseur après la fenêtre chargée en entier (ouverture de la salle)
+     */
+    public void reset(List<ChatMessage> window) {
+        lastMessageId = maxId(window, 0);
+        backoff.reset();
+    }
+
+    /**
+     * Demande les messages postérieurs au curseur. Sans curseur (salle vide ou jamais chargée),
+     * charge la dernière fenêtre. Un appel déjà en cours est conservé.
+     */
+    public void fetchNewer(String token, Callback callback) {
+        if (inFlight != null) {
+            return;
+        }
+
+        final int cursor = lastMessageId;
+        Call<ApiService.ChatMessagesResponse> call = cursor > 0
+            ? apiService.getChatMessagesSince(token, roomId, cursor, PAGE_SIZE)
+            : apiService.getChatMessages(token, roomId, PAGE_SIZE, 0);
+        inFlight = call;
+
+        call.enqueue(new retrofit2.Callback<ApiService.ChatMessagesResponse>() {
+            @Override
+            public void onResponse(Call<ApiService.ChatMessagesResponse> call, Response<ApiService.ChatMessagesResponse> response) {
+                if (call != inFlight) {
+                    return;
+                }
+                inFlight = null;
+
+                ApiService.ChatMessagesResponse body = response.body();
+                if (!response.isSuccessful() || body == null || !body.success) {
+                    backoff.next(false);
+                    callback.onError(body != null && body.message != null ? body.message : "HTTP " + response.code());
+                    return;
+                }
+
+                List<ChatMessage> newer = newerThan(body.messages, cursor);
+                lastMessageId = maxId(newer, lastMessageId);
+                backoff.next(!newer.isEmpty());
+                if (!newer.isEmpty()) {
+                    Log.d(TAG, "✅ " + newer.size() + " nouveau(x) message(s) salle " + roomId + " (curseur " + lastMessageId + ")");
+                }
+                callback.onNewMessages(newer);
+            }
+
+            @Override
+            public void onFailure(Call<ApiService.ChatMessagesResponse> call, Throwable t) {
+                if (call != inFlight) {
+                    return;
+                }
+                inFlight = null;
+                backoff.next(false);
+                callback.onError(t.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Abandonne l'appel en cours (écran en pause, changement de salle)
+     */
+    public void cancel() {
+        if (inFlight != null) {
+            inFlight.cancel();
+            inFlight = null;
+        }
+    }
+
+    /**
+     * Activité locale (saisie, envoi): la salle redevient active, polling au rythme minimal
+     */
+    public void onUserActivity() {
+        backoff.reset();
+    }
+
+    /**
+     * Délai avant le prochain appel, selon l'activité récente de la salle
+     */
+    public long getPollDelay() {
+        return backoff.current();
+    }
+
+    public int getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public boolean isFetching() {
+        return inFlight != null;
+    }
+
+    /**
+     * Messages d'ID strictement supérieur à afterId, dans l'ordre reçu
+     */
+    public static List<ChatMessage> newerThan(List<ChatMessage> messages, int afterId) {
+        List<ChatMessage> newer = new ArrayList<>();
+        if (messages == null) {
+            return newer;
+        }
+        for (ChatMessage message : messages) {
+            if (message != null && message.getId() > afterId) {
+                newer.add(message);
+            }
+        }
+        return newer;
+    }
+
+    private static int maxId(List<ChatMessage> messages, int initial) {
+        int max = initial;
+        if (messages != null) {
+            for (ChatMessage message : messages) {
+                if (message != null && message.getId() > max) {
+                    max = message.getId();
+                }
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Intervalle de polling doublé à chaque appel sans activité, borné
+     */
+    public static class PollingBackoff {
+        private final long minInterval;
+        private final long maxInterval;
+        private long current;
+
+        public PollingBackoff(long minInterval, long maxInterval) {
+            this.minInterval = minInterval;
+            this.maxInterval = maxInterval;
+            this.current = minInterval;
+        }
+
+        /**
+         * @param activity true si l'appel a ramené quelque chose
+         * @return délai avant l'appel suivant
+         */
+        public long next(boolean activity) {
+            current = activity ? minInterval : Math.min(current * 2, maxInterval);
+            return current;
+        }
+
+        public void reset() {
+            current = minInterval;
+        }
+
+        public long current() {
+            return current;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.ptms.mobile.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.ptms.mobile.auth.TokenManager;
+import com.ptms.mobile.models.Project;
+import com.ptms.mobile.models.ProjectNote;
+import com.ptms.mobile.models.TimeReport;
+import com.ptms.mobile.utils.SearchManager.SearchCriteria;
+import com.ptms.mobile.utils.SearchManager.SearchResults;
+import com.ptms.mobile.utils.SearchManager.SearchType;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import retrofit2.Call;
+
+/**
+ * ✅ Volet serveur de la recherche hors ligne d'abord
+ *
+ * - Interroge system/search (UnifiedApiHelper.globalSearch) pendant que la recherche locale s'affiche
+ * - Délai maximal REMOTE_TIMEOUT_MS: au-delà, la recherche reste purement locale
+ * - Résultats serveur gardés REMOTE_TTL_MS en mémoire: une recherche répétée est servie sans réseau
+ * - Hors ligne ou sans token: aucune requête, réponse immédiate "indisponible"
+ *
+ * La fusion et le classement commun sont faits par SearchManager.merge.
+ * Les méthodes sont appelées sur le thread UI (callbacks Retrofit et délai inclus).
+ *
+ * @version 1.0
+ * @date 2025-10-28
+ */
+public class FederatedSearch {
+
+    private static final String TAG = "FederatedSearch";
+
+    private static final long REMOTE_TIMEOUT_MS = 3000;
+    private static final long REMOTE_TTL_MS = 5 * 60 * 1000;
+    private static final int MAX_REMOTE_ENTRIES = 16;
+
+    /**
+     * Résultats serveur (null si indisponibles: hors ligne, délai dépassé, erreur)
+     */
+    public interface Callback {
+        void onRemoteResults(SearchResults remote);
+    }
+
+    private static class CachedResults {
+        final SearchResults results;
+        final long fetchedAt;
+
+        CachedResults(SearchResults results, long fetchedAt) {
+            this.results = results;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    // Partagé par toutes les instances (processus), ordre d'accès pour l'éviction
+    private static final LinkedHashMap<String, CachedResults> remoteCache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Context context;
+    private final UnifiedApiHelper apiHelper;
+    private final SessionManager sessionManager;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Gson gson = new Gson();
+
+    private Call<Map<String, Object>> inFlight;
+    private Runnable pendingTimeout;
+
+    public FederatedSearch(Context context) {
+        this.context = context.getApplicationContext();
+        this.apiHelper = new UnifiedApiHelper(this.context);
+        this.sessionManager = new SessionManager(this.context);
+    }
+
+    /**
+     * Lance la requête serveur, ou répond depuis le cache. Le callback est appelé une seule fois,
+     * éventuellement immédiatement; jamais après cancel().
+     */
+    public void fetch(SearchCriteria criteria, Callback callback) {
+        cancel();
+
+        final String cacheKey = cacheKey(criteria);
+        SearchResults cached = getCached(cacheKey);
+        if (cached != null) {
+            Log.d(TAG, "✅ Résultats serveur en cache: " + criteria.query);
+            callback.onRemoteResults(cached);
+            return;
+        }
+
+        String token = TokenManager.getInstance(context).getToken();
+        if (token == null || !NetworkUtils.isOnline(context)) {
+            callback.onRemoteResults(null);
+            return;
+        }
+
+        final long startedAt = System.currentTimeMillis();
+        final AtomicReference<Call<Map<String, Object>>> call = new AtomicReference<>();
+        final Runnable timeout = () -> {
+            Call<Map<String, Object>> expired = call.get();
+            if (!finish(expired)) {
+                return;
+            }
+            expired.cancel();
+            Log.w(TAG, "⏱️ Recherche serveur abandonnée après " + REMOTE_TIMEOUT_MS + " ms");
+            callback.onRemoteResults(null);
+        };
+
+        call.set(apiHelper.globalSearch(token, criteria.query, services(criteria.searchType),
+            new UnifiedApiHelper.GlobalSearchCallback() {
+                @Override
+                public void onSuccess(Map<String, Object> response) {
+                    if (!finish(call.get())) {
+                        return;
+                    }
+                    SearchResults remote = parse(response, criteria);
+                    putCached(cacheKey, remote);
+                    Log.d(TAG, "✅ " + remote.totalCount + " résultat(s) serveur en " +
+                        (System.currentTimeMillis() - startedAt) + " ms");
+                    callback.onRemoteResults(remote);
+                }
+
+                @Override
+                public void onError(String error) {
+                    if (!finish(call.get())) {
+                        return;
+                    }
+                    Log.w(TAG, "❌ Recherche serveur indisponible: " + error);
+                    callback.onRemoteResults(null);
+                }
+            }));
+        inFlight = call.get();
+        pendingTimeout = timeout;
+        mainHandler.postDelayed(timeout, REMOTE_TIMEOUT_MS);
+    }
+
+    /**
+     * Abandonne la requête en cours (nouvelle saisie, écran fermé)
+     */
+    public void cancel() {
+        if (pendingTimeout != null) {
+            mainHandler.removeCallbacks(pendingTimeout);
+            pendingTimeout = null;
+        }
+        if (inFlight != null) {
+            inFlight.cancel();
+            inFlight = null;
+        }
+    }
+
+    /**
+     * @return true si call est toujours la requête en cours (réponse à traiter)
+     */
+    private boolean finish(Call<Map<String, Object>> call) {
+        if (call == null || call != inFlight) {
+            return false;
+        }
+        mainHandler.removeCallbacks(pendingTimeout);
+        pendingTimeout = null;
+        inFlight = null;
+        return true;
+    }
+
+    private static String services(SearchType searchType) {
+        switch (searchType) {
+            case PROJECTS:
+                return "projects";
+            case NOTES:
+                return "notes";
+            case REPORTS:
+                return "reports";
+            case ALL:
+            default:
+                return "projects,notes,reports";
+        }
+    }
+
+    // ==================== CACHE TTL ====================
+
+    private String cacheKey(SearchCriteria criteria) {
+        return sessionManager.getUserId() + "|" + criteria.searchType + "|" +
+            criteria.query.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static SearchResults getCached(String key) {
+        synchronized (remoteCache) {
+            CachedResults cached = remoteCache.get(key);
+            if (cached == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - cached.fetchedAt > REMOTE_TTL_MS) {
+                remoteCache.remove(key);
+                return null;
+            }
+            return cached.results;
+        }
+    }
+
+    private static void putCached(String key, SearchResults results) {
+        synchronized (remoteCache) {
+            remoteCache.put(key, new CachedResults(results, System.currentTimeMillis()));
+            Iterator<String> iterator = remoteCache.keySet().iterator();
+            while (remoteCache.size() > MAX_REMOTE_ENTRIES && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Vide le cache serveur (déconnexion, changement de serveur)
+     */
+    public static void clearCache() {
+        synchronized (remoteCache) {
+            remoteCache.clear();
+        }
+    }
+
+    // ==================== RÉPONSE SERVEUR ====================
+
+    /**
+     * Convertit la réponse de system/search, dans l'ordre de pertinence du serveur.
+     * Listes attendues "projects", "notes" et "reports" (ou "time_reports"), à la racine
+     * ou sous "results"/"data"; champs camelCase comme les autres endpoints.
+     */
+    SearchResults parse(Map<String, Object> response, SearchCriteria criteria) {
+        SearchResults results = new SearchResults();
+        results.query = criteria.query;
+        results.searchType = criteria.searchType;
+        results.complete = false;
+
+        Map<?, ?> root = response;
+        for (String wrapper : new String[]{"results", "data"}) {
+            if (response.get(wrapper) instanceof Map) {
+                root = (Map<?, ?>) response.get(wrapper);
+                break;
+            }
+        }
+
+        results.projects = parseList(root.get("projects"), Project.class);
+        results.notes = parseList(root.get("notes"), ProjectNote.class);
+        Object reports = root.containsKey("reports") ? root.get("reports") : root.get("time_reports");
+        results.reports = parseList(reports, TimeReport.class);
+        results.totalCount = results.projects.size() + results.notes.size() + results.reports.size();
+        return results;
+    }
+
+    private <T> List<T> parseList(Object value, Class<T> type) {
+        List<T> items = new ArrayList<>();
+        if (!(value instanceof List)) {
+            return items;
+        }
+        for (Object element : (List<?>) value) {
+            try {
+                JsonElement json = gson.toJsonTree(element);
+                T item = gson.fromJson(json, type);
+                if (item != null) {
+                    items.add(item);
+                }
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Résultat serveur ignoré (" + type.getSimpleName() + "): " + e.getMessage());
+            }
+        }
+        return items;
+    }
+}
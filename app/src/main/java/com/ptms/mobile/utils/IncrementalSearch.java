@@ -0,0 +1,279 @@
+package com.ptms.mobile.utils;
+
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import com.ptms.mobile.utils.SearchManager.SearchCriteria;
+import com.ptms.mobile.utils.SearchManager.SearchResults;
+import com.ptms.mobile.utils.SearchManager.SearchType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ✅ Recherche pendant la saisie: anti-rebond, annulation et affinage incrémental
+ *
+ * - Une seule recherche active: chaque nouvelle saisie annule la précédente (CancellationSignal
+ *   transmis jusqu'aux requêtes SQLite) et les résultats d'une recherche remplacée sont ignorés
+ * - Recherche par catégorie (projets, notes, rapports): chaque catégorie est publiée dès qu'elle est prête
+ * - Si la saisie prolonge la précédente avec les mêmes filtres, la catégorie est affinée en mémoire
+ *   à partir des résultats précédents (SearchManager.refine) au lieu d'être relancée
+ * - Mode fédéré (FederatedSearch): la requête serveur part en parallèle; les catégories déjà affichées
+ *   sont republiées fusionnées (SearchManager.merge) à son arrivée. La recherche n'est terminée
+ *   qu'une fois le serveur ayant répondu, échoué ou dépassé son délai.
+ *
+ * Tout le travail se fait sur un thread dédié; les callbacks sont appelés sur le thread UI.
+ *
+ * @version 1.0
+ * @date 2025-10-28
+ */
+public class IncrementalSearch {
+
+    private static final String TAG = "IncrementalSearch";
+
+    private static final long DEBOUNCE_MS = 250;
+
+    /**
+     * Notifications (thread UI)
+     */
+    public interface Listener {
+        void onSearchStarted(String query, List<SearchType> categories);
+
+        void onCategoryResults(SearchType category, SearchResults results);
+
+        void onSearchFinished(String query, int totalCount);
+
+        void onSearchError(Exception e);
+    }
+
+    /**
+     * Derniers résultats publiés d'une catégorie, avec les filtres qui les ont produits
+     */
+    private static class Previous {
+        final String filterKey;
+        final SearchResults results;
+
+        Previous(String filterKey, SearchResults results) {
+            this.filterKey = filterKey;
+            this.results = results;
+        }
+    }
+
+    /**
+     * État d'une recherche: résultats locaux par catégorie et réponse serveur, arrivés dans un ordre quelconque
+     */
+    private static class Round {
+        final SearchCriteria criteria;
+        final Map<SearchType, SearchResults> local = new EnumMap<>(SearchType.class);
+        final Map<SearchType, SearchResults> published = new EnumMap<>(SearchType.class);
+        SearchResults remote;
+        boolean localDone;
+        boolean remoteDone;
+
+        Round(SearchCriteria criteria, boolean remoteDone) {
+            this.criteria = criteria;
+            this.remoteDone = remoteDone;
+        }
+
+        int publishedCount() {
+            int count = 0;
+            for (SearchResults results : published.values()) {
+                count += results.totalCount;
+            }
+            return count;
+        }
+    }
+
+    private final SearchManager searchManager;
+    private final FederatedSearch federatedSearch;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Map<SearchType, Previous> previousResults = new EnumMap<>(SearchType.class);
+
+    private Runnable pendingSearch;
+    private CancellationSignal inFlight;
+    private int generation = 0;
+
+    public IncrementalSearch(SearchManager searchManager, Listener listener) {
+        this(searchManager, null, listener);
+    }
+
+    /**
+     * @param federatedSearch volet serveur, ou null pour une recherche purement locale
+     */
+    public IncrementalSearch(SearchManager searchManager, FederatedSearch federatedSearch, Listener listener) {
+        this.searchManager = searchManager;
+        this.federatedSearch = federatedSearch;
+        this.listener = listener;
+    }
+
+    /**
+     * Nouvelle saisie: recherche après DEBOUNCE_MS sans autre frappe
+     */
+    public void onQueryChanged(SearchCriteria criteria) {
+        schedule(criteria.copy(), DEBOUNCE_MS);
+    }
+
+    /**
+     * Changement de filtre ou de tri: recherche immédiate
+     */
+    public void searchNow(SearchCriteria criteria) {
+        schedule(criteria.copy(), 0);
+    }
+
+    /**
+     * Annule la recherche en attente et celle en cours (saisie vidée, écran fermé)
+     */
+    public void cancel() {
+        generation++;
+        if (pendingSearch != null) {
+            mainHandler.removeCallbacks(pendingSearch);
+            pendingSearch = null;
+        }
+        if (inFlight != null) {
+            inFlight.cancel();
+            inFlight = null;
+        }
+        if (federatedSearch != null) {
+            federatedSearch.cancel();
+        }
+    }
+
+    /**
+     * Oublie les résultats précédents (le prochain affichage ne sera pas un affinage)
+     */
+    public void reset() {
+        cancel();
+        previousResults.clear();
+    }
+
+    public void shutdown() {
+        reset();
+        executor.shutdownNow();
+    }
+
+    private void schedule(SearchCriteria criteria, long delayMs) {
+        cancel();
+        if (criteria.query == null || criteria.query.isEmpty()) {
+            return;
+        }
+        final int searchGeneration = generation;
+        pendingSearch = () -> {
+            pendingSearch = null;
+            start(criteria, searchGeneration);
+        };
+        mainHandler.postDelayed(pendingSearch, delayMs);
+    }
+
+    private void start(SearchCriteria criteria, int searchGeneration) {
+        final List<SearchType> categories = criteria.searchType == SearchType.ALL
+            ? Arrays.asList(SearchType.PROJECTS, SearchType.NOTES, SearchType.REPORTS)
+            : Collections.singletonList(criteria.searchType);
+        final String filterKey = criteria.getFilterKey();
+
+        // Base d'affinage par catégorie (lue sur le thread UI, seul à modifier previousResults)
+        final Map<SearchType, SearchResults> refinable = new EnumMap<>(SearchType.class);
+        for (SearchType category : categories) {
+            Previous previous = previousResults.get(category);
+            if (previous != null && previous.filterKey.equals(filterKey) && previous.results.complete
+                && previous.results.query != null && criteria.query.startsWith(previous.results.query)) {
+                refinable.put(category, previous.results);
+            }
+        }
+
+        final CancellationSignal signal = new CancellationSignal();
+        inFlight = signal;
+        listener.onSearchStarted(criteria.query, categories);
+
+        final Round round = new Round(criteria, federatedSearch == null);
+        if (federatedSearch != null) {
+            // Réponse sur le thread UI (éventuellement immédiate: cache, hors ligne)
+            federatedSearch.fetch(criteria, remote -> {
+                if (searchGeneration != generation) {
+                    return;
+                }
+                round.remote = remote;
+                round.remoteDone = true;
+                if (remote != null) {
+                    for (Map.Entry<SearchType, SearchResults> entry : round.local.entrySet()) {
+                        publish(round, entry.getKey(), entry.getValue());
+                    }
+                }
+                finishIfDone(round);
+            });
+        }
+
+        executor.execute(() -> {
+            try {
+                for (SearchType category : categories) {
+                    signal.throwIfCanceled();
+                    SearchCriteria categoryCriteria = criteria.copy();
+                    categoryCriteria.searchType = category;
+
+                    SearchResults base = refinable.get(category);
+                    SearchResults results = base != null
+                        ? searchManager.refine(base, categoryCriteria)
+                        : searchManager.search(categoryCriteria, signal);
+
+                    mainHandler.post(() -> {
+                        if (searchGeneration != generation) {
+                            return; // recherche remplacée entre-temps
+                        }
+                        // Base d'affinage: résultats locaux seuls
+                        previousResults.put(category, new Previous(filterKey, results));
+                        round.local.put(category, results);
+                        publish(round, category, results);
+                    });
+                }
+
+                mainHandler.post(() -> {
+                    if (searchGeneration == generation) {
+                        inFlight = null;
+                        round.localDone = true;
+                        finishIfDone(round);
+                    }
+                });
+            } catch (OperationCanceledException e) {
+                Log.d(TAG, "Recherche annulée: " + criteria.query);
+            } catch (Exception e) {
+                Log.e(TAG, "❌ Erreur recherche", e);
+                mainHandler.post(() -> {
+                    if (searchGeneration == generation) {
+                        inFlight = null;
+                        if (federatedSearch != null) {
+                            federatedSearch.cancel();
+                        }
+                        listener.onSearchError(e);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Publie une catégorie, fusionnée avec la réponse serveur si elle est déjà là (thread UI)
+     */
+    private void publish(Round round, SearchType category, SearchResults local) {
+        SearchResults results = local;
+        if (round.remote != null) {
+            results = searchManager.merge(local, round.remote, round.criteria);
+        }
+        round.published.put(category, results);
+        listener.onCategoryResults(category, results);
+    }
+
+    private void finishIfDone(Round round) {
+        if (round.localDone && round.remoteDone) {
+            listener.onSearchFinished(round.criteria.query, round.publishedCount());
+        }
+    }
+}
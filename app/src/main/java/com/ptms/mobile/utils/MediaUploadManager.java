@@ -2,6 +2,8 @@ package com.ptms.mobile.utils;
 
 import android.webkit.MimeTypeMap;
 
+import com.ptms.mobile.api.ApiClient;
+
 import okhttp3.*;
 import okio.BufferedSink;
 import okio.ForwardingSink;
@@ -62,6 +64,8 @@ public class MediaUploadManager {
     public MediaUploadManager(String baseUrl) {
         this.baseUrl = baseUrl;
         this.client = new OkHttpClient.Builder()
+            .dispatcher(ApiClient.getSharedDispatcher())
+            .connectionPool(ApiClient.getSharedConnectionPool())
             .connectTimeout(30, TimeUnit.SECONDS)
             .writeTimeout(120, TimeUnit.SECONDS)  // 2 minutes pour gros fichiers
             .readTimeout(120, TimeUnit.SECONDS)
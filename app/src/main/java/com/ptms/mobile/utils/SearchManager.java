@@ -1,9 +1,12 @@
 package com.ptms.mobile.utils;
 
 import android.content.Context;
+import android.os.CancellationSignal;
+import android.text.TextUtils;
 import android.util.Log;
 
 import com.ptms.mobile.database.OfflineDatabaseHelper;
+import com.ptms.mobile.database.SearchIndex;
 import com.ptms.mobile.models.Project;
 import com.ptms.mobile.models.ProjectNote;
 import com.ptms.mobile.models.TimeReport;
@@ -13,8 +16,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
 
 /**
  * ✅ Gestionnaire de recherche avancée multi-critères
@@ -22,7 +29,7 @@ import java.util.Map;
  * Fonctionnalités :
  * - Recherche unifiée (projets, notes, rapports)
  * - Filtres multiples (date, catégorie, projet, tags)
- * - Recherche full-text avec normalisation
+ * - Recherche full-text: index FTS4 (SearchIndex) classé par pertinence, avec extraits
  * - Tri personnalisable
  * - Résultats groupés par type
  * - Historique de recherche
@@ -72,16 +79,18 @@ public class SearchManager {
     private static final int MAX_HISTORY_SIZE = 20;
     private List<String> searchHistory;
 
-    // Cache des résultats
-    private Map<String, SearchResults> resultsCache;
-    private static final int MAX_CACHE_SIZE = 10;
+    // Cache des résultats (LRU partagé, invalidé par les écritures locales)
+    private final SearchResultsCache resultsCache;
+
+    // Résultats plein texte conservés par type (les mieux classés)
+    private static final int MAX_RESULTS_PER_TYPE = 100;
 
     public SearchManager(Context context) {
         this.context = context.getApplicationContext();
-        this.dbHelper = new OfflineDatabaseHelper(context);
+        this.dbHelper = OfflineDatabaseHelper.getInstance(context);
         this.sessionManager = new SessionManager(context);
         this.searchHistory = loadSearchHistory();
-        this.resultsCache = new HashMap<>();
+        this.resultsCache = SearchResultsCache.getInstance(context);
     }
 
     // ==================== RECHERCHE PRINCIPALE ====================
@@ -90,6 +99,14 @@ public class SearchManager {
      * Recherche unifiée avec tous les critères
      */
     public SearchResults search(SearchCriteria criteria) {
+        return search(criteria, null);
+    }
+
+    /**
+     * Recherche annulable: les requêtes en cours s'arrêtent dès que signal est annulé
+     * (OperationCanceledException), par exemple quand la saisie a changé
+     */
+    public SearchResults search(SearchCriteria criteria, CancellationSignal signal) {
         Log.d(TAG, "========================================");
         Log.d(TAG, "🔍 RECHERCHE AVANCÉE");
         Log.d(TAG, "========================================");
@@ -98,12 +115,14 @@ public class SearchManager {
         Log.d(TAG, "Sort: " + criteria.sortBy);
         Log.d(TAG, "Date filter: " + criteria.dateFilter);
 
-        // Vérifier le cache
-        String cacheKey = criteria.getCacheKey();
-        if (resultsCache.containsKey(cacheKey)) {
-            Log.d(TAG, "✅ Résultats en cache");
-            return resultsCache.get(cacheKey);
+        // Vérifier le cache (les notes dépendent de l'utilisateur connecté)
+        String cacheKey = sessionManager.getUserId() + "|" + criteria.getCacheKey();
+        SearchResultsCache.Entry cached = resultsCache.get(cacheKey);
+        if (cached != null) {
+            Log.d(TAG, "✅ Résultats en cache (" + resultsCache + ")");
+            return rehydrate(criteria, cached);
         }
+        long cacheGeneration = resultsCache.getGeneration();
 
         SearchResults results = new SearchResults();
         results.query = criteria.query;
@@ -112,27 +131,41 @@ public class SearchManager {
         // Normaliser la requête
         String normalizedQuery = normalizeText(criteria.query);
 
+        // ✅ Requête texte: index plein texte (MATCH classé); sinon filtres seuls sur les listes
+        String matchQuery = SearchIndex.toMatchQuery(criteria.query);
+        boolean fullText = matchQuery != null && dbHelper.isSearchIndexAvailable();
+
         // Rechercher selon le type
         switch (criteria.searchType) {
             case ALL:
-                results.projects = searchProjects(normalizedQuery, criteria);
-                results.notes = searchNotes(normalizedQuery, criteria);
-                results.reports = searchReports(normalizedQuery, criteria);
+                results.projects = fullText ? searchProjectsIndexed(matchQuery, criteria, results, signal)
+                                            : searchProjects(normalizedQuery, criteria);
+                results.notes = fullText ? searchNotesIndexed(matchQuery, criteria, results, signal)
+                                         : searchNotes(normalizedQuery, criteria);
+                results.reports = fullText ? searchReportsIndexed(matchQuery, criteria, results, signal)
+                                           : searchReports(normalizedQuery, criteria);
                 break;
 
             case PROJECTS:
-                results.projects = searchProjects(normalizedQuery, criteria);
+                results.projects = fullText ? searchProjectsIndexed(matchQuery, criteria, results, signal)
+                                            : searchProjects(normalizedQuery, criteria);
                 break;
 
             case NOTES:
-                results.notes = searchNotes(normalizedQuery, criteria);
+                results.notes = fullText ? searchNotesIndexed(matchQuery, criteria, results, signal)
+                                         : searchNotes(normalizedQuery, criteria);
                 break;
 
             case REPORTS:
-                results.reports = searchReports(normalizedQuery, criteria);
+                results.reports = fullText ? searchReportsIndexed(matchQuery, criteria, results, signal)
+                                           : searchReports(normalizedQuery, criteria);
                 break;
         }
 
+        if (signal != null) {
+            signal.throwIfCanceled();
+        }
+
         // Calculer le total
         results.totalCount = results.projects.size() +
                             results.notes.size() +
@@ -142,7 +175,7 @@ public class SearchManager {
         sortResults(results, criteria.sortBy);
 
         // Mettre en cache
-        cacheResults(cacheKey, results);
+        resultsCache.put(cacheKey, toCacheEntry(results), cacheGeneration);
 
         // Sauvegarder dans l'historique
         addToSearchHistory(criteria.query);
@@ -210,6 +243,222 @@ public class SearchManager {
         return filtered;
     }
 
+    // ==================== RECHERCHE PLEIN TEXTE (INDEX FTS) ====================
+
+    /**
+     * Projets trouvés par l'index, classés par pertinence
+     */
+    private List<Project> searchProjectsIndexed(String matchQuery, SearchCriteria criteria, SearchResults results,
+                                                CancellationSignal signal) {
+        List<Project> filtered = new ArrayList<>();
+        List<SearchIndex.Hit<Project>> hits =
+            dbHelper.searchProjects(matchQuery, criteria.projectId, MAX_RESULTS_PER_TYPE, signal);
+        markTruncated(results, hits.size());
+        for (SearchIndex.Hit<Project> hit : hits) {
+            filtered.add(hit.item);
+            results.snippets.put(hit.item, hit.snippet);
+        }
+        return filtered;
+    }
+
+    /**
+     * Notes trouvées par l'index (utilisateur, projet et importance filtrés en SQL),
+     * puis filtres catégorie/tags/date appliqués jusqu'à MAX_RESULTS_PER_TYPE résultats retenus
+     */
+    private List<ProjectNote> searchNotesIndexed(String matchQuery, SearchCriteria criteria, SearchResults results,
+                                                 CancellationSignal signal) {
+        int userId = sessionManager.getUserId();
+        return collectFiltered(limit -> dbHelper.searchNotes(userId, matchQuery, criteria.projectId,
+                                                             criteria.importantOnly, limit, signal),
+                               note -> matchesNoteCriteria(note, "", criteria), results);
+    }
+
+    /**
+     * Rapports trouvés par l'index (tous les rapports locaux, pas seulement ceux en attente)
+     */
+    private List<TimeReport> searchReportsIndexed(String matchQuery, SearchCriteria criteria, SearchResults results,
+                                                  CancellationSignal signal) {
+        return collectFiltered(limit -> dbHelper.searchTimeReports(matchQuery, criteria.projectId, limit, signal),
+                               report -> matchesReportCriteria(report, "", criteria), results);
+    }
+
+    /**
+     * Résultats de l'index qui passent les filtres appliqués en mémoire, dans l'ordre de pertinence
+     * Les filtres sont appliqués après le LIMIT SQL: tant que moins de MAX_RESULTS_PER_TYPE résultats
+     * sont retenus et que l'index en a encore, on redemande une liste deux fois plus longue.
+     */
+    private <T> List<T> collectFiltered(IntFunction<List<SearchIndex.Hit<T>>> search, Predicate<T> accept,
+                                        SearchResults results) {
+        List<SearchIndex.Hit<T>> accepted = new ArrayList<>();
+        int limit = MAX_RESULTS_PER_TYPE;
+        while (true) {
+            List<SearchIndex.Hit<T>> hits = search.apply(limit);
+            accepted.clear();
+            for (SearchIndex.Hit<T> hit : hits) {
+                if (accepted.size() < MAX_RESULTS_PER_TYPE && accept.test(hit.item)) {
+                    accepted.add(hit);
+                }
+            }
+            if (accepted.size() >= MAX_RESULTS_PER_TYPE || hits.size() < limit) {
+                break;
+            }
+            limit *= 2;
+        }
+
+        markTruncated(results, accepted.size());
+        List<T> filtered = new ArrayList<>(accepted.size());
+        for (SearchIndex.Hit<T> hit : accepted) {
+            filtered.add(hit.item);
+            results.snippets.put(hit.item, hit.snippet);
+        }
+        return filtered;
+    }
+
+    /**
+     * Liste coupée à MAX_RESULTS_PER_TYPE: ces résultats ne peuvent pas servir de base à un affinage
+     */
+    private static void markTruncated(SearchResults results, int hitCount) {
+        if (hitCount >= MAX_RESULTS_PER_TYPE) {
+            results.complete = false;
+        }
+    }
+
+    // ==================== AFFINAGE INCRÉMENTAL ====================
+
+    /**
+     * Affine des résultats complets pour une saisie qui prolonge la précédente ("chan" → "chant")
+     * Tout résultat de la nouvelle requête figurait déjà dans les anciens: on filtre en mémoire,
+     * sans requête, en conservant l'ordre et les extraits.
+     *
+     * @param previous résultats complets (previous.complete) de la requête précédente
+     */
+    public SearchResults refine(SearchResults previous, SearchCriteria criteria) {
+        SearchResults results = new SearchResults();
+        results.query = criteria.query;
+        results.searchType = criteria.searchType;
+
+        boolean fullText = dbHelper.isSearchIndexAvailable();
+        String normalizedQuery = normalizeText(criteria.query);
+
+        for (Project project : previous.projects) {
+            boolean matches = fullText
+                ? SearchIndex.matches(criteria.query, project.getName(), project.getDescription())
+                : matchesProjectCriteria(project, normalizedQuery, criteria);
+            if (matches) {
+                results.projects.add(project);
+                putSnippet(results, project, previous.getSnippet(project));
+            }
+        }
+        for (ProjectNote note : previous.notes) {
+            boolean matches = fullText
+                ? SearchIndex.matches(criteria.query, note.getTitle(), note.getContent(), note.getTranscription(),
+                                      note.getTags() != null ? TextUtils.join(" ", note.getTags()) : null)
+                : matchesNoteCriteria(note, normalizedQuery, criteria);
+            if (matches) {
+                results.notes.add(note);
+                putSnippet(results, note, previous.getSnippet(note));
+            }
+        }
+        for (TimeReport report : previous.reports) {
+            boolean matches = fullText
+                ? SearchIndex.matches(criteria.query, report.getProjectName(), report.getWorkTypeName(),
+                                      report.getDescription())
+                : matchesReportCriteria(report, normalizedQuery, criteria);
+            if (matches) {
+                results.reports.add(report);
+                putSnippet(results, report, previous.getSnippet(report));
+            }
+        }
+
+        results.totalCount = results.projects.size() + results.notes.size() + results.reports.size();
+        Log.d(TAG, "✅ Affinage \"" + previous.query + "\" → \"" + criteria.query + "\": " +
+            results.totalCount + "/" + previous.totalCount);
+        return results;
+    }
+
+    // ==================== FUSION LOCAL + SERVEUR ====================
+
+    // Constante de la fusion par rangs réciproques (valeur usuelle)
+    private static final int FUSION_RANK_CONSTANT = 60;
+
+    /**
+     * Fusionne des résultats locaux avec ceux du serveur (FederatedSearch), pour les catégories de local
+     *
+     * - Dédoublonnage par ID serveur: la version locale est conservée (modifications non synchronisées)
+     * - Les éléments serveur absents en local passent par les mêmes filtres que la recherche locale
+     *   (le texte est déjà filtré par le serveur)
+     * - Tri par pertinence: fusion par rangs réciproques, score = Σ 1 / (60 + rang) sur les deux listes;
+     *   un élément trouvé des deux côtés remonte. Les autres tris sont réappliqués tels quels.
+     */
+    public SearchResults merge(SearchResults local, SearchResults remote, SearchCriteria criteria) {
+        SearchResults results = new SearchResults();
+        results.query = local.query;
+        results.searchType = local.searchType;
+        results.snippets.putAll(local.snippets);
+        // Les éléments serveur ne sont pas en base: jamais une base d'affinage
+        results.complete = false;
+
+        boolean byRelevance = criteria.sortBy == SortBy.RELEVANCE;
+        if (local.searchType == SearchType.ALL || local.searchType == SearchType.PROJECTS) {
+            results.projects = fuse(local.projects, remote.projects, Project::getId, Project::getId,
+                project -> matchesProjectCriteria(project, null, criteria), byRelevance);
+        }
+        if (local.searchType == SearchType.ALL || local.searchType == SearchType.NOTES) {
+            results.notes = fuse(local.notes, remote.notes,
+                note -> note.getId() > 0 ? note.getId() : null, // 0 tant que la note n'est pas synchronisée
+                note -> note.getId(),
+                note -> matchesNoteCriteria(note, null, criteria), byRelevance);
+        }
+        if (local.searchType == SearchType.ALL || local.searchType == SearchType.REPORTS) {
+            results.reports = fuse(local.reports, remote.reports, TimeReport::getServerId, TimeReport::getId,
+                report -> matchesReportCriteria(report, null, criteria), byRelevance);
+        }
+
+        results.totalCount = results.projects.size() + results.notes.size() + results.reports.size();
+        if (!byRelevance) {
+            sortResults(results, criteria.sortBy);
+        }
+        return results;
+    }
+
+    private static <T> List<T> fuse(List<T> local, List<T> remote,
+                                    Function<T, Integer> localServerId, Function<T, Integer> remoteServerId,
+                                    Predicate<T> accept, boolean byRelevance) {
+        List<T> merged = new ArrayList<>(local);
+        Map<T, Double> scores = new IdentityHashMap<>();
+        Map<Integer, T> byServerId = new HashMap<>();
+
+        for (int rank = 0; rank < local.size(); rank++) {
+            T item = local.get(rank);
+            scores.put(item, 1.0 / (FUSION_RANK_CONSTANT + rank + 1));
+            Integer serverId = localServerId.apply(item);
+            if (serverId != null) {
+                byServerId.put(serverId, item);
+            }
+        }
+        for (int rank = 0; rank < remote.size(); rank++) {
+            T item = remote.get(rank);
+            double score = 1.0 / (FUSION_RANK_CONSTANT + rank + 1);
+            Integer serverId = remoteServerId.apply(item);
+            T existing = serverId != null ? byServerId.get(serverId) : null;
+            if (existing != null) {
+                scores.put(existing, scores.get(existing) + score);
+            } else if (accept.test(item)) {
+                merged.add(item);
+                scores.put(item, score);
+                if (serverId != null) {
+                    byServerId.put(serverId, item);
+                }
+            }
+        }
+
+        if (byRelevance) {
+            // Tri stable: à score égal, l'ordre local reste devant
+            Collections.sort(merged, (a, b) -> Double.compare(scores.get(b), scores.get(a)));
+        }
+        return merged;
+    }
+
     // ==================== CRITÈRES DE CORRESPONDANCE ====================
 
     /**
@@ -534,16 +783,94 @@ public class SearchManager {
     // ==================== CACHE ====================
 
     /**
-     * Met en cache les résultats de recherche
+     * Réduit les résultats à leurs IDs (et extraits), dans l'ordre de tri
      */
-    private void cacheResults(String key, SearchResults results) {
-        if (resultsCache.size() >= MAX_CACHE_SIZE) {
-            // Supprimer le plus ancien (simple FIFO)
-            String firstKey = resultsCache.keySet().iterator().next();
-            resultsCache.remove(firstKey);
+    private SearchResultsCache.Entry toCacheEntry(SearchResults results) {
+        int[] projectIds = new int[results.projects.size()];
+        String[] projectSnippets = new String[projectIds.length];
+        for (int i = 0; i < projectIds.length; i++) {
+            Project project = results.projects.get(i);
+            projectIds[i] = project.getId();
+            projectSnippets[i] = results.getSnippet(project);
         }
+        int[] noteIds = new int[results.notes.size()];
+        String[] noteSnippets = new String[noteIds.length];
+        for (int i = 0; i < noteIds.length; i++) {
+            ProjectNote note = results.notes.get(i);
+            noteIds[i] = (int) note.getLocalId();
+            noteSnippets[i] = results.getSnippet(note);
+        }
+        int[] reportIds = new int[results.reports.size()];
+        String[] reportSnippets = new String[reportIds.length];
+        for (int i = 0; i < reportIds.length; i++) {
+            TimeReport report = results.reports.get(i);
+            reportIds[i] = report.getId();
+            reportSnippets[i] = results.getSnippet(report);
+        }
+        return new SearchResultsCache.Entry(results.searchType, projectIds, noteIds, reportIds,
+            projectSnippets, noteSnippets, reportSnippets, results.complete);
+    }
 
-        resultsCache.put(key, results);
+    /**
+     * Recharge les éléments d'une entrée du cache (données à jour, ordre conservé)
+     */
+    private SearchResults rehydrate(SearchCriteria criteria, SearchResultsCache.Entry entry) {
+        SearchResults results = new SearchResults();
+        results.query = criteria.query;
+        results.searchType = criteria.searchType;
+
+        if (entry.projectIds.length > 0) {
+            Map<Integer, Project> projectsById = new HashMap<>();
+            for (Project project : dbHelper.getAllProjects()) {
+                projectsById.put(project.getId(), project);
+            }
+            for (int i = 0; i < entry.projectIds.length; i++) {
+                Project project = projectsById.get(entry.projectIds[i]);
+                if (project != null) {
+                    results.projects.add(project);
+                    putSnippet(results, project, entry.projectSnippets[i]);
+                }
+            }
+        }
+
+        Map<Integer, String> noteSnippets = new HashMap<>();
+        List<Integer> noteIds = new ArrayList<>();
+        for (int i = 0; i < entry.noteIds.length; i++) {
+            noteIds.add(entry.noteIds[i]);
+            noteSnippets.put(entry.noteIds[i], entry.noteSnippets[i]);
+        }
+        for (ProjectNote note : dbHelper.getProjectNotesByLocalIds(noteIds)) {
+            results.notes.add(note);
+            putSnippet(results, note, noteSnippets.get((int) note.getLocalId()));
+        }
+
+        Map<Integer, String> reportSnippets = new HashMap<>();
+        List<Integer> reportIds = new ArrayList<>();
+        for (int i = 0; i < entry.reportIds.length; i++) {
+            reportIds.add(entry.reportIds[i]);
+            reportSnippets.put(entry.reportIds[i], entry.reportSnippets[i]);
+        }
+        for (TimeReport report : dbHelper.getTimeReportsByLocalIds(reportIds)) {
+            results.reports.add(report);
+            putSnippet(results, report, reportSnippets.get(report.getId()));
+        }
+
+        results.totalCount = results.projects.size() + results.notes.size() + results.reports.size();
+        results.complete = entry.complete;
+        return results;
+    }
+
+    private static void putSnippet(SearchResults results, Object item, String snippet) {
+        if (snippet != null) {
+            results.snippets.put(item, snippet);
+        }
+    }
+
+    /**
+     * Statistiques du cache (hits, misses, évictions, invalidations)
+     */
+    public SearchResultsCache getResultsCache() {
+        return resultsCache;
     }
 
     /**
@@ -571,6 +898,33 @@ public class SearchManager {
         public String startDate = null;
         public String endDate = null;
 
+        /**
+         * Copie (les critères de l'écran restent modifiables pendant une recherche en arrière-plan)
+         */
+        public SearchCriteria copy() {
+            SearchCriteria copy = new SearchCriteria();
+            copy.query = query;
+            copy.searchType = searchType;
+            copy.sortBy = sortBy;
+            copy.dateFilter = dateFilter;
+            copy.projectId = projectId;
+            copy.category = category;
+            copy.tags = tags != null ? new ArrayList<>(tags) : null;
+            copy.importantOnly = importantOnly;
+            copy.startDate = startDate;
+            copy.endDate = endDate;
+            return copy;
+        }
+
+        /**
+         * Clé de tous les critères sauf la saisie (deux recherches comparables pour l'affinage)
+         */
+        public String getFilterKey() {
+            SearchCriteria withoutQuery = copy();
+            withoutQuery.query = "";
+            return withoutQuery.getCacheKey();
+        }
+
         public String getCacheKey() {
             StringBuilder sb = new StringBuilder();
             sb.append(query).append("|");
@@ -580,7 +934,9 @@ public class SearchManager {
             sb.append(projectId).append("|");
             sb.append(category).append("|");
             sb.append(tags).append("|");
-            sb.append(importantOnly);
+            sb.append(importantOnly).append("|");
+            sb.append(startDate).append("|");
+            sb.append(endDate);
             return sb.toString();
         }
     }
@@ -595,5 +951,15 @@ public class SearchManager {
         public List<ProjectNote> notes = new ArrayList<>();
         public List<TimeReport> reports = new ArrayList<>();
         public int totalCount = 0;
+
+        // false si une catégorie a été coupée à MAX_RESULTS_PER_TYPE (affinage en mémoire impossible)
+        public boolean complete = true;
+
+        // Extraits de l'index plein texte, par élément (termes délimités par SearchIndex.MATCH_START/END)
+        public Map<Object, String> snippets = new IdentityHashMap<>();
+
+        public String getSnippet(Object item) {
+            return snippets.get(item);
+        }
     }
 }
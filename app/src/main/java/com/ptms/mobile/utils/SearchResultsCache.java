@@ -0,0 +1,201 @@
+package com.ptms.mobile.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.ptms.mobile.database.OfflineDatabaseHelper;
+import com.ptms.mobile.database.SearchIndex;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ✅ Cache LRU borné des résultats de recherche
+ *
+ * - Valeurs légères: IDs des résultats (et extraits), réhydratés depuis la base à la lecture
+ * - Borné en nombre d'entrées et en nombre total d'IDs conservés
+ * - Invalidé par les notifications de modification des tables indexées (OfflineDatabaseHelper)
+ * - Une recherche commencée avant une modification n'est pas mise en cache (génération)
+ * - Compteurs de hits / misses / évictions / invalidations
+ *
+ * Instance unique (processus): partagée par tous les SearchManager.
+ *
+ * @version 1.0
+ * @date 2025-10-28
+ */
+public class SearchResultsCache implements OfflineDatabaseHelper.TableChangeListener {
+
+    private static final String TAG = "SearchResultsCache";
+
+    private static final int MAX_ENTRIES = 32;
+    private static final int MAX_TOTAL_IDS = 2000;
+
+    private static SearchResultsCache instance;
+
+    /**
+     * Résultats d'une recherche réduits à leurs IDs (dans l'ordre de tri)
+     */
+    public static class Entry {
+        final SearchManager.SearchType searchType;
+        final int[] projectIds;   // ID serveur
+        final int[] noteIds;      // ID local
+        final int[] reportIds;    // ID local
+        final String[] projectSnippets;
+        final String[] noteSnippets;
+        final String[] reportSnippets;
+        final boolean complete;
+
+        Entry(SearchManager.SearchType searchType, int[] projectIds, int[] noteIds, int[] reportIds,
+              String[] projectSnippets, String[] noteSnippets, String[] reportSnippets, boolean complete) {
+            this.searchType = searchType;
+            this.projectIds = projectIds;
+            this.noteIds = noteIds;
+            this.reportIds = reportIds;
+            this.projectSnippets = projectSnippets;
+            this.noteSnippets = noteSnippets;
+            this.reportSnippets = reportSnippets;
+            this.complete = complete;
+        }
+
+        int size() {
+            return projectIds.length + noteIds.length + reportIds.length;
+        }
+
+        /**
+         * Une modification de la table peut-elle changer ces résultats ?
+         */
+        boolean dependsOn(String table) {
+            switch (searchType) {
+                case PROJECTS:
+                    return SearchIndex.PROJECTS_TABLE.equals(table);
+                case NOTES:
+                    return SearchIndex.NOTES_TABLE.equals(table);
+                case REPORTS:
+                    return SearchIndex.REPORTS_TABLE.equals(table);
+                case ALL:
+                default:
+                    return SearchIndex.PROJECTS_TABLE.equals(table)
+                        || SearchIndex.NOTES_TABLE.equals(table)
+                        || SearchIndex.REPORTS_TABLE.equals(table);
+            }
+        }
+    }
+
+    // Ordre d'accès: le premier élément est le moins récemment utilisé
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int totalIds = 0;
+    private long generation = 0;
+
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+    private long invalidationCount = 0;
+
+    private SearchResultsCache(Context context) {
+        OfflineDatabaseHelper.getInstance(context).addTableChangeListener(this);
+    }
+
+    public static synchronized SearchResultsCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new SearchResultsCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * @return l'entrée en cache, ou null (compté comme miss)
+     */
+    public synchronized Entry get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return entry;
+    }
+
+    /**
+     * Génération courante, à relever avant d'exécuter la recherche
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Met en cache si aucune table n'a été modifiée depuis startGeneration
+     */
+    public synchronized void put(String key, Entry entry, long startGeneration) {
+        if (startGeneration != generation || entry.size() > MAX_TOTAL_IDS) {
+            return;
+        }
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            totalIds -= previous.size();
+        }
+        totalIds += entry.size();
+        trim();
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > MAX_ENTRIES || totalIds > MAX_TOTAL_IDS) && iterator.hasNext()) {
+            totalIds -= iterator.next().getValue().size();
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+
+    @Override
+    public synchronized void onTableChanged(String table) {
+        generation++;
+        int removed = 0;
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            if (entry.dependsOn(table)) {
+                totalIds -= entry.size();
+                iterator.remove();
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            invalidationCount += removed;
+            Log.d(TAG, "🗑️ " + removed + " recherche(s) invalidée(s) (" + table + ")");
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+        totalIds = 0;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SearchResultsCache{entries=" + entries.size() + ", ids=" + totalIds +
+            ", hits=" + hitCount + ", misses=" + missCount +
+            ", evictions=" + evictionCount + ", invalidations=" + invalidationCount + "}";
+    }
+}
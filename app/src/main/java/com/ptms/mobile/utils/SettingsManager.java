@@ -15,8 +15,8 @@ public class SettingsManager {
     private static final String KEY_DEBUG_MODE = "debug_mode";
     private static final String KEY_CHAT_ENABLED = "chat_enabled"; // true = Chat activé, false = Chat désactivé
     private static final String KEY_CHAT_POLLING_ENABLED = "chat_polling_enabled";
-    private static final String KEY_CHAT_VERSION = "chat_version"; // 1 = Polling HTTP, 2 = WebSocket
     private static final String KEY_CHAT_GROUPED_VIEW = "chat_grouped_view"; // true = Regroupé par type
+    private static final String KEY_UPLOAD_CONCURRENCY = "upload_concurrency"; // Uploads simultanés (2 à 4)
 
     // Valeurs par défaut
     private static final String DEFAULT_SERVER_URL = "https://office.protti.group/hours"; // URL du serveur PTMS
@@ -26,12 +26,8 @@ public class SettingsManager {
     private static final boolean DEFAULT_DEBUG_MODE = false;
     private static final boolean DEFAULT_CHAT_ENABLED = true; // Chat activé par défaut
     private static final boolean DEFAULT_CHAT_POLLING_ENABLED = true; // Activé par défaut
-    private static final int DEFAULT_CHAT_VERSION = 1; // Version 1 (Polling) par défaut
     private static final boolean DEFAULT_CHAT_GROUPED_VIEW = true; // Regroupé par défaut
-
-    // Constantes pour les versions du chat
-    public static final int CHAT_VERSION_POLLING = 1;
-    public static final int CHAT_VERSION_WEBSOCKET = 2;
+    private static final int DEFAULT_UPLOAD_CONCURRENCY = 3;
 
     private SharedPreferences prefs;
 
@@ -108,22 +104,15 @@ public class SettingsManager {
         return prefs.getBoolean(KEY_CHAT_POLLING_ENABLED, DEFAULT_CHAT_POLLING_ENABLED);
     }
 
-    public int getChatVersion() {
-        return prefs.getInt(KEY_CHAT_VERSION, DEFAULT_CHAT_VERSION);
-    }
-
-    public boolean isChatVersionPolling() {
-        return getChatVersion() == CHAT_VERSION_POLLING;
-    }
-
-    public boolean isChatVersionWebSocket() {
-        return getChatVersion() == CHAT_VERSION_WEBSOCKET;
-    }
-
     public boolean isChatGroupedView() {
         return prefs.getBoolean(KEY_CHAT_GROUPED_VIEW, DEFAULT_CHAT_GROUPED_VIEW);
     }
 
+    public int getUploadConcurrency() {
+        int concurrency = prefs.getInt(KEY_UPLOAD_CONCURRENCY, DEFAULT_UPLOAD_CONCURRENCY);
+        return Math.max(2, Math.min(4, concurrency));
+    }
+
     // Setters
     public void setServerUrl(String url) {
         prefs.edit().putString(KEY_SERVER_URL, url).apply();
@@ -149,16 +138,14 @@ public class SettingsManager {
         prefs.edit().putBoolean(KEY_CHAT_POLLING_ENABLED, enabled).apply();
     }
 
-    public void setChatVersion(int version) {
-        if (version == CHAT_VERSION_POLLING || version == CHAT_VERSION_WEBSOCKET) {
-            prefs.edit().putInt(KEY_CHAT_VERSION, version).apply();
-        }
-    }
-
     public void setChatGroupedView(boolean grouped) {
         prefs.edit().putBoolean(KEY_CHAT_GROUPED_VIEW, grouped).apply();
     }
 
+    public void setUploadConcurrency(int concurrency) {
+        prefs.edit().putInt(KEY_UPLOAD_CONCURRENCY, Math.max(2, Math.min(4, concurrency))).apply();
+    }
+
     // Méthodes utilitaires
     public void resetToDefaults() {
         SharedPreferences.Editor editor = prefs.edit();
@@ -168,8 +155,8 @@ public class SettingsManager {
         editor.putBoolean(KEY_DEBUG_MODE, DEFAULT_DEBUG_MODE);
         editor.putBoolean(KEY_CHAT_ENABLED, DEFAULT_CHAT_ENABLED);
         editor.putBoolean(KEY_CHAT_POLLING_ENABLED, DEFAULT_CHAT_POLLING_ENABLED);
-        editor.putInt(KEY_CHAT_VERSION, DEFAULT_CHAT_VERSION);
         editor.putBoolean(KEY_CHAT_GROUPED_VIEW, DEFAULT_CHAT_GROUPED_VIEW);
+        editor.putInt(KEY_UPLOAD_CONCURRENCY, DEFAULT_UPLOAD_CONCURRENCY);
         editor.apply();
     }
     
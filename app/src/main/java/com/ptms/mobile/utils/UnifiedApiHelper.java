@@ -52,9 +52,11 @@ public class UnifiedApiHelper {
     
     /**
      * Recherche globale dans tous les services
+     * @return l'appel en cours (annulable, par exemple quand la saisie change)
      */
-    public void globalSearch(String token, String query, String services, GlobalSearchCallback callback) {
-        apiService.globalSearch("Bearer " + token, query, services).enqueue(new Callback<Map<String, Object>>() {
+    public Call<Map<String, Object>> globalSearch(String token, String query, String services, GlobalSearchCallback callback) {
+        Call<Map<String, Object>> call = apiService.globalSearch("Bearer " + token, query, services);
+        call.enqueue(new Callback<Map<String, Object>>() {
             @Override
             public void onResponse(Call<Map<String, Object>> call, Response<Map<String, Object>> response) {
                 if (response.isSuccessful() && response.body() != null) {
@@ -67,10 +69,14 @@ public class UnifiedApiHelper {
             
             @Override
             public void onFailure(Call<Map<String, Object>> call, Throwable t) {
+                if (call.isCanceled()) {
+                    return;
+                }
                 Log.e(TAG, "Erreur lors de la recherche globale", t);
                 callback.onError("Erreur de connexion: " + t.getMessage());
             }
         });
+        return call;
     }
     
     /**
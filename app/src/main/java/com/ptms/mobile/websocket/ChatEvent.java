@@ -0,0 +1,117 @@
+package com.ptms.mobile.websocket;
+
+/**
+ * ✅ Événement typé décodé d'une trame WebSocket du chat (voir ChatEventDecoder)
+ *
+ * Immuable: créé sur le thread de décodage, lu sur le thread UI.
+ *
+ * @version 1.0
+ * @date 2025-10-28
+ */
+public abstract class ChatEvent {
+
+    public static final class AuthRequired extends ChatEvent {
+    }
+
+    public static final class AuthSuccess extends ChatEvent {
+        public final int userId;
+
+        AuthSuccess(int userId) {
+            this.userId = userId;
+        }
+    }
+
+    public static final class Subscribed extends ChatEvent {
+        public final int roomId;
+
+        Subscribed(int roomId) {
+            this.roomId = roomId;
+        }
+    }
+
+    public static final class Unsubscribed extends ChatEvent {
+        public final int roomId;
+
+        Unsubscribed(int roomId) {
+            this.roomId = roomId;
+        }
+    }
+
+    public static final class NewMessage extends ChatEvent {
+        public final int roomId;
+        public final int senderId;
+        public final String message;
+        public final long timestamp;
+
+        NewMessage(int roomId, int senderId, String message, long timestamp) {
+            this.roomId = roomId;
+            this.senderId = senderId;
+            this.message = message;
+            this.timestamp = timestamp;
+        }
+    }
+
+    public static final class MessageSent extends ChatEvent {
+        public final int roomId;
+        public final int messageId;
+
+        MessageSent(int roomId, int messageId) {
+            this.roomId = roomId;
+            this.messageId = messageId;
+        }
+    }
+
+    public static final class UserTyping extends ChatEvent {
+        public final int roomId;
+        public final int userId;
+        public final boolean isTyping;
+
+        UserTyping(int roomId, int userId, boolean isTyping) {
+            this.roomId = roomId;
+            this.userId = userId;
+            this.isTyping = isTyping;
+        }
+    }
+
+    public static final class PresenceChanged extends ChatEvent {
+        public final int userId;
+        public final boolean isOnline;
+
+        PresenceChanged(int userId, boolean isOnline) {
+            this.userId = userId;
+            this.isOnline = isOnline;
+        }
+    }
+
+    public static final class MessagesRead extends ChatEvent {
+        public final int roomId;
+        public final int userId;
+
+        MessagesRead(int roomId, int userId) {
+            this.roomId = roomId;
+            this.userId = userId;
+        }
+    }
+
+    public static final class Pong extends ChatEvent {
+    }
+
+    public static final class Error extends ChatEvent {
+        public final String error;
+
+        Error(String error) {
+            this.error = error;
+        }
+    }
+
+    /**
+     * Type inconnu du client (nouvelle version du serveur): ignoré
+     */
+    public static final class Unknown extends ChatEvent {
+        public final String type;
+
+        Unknown(String type) {
+            this.type = type;
+        }
+    }
+}
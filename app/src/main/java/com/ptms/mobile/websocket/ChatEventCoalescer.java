@@ -0,0 +1,57 @@
+package com.ptms.mobile.websocket;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ✅ Regroupement des événements de frappe et de présence entre deux images
+ *
+ * Seul le dernier état par (salle, utilisateur) pour la frappe et par utilisateur pour la
+ * présence est gardé: une rafale de trames user_typing ne produit qu'une mise à jour de l'UI
+ * par intervalle. L'ordre de première apparition des clés est conservé.
+ *
+ * offer() est appelé sur le thread de décodage, drain() sur le thread UI.
+ *
+ * @version 1.0
+ * @date 2025-10-28
+ */
+public class ChatEventCoalescer {
+
+    private final Map<Long, ChatEvent> pending = new LinkedHashMap<>();
+
+    /**
+     * @return true si l'événement est le premier en attente (l'appelant planifie drain())
+     */
+    public synchronized boolean offer(ChatEvent event) {
+        boolean wasEmpty = pending.isEmpty();
+        pending.put(keyOf(event), event);
+        return wasEmpty;
+    }
+
+    /**
+     * Derniers états en attente, vidés
+     */
+    public synchronized List<ChatEvent> drain() {
+        List<ChatEvent> events = new ArrayList<>(pending.values());
+        pending.clear();
+        return events;
+    }
+
+    public static boolean isCoalescable(ChatEvent event) {
+        return event instanceof ChatEvent.UserTyping || event instanceof ChatEvent.PresenceChanged;
+    }
+
+    private static long keyOf(ChatEvent event) {
+        if (event instanceof ChatEvent.UserTyping) {
+            ChatEvent.UserTyping typing = (ChatEvent.UserTyping) event;
+            return ((long) typing.roomId << 32) | (typing.userId & 0xffffffffL);
+        }
+        if (event instanceof ChatEvent.PresenceChanged) {
+            // Clés négatives: pas de collision avec la frappe (salles d'ID positif)
+            return -1L - (((ChatEvent.PresenceChanged) event).userId & 0xffffffffL);
+        }
+        throw new IllegalArgumentException("Événement non regroupable: " + event.getClass().getSimpleName());
+    }
+}
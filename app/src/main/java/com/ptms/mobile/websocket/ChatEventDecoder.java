@@ -0,0 +1,140 @@
+package com.ptms.mobile.websocket;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * ✅ Décodage des trames WebSocket du chat en événements typés (ChatEvent)
+ *
+ * Lecture en flux (JsonReader): un seul passage sur la trame, sans arbre JSONObject
+ * intermédiaire; les champs inconnus sont sautés. Les champs peuvent arriver dans n'importe
+ * quel ordre, l'événement est construit à la fin de l'objet selon son type.
+ *
+ * Sans état: appelé sur le thread de décodage de WebSocketChatClient.
+ *
+ * @version 1.0
+ * @date 2025-10-28
+ */
+public final class ChatEventDecoder {
+
+    private ChatEventDecoder() {
+    }
+
+    /**
+     * @throws IOException trame mal formée ou champ obligatoire absent
+     */
+    public static ChatEvent decode(String frame) throws IOException {
+        String type = null;
+        Integer roomId = null;
+        Integer userId = null;
+        Integer senderId = null;
+        Integer messageId = null;
+        String message = null;
+        Long timestamp = null;
+        Boolean isTyping = null;
+        Boolean isOnline = null;
+        String error = null;
+
+        try (JsonReader reader = new JsonReader(new StringReader(frame))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "type":
+                        type = reader.nextString();
+                        break;
+                    case "roomId":
+                        roomId = reader.nextInt();
+                        break;
+                    case "userId":
+                        userId = reader.nextInt();
+                        break;
+                    case "senderId":
+                        senderId = reader.nextInt();
+                        break;
+                    case "messageId":
+                        messageId = reader.nextInt();
+                        break;
+                    case "message":
+                        message = reader.nextString();
+                        break;
+                    case "timestamp":
+                        timestamp = reader.nextLong();
+                        break;
+                    case "isTyping":
+                        isTyping = nextBoolean(reader);
+                        break;
+                    case "isOnline":
+                        isOnline = nextBoolean(reader);
+                        break;
+                    case "error":
+                        error = reader.nextString();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Trame invalide: " + e.getMessage(), e);
+        }
+
+        switch (required(type, "type")) {
+            case "auth_required":
+                return new ChatEvent.AuthRequired();
+            case "auth_success":
+                return new ChatEvent.AuthSuccess(required(userId, "userId"));
+            case "subscribed":
+                return new ChatEvent.Subscribed(required(roomId, "roomId"));
+            case "unsubscribed":
+                return new ChatEvent.Unsubscribed(required(roomId, "roomId"));
+            case "new_message":
+                return new ChatEvent.NewMessage(required(roomId, "roomId"), required(senderId, "senderId"),
+                    required(message, "message"), required(timestamp, "timestamp"));
+            case "message_sent":
+                return new ChatEvent.MessageSent(required(roomId, "roomId"), required(messageId, "messageId"));
+            case "user_typing":
+                return new ChatEvent.UserTyping(required(roomId, "roomId"), required(userId, "userId"),
+                    required(isTyping, "isTyping"));
+            case "presence_changed":
+                return new ChatEvent.PresenceChanged(required(userId, "userId"), required(isOnline, "isOnline"));
+            case "messages_read":
+                return new ChatEvent.MessagesRead(required(roomId, "roomId"), required(userId, "userId"));
+            case "presence_pong":
+                return new ChatEvent.Pong();
+            case "error":
+                return new ChatEvent.Error(required(error, "error"));
+            default:
+                return new ChatEvent.Unknown(type);
+        }
+    }
+
+    /**
+     * Booléen JSON, ou "true"/"false" et 0/1 (tolérance de org.json conservée)
+     */
+    private static boolean nextBoolean(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case STRING:
+                return Boolean.parseBoolean(reader.nextString());
+            case NUMBER:
+                return reader.nextInt() != 0;
+            default:
+                return reader.nextBoolean();
+        }
+    }
+
+    private static <T> T required(T value, String field) throws IOException {
+        if (value == null) {
+            throw new IOException("Champ manquant: " + field);
+        }
+        return value;
+    }
+}
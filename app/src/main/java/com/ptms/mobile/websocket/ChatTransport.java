@@ -0,0 +1,307 @@
+package com.ptms.mobile.websocket;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.ptms.mobile.utils.SettingsManager;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ✅ Transport temps réel unique du chat
+ *
+ * - Une seule connexion WebSocketChatClient partagée par toutes les salles et tous les écrans
+ *   (abonnements aux salles comptés par référence, rejoués après chaque reconnexion)
+ * - isRealtime() indique aux écrans s'ils peuvent couper leur polling: le polling delta
+ *   (ChatMessageFetcher) ne tourne que pendant les coupures du socket
+ * - Reconnexion automatique du client, puis nouvel essai toutes les UPGRADE_RETRY_MS
+ *   quand il abandonne: retour au temps réel sans action de l'utilisateur
+ * - Connexion gardée IDLE_DISCONNECT_MS après le dernier écran (passage d'un écran à l'autre)
+ *
+ * À utiliser depuis le thread UI (les événements du client y sont déjà postés).
+ *
+ * @version 1.0
+ * @date 2025-10-28
+ */
+public class ChatTransport implements WebSocketChatClient.WebSocketChatListener {
+
+    private static final String TAG = "ChatTransport";
+
+    private static final long IDLE_DISCONNECT_MS = 60000;
+    private static final long UPGRADE_RETRY_MS = 60000;
+
+    /**
+     * Événements du transport (chaque écran filtre les salles qui le concernent)
+     */
+    public interface Listener {
+        /**
+         * @param realtime true: socket authentifié, polling inutile; false: polling de secours
+         */
+        void onTransportChanged(boolean realtime);
+
+        void onNewMessage(int roomId, int senderId, String message, long timestamp);
+
+        void onUserTyping(int roomId, int userId, boolean isTyping);
+    }
+
+    private static ChatTransport instance;
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Set<Listener> listeners = new LinkedHashSet<>();
+    private final Map<Integer, Integer> roomRefs = new HashMap<>();
+
+    private WebSocketChatClient client;
+    private String clientToken;
+    private URI clientUri;
+    private boolean started = false;
+    private boolean realtime = false;
+    private boolean idle = true;
+
+    private final Runnable idleDisconnectRunnable = this::disconnectIdle;
+    private final Runnable upgradeRunnable = this::ensureConnected;
+
+    private ChatTransport(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public static synchronized ChatTransport getInstance(Context context) {
+        if (instance == null) {
+            instance = new ChatTransport(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Un écran devient visible: connexion (ou réutilisation) et abonnement à sa salle
+     * @param roomId salle affichée, 0 si l'écran n'en affiche pas
+     */
+    public void attach(Listener listener, int roomId) {
+        listeners.add(listener);
+        if (roomId > 0) {
+            Integer refs = roomRefs.get(roomId);
+            roomRefs.put(roomId, refs == null ? 1 : refs + 1);
+            if (refs == null && realtime) {
+                client.subscribeToRoom(roomId);
+            }
+        }
+        idle = false;
+        mainHandler.removeCallbacks(idleDisconnectRunnable);
+        ensureConnected();
+    }
+
+    /**
+     * L'écran n'est plus visible: désabonnement de sa salle, déconnexion différée si c'était le dernier
+     */
+    public void detach(Listener listener, int roomId) {
+        listeners.remove(listener);
+        Integer refs = roomRefs.get(roomId);
+        if (refs != null) {
+            if (refs > 1) {
+                roomRefs.put(roomId, refs - 1);
+            } else {
+                roomRefs.remove(roomId);
+                if (realtime) {
+                    client.unsubscribeFromRoom(roomId);
+                }
+            }
+        }
+        if (listeners.isEmpty()) {
+            mainHandler.removeCallbacks(idleDisconnectRunnable);
+            mainHandler.postDelayed(idleDisconnectRunnable, IDLE_DISCONNECT_MS);
+        }
+    }
+
+    public boolean isRealtime() {
+        return realtime;
+    }
+
+    /**
+     * Statut "en train d'écrire" par le socket
+     * @return false si le socket est coupé (l'appelant passe par HTTP)
+     */
+    public boolean sendTyping(int roomId, boolean typing) {
+        if (!realtime) {
+            return false;
+        }
+        if (typing) {
+            client.startTyping(roomId);
+        } else {
+            client.stopTyping(roomId);
+        }
+        return true;
+    }
+
+    /**
+     * Crée le client au premier besoin (ou après changement de session/serveur) et relance
+     * la connexion si elle est fermée
+     */
+    private void ensureConnected() {
+        mainHandler.removeCallbacks(upgradeRunnable);
+        if (idle) {
+            return;
+        }
+
+        SharedPreferences prefs = context.getSharedPreferences("ptms_prefs", Context.MODE_PRIVATE);
+        String token = prefs.getString("auth_token", null);
+        URI uri = buildUri();
+        if (token == null || uri == null) {
+            return;
+        }
+
+        if (client != null && (!token.equals(clientToken) || !uri.equals(clientUri))) {
+            Log.d(TAG, "Session ou serveur changé: nouvelle connexion");
+            client.setListener(null);
+            client.disconnect();
+            client = null;
+            setRealtime(false);
+        }
+
+        try {
+            if (client == null) {
+                client = new WebSocketChatClient(uri, token);
+                client.setListener(this);
+                clientToken = token;
+                clientUri = uri;
+                started = false;
+            }
+            if (!started) {
+                started = true;
+                Log.d(TAG, "Connexion WebSocket: " + uri);
+                client.connect();
+            } else if (client.isClosed()) {
+                Log.d(TAG, "Nouvelle tentative de connexion temps réel");
+                client.retryNow();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Erreur connexion WebSocket", e);
+            scheduleUpgrade();
+        }
+    }
+
+    private URI buildUri() {
+        try {
+            String serverUrl = new SettingsManager(context).getServerUrlRaw();
+            // Même sécurité que l'API: le jeton ne passe jamais en clair si le serveur est en HTTPS
+            if (serverUrl.startsWith("https://")) {
+                serverUrl = "wss://" + serverUrl.substring("https://".length());
+            } else if (serverUrl.startsWith("http://")) {
+                serverUrl = "ws://" + serverUrl.substring("http://".length());
+            }
+            if (!serverUrl.endsWith("/")) {
+                serverUrl += "/";
+            }
+            return new URI(serverUrl + "websocket/chat");
+        } catch (Exception e) {
+            Log.e(TAG, "❌ URL WebSocket invalide", e);
+            return null;
+        }
+    }
+
+    private void disconnectIdle() {
+        Log.d(TAG, "Plus aucun écran de chat: déconnexion");
+        idle = true;
+        mainHandler.removeCallbacks(upgradeRunnable);
+        if (client != null) {
+            client.disconnect();
+        }
+        setRealtime(false);
+    }
+
+    private void scheduleUpgrade() {
+        if (!idle) {
+            mainHandler.removeCallbacks(upgradeRunnable);
+            mainHandler.postDelayed(upgradeRunnable, UPGRADE_RETRY_MS);
+        }
+    }
+
+    private void setRealtime(boolean value) {
+        if (realtime == value) {
+            return;
+        }
+        realtime = value;
+        Log.d(TAG, value ? "✅ Temps réel (polling arrêté)" : "❌ Temps réel coupé (polling de secours)");
+        for (Listener listener : listeners.toArray(new Listener[0])) {
+            listener.onTransportChanged(value);
+        }
+    }
+
+    // ==================== WebSocketChatListener ====================
+
+    @Override
+    public void onConnected() {
+        Log.d(TAG, "Connecté, authentification en cours");
+    }
+
+    @Override
+    public void onAuthenticated(int userId) {
+        for (Integer roomId : roomRefs.keySet()) {
+            client.subscribeToRoom(roomId);
+        }
+        mainHandler.removeCallbacks(upgradeRunnable);
+        setRealtime(true);
+    }
+
+    @Override
+    public void onDisconnected(int code, String reason) {
+        setRealtime(false);
+    }
+
+    @Override
+    public void onError(String error) {
+        Log.w(TAG, "Erreur WebSocket: " + error);
+    }
+
+    @Override
+    public void onReconnectFailed() {
+        // Le client a abandonné (ou disconnect() volontaire): nouvel essai plus tard si un écran est ouvert
+        setRealtime(false);
+        scheduleUpgrade();
+    }
+
+    @Override
+    public void onSubscribedToRoom(int roomId) {
+        Log.d(TAG, "Abonné à la salle " + roomId);
+    }
+
+    @Override
+    public void onUnsubscribedFromRoom(int roomId) {
+        Log.d(TAG, "Désabonné de la salle " + roomId);
+    }
+
+    @Override
+    public void onNewMessage(int roomId, int senderId, String message, long timestamp) {
+        for (Listener listener : listeners.toArray(new Listener[0])) {
+            listener.onNewMessage(roomId, senderId, message, timestamp);
+        }
+    }
+
+    @Override
+    public void onMessageSent(int roomId, int messageId) {
+        Log.d(TAG, "Message #" + messageId + " confirmé (salle " + roomId + ")");
+    }
+
+    @Override
+    public void onUserTyping(int roomId, int userId, boolean isTyping) {
+        for (Listener listener : listeners.toArray(new Listener[0])) {
+            listener.onUserTyping(roomId, userId, isTyping);
+        }
+    }
+
+    @Override
+    public void onPresenceChanged(int userId, boolean isOnline) {
+        Log.d(TAG, "Présence: utilisateur " + userId + (isOnline ? " en ligne" : " hors ligne"));
+    }
+
+    @Override
+    public void onMessagesRead(int roomId, int userId) {
+        Log.d(TAG, "Messages lus: salle " + roomId + ", utilisateur " + userId);
+    }
+}
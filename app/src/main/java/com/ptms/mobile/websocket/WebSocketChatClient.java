@@ -9,9 +9,10 @@ import org.java_websocket.handshake.ServerHandshake;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.net.URI;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -23,6 +24,10 @@ import java.util.concurrent.TimeUnit;
  * - Présence utilisateur
  * - Notifications temps réel
  *
+ * ✅ Trames décodées hors du thread UI (ChatEventDecoder, lecture en flux) en événements typés;
+ * seuls les événements utiles à l'écran sont postés sur le thread UI, frappe et présence
+ * regroupées par image (ChatEventCoalescer)
+ *
  * Utilisation:
  *   WebSocketChatClient client = new WebSocketChatClient(serverUri, jwtToken);
  *   client.setListener(new WebSocketChatListener() { ... });
@@ -32,15 +37,22 @@ public class WebSocketChatClient extends WebSocketClient {
     private static final String TAG = "WebSocketChat";
 
     private String jwtToken;
-    private WebSocketChatListener listener;
+    // Lu par le thread de décodage
+    private volatile WebSocketChatListener listener;
     private Handler mainHandler;
     private Handler reconnectHandler;
 
-    private boolean isAuthenticated = false;
+    private volatile boolean isAuthenticated = false;
     private int reconnectAttempts = 0;
     private static final int MAX_RECONNECT_ATTEMPTS = 10;
     private static final int RECONNECT_DELAY_MS = 1000;
     private static final int HEARTBEAT_INTERVAL_MS = 30000; // 30 secondes
+    private static final long COALESCE_INTERVAL_MS = 16; // Une image
+
+    // Décodage des trames: un seul thread (ordre conservé), arrêté quand le socket est inactif
+    private final ThreadPoolExecutor decoderExecutor;
+    private final ChatEventCoalescer coalescer = new ChatEventCoalescer();
+    private final Runnable flushCoalescedRunnable = this::flushCoalesced;
 
     private Runnable heartbeatRunnable;
     private Runnable reconnectRunnable;
@@ -48,7 +60,7 @@ public class WebSocketChatClient extends WebSocketClient {
     /**
      * Constructeur
      *
-     * @param serverUri URI du serveur WebSocket (ws://host:port)
+     * @param serverUri URI du serveur WebSocket (ws://host:port, wss:// derrière HTTPS)
      * @param jwtToken Token JWT pour authentification
      */
     public WebSocketChatClient(URI serverUri, String jwtToken) {
@@ -56,6 +68,8 @@ public class WebSocketChatClient extends WebSocketClient {
         this.jwtToken = jwtToken;
         this.mainHandler = new Handler(Looper.getMainLooper());
         this.reconnectHandler = new Handler(Looper.getMainLooper());
+        this.decoderExecutor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        this.decoderExecutor.allowCoreThreadTimeOut(true);
     }
 
     /**
@@ -86,69 +100,11 @@ public class WebSocketChatClient extends WebSocketClient {
     }
 
     /**
-     * Message reçu du serveur
+     * Trame reçue du serveur (thread de lecture du socket): décodée sur le thread de décodage
      */
     @Override
     public void onMessage(String message) {
-        Log.d(TAG, "Message received: " + message);
-
-        try {
-            JSONObject data = new JSONObject(message);
-            String type = data.getString("type");
-
-            // Router selon le type de message
-            switch (type) {
-                case "auth_required":
-                    authenticate();
-                    break;
-
-                case "auth_success":
-                    handleAuthSuccess(data);
-                    break;
-
-                case "subscribed":
-                    handleSubscribed(data);
-                    break;
-
-                case "unsubscribed":
-                    handleUnsubscribed(data);
-                    break;
-
-                case "new_message":
-                    handleNewMessage(data);
-                    break;
-
-                case "message_sent":
-                    handleMessageSent(data);
-                    break;
-
-                case "user_typing":
-                    handleUserTyping(data);
-                    break;
-
-                case "presence_changed":
-                    handlePresenceChanged(data);
-                    break;
-
-                case "messages_read":
-                    handleMessagesRead(data);
-                    break;
-
-                case "presence_pong":
-                    // Réponse au heartbeat
-                    break;
-
-                case "error":
-                    handleError(data);
-                    break;
-
-                default:
-                    Log.w(TAG, "Unknown message type: " + type);
-            }
-
-        } catch (JSONException e) {
-            Log.e(TAG, "Error parsing message", e);
-        }
+        decoderExecutor.execute(() -> decodeAndDispatch(message));
     }
 
     /**
@@ -198,121 +154,89 @@ public class WebSocketChatClient extends WebSocketClient {
     }
 
     /**
-     * Gérer l'authentification réussie
+     * Thread de décodage: trame -> événement typé, puis traitement protocolaire ou envoi à l'UI
      */
-    private void handleAuthSuccess(JSONObject data) throws JSONException {
-        isAuthenticated = true;
-        int userId = data.getInt("userId");
-        Log.d(TAG, "Authenticated as user: " + userId);
-
-        if (listener != null) {
-            mainHandler.post(() -> listener.onAuthenticated(userId));
+    private void decodeAndDispatch(String frame) {
+        ChatEvent event;
+        try {
+            event = ChatEventDecoder.decode(frame);
+        } catch (IOException e) {
+            Log.e(TAG, "Error parsing message", e);
+            return;
         }
-    }
 
-    /**
-     * Gérer l'abonnement à un salon
-     */
-    private void handleSubscribed(JSONObject data) throws JSONException {
-        int roomId = data.getInt("roomId");
-        Log.d(TAG, "Subscribed to room: " + roomId);
-
-        if (listener != null) {
-            mainHandler.post(() -> listener.onSubscribedToRoom(roomId));
+        // Événements protocolaires: traités ici, rien à afficher
+        if (event instanceof ChatEvent.AuthRequired) {
+            authenticate();
+            return;
         }
-    }
-
-    /**
-     * Gérer le désabonnement d'un salon
-     */
-    private void handleUnsubscribed(JSONObject data) throws JSONException {
-        int roomId = data.getInt("roomId");
-        Log.d(TAG, "Unsubscribed from room: " + roomId);
-
-        if (listener != null) {
-            mainHandler.post(() -> listener.onUnsubscribedFromRoom(roomId));
+        if (event instanceof ChatEvent.Pong) {
+            return;
         }
-    }
-
-    /**
-     * Gérer un nouveau message
-     */
-    private void handleNewMessage(JSONObject data) throws JSONException {
-        int roomId = data.getInt("roomId");
-        int senderId = data.getInt("senderId");
-        String message = data.getString("message");
-        long timestamp = data.getLong("timestamp");
-
-        Log.d(TAG, "New message in room " + roomId);
-
-        if (listener != null) {
-            mainHandler.post(() ->
-                listener.onNewMessage(roomId, senderId, message, timestamp)
-            );
+        if (event instanceof ChatEvent.Unknown) {
+            Log.w(TAG, "Unknown message type: " + ((ChatEvent.Unknown) event).type);
+            return;
         }
-    }
-
-    /**
-     * Gérer la confirmation d'envoi de message
-     */
-    private void handleMessageSent(JSONObject data) throws JSONException {
-        int roomId = data.getInt("roomId");
-        int messageId = data.getInt("messageId");
-
-        if (listener != null) {
-            mainHandler.post(() -> listener.onMessageSent(roomId, messageId));
+        if (event instanceof ChatEvent.AuthSuccess) {
+            isAuthenticated = true;
+            Log.d(TAG, "Authenticated as user: " + ((ChatEvent.AuthSuccess) event).userId);
+        } else if (event instanceof ChatEvent.Error) {
+            Log.e(TAG, "Server error: " + ((ChatEvent.Error) event).error);
         }
-    }
 
-    /**
-     * Gérer le statut de frappe
-     */
-    private void handleUserTyping(JSONObject data) throws JSONException {
-        int roomId = data.getInt("roomId");
-        int userId = data.getInt("userId");
-        boolean isTyping = data.getBoolean("isTyping");
-
-        if (listener != null) {
-            mainHandler.post(() -> listener.onUserTyping(roomId, userId, isTyping));
+        if (listener == null) {
+            return;
         }
-    }
-
-    /**
-     * Gérer le changement de présence
-     */
-    private void handlePresenceChanged(JSONObject data) throws JSONException {
-        int userId = data.getInt("userId");
-        boolean isOnline = data.getBoolean("isOnline");
 
-        Log.d(TAG, "Presence changed: user " + userId + " is " +
-            (isOnline ? "online" : "offline"));
-
-        if (listener != null) {
-            mainHandler.post(() -> listener.onPresenceChanged(userId, isOnline));
+        // Frappe et présence: dernier état seulement, une mise à jour de l'UI par image
+        if (ChatEventCoalescer.isCoalescable(event)) {
+            if (coalescer.offer(event)) {
+                mainHandler.postDelayed(flushCoalescedRunnable, COALESCE_INTERVAL_MS);
+            }
+            return;
         }
-    }
 
-    /**
-     * Gérer les messages lus
-     */
-    private void handleMessagesRead(JSONObject data) throws JSONException {
-        int roomId = data.getInt("roomId");
-        int userId = data.getInt("userId");
+        mainHandler.post(() -> deliver(event));
+    }
 
-        if (listener != null) {
-            mainHandler.post(() -> listener.onMessagesRead(roomId, userId));
+    private void flushCoalesced() {
+        for (ChatEvent event : coalescer.drain()) {
+            deliver(event);
         }
     }
 
     /**
-     * Gérer une erreur
+     * Thread UI: événement décodé vers le listener
      */
-    private void handleError(JSONObject data) throws JSONException {
-        String error = data.getString("error");
-        Log.e(TAG, "Server error: " + error);
+    private void deliver(ChatEvent event) {
+        WebSocketChatListener target = listener;
+        if (target == null) {
+            return;
+        }
 
-        if (listener != null) {
-            mainHandler.post(() -> listener.onError(error));
+        if (event instanceof ChatEvent.AuthSuccess) {
+            target.onAuthenticated(((ChatEvent.AuthSuccess) event).userId);
+        } else if (event instanceof ChatEvent.Subscribed) {
+            target.onSubscribedToRoom(((ChatEvent.Subscribed) event).roomId);
+        } else if (event instanceof ChatEvent.Unsubscribed) {
+            target.onUnsubscribedFromRoom(((ChatEvent.Unsubscribed) event).roomId);
+        } else if (event instanceof ChatEvent.NewMessage) {
+            ChatEvent.NewMessage message = (ChatEvent.NewMessage) event;
+            target.onNewMessage(message.roomId, message.senderId, message.message, message.timestamp);
+        } else if (event instanceof ChatEvent.MessageSent) {
+            ChatEvent.MessageSent sent = (ChatEvent.MessageSent) event;
+            target.onMessageSent(sent.roomId, sent.messageId);
+        } else if (event instanceof ChatEvent.UserTyping) {
+            ChatEvent.UserTyping typing = (ChatEvent.UserTyping) event;
+            target.onUserTyping(typing.roomId, typing.userId, typing.isTyping);
+        } else if (event instanceof ChatEvent.PresenceChanged) {
+            ChatEvent.PresenceChanged presence = (ChatEvent.PresenceChanged) event;
+            target.onPresenceChanged(presence.userId, presence.isOnline);
+        } else if (event instanceof ChatEvent.MessagesRead) {
+            ChatEvent.MessagesRead read = (ChatEvent.MessagesRead) event;
+            target.onMessagesRead(read.roomId, read.userId);
+        } else if (event instanceof ChatEvent.Error) {
+            target.onError(((ChatEvent.Error) event).error);
         }
     }
 
@@ -482,6 +406,20 @@ public class WebSocketChatClient extends WebSocketClient {
         }
     }
 
+    /**
+     * Relancer la connexion tout de suite (après disconnect() ou épuisement des tentatives)
+     */
+    public void retryNow() {
+        cancelReconnect();
+        reconnectAttempts = 0;
+        try {
+            reconnect();
+        } catch (Exception e) {
+            Log.e(TAG, "Error reconnecting", e);
+            scheduleReconnect();
+        }
+    }
+
     /**
      * Déconnecter proprement
      */
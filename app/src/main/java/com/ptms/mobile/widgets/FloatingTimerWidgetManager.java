@@ -512,7 +512,7 @@ public class FloatingTimerWidgetManager {
      */
     private void loadProjectsFromCache() {
         try {
-            OfflineDatabaseHelper dbHelper = new OfflineDatabaseHelper(context);
+            OfflineDatabaseHelper dbHelper = OfflineDatabaseHelper.getInstance(context);
             projectList.clear();
             List<Project> cachedProjects = dbHelper.getAllProjects();
             if (cachedProjects != null) {
@@ -580,7 +580,7 @@ public class FloatingTimerWidgetManager {
      */
     private void loadWorkTypesFromCache() {
         try {
-            OfflineDatabaseHelper dbHelper = new OfflineDatabaseHelper(context);
+            OfflineDatabaseHelper dbHelper = OfflineDatabaseHelper.getInstance(context);
             workTypeList.clear();
             List<WorkType> cachedWorkTypes = dbHelper.getAllWorkTypes();
             if (cachedWorkTypes != null) {
@@ -48,7 +48,7 @@ public class CacheCleanupWorker extends Worker {
 
     public CacheCleanupWorker(@NonNull Context context, @NonNull WorkerParameters params) {
         super(context, params);
-        this.dbHelper = new OfflineDatabaseHelper(context);
+        this.dbHelper = OfflineDatabaseHelper.getInstance(context);
         this.storage = new MediaStorageManager(context);
     }
 
@@ -15,13 +15,23 @@ import androidx.work.WorkerParameters;
 
 import com.ptms.mobile.api.ApiClient;
 import com.ptms.mobile.api.ApiService;
+import com.ptms.mobile.api.FileRangeRequestBody;
 import com.ptms.mobile.database.OfflineDatabaseHelper;
+import com.ptms.mobile.models.OutboxOperation;
 import com.ptms.mobile.models.ProjectNote;
 import com.ptms.mobile.models.TimeReport;
+import com.ptms.mobile.models.UploadSession;
+import com.ptms.mobile.sync.OutboxDispatcher;
+import com.ptms.mobile.sync.ParallelUploadPipeline;
+import com.ptms.mobile.sync.UploadProgressReporter;
 import com.ptms.mobile.utils.MediaUploadManager;
+import com.ptms.mobile.utils.SettingsManager;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import okhttp3.MediaType;
@@ -34,11 +44,12 @@ import retrofit2.Response;
  * ✅ Worker pour upload automatique des fichiers multimédias en arrière-plan
  *
  * Fonctionnalités :
- * - Upload fichiers "pending" automatiquement
+ * - Upload des opérations "media" du journal d'envoi (sync_outbox), après création de la note
  * - Progress tracking (0-100%)
  * - Retry automatique avec backoff
  * - Constraints : WiFi uniquement pour vidéos
- * - Support upload par chunks (gros fichiers > 10MB)
+ * - Upload par chunks reprenable (gros fichiers > 10MB, table upload_sessions)
+ * - Notes uploadées en parallèle (2 à 4), résultats appliqués en base dans l'ordre
  *
  * @version 1.0
  * @date 2025-10-20
@@ -48,21 +59,49 @@ public class MediaUploadWorker extends Worker {
     private static final String TAG = "MediaUploadWorker";
     private static final String KEY_NOTE_ID = "note_id";
     private static final int CHUNK_SIZE = 5 * 1024 * 1024; // 5MB par chunk
+    private static final int MAX_CHUNK_RESYNCS = 3;
 
     private OfflineDatabaseHelper dbHelper;
     private ApiService apiService;
     private SharedPreferences authPrefs;
     private MediaUploadManager uploadManager;
+    private int uploadConcurrency;
 
     public MediaUploadWorker(@NonNull Context context, @NonNull WorkerParameters params) {
         super(context, params);
-        this.dbHelper = new OfflineDatabaseHelper(context);
+        this.dbHelper = OfflineDatabaseHelper.getInstance(context);
         this.apiService = ApiClient.getInstance(context).getApiService();
         this.authPrefs = context.getSharedPreferences("ptms_prefs", Context.MODE_PRIVATE);
 
         // Initialiser MediaUploadManager
         String baseUrl = authPrefs.getString("server_url", "https://serveralpha.protti.group");
         this.uploadManager = new MediaUploadManager(baseUrl);
+        this.uploadConcurrency = new SettingsManager(context).getUploadConcurrency();
+    }
+
+    /**
+     * Résultat d'upload d'une note (appliqué en base par le commit ordonné)
+     */
+    private static class NoteUploadResult {
+        final boolean success;
+        final String fileUrl;
+        final String error;      // null = échec sans changement de statut
+        final boolean permanent; // true = inutile de réessayer (fichier introuvable)
+
+        private NoteUploadResult(boolean success, String fileUrl, String error, boolean permanent) {
+            this.success = success;
+            this.fileUrl = fileUrl;
+            this.error = error;
+            this.permanent = permanent;
+        }
+
+        static NoteUploadResult success(String fileUrl) {
+            return new NoteUploadResult(true, fileUrl, null, false);
+        }
+
+        static NoteUploadResult failure(String error, boolean permanent) {
+            return new NoteUploadResult(false, null, error, permanent);
+        }
     }
 
     @NonNull
@@ -83,28 +122,6 @@ public class MediaUploadWorker extends Worker {
             // Récupérer l'ID spécifique si fourni
             long noteId = getInputData().getLong(KEY_NOTE_ID, -1);
 
-            List<ProjectNote> pendingNotes;
-            if (noteId > 0) {
-                // Upload d'une note spécifique
-                ProjectNote note = dbHelper.getProjectNoteById((int) noteId);
-                if (note != null && note.getLocalFilePath() != null) {
-                    pendingNotes = java.util.Collections.singletonList(note);
-                } else {
-                    Log.d(TAG, "Note #" + noteId + " introuvable ou sans fichier");
-                    return Result.success();
-                }
-            } else {
-                // Upload de toutes les notes pending
-                pendingNotes = dbHelper.getPendingMediaUploads();
-            }
-
-            if (pendingNotes.isEmpty()) {
-                Log.d(TAG, "✅ Aucun fichier en attente d'upload");
-                return Result.success();
-            }
-
-            Log.d(TAG, "📤 Upload de " + pendingNotes.size() + " fichiers (notes)...");
-
             int uploadedCount = 0;
             int failedCount = 0;
 
@@ -128,35 +145,27 @@ public class MediaUploadWorker extends Worker {
                 }
             }
 
-            for (ProjectNote note : pendingNotes) {
-                try {
-                    if (uploadMedia(note, token)) {
-                        uploadedCount++;
-                        Log.d(TAG, "✅ Fichier uploadé: " + note.getTitle());
-                    } else {
-                        failedCount++;
-                        Log.e(TAG, "❌ Échec upload: " + note.getTitle());
-                    }
-                } catch (Exception e) {
-                    failedCount++;
-                    Log.e(TAG, "❌ Exception upload note #" + note.getLocalId(), e);
-
-                    // Incrémenter tentatives
-                    int attempts = note.getSyncAttempts() + 1;
-                    dbHelper.updateProjectNoteSyncStatus(
-                        note.getLocalId(),
-                        attempts < 3 ? "pending" : "failed",
-                        "Exception: " + e.getMessage(),
-                        attempts
-                    );
-                }
-            }
+            // ✅ Médias des notes: opérations "media" du journal d'envoi,
+            // prêtes une fois la création de la note acquittée par le serveur
+            final int[] noteCounts = {0, 0}; // succès, échecs
+            new OutboxDispatcher(dbHelper)
+                .register(OutboxOperation.ENTITY_PROJECT_NOTE, OutboxOperation.OP_MEDIA,
+                    (operations, ack) -> uploadMediaOperations(operations, ack, noteId, token, noteCounts))
+                .drain();
+            uploadedCount += noteCounts[0];
+            failedCount += noteCounts[1];
+
+            // Média encore bloqué derrière la création de sa note: nouvel essai avec backoff
+            boolean blocked = noteId > 0
+                ? dbHelper.hasOutboxOperation(OutboxOperation.ENTITY_PROJECT_NOTE, noteId, OutboxOperation.OP_MEDIA)
+                : dbHelper.countOutboxOperations(OutboxOperation.ENTITY_PROJECT_NOTE, OutboxOperation.OP_MEDIA) > 0;
 
             Log.d(TAG, "========================================");
-            Log.d(TAG, "✅ Upload terminé: " + uploadedCount + " succès, " + failedCount + " échecs");
+            Log.d(TAG, "✅ Upload terminé: " + uploadedCount + " succès, " + failedCount + " échecs"
+                + (blocked ? " (médias en attente)" : ""));
             Log.d(TAG, "========================================");
 
-            return uploadedCount > 0 ? Result.success() : Result.retry();
+            return blocked || (uploadedCount == 0 && failedCount > 0) ? Result.retry() : Result.success();
 
         } catch (Exception e) {
             Log.e(TAG, "❌ Erreur globale upload worker", e);
@@ -165,25 +174,94 @@ public class MediaUploadWorker extends Worker {
     }
 
     /**
-     * Upload un fichier multimédia vers le serveur
+     * Handler des opérations "media" du journal: uploads parallèles bornés, commit ordonné
+     * @param targetNoteId note ciblée par le worker (-1 = toutes), les autres restent en file
+     */
+    private void uploadMediaOperations(List<OutboxOperation> operations, OutboxDispatcher.Acknowledger ack,
+                                       long targetNoteId, String token, int[] noteCounts) {
+        Map<Long, ProjectNote> notes = new HashMap<>();
+        List<OutboxOperation> selected = new ArrayList<>();
+        for (OutboxOperation operation : operations) {
+            if (targetNoteId > 0 && operation.getEntityId() != targetNoteId) {
+                continue;
+            }
+            ProjectNote note = dbHelper.getProjectNoteById((int) operation.getEntityId());
+            if (note == null || note.getLocalFilePath() == null || note.getLocalFilePath().isEmpty()) {
+                Log.d(TAG, "Note #" + operation.getEntityId() + " introuvable ou sans fichier");
+                ack.done(operation); // Rien à envoyer
+                continue;
+            }
+            notes.put(operation.getEntityId(), note);
+            selected.add(operation);
+        }
+
+        if (selected.isEmpty()) {
+            Log.d(TAG, "✅ Aucun fichier en attente d'upload");
+            return;
+        }
+
+        Log.d(TAG, "📤 Upload de " + selected.size() + " fichiers (notes)...");
+
+        // ✅ Uploads parallèles bornés, commit ordonné sur ce thread
+        new ParallelUploadPipeline<OutboxOperation, NoteUploadResult>("media", uploadConcurrency).run(
+            selected,
+            operation -> uploadMedia(notes.get(operation.getEntityId()), token),
+            (operation, outcome, error) -> {
+                ProjectNote note = notes.get(operation.getEntityId());
+                if (error != null) {
+                    noteCounts[1]++;
+                    Log.e(TAG, "❌ Exception upload note #" + note.getLocalId(), error);
+
+                    // Incrémenter tentatives
+                    int attempts = note.getSyncAttempts() + 1;
+                    dbHelper.updateProjectNoteSyncStatus(
+                        note.getLocalId(),
+                        attempts < 3 ? "pending" : "failed",
+                        "Exception: " + error.getMessage(),
+                        attempts
+                    );
+                    ack.failed(operation, error.getMessage());
+                } else if (outcome.success) {
+                    noteCounts[0]++;
+                    dbHelper.markMediaAsSynced(note.getLocalId(), outcome.fileUrl);
+                    ack.done(operation);
+                    Log.d(TAG, "✅ Fichier uploadé: " + note.getTitle() + " - URL: " + outcome.fileUrl);
+                } else {
+                    noteCounts[1]++;
+                    Log.e(TAG, "❌ Échec upload: " + note.getTitle());
+                    if (outcome.error != null) {
+                        int attempts = note.getSyncAttempts() + 1;
+                        dbHelper.updateProjectNoteSyncStatus(
+                            note.getLocalId(),
+                            outcome.permanent || attempts >= 3 ? "failed" : "pending",
+                            outcome.error,
+                            attempts
+                        );
+                    }
+                    if (outcome.permanent) {
+                        ack.done(operation); // Abandon définitif: l'erreur reste visible sur la note
+                    } else {
+                        ack.failed(operation, outcome.error != null ? outcome.error : "Échec upload");
+                    }
+                }
+            });
+    }
+
+    /**
+     * Upload un fichier multimédia vers le serveur (thread du pipeline)
+     * Seule la progression est écrite en base ici, le résultat est appliqué par le commit ordonné
      */
-    private boolean uploadMedia(ProjectNote note, String token) throws Exception {
+    private NoteUploadResult uploadMedia(ProjectNote note, String token) throws Exception {
         String localPath = note.getLocalFilePath();
         if (localPath == null || localPath.isEmpty()) {
             Log.w(TAG, "⚠️ Pas de fichier local pour note #" + note.getLocalId());
-            return false;
+            return NoteUploadResult.failure(null, false);
         }
 
         File localFile = new File(localPath);
         if (!localFile.exists()) {
             Log.e(TAG, "❌ Fichier introuvable: " + localPath);
-            dbHelper.updateProjectNoteSyncStatus(
-                note.getLocalId(),
-                "failed",
-                "Fichier local introuvable",
-                note.getSyncAttempts() + 1
-            );
-            return false;
+            return NoteUploadResult.failure("Fichier local introuvable", true);
         }
 
         // Déterminer si upload par chunks (fichiers > 10MB)
@@ -202,9 +280,10 @@ public class MediaUploadWorker extends Worker {
     /**
      * Upload direct (fichiers < 10MB)
      */
-    private boolean uploadDirect(ProjectNote note, File file, String token) throws Exception {
-        // Mise à jour progress: 0%
-        dbHelper.updateUploadProgress(note.getLocalId(), 0);
+    private NoteUploadResult uploadDirect(ProjectNote note, File file, String token) throws Exception {
+        // ✅ Progression réelle (octets envoyés), throttlée et coalescée
+        UploadProgressReporter progressReporter = new UploadProgressReporter(dbHelper, note.getLocalId());
+        progressReporter.start();
 
         // Préparer les paramètres
         RequestBody projectId = RequestBody.create(MediaType.parse("text/plain"),
@@ -214,21 +293,19 @@ public class MediaUploadWorker extends Worker {
         RequestBody title = RequestBody.create(MediaType.parse("text/plain"),
             note.getTitle() != null ? note.getTitle() : "");
 
-        // Préparer le fichier
+        // Préparer le fichier (streamé par tampon fixe)
         String mimeType = note.getMimeType() != null ? note.getMimeType() : "application/octet-stream";
-        RequestBody fileBody = RequestBody.create(MediaType.parse(mimeType), file);
+        RequestBody fileBody = new FileRangeRequestBody(file, MediaType.parse(mimeType), progressReporter);
         MultipartBody.Part filePart = MultipartBody.Part.createFormData(
             "media_file",
             file.getName(),
             fileBody
         );
 
-        // Mise à jour progress: 50% (upload en cours)
-        dbHelper.updateUploadProgress(note.getLocalId(), 50);
-
         // Appel API
         Call<ApiService.CreateNoteResponse> call = apiService.uploadProjectMedia(
             token,
+            noteIdPart(note),
             projectId,
             noteType,
             title,
@@ -238,39 +315,187 @@ public class MediaUploadWorker extends Worker {
         Response<ApiService.CreateNoteResponse> response = call.execute();
 
         if (response.isSuccessful() && response.body() != null && response.body().success) {
-            // Succès - marquer comme synchronisé
-            String serverUrl = response.body().fileUrl;
-            dbHelper.markMediaAsSynced(note.getLocalId(), serverUrl);
-
-            Log.d(TAG, "✅ Upload réussi - URL: " + serverUrl);
-            return true;
+            // Succès - marquage synchronisé par le commit ordonné
+            return NoteUploadResult.success(response.body().fileUrl);
 
         } else {
+            // Erreur transitoire: réessayée par le pipeline avec backoff
+            if (ParallelUploadPipeline.isRetryableHttpCode(response.code())) {
+                throw ParallelUploadPipeline.RetryableHttpException.from(response);
+            }
+
             // Échec
             String error = response.body() != null ?
                 response.body().message : "HTTP " + response.code();
 
-            int attempts = note.getSyncAttempts() + 1;
-            dbHelper.updateProjectNoteSyncStatus(
-                note.getLocalId(),
-                attempts < 3 ? "pending" : "failed",
-                error,
-                attempts
-            );
-
             Log.e(TAG, "❌ Échec upload: " + error);
+            return NoteUploadResult.failure(error, false);
+        }
+    }
+
+    /**
+     * Upload par chunks reprenable (fichiers > 10MB)
+     *
+     * - Session persistée dans upload_sessions (upload_id + offset acquitté)
+     * - Reprise depuis l'offset confirmé par le serveur après mort du processus ou coupure réseau
+     * - Morceaux de taille fixe streamés depuis le FileChannel
+     * - upload_progress = octets acquittés / taille du fichier
+     */
+    private NoteUploadResult uploadByChunks(ProjectNote note, File file, String token) throws Exception {
+        String mimeType = note.getMimeType() != null ? note.getMimeType() : "application/octet-stream";
+        UploadSession session = resumeOrStartSession(note, file, token);
+        if (session == null) {
+            return NoteUploadResult.failure("Initialisation de l'upload refusée par le serveur", false);
+        }
+
+        long fileSize = session.getFileSize();
+        int resyncs = 0;
+        while (true) {
+            long start = session.getAckedOffset();
+            if (start >= fileSize) {
+                // Tout est reçu mais le serveur n'a pas finalisé: nouvelle session au prochain essai
+                dbHelper.deleteUploadSession(note.getLocalId());
+                return NoteUploadResult.failure("Upload non finalisé par le serveur", false);
+            }
+            long length = Math.min(session.getChunkSize(), fileSize - start);
+            String contentRange = "bytes " + start + "-" + (start + length - 1) + "/" + fileSize;
+
+            Response<ApiService.ChunkedUploadResponse> response = apiService.uploadMediaChunk(
+                token,
+                session.getUploadId(),
+                contentRange,
+                new FileRangeRequestBody(file, MediaType.parse(mimeType), start, length)
+            ).execute();
+
+            if (response.code() == 409 || response.code() == 416) {
+                // Offset désynchronisé (morceau déjà reçu, réponse perdue): se recaler sur le serveur
+                if (response.errorBody() != null) {
+                    response.errorBody().close();
+                }
+                if (++resyncs > MAX_CHUNK_RESYNCS || !syncSessionOffset(session, token)) {
+                    dbHelper.deleteUploadSession(note.getLocalId());
+                    return NoteUploadResult.failure("Session d'upload désynchronisée", false);
+                }
+                continue;
+            }
+            if (!response.isSuccessful() || response.body() == null || !response.body().success) {
+                if (ParallelUploadPipeline.isRetryableHttpCode(response.code())) {
+                    // La tentative suivante reprendra depuis l'offset persisté
+                    throw ParallelUploadPipeline.RetryableHttpException.from(response);
+                }
+                String error = response.body() != null ? response.body().message : "HTTP " + response.code();
+                Log.e(TAG, "❌ Échec morceau " + contentRange + ": " + error);
+                return NoteUploadResult.failure(error, false);
+            }
+
+            ApiService.ChunkedUploadResponse body = response.body();
+            if (body.complete) {
+                dbHelper.deleteUploadSession(note.getLocalId());
+                Log.d(TAG, "✅ Upload par morceaux terminé - URL: " + body.fileUrl);
+                return NoteUploadResult.success(body.fileUrl);
+            }
+
+            // Seuls les octets acquittés par le serveur font avancer la session
+            if (body.offset == null) {
+                // Acquittement inconnu (écriture partielle ou ignorée possible): redemander l'offset au serveur
+                if (++resyncs > MAX_CHUNK_RESYNCS || !syncSessionOffset(session, token)) {
+                    dbHelper.deleteUploadSession(note.getLocalId());
+                    return NoteUploadResult.failure("Offset non acquitté par le serveur", false);
+                }
+                continue;
+            }
+            long acked = body.offset;
+            if (acked <= start || acked > fileSize) {
+                return NoteUploadResult.failure("Offset acquitté invalide: " + acked, false);
+            }
+            session.setAckedOffset(acked);
+            dbHelper.updateUploadSessionOffset(session);
+            Log.d(TAG, "📦 Morceau acquitté: " + formatSize(acked) + "/" + formatSize(fileSize)
+                + " (" + session.getProgressPercent() + "%)");
+        }
+    }
+
+    /**
+     * Reprend la session persistée (offset recalé sur le serveur) ou en démarre une nouvelle
+     * @return null si le serveur refuse l'initialisation
+     */
+    private UploadSession resumeOrStartSession(ProjectNote note, File file, String token) throws Exception {
+        UploadSession session = dbHelper.getUploadSession(note.getLocalId());
+        if (session != null) {
+            if (session.matches(file) && syncSessionOffset(session, token)) {
+                Log.d(TAG, "⏯️ Reprise upload note #" + note.getLocalId() + " à "
+                    + formatSize(session.getAckedOffset()) + "/" + formatSize(session.getFileSize()));
+                return session;
+            }
+            // Fichier modifié ou session expirée côté serveur: repartir de zéro
+            dbHelper.deleteUploadSession(note.getLocalId());
+        }
+
+        String mimeType = note.getMimeType() != null ? note.getMimeType() : "application/octet-stream";
+        Response<ApiService.ChunkedUploadResponse> response = apiService.initChunkedUpload(
+            token,
+            noteIdPart(note),
+            textPart(String.valueOf(note.getProjectId())),
+            textPart(note.getNoteType()),
+            textPart(note.getTitle() != null ? note.getTitle() : ""),
+            textPart(file.getName()),
+            textPart(String.valueOf(file.length())),
+            textPart(mimeType)
+        ).execute();
+
+        if (!response.isSuccessful() || response.body() == null || !response.body().success
+                || response.body().uploadId == null) {
+            if (ParallelUploadPipeline.isRetryableHttpCode(response.code())) {
+                throw ParallelUploadPipeline.RetryableHttpException.from(response);
+            }
+            Log.e(TAG, "❌ Init upload par morceaux refusé: HTTP " + response.code());
+            return null;
+        }
+
+        session = new UploadSession(note.getLocalId(), response.body().uploadId, file, CHUNK_SIZE);
+        long initialOffset = response.body().offset != null ? response.body().offset : 0;
+        session.setAckedOffset(Math.max(0, Math.min(initialOffset, file.length())));
+        dbHelper.saveUploadSession(session);
+        dbHelper.updateUploadSessionOffset(session);
+        Log.d(TAG, "🆕 Session d'upload créée: " + session.getUploadId());
+        return session;
+    }
+
+    /**
+     * Recale l'offset local sur l'offset acquitté par le serveur
+     * @return false si le serveur ne connaît plus la session
+     */
+    private boolean syncSessionOffset(UploadSession session, String token) throws Exception {
+        Response<ApiService.ChunkedUploadResponse> response =
+            apiService.getChunkedUploadStatus(token, session.getUploadId()).execute();
+
+        if (!response.isSuccessful() || response.body() == null || !response.body().success) {
+            if (ParallelUploadPipeline.isRetryableHttpCode(response.code())) {
+                throw ParallelUploadPipeline.RetryableHttpException.from(response);
+            }
             return false;
         }
+
+        Long serverOffset = response.body().offset;
+        if (serverOffset == null || serverOffset < 0 || serverOffset > session.getFileSize()) {
+            return false;
+        }
+        if (serverOffset != session.getAckedOffset()) {
+            session.setAckedOffset(serverOffset);
+            dbHelper.updateUploadSessionOffset(session);
+        }
+        return true;
+    }
+
+    private static RequestBody textPart(String value) {
+        return RequestBody.create(MediaType.parse("text/plain"), value != null ? value : "");
     }
 
     /**
-     * Upload par chunks (fichiers > 10MB)
+     * ID serveur de la note à laquelle rattacher le fichier (null = partie omise)
      */
-    private boolean uploadByChunks(ProjectNote note, File file, String token) throws Exception {
-        // TODO: Implémenter upload par chunks
-        // Pour l'instant, utiliser upload direct (peut timeout pour gros fichiers)
-        Log.w(TAG, "⚠️ Upload par chunks non implémenté - utilisation upload direct");
-        return uploadDirect(note, file, token);
+    private static RequestBody noteIdPart(ProjectNote note) {
+        return note.getId() > 0 ? textPart(String.valueOf(note.getId())) : null;
     }
 
     /**
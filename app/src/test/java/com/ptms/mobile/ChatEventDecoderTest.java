@@ -0,0 +1,79 @@
+package com.ptms.mobile;
+
+import com.ptms.mobile.websocket.ChatEvent;
+import com.ptms.mobile.websocket.ChatEventCoalescer;
+import com.ptms.mobile.websocket.ChatEventDecoder;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests du décodage des trames WebSocket du chat
+ *
+ * Vérifie:
+ * - Trame décodée en événement typé quel que soit l'ordre des champs, champs inconnus ignorés
+ * - Trame incomplète rejetée
+ * - Rafale de user_typing réduite au dernier état par utilisateur
+ */
+public class ChatEventDecoderTest {
+
+    /**
+     * Test 1: new_message avec type en dernier et champ supplémentaire
+     */
+    @Test
+    public void testDecodeTypedEvent() throws Exception {
+        ChatEvent event = ChatEventDecoder.decode(
+            "{\"roomId\":7,\"senderId\":3,\"meta\":{\"client\":[1,2]},\"message\":\"Bonjour\","
+                + "\"timestamp\":1700000000000,\"type\":\"new_message\"}");
+
+        assertTrue(event instanceof ChatEvent.NewMessage);
+        ChatEvent.NewMessage message = (ChatEvent.NewMessage) event;
+        assertEquals(7, message.roomId);
+        assertEquals(3, message.senderId);
+        assertEquals("Bonjour", message.message);
+        assertEquals(1700000000000L, message.timestamp);
+
+        ChatEvent typing = ChatEventDecoder.decode(
+            "{\"type\":\"user_typing\",\"roomId\":7,\"userId\":4,\"isTyping\":\"true\"}");
+        assertTrue(((ChatEvent.UserTyping) typing).isTyping);
+
+        try {
+            ChatEventDecoder.decode("{\"type\":\"new_message\",\"roomId\":7}");
+            fail("Trame incomplète acceptée");
+        } catch (IOException expected) {
+            // senderId, message et timestamp manquants
+        }
+    }
+
+    /**
+     * Test 2: 10 trames de frappe de 2 utilisateurs -> 2 mises à jour, dernier état gardé
+     */
+    @Test
+    public void testTypingBurstCoalesced() throws Exception {
+        ChatEventCoalescer coalescer = new ChatEventCoalescer();
+        int scheduled = 0;
+        for (int i = 0; i < 10; i++) {
+            int userId = i % 2 == 0 ? 4 : 5;
+            boolean typing = i < 9;
+            ChatEvent event = ChatEventDecoder.decode("{\"type\":\"user_typing\",\"roomId\":7,\"userId\":"
+                + userId + ",\"isTyping\":" + typing + "}");
+            assertTrue(ChatEventCoalescer.isCoalescable(event));
+            if (coalescer.offer(event)) {
+                scheduled++;
+            }
+        }
+
+        assertEquals(1, scheduled);
+        List<ChatEvent> drained = coalescer.drain();
+        assertEquals(2, drained.size());
+        assertEquals(4, ((ChatEvent.UserTyping) drained.get(0)).userId);
+        assertTrue(((ChatEvent.UserTyping) drained.get(0)).isTyping);
+        assertEquals(5, ((ChatEvent.UserTyping) drained.get(1)).userId);
+        assertFalse(((ChatEvent.UserTyping) drained.get(1)).isTyping);
+        assertTrue(coalescer.drain().isEmpty());
+    }
+}
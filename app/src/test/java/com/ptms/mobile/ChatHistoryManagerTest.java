@@ -0,0 +1,137 @@
+package com.ptms.mobile;
+
+import android.content.Context;
+import android.os.Looper;
+
+import com.ptms.mobile.api.ApiService;
+import com.ptms.mobile.database.OfflineDatabaseHelper;
+import com.ptms.mobile.models.ChatMessage;
+import com.ptms.mobile.utils.ChatHistoryManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Tests de la remontée dans l'historique de chat (ChatHistoryManager.loadOlder)
+ *
+ * Vérifie:
+ * - Un trou juste sous le message de départ est comblé par le serveur avant toute lecture disque
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ChatHistoryManagerTest {
+
+    private static final int ROOM_ID = 7;
+    private static final long TIMEOUT_MS = 5000;
+
+    private MockWebServer server;
+    private OfflineDatabaseHelper dbHelper;
+    private ChatHistoryManager historyManager;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+
+        ApiService apiService = new Retrofit.Builder()
+            .baseUrl(server.url("/api/"))
+            .addConverterFactory(GsonConverterFactory.create())
+            .build()
+            .create(ApiService.class);
+
+        Context context = RuntimeEnvironment.getApplication();
+        dbHelper = OfflineDatabaseHelper.getInstance(context);
+        dbHelper.clearAllData();
+        historyManager = new ChatHistoryManager(context, apiService, ROOM_ID);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        dbHelper.clearAllData();
+    }
+
+    /**
+     * Test 1: 101..150 enregistrés, delta plein 200..249 → remonter depuis 200 demande 150..199 au serveur
+     */
+    @Test
+    public void testGapBelowStartIsFetchedFromServer() throws Exception {
+        dbHelper.saveChatMessagesPage(ROOM_ID, range(101, 150), true, 0);
+        dbHelper.saveChatMessagesPage(ROOM_ID, range(200, 249), true, 0);
+        assertTrue(dbHelper.hasChatGapBefore(ROOM_ID, 200));
+
+        server.enqueue(new MockResponse()
+            .setResponseCode(200)
+            .setHeader("Content-Type", "application/json")
+            .setBody("{\"success\":true,\"messages\":" + toJson(range(150, 199)) + "}"));
+
+        AtomicReference<List<ChatMessage>> older = new AtomicReference<>();
+        historyManager.loadOlder("Bearer token", 200, (messages, hasMore) -> {
+            assertTrue(hasMore);
+            older.set(messages);
+        });
+        awaitNonNull(older);
+
+        RecordedRequest request = server.takeRequest(1, TimeUnit.SECONDS);
+        assertNotNull("Le trou sous #200 doit être demandé au serveur", request);
+        assertEquals("200", request.getRequestUrl().queryParameter("before_id"));
+
+        List<ChatMessage> messages = older.get();
+        assertEquals(50, messages.size());
+        assertEquals(150, messages.get(0).getId());
+        assertEquals(199, messages.get(messages.size() - 1).getId());
+        assertFalse(dbHelper.hasChatGapBefore(ROOM_ID, 200));
+    }
+
+    private <T> void awaitNonNull(AtomicReference<T> reference) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            // Callbacks publiés sur le thread UI
+            shadowOf(Looper.getMainLooper()).idle();
+            if (reference.get() != null) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("Aucun résultat après " + TIMEOUT_MS + " ms");
+    }
+
+    private List<ChatMessage> range(int fromId, int toId) {
+        List<ChatMessage> messages = new ArrayList<>();
+        for (int id = fromId; id <= toId; id++) {
+            ChatMessage message = new ChatMessage(ROOM_ID, 3, "Alice", "Message " + id);
+            message.setId(id);
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private static String toJson(List<ChatMessage> messages) {
+        StringBuilder json = new StringBuilder("[");
+        for (ChatMessage message : messages) {
+            if (json.length() > 1) json.append(',');
+            json.append("{\"id\":").append(message.getId())
+                .append(",\"content\":\"").append(message.getContent()).append("\"}");
+        }
+        return json.append(']').toString();
+    }
+}
@@ -0,0 +1,97 @@
+package com.ptms.mobile;
+
+import android.content.Context;
+
+import com.ptms.mobile.database.OfflineDatabaseHelper;
+import com.ptms.mobile.models.ChatMessage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests de l'historique de chat local (chat_messages)
+ *
+ * Vérifie:
+ * - Curseur de la salle avancé par les pages les plus récentes
+ * - Trou noté sous une page pleine qui ne rejoint pas l'historique local
+ * - Trou comblé par une page qui rejoint l'historique local ou atteint le début
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ChatHistoryStoreTest {
+
+    private static final int ROOM_ID = 7;
+
+    private OfflineDatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.getApplication();
+        dbHelper = OfflineDatabaseHelper.getInstance(context);
+        dbHelper.clearAllData();
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.clearAllData();
+    }
+
+    /**
+     * Test 1: Delta plein après une absence, puis remontée qui comble le trou
+     */
+    @Test
+    public void testGapDetectedAndFilled() {
+        // Ouverture: 50 derniers messages (101..150), historique plus ancien non chargé
+        dbHelper.saveChatMessagesPage(ROOM_ID, range(101, 150), true, 0);
+        assertEquals(150, dbHelper.getChatHighWaterMark(ROOM_ID));
+        assertTrue(dbHelper.hasChatGapBefore(ROOM_ID, 101));
+
+        // Retour après une absence: delta plein (200..249), 151..199 jamais reçus
+        dbHelper.saveChatMessagesPage(ROOM_ID, range(200, 249), true, 0);
+        assertEquals(249, dbHelper.getChatHighWaterMark(ROOM_ID));
+        assertTrue(dbHelper.hasChatGapBefore(ROOM_ID, 200));
+
+        // Affichage depuis le disque: s'arrête au trou
+        List<ChatMessage> latest = dbHelper.getChatMessagesBefore(ROOM_ID, 0, 200);
+        assertEquals(50, latest.size());
+        assertEquals(200, latest.get(0).getId());
+        assertEquals(249, latest.get(latest.size() - 1).getId());
+
+        // Remontée: le serveur renvoie 150..199, qui rejoint le message 150 déjà enregistré
+        dbHelper.saveChatMessagesPage(ROOM_ID, range(150, 199), true, 200);
+        assertFalse(dbHelper.hasChatGapBefore(ROOM_ID, 200));
+        assertFalse(dbHelper.hasChatGapBefore(ROOM_ID, 150));
+        assertTrue(dbHelper.hasChatGapBefore(ROOM_ID, 101)); // début pas encore chargé
+
+        // Début de l'historique: page incomplète (1..100)
+        dbHelper.saveChatMessagesPage(ROOM_ID, range(1, 100), false, 101);
+        assertFalse(dbHelper.hasChatGapBefore(ROOM_ID, 101));
+        assertFalse(dbHelper.hasChatGapBefore(ROOM_ID, 1));
+
+        List<ChatMessage> all = dbHelper.getChatMessagesBefore(ROOM_ID, 0, 1000);
+        assertEquals(249, all.size());
+        assertEquals(1, all.get(0).getId());
+        assertEquals("Message 42", all.get(41).getContent());
+        assertEquals(249, dbHelper.getChatHighWaterMark(ROOM_ID));
+    }
+
+    private List<ChatMessage> range(int fromId, int toId) {
+        List<ChatMessage> messages = new ArrayList<>();
+        for (int id = fromId; id <= toId; id++) {
+            ChatMessage message = new ChatMessage(ROOM_ID, 3, "Alice", "Message " + id);
+            message.setId(id);
+            messages.add(message);
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,65 @@
+package com.ptms.mobile;
+
+import com.ptms.mobile.models.ChatMessage;
+import com.ptms.mobile.utils.ChatMessageFetcher;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests de la récupération incrémentale des messages de chat
+ *
+ * Vérifie:
+ * - Seuls les messages postérieurs au curseur sont retenus (serveur ignorant after_id)
+ * - Intervalle de polling doublé sur salle inactive, borné, puis réinitialisé par l'activité
+ */
+public class ChatMessageFetcherTest {
+
+    /**
+     * Test 1: Fenêtre complète renvoyée par le serveur, seuls les nouveaux messages sont gardés
+     */
+    @Test
+    public void testNewerThanFiltersKnownMessages() {
+        List<ChatMessage> window = Arrays.asList(message(10), message(11), message(12), message(13));
+
+        List<ChatMessage> newer = ChatMessageFetcher.newerThan(window, 11);
+
+        assertEquals(2, newer.size());
+        assertEquals(12, newer.get(0).getId());
+        assertEquals(13, newer.get(1).getId());
+        assertTrue(ChatMessageFetcher.newerThan(window, 13).isEmpty());
+        assertTrue(ChatMessageFetcher.newerThan(null, 0).isEmpty());
+    }
+
+    /**
+     * Test 2: 5 s -> 10 s -> 20 s -> 40 s -> 60 s (plafond), retour à 5 s sur nouveau message
+     */
+    @Test
+    public void testBackoffOnIdleRoom() {
+        ChatMessageFetcher.PollingBackoff backoff = new ChatMessageFetcher.PollingBackoff(
+            ChatMessageFetcher.MIN_INTERVAL_MS, ChatMessageFetcher.MAX_INTERVAL_MS);
+
+        assertEquals(5000, backoff.current());
+        assertEquals(10000, backoff.next(false));
+        assertEquals(20000, backoff.next(false));
+        assertEquals(40000, backoff.next(false));
+        assertEquals(60000, backoff.next(false));
+        assertEquals(60000, backoff.next(false));
+
+        assertEquals(5000, backoff.next(true));
+
+        backoff.next(false);
+        backoff.reset();
+        assertEquals(5000, backoff.current());
+    }
+
+    private ChatMessage message(int id) {
+        ChatMessage message = new ChatMessage(1, 2, "Alice", "Message " + id);
+        message.setId(id);
+        return message;
+    }
+}
@@ -0,0 +1,151 @@
+package com.ptms.mobile;
+
+import android.os.Looper;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.ptms.mobile.adapters.ChatMessagesAdapter;
+import com.ptms.mobile.models.ChatMessage;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Tests des mises à jour différentielles de la liste des messages
+ *
+ * Vérifie:
+ * - Un nouveau message n'insère qu'une ligne (pas de rafraîchissement complet)
+ * - Un message modifié ne redessine que sa ligne
+ * - Un message en cours d'envoi garde un ID négatif unique jusqu'à l'arrivée de sa version serveur
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ChatMessagesAdapterDiffTest {
+
+    private static final long TIMEOUT_MS = 5000;
+
+    private ChatMessagesAdapter adapter;
+    private final List<String> events = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        adapter = new ChatMessagesAdapter(RuntimeEnvironment.getApplication(), 3);
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                events.add("all");
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+                events.add("changed " + positionStart + "+" + itemCount);
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                events.add("inserted " + positionStart + "+" + itemCount);
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                events.add("removed " + positionStart + "+" + itemCount);
+            }
+        });
+    }
+
+    /**
+     * Test 1: Poll avec un nouveau message puis un message édité
+     */
+    @Test
+    public void testOnlyChangedRowsNotified() throws Exception {
+        adapter.updateMessages(Arrays.asList(message(1, "Bonjour"), message(2, "Ça va ?"), message(3, "Oui")));
+        awaitCount(3);
+        events.clear();
+
+        assertEquals(1, adapter.appendNewMessages(Arrays.asList(message(3, "Oui"), message(4, "Parfait"))));
+        awaitCount(4);
+        assertEquals(Arrays.asList("inserted 3+1"), events);
+        events.clear();
+
+        adapter.updateMessages(Arrays.asList(message(1, "Bonjour"), message(2, "Ça va bien ?"),
+            message(3, "Oui"), message(4, "Parfait")));
+        awaitEvents();
+        assertEquals(Arrays.asList("changed 1+1"), events);
+        assertEquals(2, adapter.getItemId(1));
+    }
+
+    /**
+     * Test 2: Deux envois en attente, un nouveau message, puis la version serveur du premier envoi
+     */
+    @Test
+    public void testPendingMessagesKeepStableIds() throws Exception {
+        adapter.updateMessages(Arrays.asList(message(1, "Bonjour")));
+        adapter.addMessage(message(0, "Premier envoi"));
+        adapter.addMessage(message(0, "Second envoi"));
+        awaitCount(3);
+        long firstPending = adapter.getItemId(1);
+        long secondPending = adapter.getItemId(2);
+        assertTrue(firstPending < 0);
+        assertTrue(secondPending < 0);
+        assertNotEquals(firstPending, secondPending);
+
+        adapter.appendNewMessages(Arrays.asList(message(2, "Réponse")));
+        awaitCount(4);
+        assertEquals(firstPending, adapter.getItemId(1));
+        assertEquals(secondPending, adapter.getItemId(2));
+
+        // La version serveur remplace le premier envoi; le second garde son ID
+        adapter.appendNewMessages(Arrays.asList(message(3, "Premier envoi")));
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (adapter.getItemId(1) != 3 && System.currentTimeMillis() < deadline) {
+            shadowOf(Looper.getMainLooper()).idle();
+            Thread.sleep(10);
+        }
+        assertEquals(3, adapter.getItemId(1));
+        assertEquals(secondPending, adapter.getItemId(2));
+    }
+
+    private void awaitCount(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            // Diff calculé en arrière-plan, appliqué sur le thread UI
+            shadowOf(Looper.getMainLooper()).idle();
+            if (adapter.getItemCount() == count) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("Liste de " + count + " messages non appliquée après " + TIMEOUT_MS + " ms");
+    }
+
+    private void awaitEvents() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            shadowOf(Looper.getMainLooper()).idle();
+            if (!events.isEmpty()) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("Aucune notification après " + TIMEOUT_MS + " ms");
+    }
+
+    private ChatMessage message(int id, String content) {
+        ChatMessage message = new ChatMessage(1, 5, "Alice", content);
+        message.setId(id);
+        message.setTimestamp(new Date(1_700_000_000_000L + id * 60_000L));
+        return message;
+    }
+}
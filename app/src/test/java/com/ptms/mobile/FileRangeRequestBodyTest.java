@@ -0,0 +1,84 @@
+package com.ptms.mobile;
+
+import com.ptms.mobile.api.FileRangeRequestBody;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import okhttp3.MediaType;
+import okio.Buffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests du corps de requête streamé depuis un fichier
+ *
+ * Vérifie:
+ * - Envoi exact d'une plage (upload par morceaux)
+ * - Progression croissante jusqu'à la taille totale
+ */
+public class FileRangeRequestBodyTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Test 1: Seuls les octets de la plage demandée sont écrits
+     */
+    @Test
+    public void testWritesRequestedRange() throws Exception {
+        byte[] data = createData(300 * 1024);
+        File file = writeFile(data);
+
+        FileRangeRequestBody body = new FileRangeRequestBody(
+            file, MediaType.parse("application/octet-stream"), 100_000, 150_000);
+        Buffer sink = new Buffer();
+        body.writeTo(sink);
+
+        assertEquals(150_000, body.contentLength());
+        assertArrayEquals(Arrays.copyOfRange(data, 100_000, 250_000), sink.readByteArray());
+    }
+
+    /**
+     * Test 2: La progression est croissante et se termine à la taille du fichier
+     */
+    @Test
+    public void testReportsProgress() throws Exception {
+        byte[] data = createData(200 * 1024);
+        File file = writeFile(data);
+        List<Long> progress = new ArrayList<>();
+
+        FileRangeRequestBody body = new FileRangeRequestBody(
+            file, MediaType.parse("audio/mp4"), (written, total) -> progress.add(written));
+        body.writeTo(new Buffer());
+
+        assertFalse(progress.isEmpty());
+        for (int i = 1; i < progress.size(); i++) {
+            assertTrue(progress.get(i) > progress.get(i - 1));
+        }
+        assertEquals(Long.valueOf(data.length), progress.get(progress.size() - 1));
+    }
+
+    private byte[] createData(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i % 251);
+        }
+        return data;
+    }
+
+    private File writeFile(byte[] data) throws Exception {
+        File file = folder.newFile("media.bin");
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            output.write(data);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,145 @@
+package com.ptms.mobile;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.ptms.mobile.database.OfflineDatabaseHelper;
+import com.ptms.mobile.models.TimeReport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests de l'insertion des rapports de temps
+ *
+ * Vérifie l'équivalence, pour des insertions unitaires (une transaction chacune), entre:
+ * - Insertion historique: ContentValues + SQLiteDatabase.insert (SQL reconstruit à chaque appel)
+ * - insertTimeReport: instruction du pool (ni ContentValues ni SQL reconstruits), liée puis exécutée
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class InsertStatementBenchmarkTest {
+
+    private static final int ROW_COUNT = 500;
+
+    private OfflineDatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.getApplication();
+        dbHelper = new OfflineDatabaseHelper(context);
+        dbHelper.clearAllData();
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.clearAllData();
+        dbHelper.close();
+    }
+
+    /**
+     * Test 1: L'instruction précompilée écrit les mêmes lignes que l'insertion historique
+     */
+    @Test
+    public void testPooledInsertMatchesLegacyRows() {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+
+        for (int i = 0; i < ROW_COUNT; i++) {
+            insertLegacy(db, report(i));
+        }
+        assertEquals(ROW_COUNT, countReports(db));
+        String legacyRow = firstRow(db);
+        db.delete("time_reports", null, null);
+
+        for (int i = 0; i < ROW_COUNT; i++) {
+            dbHelper.insertTimeReport(report(i));
+        }
+        assertEquals(ROW_COUNT, countReports(db));
+        assertEquals(legacyRow, firstRow(db));
+    }
+
+    private TimeReport report(int i) {
+        TimeReport report = new TimeReport(1 + i % 5, 1, 1 + i % 3, "2025-10-" + (10 + i % 18),
+            "08:00", "12:00", 4.0, "Rapport " + i);
+        report.setProjectName("Projet " + (i % 5));
+        report.setWorkTypeName("Type " + (i % 3));
+        report.setValidationStatus("pending");
+        report.setDateCreated("2025-10-28 08:00:00");
+        report.setDateUpdated("2025-10-28 08:00:00");
+        // Déjà synchronisé: pas d'opération d'envoi, seule la ligne insérée est comparée
+        report.setSyncStatus("synced");
+        report.setIdempotencyKey("key-" + i);
+        return report;
+    }
+
+    /**
+     * Reproduction de l'ancien insertTimeReport (référence d'équivalence)
+     */
+    private void insertLegacy(SQLiteDatabase db, TimeReport report) {
+        ContentValues values = new ContentValues();
+        values.put("project_id", report.getProjectId());
+        values.put("employee_id", report.getEmployeeId());
+        values.put("work_type_id", report.getWorkTypeId());
+        values.put("report_date", report.getReportDate());
+        values.put("datetime_from", report.getDatetimeFrom());
+        values.put("datetime_to", report.getDatetimeTo());
+        values.put("hours", report.getHours());
+        values.put("description", report.getDescription());
+        values.put("validation_status", report.getValidationStatus());
+        values.put("project_name", report.getProjectName());
+        values.put("work_type_name", report.getWorkTypeName());
+        values.put("date_created", report.getDateCreated());
+        values.put("date_updated", report.getDateUpdated());
+        values.put("sync_status", "synced");
+        values.putNull("sync_error");
+        values.put("sync_attempts", 0);
+        values.put("idempotency_key", report.getIdempotencyKey() != null
+            ? report.getIdempotencyKey() : UUID.randomUUID().toString());
+
+        db.beginTransaction();
+        try {
+            db.insert("time_reports", null, values);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private int countReports(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM time_reports", null);
+        try {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private String firstRow(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery(
+            "SELECT project_id, employee_id, work_type_id, report_date, datetime_from, datetime_to, hours, " +
+            "description, validation_status, project_name, work_type_name, date_created, date_updated, " +
+            "sync_status, sync_error, sync_attempts, idempotency_key FROM time_reports ORDER BY id LIMIT 1", null);
+        try {
+            assertTrue(cursor.moveToFirst());
+            StringBuilder row = new StringBuilder();
+            for (int i = 0; i < cursor.getColumnCount(); i++) {
+                row.append(cursor.getString(i)).append('|');
+            }
+            return row.toString();
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -5,6 +5,7 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 
 import com.ptms.mobile.database.OfflineDatabaseHelper;
+import com.ptms.mobile.models.OutboxOperation;
 import com.ptms.mobile.models.Project;
 import com.ptms.mobile.models.TimeReport;
 import com.ptms.mobile.models.ProjectNote;
@@ -17,6 +18,8 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -249,6 +252,349 @@ public class OfflineDatabaseHelperTest {
         assertEquals("Le titre devrait correspondre", "Note de test", retrieved.getTitle());
     }
 
+    /**
+     * Test 11: Upsert en lot des rapports serveur (insertion puis mise à jour sans doublon)
+     */
+    @Test
+    public void testUpsertTimeReportsFromServer() {
+        // Given: Une page de 3 rapports serveur
+        List<TimeReport> page = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            TimeReport report = createTimeReport(100, 7.0, true);
+            report.setServerId(1000 + i);
+            report.setReportDate("2025-10-2" + i);
+            page.add(report);
+        }
+
+        // When: Upsert deux fois la même page (serveur gagne)
+        dbHelper.upsertTimeReportsFromServer(page, (server, local) -> true);
+        page.get(0).setHours(4.0);
+        int conflicts = dbHelper.upsertTimeReportsFromServer(page, (server, local) -> true);
+
+        // Then: Pas de doublon, les lignes existantes sont mises à jour et synchronisées
+        assertEquals("Les 3 rapports existants devraient être mis à jour", 3, conflicts);
+        TimeReport updated = dbHelper.getTimeReportByServerId(1001);
+        assertNotNull("Le rapport devrait être trouvé par server_id", updated);
+        assertEquals(4.0, updated.getHours(), 0.001);
+        assertEquals("synced", updated.getSyncStatus());
+        assertEquals("Aucun rapport ne devrait être en attente", 0, dbHelper.getPendingSyncCount());
+    }
+
+    /**
+     * Test 12: Application d'un delta projets (upsert + tombstones)
+     */
+    @Test
+    public void testApplyProjectsDelta() {
+        // Given: 3 projets en cache
+        List<Project> initial = new ArrayList<>();
+        initial.add(createProject(1, "Projet A", 1));
+        initial.add(createProject(2, "Projet B", 1));
+        initial.add(createProject(3, "Projet C", 1));
+        dbHelper.replaceAllProjects(initial);
+
+        // When: Le serveur renvoie 1 modification, 1 création et 1 suppression
+        List<Project> changed = new ArrayList<>();
+        changed.add(createProject(2, "Projet B renommé", 1));
+        changed.add(createProject(4, "Projet D", 1));
+        List<Integer> deleted = new ArrayList<>();
+        deleted.add(3);
+        dbHelper.applyProjectsDelta(changed, deleted);
+
+        // Then: Seules les lignes concernées ont changé
+        List<String> names = new ArrayList<>();
+        for (Project project : dbHelper.getAllProjects()) {
+            names.add(project.getName());
+        }
+        assertEquals(3, names.size());
+        assertTrue(names.contains("Projet B renommé"));
+        assertTrue(names.contains("Projet D"));
+        assertFalse("Le projet supprimé côté serveur devrait disparaître", names.contains("Projet C"));
+    }
+
+    /**
+     * Test 13: Journal d'envoi ordonné, média bloqué tant que la note n'est pas créée
+     */
+    @Test
+    public void testOutboxOrderAndDependencies() {
+        // Given: Un rapport puis une note avec fichier local
+        long reportId = dbHelper.insertTimeReport(createTimeReport(100, 7.5, false));
+        ProjectNote note = new ProjectNote();
+        note.setUserId(1);
+        note.setTitle("Note audio");
+        note.setNoteType("audio");
+        note.setLocalFilePath("/tmp/note.m4a");
+        long noteId = dbHelper.insertProjectNote(note);
+
+        // When: Lecture des opérations prêtes
+        List<OutboxOperation> ready = dbHelper.getReadyOutboxOperations(100);
+
+        // Then: Créations dans l'ordre d'enregistrement, média en attente de la création
+        assertEquals(3, dbHelper.getOutboxSize());
+        assertEquals(2, ready.size());
+        assertEquals(reportId, ready.get(0).getEntityId());
+        assertEquals(OutboxOperation.ENTITY_TIME_REPORT, ready.get(0).getEntityType());
+        assertEquals(noteId, ready.get(1).getEntityId());
+        assertEquals(OutboxOperation.OP_CREATE, ready.get(1).getOperation());
+
+        // When: La création de la note est acquittée
+        dbHelper.completeOutboxOperation(ready.get(1).getId());
+
+        // Then: Le média devient prêt
+        List<OutboxOperation> afterCreate = dbHelper.getReadyOutboxOperations(100);
+        assertEquals(2, afterCreate.size());
+        assertEquals(OutboxOperation.OP_MEDIA, afterCreate.get(1).getOperation());
+        assertEquals(noteId, afterCreate.get(1).getEntityId());
+    }
+
+    /**
+     * Test 14: Pagination par clé des notes (ordre stable, sans doublon ni trou)
+     */
+    @Test
+    public void testNotesKeysetPaging() {
+        // Given: 120 notes dont 40 importantes (created_at souvent identiques)
+        for (int i = 0; i < 120; i++) {
+            ProjectNote note = new ProjectNote();
+            note.setUserId(1);
+            note.setTitle("Note " + i);
+            note.setNoteType("text");
+            note.setNoteGroup(i % 2 == 0 ? "project" : "personal");
+            note.setImportant(i % 3 == 0);
+            dbHelper.insertProjectNote(note);
+        }
+
+        // When: Lecture page par page (50 notes)
+        List<ProjectNote> all = new ArrayList<>();
+        ProjectNote after = null;
+        int pages = 0;
+        while (true) {
+            List<ProjectNote> page = dbHelper.getNotesPage(1, null, false, after, 50);
+            all.addAll(page);
+            pages++;
+            if (page.size() < 50) break;
+            after = page.get(page.size() - 1);
+        }
+
+        // Then: Toutes les notes une seule fois, importantes d'abord
+        assertEquals(3, pages);
+        assertEquals(120, all.size());
+        java.util.Set<Long> ids = new java.util.HashSet<>();
+        for (int i = 0; i < all.size(); i++) {
+            assertTrue("Doublon détecté", ids.add(all.get(i).getLocalId()));
+            assertEquals(i < 40, all.get(i).isImportant());
+        }
+        assertEquals(120, dbHelper.countNotes(1, null, false));
+        assertEquals(60, dbHelper.countNotes(1, "project", false));
+        assertEquals(40, dbHelper.getNotesPage(1, null, true, null, 50).size());
+    }
+
+    /**
+     * Test 15: Agrégation SQL des heures par jour, projet et type de travail
+     */
+    @Test
+    public void testHoursAggregation() {
+        // Given: Un projet en cache et 3 rapports sur 2 jours
+        List<Project> projects = new ArrayList<>();
+        projects.add(createProject(100, "Projet A", 1));
+        dbHelper.replaceAllProjects(projects);
+        String[] dates = {"2025-10-20", "2025-10-20", "2025-10-21"};
+        for (String date : dates) {
+            TimeReport report = createTimeReport(100, 2.5, true);
+            report.setReportDate(date);
+            dbHelper.insertTimeReport(report);
+        }
+        TimeReport outOfRange = createTimeReport(100, 8.0, true);
+        outOfRange.setReportDate("2025-11-01");
+        dbHelper.insertTimeReport(outOfRange);
+
+        // When: Agrégation sur octobre
+        List<com.ptms.mobile.database.HoursAggregate.Row> rows =
+            dbHelper.getHoursByDayProjectWorkType("2025-10-01", "2025-10-31");
+        com.ptms.mobile.database.HoursAggregate month =
+            com.ptms.mobile.database.HoursAggregate.of(rows, "2025-10-01", "2025-10-31");
+
+        // Then: Un groupe par jour, nom du projet joint, totaux corrects
+        assertEquals(2, rows.size());
+        assertEquals(7.5, month.totalHours, 0.001);
+        assertEquals(3, month.totalEntries);
+        assertEquals("Projet A", month.byProject.get(100).label);
+        assertEquals(5.0, month.byDay.get("2025-10-20").hours, 0.001);
+    }
+
+    /**
+     * Test 16: Cumul journalier maintenu par les triggers (insertion, modification, suppression)
+     */
+    @Test
+    public void testDailyHoursRollupMaintainedOnWrites() {
+        // Given: 3 rapports sur 2 jours
+        long first = dbHelper.insertTimeReport(createReportOn("2025-10-20", 2.0));
+        dbHelper.insertTimeReport(createReportOn("2025-10-20", 3.0));
+        long third = dbHelper.insertTimeReport(createReportOn("2025-10-21", 4.0));
+
+        // When: Le premier passe au 21 avec 1h de plus, le troisième est supprimé
+        TimeReport moved = createReportOn("2025-10-21", 3.0);
+        moved.setId((int) first);
+        dbHelper.updateTimeReport(moved);
+        dbHelper.deleteTimeReport((int) third);
+
+        // Then: Le cumul reflète les écritures, et une reconstruction donne le même résultat
+        com.ptms.mobile.database.HoursAggregate incremental = com.ptms.mobile.database.HoursAggregate.of(
+            dbHelper.getHoursByDayProjectWorkType("2025-10-01", "2025-10-31"), "2025-10-01", "2025-10-31");
+        assertEquals(6.0, incremental.totalHours, 0.001);
+        assertEquals(2, incremental.totalEntries);
+        assertEquals(3.0, incremental.byDay.get("2025-10-20").hours, 0.001);
+        assertEquals(3.0, incremental.byDay.get("2025-10-21").hours, 0.001);
+
+        assertEquals(2, dbHelper.rebuildDailyHoursRollup());
+        com.ptms.mobile.database.HoursAggregate rebuilt = com.ptms.mobile.database.HoursAggregate.of(
+            dbHelper.getHoursByDayProjectWorkType("2025-10-01", "2025-10-31"), "2025-10-01", "2025-10-31");
+        assertEquals(incremental.totalHours, rebuilt.totalHours, 0.001);
+        assertEquals(incremental.totalEntries, rebuilt.totalEntries);
+    }
+
+    /**
+     * Test 17: Index plein texte maintenu par triggers, insensible aux accents et par préfixe
+     */
+    @Test
+    public void testFullTextSearchIndex() {
+        assertTrue(dbHelper.isSearchIndexAvailable());
+        assertEquals("reunion* chan*", com.ptms.mobile.database.SearchIndex.toMatchQuery("Réunion, chan"));
+
+        // Given: Deux notes, dont une avec le terme dans le titre
+        ProjectNote titled = createTestNote(1, "Réunion de chantier", "Point hebdomadaire");
+        ProjectNote mentioned = createTestNote(1, "Divers", "Préparer la réunion du lundi");
+        long titledId = dbHelper.insertProjectNote(titled);
+        dbHelper.insertProjectNote(mentioned);
+        dbHelper.insertProjectNote(createTestNote(2, "Réunion", "Autre utilisateur"));
+
+        // When: Recherche sans accent
+        List<com.ptms.mobile.database.SearchIndex.Hit<ProjectNote>> hits =
+            dbHelper.searchNotes(1, com.ptms.mobile.database.SearchIndex.toMatchQuery("reunion"), null, false, 10);
+
+        // Then: Les deux notes de l'utilisateur, le titre en premier, avec extrait
+        assertEquals(2, hits.size());
+        assertEquals(titledId, hits.get(0).item.getLocalId());
+        assertTrue(hits.get(0).snippet.contains("union"));
+
+        // When: Le titre change puis la seconde note est supprimée
+        titled.setLocalId(titledId);
+        titled.setTitle("Compte rendu");
+        titled.setContent("Sans le terme");
+        dbHelper.updateProjectNoteLocally(titled);
+        dbHelper.deleteProjectNote((int) hits.get(1).item.getLocalId());
+
+        // Then: L'index suit les écritures
+        assertTrue(dbHelper.searchNotes(1, "reunion*", null, false, 10).isEmpty());
+        assertEquals(1, dbHelper.searchNotes(1, "compte*", null, false, 10).size());
+    }
+
+    /**
+     * Test 18: Modification locale journalisée, opération en échec mise de côté, suppression sans envoi
+     */
+    @Test
+    public void testOutboxEditParkingAndReportDelete() {
+        // Given: Un rapport déjà envoyé au serveur
+        long reportId = dbHelper.insertTimeReport(createTimeReport(100, 7.5, false));
+        dbHelper.completeOutboxOperation(dbHelper.getReadyOutboxOperations(100).get(0).getId());
+        dbHelper.markTimeReportAsSynced((int) reportId, 500);
+
+        // When: Modification locale
+        TimeReport edited = createTimeReport(100, 6.0, false);
+        edited.setServerId(500);
+        edited.setSyncStatus("pending");
+        dbHelper.updateTimeReport(edited);
+
+        // Then: Une opération "update" est prête, filtrable par clé
+        List<OutboxOperation> ready = dbHelper.getReadyOutboxOperations(100);
+        assertEquals(1, ready.size());
+        assertEquals(OutboxOperation.OP_UPDATE, ready.get(0).getOperation());
+        assertEquals(reportId, ready.get(0).getEntityId());
+        assertTrue(dbHelper.getReadyOutboxOperations(
+            Collections.singletonList(OutboxOperation.key(OutboxOperation.ENTITY_PROJECT_NOTE, OutboxOperation.OP_CREATE)),
+            100).isEmpty());
+
+        // When: Échecs répétés
+        for (int i = 0; i < OutboxOperation.MAX_ATTEMPTS; i++) {
+            dbHelper.failOutboxOperation(ready.get(0).getId(), "HTTP 400");
+        }
+
+        // Then: Mise de côté, puis remise en file sur demande
+        assertTrue(dbHelper.getReadyOutboxOperations(100).isEmpty());
+        assertEquals(1, dbHelper.countParkedOutboxOperations());
+        dbHelper.resetParkedOutboxOperations();
+        assertEquals(1, dbHelper.getReadyOutboxOperations(100).size());
+
+        // When: Suppression locale (pas d'endpoint serveur)
+        assertTrue(dbHelper.deleteTimeReport((int) reportId));
+
+        // Then: Plus rien à envoyer pour ce rapport
+        assertEquals(0, dbHelper.getOutboxSize());
+    }
+
+    /**
+     * Test 19: Édition hors ligne d'une note ouverte par son ID serveur (différent de l'ID local)
+     */
+    @Test
+    public void testOfflineEditResolvesNoteByServerId() {
+        // Given: L'ID serveur de la note B est égal à l'ID local de la note A
+        long localA = dbHelper.insertProjectNote(createTestNote(1, "Note A", "Contenu A"));
+        long localB = dbHelper.insertProjectNote(createTestNote(1, "Note B", "Contenu B"));
+        dbHelper.setProjectNoteServerId(localB, (int) localA);
+
+        // When: Édition locale de la note ouverte depuis l'API (note_id = server_id)
+        ProjectNote note = dbHelper.getProjectNoteByServerId((int) localA);
+        assertNotNull(note);
+        assertEquals(localB, note.getLocalId());
+        note.setTitle("Note B modifiée");
+        assertTrue(dbHelper.updateProjectNoteLocally(note));
+
+        // Then: Seule la note B est modifiée et journalisée
+        assertEquals("Note A", dbHelper.getProjectNoteById((int) localA).getTitle());
+        assertEquals("Note B modifiée", dbHelper.getProjectNoteById((int) localB).getTitle());
+        assertTrue(dbHelper.hasOutboxOperation(OutboxOperation.ENTITY_PROJECT_NOTE, localB, OutboxOperation.OP_UPDATE));
+        assertFalse(dbHelper.hasOutboxOperation(OutboxOperation.ENTITY_PROJECT_NOTE, localA, OutboxOperation.OP_UPDATE));
+        assertNull(dbHelper.getProjectNoteByServerId(9999));
+    }
+
+    /**
+     * Test 20: Pagination par clé des rapports d'une période (ordre date puis ID, sans doublon ni trou)
+     */
+    @Test
+    public void testTimeReportsKeysetPaging() {
+        // Given: 120 rapports sur 10 jours (12 par jour, même date), 5 hors période
+        for (int i = 0; i < 120; i++) {
+            dbHelper.insertTimeReport(createReportOn("2025-10-" + (11 + i % 10), 1.0));
+        }
+        for (int i = 0; i < 5; i++) {
+            dbHelper.insertTimeReport(createReportOn("2025-09-30", 1.0));
+        }
+
+        // When: Lecture page par page (50 rapports)
+        List<TimeReport> all = new ArrayList<>();
+        TimeReport after = null;
+        int pages = 0;
+        while (true) {
+            List<TimeReport> page = dbHelper.getTimeReportsPage("2025-10-01", "2025-10-31", after, 50);
+            all.addAll(page);
+            pages++;
+            if (page.size() < 50) break;
+            after = page.get(page.size() - 1);
+        }
+
+        // Then: Tous les rapports de la période une seule fois, du plus récent au plus ancien
+        assertEquals(3, pages);
+        assertEquals(120, all.size());
+        assertEquals(120, dbHelper.countTimeReports("2025-10-01", "2025-10-31"));
+        java.util.Set<Integer> ids = new java.util.HashSet<>();
+        for (int i = 0; i < all.size(); i++) {
+            assertTrue("Doublon détecté", ids.add(all.get(i).getId()));
+            if (i > 0) {
+                TimeReport previous = all.get(i - 1);
+                int byDate = previous.getReportDate().compareTo(all.get(i).getReportDate());
+                assertTrue(byDate > 0 || (byDate == 0 && previous.getId() > all.get(i).getId()));
+            }
+        }
+    }
+
     // ==================== Helper Methods ====================
 
     private Project createProject(int id, String name, int status) {
@@ -271,4 +617,20 @@ public class OfflineDatabaseHelperTest {
         report.setSynced(synced);
         return report;
     }
+
+    private ProjectNote createTestNote(int userId, String title, String content) {
+        ProjectNote note = new ProjectNote();
+        note.setUserId(userId);
+        note.setTitle(title);
+        note.setContent(content);
+        note.setNoteType("text");
+        return note;
+    }
+
+    private TimeReport createReportOn(String date, double hours) {
+        TimeReport report = createTimeReport(100, hours, false);
+        report.setEmployeeId(1);
+        report.setReportDate(date);
+        return report;
+    }
 }
@@ -0,0 +1,72 @@
+package com.ptms.mobile;
+
+import com.ptms.mobile.models.OutboxOperation;
+import com.ptms.mobile.sync.OutboxCoalescer;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests de la coalescence du journal d'envoi
+ *
+ * Vérifie:
+ * - Fusion des modifications successives d'une même entité
+ * - Annulation d'une paire création/suppression et report des dépendances
+ */
+public class OutboxCoalescerTest {
+
+    /**
+     * Test 1: Seule la première modification est conservée, les autres entités ne sont pas touchées
+     */
+    @Test
+    public void testCollapsesUpdates() {
+        OutboxCoalescer.Plan plan = OutboxCoalescer.plan(Arrays.asList(
+            op(1, OutboxOperation.ENTITY_TIME_REPORT, 10, OutboxOperation.OP_UPDATE, 0, 0),
+            op(2, OutboxOperation.ENTITY_TIME_REPORT, 10, OutboxOperation.OP_UPDATE, 1, 0),
+            op(3, OutboxOperation.ENTITY_TIME_REPORT, 11, OutboxOperation.OP_CREATE, 0, 0),
+            op(4, OutboxOperation.ENTITY_TIME_REPORT, 10, OutboxOperation.OP_UPDATE, 2, 0),
+            op(5, OutboxOperation.ENTITY_TIME_REPORT, 11, OutboxOperation.OP_UPDATE, 3, 0)));
+
+        assertEquals(3, plan.coalescedCount);
+        assertEquals(0, plan.droppedCount);
+        assertTrue(plan.removed.containsAll(Arrays.asList(2L, 4L, 5L)));
+        assertFalse(plan.removed.contains(1L));
+        assertFalse(plan.removed.contains(3L));
+        assertTrue(plan.rewired.isEmpty());
+    }
+
+    /**
+     * Test 2: Création puis suppression locale → rien n'est envoyé; suppression d'une note serveur conservée seule
+     */
+    @Test
+    public void testDropsCreateDeletePairs() {
+        OutboxCoalescer.Plan plan = OutboxCoalescer.plan(Arrays.asList(
+            op(1, OutboxOperation.ENTITY_PROJECT_NOTE, 20, OutboxOperation.OP_CREATE, 0, 0),
+            op(2, OutboxOperation.ENTITY_PROJECT_NOTE, 20, OutboxOperation.OP_MEDIA, 1, 0),
+            op(3, OutboxOperation.ENTITY_PROJECT_NOTE, 21, OutboxOperation.OP_UPDATE, 0, 0),
+            op(4, OutboxOperation.ENTITY_PROJECT_NOTE, 20, OutboxOperation.OP_DELETE, 1, 0),
+            op(5, OutboxOperation.ENTITY_PROJECT_NOTE, 21, OutboxOperation.OP_DELETE, 3, 77)));
+
+        assertEquals(4, plan.droppedCount);
+        assertTrue(plan.removed.containsAll(Arrays.asList(1L, 2L, 3L, 4L)));
+        assertFalse(plan.removed.contains(5L));
+        assertEquals(4, plan.getSavedCount());
+        // La suppression dépendait d'une modification retirée: elle devient prête
+        assertEquals(Long.valueOf(0), plan.rewired.get(5L));
+    }
+
+    private OutboxOperation op(long id, String entityType, long entityId, String operation,
+                               long dependsOn, int serverId) {
+        OutboxOperation op = new OutboxOperation();
+        op.setId(id);
+        op.setEntityType(entityType);
+        op.setEntityId(entityId);
+        op.setOperation(operation);
+        op.setDependsOn(dependsOn);
+        op.setServerId(serverId);
+        return op;
+    }
+}
@@ -0,0 +1,92 @@
+package com.ptms.mobile;
+
+import com.ptms.mobile.sync.ParallelUploadPipeline;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests de l'étape d'upload parallèle
+ *
+ * Vérifie:
+ * - Concurrence bornée
+ * - Commit dans l'ordre d'entrée malgré des durées d'upload différentes
+ * - Retry des erreurs transitoires, erreur remontée au commit après épuisement
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ParallelUploadPipelineTest {
+
+    /**
+     * Test 1: Commit ordonné et concurrence limitée à la valeur configurée
+     */
+    @Test
+    public void testOrderedCommitWithBoundedConcurrency() {
+        List<Integer> items = Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Integer> committed = new ArrayList<>();
+
+        new ParallelUploadPipeline<Integer, Integer>("test", 3).run(
+            items,
+            item -> {
+                int now = running.incrementAndGet();
+                maxRunning.accumulateAndGet(now, Math::max);
+                Thread.sleep((9 - item) * 10L); // les premiers éléments finissent en dernier
+                running.decrementAndGet();
+                return item * 10;
+            },
+            (item, result, error) -> {
+                assertNull(error);
+                assertEquals(item * 10, result.intValue());
+                committed.add(item);
+            });
+
+        assertEquals("Ordre d'entrée conservé", items, committed);
+        assertTrue("Au plus 3 uploads simultanés", maxRunning.get() <= 3);
+    }
+
+    /**
+     * Test 2: Erreur transitoire réessayée, échec définitif remonté au commit
+     */
+    @Test
+    public void testRetriesTransientErrors() {
+        ConcurrentHashMap<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        List<String> succeeded = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+
+        new ParallelUploadPipeline<String, String>("test", 2).run(
+            Arrays.asList("flaky", "down"),
+            item -> {
+                int attempt = attempts.computeIfAbsent(item, k -> new AtomicInteger()).incrementAndGet();
+                if (item.equals("down") || attempt == 1) {
+                    throw new ParallelUploadPipeline.RetryableHttpException(503);
+                }
+                return "ok";
+            },
+            (item, result, error) -> {
+                if (error == null) {
+                    succeeded.add(item);
+                } else {
+                    assertTrue(error instanceof IOException);
+                    failed.add(item);
+                }
+            });
+
+        assertEquals(Arrays.asList("flaky"), succeeded);
+        assertEquals(Arrays.asList("down"), failed);
+        assertEquals(2, attempts.get("flaky").get());
+        assertEquals("3 tentatives avant abandon", 3, attempts.get("down").get());
+    }
+}
@@ -0,0 +1,148 @@
+package com.ptms.mobile;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.ptms.mobile.database.OfflineDatabaseHelper;
+import com.ptms.mobile.database.QueryPlanChecker;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests des plans d'exécution SQLite (migration v8)
+ *
+ * Vérifie:
+ * - Création des index secondaires
+ * - Aucune requête fréquente d'OfflineDatabaseHelper ne fait de parcours complet de table
+ * - Le vérificateur détecte bien une requête non indexée
+ * - La pagination keyset des notes suit l'ordre de l'index, sans tri temporaire
+ * - La pagination keyset des rapports suit l'ordre de l'index des dates, sans tri temporaire
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class QueryPlanCheckerTest {
+
+    private OfflineDatabaseHelper dbHelper;
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        dbHelper = new OfflineDatabaseHelper(context);
+    }
+
+    @After
+    public void tearDown() {
+        if (dbHelper != null) {
+            dbHelper.close();
+        }
+    }
+
+    /**
+     * Test 1: Les index v8 existent après création de la base
+     */
+    @Test
+    public void testIndexesCreated() {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+
+        assertTrue(indexExists(db, "idx_time_reports_sync_status"));
+        assertTrue(indexExists(db, "idx_time_reports_report_date"));
+        assertTrue(indexExists(db, "idx_time_reports_server_id"));
+        assertTrue(indexExists(db, "idx_project_notes_user"));
+        assertTrue(indexExists(db, "idx_project_notes_group_user"));
+        assertTrue(indexExists(db, "idx_project_notes_project_user"));
+        assertTrue(indexExists(db, "idx_project_notes_sync_status"));
+    }
+
+    /**
+     * Test 2: Aucune requête fréquente ne retombe sur un parcours complet de table
+     */
+    @Test
+    public void testHotQueriesUseIndexes() {
+        List<String> violations = dbHelper.auditQueryPlans();
+
+        assertTrue("Parcours complets détectés: " + violations, violations.isEmpty());
+    }
+
+    /**
+     * Test 3: Le vérificateur détecte une requête sur une colonne non indexée
+     */
+    @Test
+    public void testCheckerDetectsFullScan() {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+
+        List<String> violations = QueryPlanChecker.findFullTableScans(db, Collections.singletonList(
+            new QueryPlanChecker.HotQuery("titleLookup",
+                "SELECT * FROM project_notes WHERE title = ?", "Note")));
+
+        assertEquals("Le parcours complet devrait être détecté", 1, violations.size());
+    }
+
+    /**
+     * Test 4: Interprétation des lignes de plan (anciennes et nouvelles versions de SQLite)
+     */
+    @Test
+    public void testIsFullTableScan() {
+        assertTrue(QueryPlanChecker.isFullTableScan("SCAN TABLE project_notes"));
+        assertTrue(QueryPlanChecker.isFullTableScan("SCAN project_notes"));
+        assertFalse(QueryPlanChecker.isFullTableScan("SEARCH TABLE project_notes USING INDEX idx_project_notes_user (user_id=?)"));
+        assertFalse(QueryPlanChecker.isFullTableScan("SCAN project_notes USING INDEX idx_project_notes_user"));
+        assertFalse(QueryPlanChecker.isFullTableScan("USE TEMP B-TREE FOR ORDER BY"));
+    }
+
+    /**
+     * Test 5: La page suivante des notes est lue dans l'index (user_id, is_important, created_at, id), sans tri
+     */
+    @Test
+    public void testNotesKeysetPageUsesIndexOrder() {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+
+        List<String> plan = QueryPlanChecker.explain(db,
+            "SELECT id FROM project_notes WHERE user_id = ?" +
+            " AND (is_important < ? OR (is_important = ? AND (created_at < ? OR (created_at = ? AND id < ?))))" +
+            " ORDER BY is_important DESC, created_at DESC, id DESC LIMIT ?",
+            new String[]{"1", "1", "1", "1700000000000", "1700000000000", "100", "50"});
+
+        assertTrue("Plan: " + plan, plan.toString().contains("idx_project_notes_user"));
+        assertFalse("Plan: " + plan, plan.toString().contains("TEMP B-TREE"));
+    }
+
+    /**
+     * Test 6: La page suivante des rapports est lue dans idx_time_reports_report_date (l'ID est le rowid), sans tri
+     */
+    @Test
+    public void testReportsKeysetPageUsesIndexOrder() {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+
+        List<String> plan = QueryPlanChecker.explain(db,
+            "SELECT * FROM time_reports WHERE report_date >= ? AND report_date <= ?" +
+            " AND (report_date < ? OR (report_date = ? AND id < ?))" +
+            " ORDER BY report_date DESC, id DESC LIMIT ?",
+            new String[]{"2025-01-01", "2025-03-31", "2025-02-15", "2025-02-15", "100", "50"});
+
+        assertTrue("Plan: " + plan, plan.toString().contains("idx_time_reports_report_date"));
+        assertFalse("Plan: " + plan, plan.toString().contains("TEMP B-TREE"));
+    }
+
+    private boolean indexExists(SQLiteDatabase db, String indexName) {
+        Cursor cursor = db.rawQuery(
+            "SELECT name FROM sqlite_master WHERE type='index' AND name=?",
+            new String[]{indexName}
+        );
+        boolean exists = cursor.getCount() > 0;
+        cursor.close();
+        return exists;
+    }
+}
@@ -0,0 +1,47 @@
+package com.ptms.mobile;
+
+import com.ptms.mobile.database.SearchIndex;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests de la correspondance en mémoire utilisée pour l'affinage de la recherche
+ *
+ * Vérifie:
+ * - Mêmes règles que l'index (préfixes, accents, ponctuation)
+ * - Une saisie prolongée ne trouve jamais plus que la saisie précédente
+ */
+public class SearchIndexTest {
+
+    /**
+     * Test 1: Chaque mot de la saisie doit commencer un mot du texte, sans tenir compte des accents
+     */
+    @Test
+    public void testPrefixMatchingIgnoresAccents() {
+        assertTrue(SearchIndex.matches("reu chan", "Réunion de chantier", null));
+        assertTrue(SearchIndex.matches("ÉTÉ", "planning d'été"));
+        assertFalse(SearchIndex.matches("union", "Réunion de chantier"));
+        assertFalse(SearchIndex.matches("reunion client", "Réunion de chantier"));
+        assertTrue(SearchIndex.matches("  ", "Texte quelconque"));
+    }
+
+    /**
+     * Test 2: Les résultats d'une saisie prolongée sont inclus dans ceux de la saisie précédente
+     */
+    @Test
+    public void testExtendedQueryIsSubsetOfPrefix() {
+        String[] texts = {"Réunion de chantier", "Rapport client", "Chantier Nord", "Réception"};
+        String[] typed = {"r", "re", "reu", "reu ", "reu c", "reu ch"};
+        for (int step = 1; step < typed.length; step++) {
+            for (String text : texts) {
+                if (SearchIndex.matches(typed[step], text)) {
+                    assertTrue(typed[step] + " ⊂ " + typed[step - 1] + " pour " + text,
+                        SearchIndex.matches(typed[step - 1], text));
+                }
+            }
+        }
+        assertEquals("reu* ch*", SearchIndex.toMatchQuery("reu ch"));
+    }
+}
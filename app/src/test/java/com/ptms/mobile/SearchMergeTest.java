@@ -0,0 +1,89 @@
+package com.ptms.mobile;
+
+import android.content.Context;
+
+import com.ptms.mobile.database.OfflineDatabaseHelper;
+import com.ptms.mobile.models.ProjectNote;
+import com.ptms.mobile.utils.SearchManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests de la fusion des résultats locaux et serveur (recherche fédérée)
+ *
+ * Vérifie:
+ * - Dédoublonnage par ID serveur, version locale conservée et classée en tête
+ * - Filtres locaux appliqués aux éléments venus du serveur
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class SearchMergeTest {
+
+    private OfflineDatabaseHelper dbHelper;
+    private SearchManager searchManager;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.getApplication();
+        dbHelper = OfflineDatabaseHelper.getInstance(context);
+        dbHelper.clearAllData();
+        searchManager = new SearchManager(context);
+        searchManager.clearCache();
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.clearAllData();
+        searchManager.clearCache();
+    }
+
+    /**
+     * Test 1: Une note trouvée des deux côtés n'apparaît qu'une fois; les notes serveur filtrées sont écartées
+     */
+    @Test
+    public void testMergeDeduplicatesByServerId() {
+        ProjectNote localNote = note(0, "Réunion de chantier", true);
+        long localId = dbHelper.insertProjectNote(localNote);
+        dbHelper.markProjectNoteAsSynced(localId, 42);
+
+        SearchManager.SearchCriteria criteria = new SearchManager.SearchCriteria();
+        criteria.query = "reunion";
+        criteria.searchType = SearchManager.SearchType.NOTES;
+        criteria.importantOnly = true;
+        SearchManager.SearchResults local = searchManager.search(criteria);
+        assertEquals(1, local.notes.size());
+
+        SearchManager.SearchResults remote = new SearchManager.SearchResults();
+        remote.notes.add(note(7, "Réunion client", true));
+        remote.notes.add(note(42, "Réunion de chantier (serveur)", true));
+        remote.notes.add(note(9, "Réunion annulée", false)); // écartée: pas importante
+
+        SearchManager.SearchResults merged = searchManager.merge(local, remote, criteria);
+
+        assertEquals(2, merged.notes.size());
+        assertEquals(2, merged.totalCount);
+        assertEquals(localId, merged.notes.get(0).getLocalId());
+        assertEquals("Réunion de chantier", merged.notes.get(0).getTitle());
+        assertEquals(7, merged.notes.get(1).getId());
+        assertFalse(merged.complete);
+    }
+
+    private ProjectNote note(int serverId, String title, boolean important) {
+        ProjectNote note = new ProjectNote();
+        note.setId(serverId);
+        note.setUserId(0); // utilisateur de la session (aucune session en test)
+        note.setTitle(title);
+        note.setContent("Contenu");
+        note.setNoteType("text");
+        note.setImportant(important);
+        return note;
+    }
+}
@@ -0,0 +1,98 @@
+package com.ptms.mobile;
+
+import android.content.Context;
+
+import com.ptms.mobile.database.OfflineDatabaseHelper;
+import com.ptms.mobile.models.ProjectNote;
+import com.ptms.mobile.utils.SearchManager;
+import com.ptms.mobile.utils.SearchResultsCache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests du cache des résultats de recherche
+ *
+ * Vérifie:
+ * - Hit sur une recherche répétée, réhydratée depuis la base
+ * - Invalidation par une écriture sur une table indexée
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class SearchResultsCacheTest {
+
+    private OfflineDatabaseHelper dbHelper;
+    private SearchManager searchManager;
+    private SearchResultsCache cache;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.getApplication();
+        dbHelper = OfflineDatabaseHelper.getInstance(context);
+        dbHelper.clearAllData();
+        searchManager = new SearchManager(context);
+        cache = searchManager.getResultsCache();
+        cache.clear();
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.clearAllData();
+        cache.clear();
+    }
+
+    /**
+     * Test 1: La seconde recherche identique est servie par le cache
+     */
+    @Test
+    public void testRepeatedSearchHitsCache() {
+        insertNote("Réunion de chantier");
+
+        long hitsBefore = cache.getHitCount();
+        SearchManager.SearchResults first = searchManager.search(criteria("reunion"));
+        SearchManager.SearchResults second = searchManager.search(criteria("reunion"));
+
+        assertEquals(1, first.notes.size());
+        assertEquals(1, second.notes.size());
+        assertEquals(first.notes.get(0).getLocalId(), second.notes.get(0).getLocalId());
+        assertEquals(hitsBefore + 1, cache.getHitCount());
+    }
+
+    /**
+     * Test 2: Une nouvelle note invalide les recherches en cache
+     */
+    @Test
+    public void testWriteInvalidatesCachedSearch() {
+        insertNote("Réunion de chantier");
+        searchManager.search(criteria("reunion"));
+        assertEquals(1, cache.size());
+
+        insertNote("Réunion client");
+
+        assertEquals(0, cache.size());
+        assertEquals(2, searchManager.search(criteria("reunion")).notes.size());
+    }
+
+    private SearchManager.SearchCriteria criteria(String query) {
+        SearchManager.SearchCriteria criteria = new SearchManager.SearchCriteria();
+        criteria.query = query;
+        criteria.searchType = SearchManager.SearchType.NOTES;
+        return criteria;
+    }
+
+    private void insertNote(String title) {
+        ProjectNote note = new ProjectNote();
+        note.setUserId(0); // utilisateur de la session (aucune session en test)
+        note.setTitle(title);
+        note.setContent("Contenu");
+        note.setNoteType("text");
+        dbHelper.insertProjectNote(note);
+    }
+}
@@ -0,0 +1,128 @@
+package com.ptms.mobile;
+
+import android.content.Context;
+import android.os.Looper;
+
+import androidx.lifecycle.Observer;
+
+import com.ptms.mobile.database.NoteCounts;
+import com.ptms.mobile.database.OfflineDatabaseHelper;
+import com.ptms.mobile.database.TableLiveData;
+import com.ptms.mobile.models.ProjectNote;
+import com.ptms.mobile.models.WorkType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Tests des requêtes observables du stockage local
+ *
+ * Vérifie:
+ * - Valeur initiale publiée à l'activation
+ * - Requête relancée après une écriture sur sa table, pas sur une autre table
+ * - Compteurs de la liste des notes mis à jour par une écriture sur les notes
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class TableLiveDataTest {
+
+    private static final long TIMEOUT_MS = 5000;
+
+    private OfflineDatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.getApplication();
+        dbHelper = OfflineDatabaseHelper.getInstance(context);
+        dbHelper.clearAllData();
+    }
+
+    @After
+    public void tearDown() {
+        dbHelper.clearAllData();
+    }
+
+    /**
+     * Test 1: Une écriture sur les notes ne relance pas la requête des types de travail
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRequeriesOnlyOnDependentTable() throws Exception {
+        TableLiveData<List<WorkType>> workTypes = (TableLiveData<List<WorkType>>) dbHelper.observeWorkTypes();
+        Observer<List<WorkType>> observer = value -> { };
+        workTypes.observeForever(observer);
+        try {
+            awaitValue(workTypes, List::isEmpty);
+            assertEquals(1, workTypes.getQueryCount());
+
+            ProjectNote note = new ProjectNote();
+            note.setTitle("Note hors sujet");
+            note.setContent("Contenu");
+            note.setNoteType("text");
+            dbHelper.insertProjectNote(note);
+
+            dbHelper.insertWorkType(new WorkType(5, "Maçonnerie", "Gros œuvre"));
+            awaitValue(workTypes, list -> list.size() == 1);
+
+            assertEquals("Maçonnerie", workTypes.getValue().get(0).getName());
+            assertEquals(2, workTypes.getQueryCount());
+        } finally {
+            workTypes.removeObserver(observer);
+        }
+    }
+
+    /**
+     * Test 2: Une note ajoutée met à jour les compteurs observés par la liste des notes
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testNoteCountsFollowNoteWrites() throws Exception {
+        TableLiveData<NoteCounts> counts =
+            (TableLiveData<NoteCounts>) dbHelper.observeNoteCounts(1, "personal", false);
+        Observer<NoteCounts> observer = value -> { };
+        counts.observeForever(observer);
+        try {
+            awaitValue(counts, value -> value.total == 0);
+
+            ProjectNote note = new ProjectNote();
+            note.setUserId(1);
+            note.setTitle("Note personnelle");
+            note.setContent("Contenu");
+            note.setNoteType("text");
+            note.setNoteGroup("personal");
+            note.setImportant(true);
+            dbHelper.insertProjectNote(note);
+
+            awaitValue(counts, value -> value.total == 1);
+            assertEquals(1, counts.getValue().category);
+            assertEquals(1, counts.getValue().important);
+        } finally {
+            counts.removeObserver(observer);
+        }
+    }
+
+    private <T> void awaitValue(TableLiveData<T> liveData, Predicate<T> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            // postValue passe par le thread UI
+            shadowOf(Looper.getMainLooper()).idle();
+            T value = liveData.getValue();
+            if (value != null && condition.test(value)) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("Valeur attendue non publiée après " + TIMEOUT_MS + " ms");
+    }
+}
@@ -0,0 +1,174 @@
+package com.ptms.mobile;
+
+import android.content.Context;
+
+import com.ptms.mobile.api.ApiService;
+import com.ptms.mobile.database.OfflineDatabaseHelper;
+import com.ptms.mobile.models.TimeReport;
+import com.ptms.mobile.sync.TimeReportBatchUploader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests de l'upload des rapports par lots contre un serveur local (MockWebServer)
+ *
+ * Vérifie:
+ * - Découpage en lots et une requête par lot
+ * - Application des résultats par élément (server_id, échecs)
+ * - Clés d'idempotence identiques quand un lot est rejoué
+ * - Repli unitaire si l'endpoint batch n'existe pas
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class TimeReportBatchUploaderTest {
+
+    private MockWebServer server;
+    private ApiService apiService;
+    private OfflineDatabaseHelper dbHelper;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+
+        apiService = new Retrofit.Builder()
+            .baseUrl(server.url("/api/"))
+            .addConverterFactory(GsonConverterFactory.create())
+            .build()
+            .create(ApiService.class);
+
+        Context context = RuntimeEnvironment.getApplication();
+        dbHelper = new OfflineDatabaseHelper(context);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        if (dbHelper != null) {
+            dbHelper.close();
+        }
+    }
+
+    /**
+     * Test 1: 3 rapports, lots de 2 → 2 requêtes, résultats appliqués par clé
+     */
+    @Test
+    public void testUploadInBatchesMapsPerItemResults() throws Exception {
+        // Given: 3 rapports en attente
+        insertPendingReports(3);
+        List<TimeReport> pending = dbHelper.getAllPendingTimeReports();
+
+        server.enqueue(jsonResponse(200, "{\"success\":true,\"results\":["
+            + itemResult(pending.get(0), true, 501) + "," + itemResult(pending.get(1), true, 502) + "]}"));
+        server.enqueue(jsonResponse(200, "{\"success\":true,\"results\":["
+            + itemResult(pending.get(2), false, 0) + "]}"));
+
+        // When
+        TimeReportBatchUploader.Outcome outcome =
+            new TimeReportBatchUploader(apiService, dbHelper, 2).upload("Bearer test", pending, null);
+
+        // Then
+        assertEquals("Une requête par lot", 2, server.getRequestCount());
+        RecordedRequest first = server.takeRequest();
+        assertEquals("/api/time-entry-batch.php", first.getPath());
+        assertNotNull("La clé du lot devrait être envoyée", first.getHeader("Idempotency-Key"));
+        assertTrue(first.getBody().readUtf8().contains(pending.get(0).getIdempotencyKey()));
+
+        assertEquals(2, outcome.uploadedCount);
+        assertEquals(1, outcome.failedCount);
+        assertNotNull(dbHelper.getTimeReportByServerId(501));
+        assertNotNull(dbHelper.getTimeReportByServerId(502));
+        assertEquals("Le rapport refusé reste en attente", 1, dbHelper.getPendingSyncCount());
+    }
+
+    /**
+     * Test 2: Un lot rejoué après une erreur porte les mêmes clés (aucun doublon possible)
+     */
+    @Test
+    public void testRetriedBatchReusesIdempotencyKeys() throws Exception {
+        // Given: 2 rapports, première tentative en erreur serveur
+        insertPendingReports(2);
+        List<TimeReport> pending = dbHelper.getAllPendingTimeReports();
+        server.enqueue(jsonResponse(500, "{}"));
+
+        TimeReportBatchUploader uploader = new TimeReportBatchUploader(apiService, dbHelper, 50);
+        uploader.upload("Bearer test", pending, null);
+
+        // When: Nouvelle tentative avec les rapports relus depuis la base
+        List<TimeReport> retried = dbHelper.getAllPendingTimeReports();
+        server.enqueue(jsonResponse(200, "{\"success\":true,\"results\":["
+            + itemResult(retried.get(0), true, 601) + "," + itemResult(retried.get(1), true, 602) + "]}"));
+        TimeReportBatchUploader.Outcome outcome = uploader.upload("Bearer test", retried, null);
+
+        // Then: Même clé de lot, mêmes clés d'élément
+        RecordedRequest firstAttempt = server.takeRequest();
+        RecordedRequest secondAttempt = server.takeRequest();
+        assertEquals(firstAttempt.getHeader("Idempotency-Key"), secondAttempt.getHeader("Idempotency-Key"));
+        String retriedBody = secondAttempt.getBody().readUtf8();
+        for (TimeReport report : pending) {
+            assertTrue(retriedBody.contains(report.getIdempotencyKey()));
+        }
+        assertEquals(2, outcome.uploadedCount);
+        assertEquals(0, dbHelper.getPendingSyncCount());
+    }
+
+    /**
+     * Test 3: Endpoint batch absent (404) → rapports rendus pour l'upload unitaire
+     */
+    @Test
+    public void testUnsupportedEndpointFallsBack() {
+        insertPendingReports(3);
+        List<TimeReport> pending = dbHelper.getAllPendingTimeReports();
+        server.enqueue(jsonResponse(404, "{}"));
+
+        TimeReportBatchUploader.Outcome outcome =
+            new TimeReportBatchUploader(apiService, dbHelper, 2).upload("Bearer test", pending, null);
+
+        assertEquals(3, outcome.unsupported.size());
+        assertEquals(0, outcome.failedCount);
+        assertEquals(3, dbHelper.getPendingSyncCount());
+    }
+
+    // ==================== Helper Methods ====================
+
+    private void insertPendingReports(int count) {
+        for (int i = 0; i < count; i++) {
+            TimeReport report = new TimeReport();
+            report.setProjectId(1);
+            report.setWorkTypeId(1);
+            report.setReportDate("2025-10-2" + i);
+            report.setDatetimeFrom("2025-10-2" + i + " 08:00:00");
+            report.setDatetimeTo("2025-10-2" + i + " 16:00:00");
+            report.setHours(8.0);
+            dbHelper.insertTimeReport(report);
+        }
+    }
+
+    private static String itemResult(TimeReport report, boolean success, int id) {
+        return "{\"idempotencyKey\":\"" + report.getIdempotencyKey() + "\",\"success\":" + success
+            + ",\"id\":" + id + (success ? "" : ",\"error\":\"Projet fermé\"") + "}";
+    }
+
+    private static MockResponse jsonResponse(int code, String body) {
+        return new MockResponse()
+            .setResponseCode(code)
+            .setHeader("Content-Type", "application/json")
+            .setBody(body);
+    }
+}
@@ -0,0 +1,90 @@
+package com.ptms.mobile;
+
+import android.os.SystemClock;
+
+import com.ptms.mobile.sync.UploadProgressReporter;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests de la progression d'upload throttlée et coalescée
+ *
+ * Vérifie:
+ * - Publication par pas de 5% tant que 250 ms ne sont pas écoulées, 100% toujours publié
+ * - Une seule écriture en file: les valeurs publiées pendant l'attente sont écrasées par la dernière
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class UploadProgressReporterTest {
+
+    private static final long FILE_SIZE = 1000;
+
+    /**
+     * Test 1: 100 callbacks à 1% d'écart → 0%, puis un pas de 5% jusqu'à 100%
+     */
+    @Test
+    public void testThrottlesSmallSteps() {
+        List<Integer> written = new ArrayList<>();
+        UploadProgressReporter reporter = new UploadProgressReporter(Runnable::run, written::add);
+
+        reporter.start();
+        for (long bytes = 10; bytes <= FILE_SIZE; bytes += 10) {
+            reporter.onProgress(bytes, FILE_SIZE);
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for (int percent = 0; percent <= 100; percent += 5) {
+            expected.add(percent);
+        }
+        assertEquals(expected, written);
+
+        // Après 250 ms, un pas de 1% est publié
+        written.clear();
+        reporter = new UploadProgressReporter(Runnable::run, written::add);
+        reporter.start();
+        SystemClock.sleep(300);
+        reporter.onProgress(10, FILE_SIZE);
+        assertEquals(Arrays.asList(0, 1), written);
+    }
+
+    /**
+     * Test 2: Écriture en attente sur le thread de la base → une seule écriture, avec la dernière valeur
+     */
+    @Test
+    public void testCoalescesPendingWrites() {
+        List<Runnable> queued = new ArrayList<>();
+        List<Integer> written = new ArrayList<>();
+        UploadProgressReporter reporter = new UploadProgressReporter(queued::add, written::add);
+
+        reporter.start();
+        for (long bytes = 50; bytes <= FILE_SIZE / 2; bytes += 50) {
+            reporter.onProgress(bytes, FILE_SIZE);
+        }
+        assertEquals(1, queued.size());
+
+        runAll(queued);
+        assertEquals(Arrays.asList(50), written);
+
+        reporter.onProgress(FILE_SIZE, FILE_SIZE);
+        assertEquals(1, queued.size());
+        runAll(queued);
+        assertEquals(Arrays.asList(50, 100), written);
+    }
+
+    private void runAll(List<Runnable> queued) {
+        List<Runnable> tasks = new ArrayList<>(queued);
+        queued.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+}